@@ -1,13 +1,61 @@
+import config.Configuracao;
+import dao.Conexao;
+import dao.Migracoes;
+import dao.RepositorioBlobsArquivos;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.stage.Stage;
+import service.EstoqueService;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Main extends Application {
 
+    private ScheduledExecutorService tarefas;
+    /** Falha das migrações automáticas em {@link #init()}; a aplicação não abre sobre um esquema pela metade. */
+    private SQLException falhaMigracoes;
+
+    /** Roda na thread do launcher, antes de qualquer janela: a UI não espera nem vê o esquema sendo migrado. */
+    @Override
+    public void init() {
+        // Lê a configuração uma única vez (falha cedo se estiver inválida)
+        Configuracao cfg = Configuracao.get();
+        // sem pasta das imagens definida, só as imagens do odontograma ficam desativadas
+        if (RepositorioBlobsArquivos.diretorioConfigurado() == null) {
+            System.err.println("⚠ blobs.diretorio não configurado: imagens do odontograma desativadas.");
+        }
+        if (cfg.getBoolean("db.migracoes.automaticas", false)) {
+            try {
+                Migracoes.executar();
+            } catch (SQLException e) {
+                System.err.println("❌ ERRO AO APLICAR MIGRAÇÕES DO BANCO");
+                e.printStackTrace();
+                falhaMigracoes = e;
+            }
+        }
+    }
+
     @Override
     public void start(Stage stage) throws Exception {
+        if (falhaMigracoes != null) {
+            Alert alerta = new Alert(Alert.AlertType.ERROR,
+                    "Não foi possível atualizar o banco de dados: " + falhaMigracoes.getMessage()
+                            + "\nCorrija o problema (ou aplique as migrações com dao.Migracoes) e abra o sistema novamente.");
+            alerta.setHeaderText("Falha nas migrações do banco");
+            alerta.showAndWait();
+            Platform.exit();
+            return;
+        }
+
+        agendarConsolidacaoEstoque(Configuracao.get());
+
         // LOGIN PRIMEIRO
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/Login.fxml")); // ou /view/Login.fxml
         Parent root = loader.load();
@@ -19,6 +67,38 @@ public class Main extends Application {
         stage.show();
     }
 
+    /** Fotografias periódicas de saldo do livro de estoque, fora da thread da UI. */
+    private void agendarConsolidacaoEstoque(Configuracao cfg) {
+        long intervaloMin = cfg.getLong("estoque.saldos.intervaloMinutos", 24 * 60);
+        long margemMin = cfg.getLong("estoque.saldos.margemMinutos", 10);
+        if (intervaloMin <= 0) return;
+
+        tarefas = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "saco-consolidacao-estoque");
+            t.setDaemon(true);
+            return t;
+        });
+        EstoqueService estoque = new EstoqueService();
+        tarefas.scheduleWithFixedDelay(() -> {
+            try {
+                estoque.consolidarSaldos(margemMin);
+            } catch (EstoqueService.ServiceException e) {
+                System.err.println("⚠ Falha ao consolidar saldos de estoque: " + e.getMessage());
+            } catch (RuntimeException e) {
+                // exceção escapando cancelaria as execuções seguintes sem aviso
+                System.err.println("⚠ Erro inesperado ao consolidar saldos de estoque: " + e);
+                e.printStackTrace();
+            }
+        }, 1, intervaloMin, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void stop() {
+        if (tarefas != null) tarefas.shutdownNow();
+        // devolve/fecha as conexões do pool ao encerrar a aplicação
+        Conexao.fechar();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -0,0 +1,153 @@
+package config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Configuração da aplicação, carregada uma única vez na inicialização.
+ *
+ * Ordem de precedência (o último vence):
+ * 1. {@code saco.properties} do classpath (padrões)
+ * 2. {@code saco-<perfil>.properties} do classpath
+ * 3. arquivo externo ({@code -Dsaco.config=/caminho} ou {@code ./saco.properties})
+ * 4. variáveis de ambiente: chave em maiúsculas com prefixo SACO_ e '.' trocado por '_'
+ *    (ex.: {@code db.url} → {@code SACO_DB_URL})
+ * 5. propriedades de sistema com a mesma chave (ex.: {@code -Ddb.url=...})
+ *
+ * O perfil vem de {@code -Dsaco.perfil}, {@code SACO_PERFIL} ou da chave {@code perfil} do arquivo base.
+ */
+public final class Configuracao {
+
+    private static final String ARQUIVO_BASE = "saco.properties";
+    private static volatile Configuracao instancia;
+
+    private final String perfil;
+    private final Properties valores;
+
+    private Configuracao(String perfil, Properties valores) {
+        this.perfil = perfil;
+        this.valores = valores;
+    }
+
+    /** Retorna a configuração carregada (carrega na primeira chamada). */
+    public static Configuracao get() {
+        Configuracao c = instancia;
+        if (c == null) {
+            synchronized (Configuracao.class) {
+                c = instancia;
+                if (c == null) instancia = c = carregar();
+            }
+        }
+        return c;
+    }
+
+    private static Configuracao carregar() {
+        Properties props = new Properties();
+        lerClasspath(props, ARQUIVO_BASE, true);
+
+        String perfil = primeiroNaoVazio(
+                System.getProperty("saco.perfil"),
+                System.getenv("SACO_PERFIL"),
+                props.getProperty("perfil"),
+                "dev");
+        lerClasspath(props, "saco-" + perfil + ".properties", false);
+
+        Path externo = Path.of(System.getProperty("saco.config", ARQUIVO_BASE));
+        if (Files.isRegularFile(externo)) {
+            try (Reader r = Files.newBufferedReader(externo, StandardCharsets.UTF_8)) {
+                props.load(r);
+            } catch (IOException e) {
+                throw new IllegalStateException("Erro ao ler configuração externa: " + externo, e);
+            }
+        }
+
+        // Sobrescritas por ambiente e por -D (apenas para chaves conhecidas)
+        Map<String, String> env = System.getenv();
+        for (String chave : props.stringPropertyNames()) {
+            String valorEnv = env.get(nomeVariavelAmbiente(chave));
+            if (valorEnv != null) props.setProperty(chave, valorEnv);
+            String valorSys = System.getProperty(chave);
+            if (valorSys != null) props.setProperty(chave, valorSys);
+        }
+        props.setProperty("perfil", perfil);
+
+        return new Configuracao(perfil, props);
+    }
+
+    private static void lerClasspath(Properties destino, String nome, boolean obrigatorio) {
+        try (InputStream in = Configuracao.class.getResourceAsStream("/" + nome)) {
+            if (in == null) {
+                if (obrigatorio) throw new IllegalStateException("Arquivo de configuração não encontrado: " + nome);
+                return;
+            }
+            destino.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao ler configuração: " + nome, e);
+        }
+    }
+
+    static String nomeVariavelAmbiente(String chave) {
+        return "SACO_" + chave.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_');
+    }
+
+    private static String primeiroNaoVazio(String... valores) {
+        for (String v : valores) {
+            if (v != null && !v.isBlank()) return v.trim();
+        }
+        return null;
+    }
+
+    // ============================================================
+    // ========================= LEITURA ==========================
+    // ============================================================
+
+    public String getPerfil() {
+        return perfil;
+    }
+
+    /** Valor obrigatório. */
+    public String get(String chave) {
+        String v = valores.getProperty(chave);
+        if (v == null) throw new IllegalStateException("Configuração obrigatória ausente: " + chave);
+        return v.trim();
+    }
+
+    public String get(String chave, String padrao) {
+        String v = valores.getProperty(chave);
+        return v == null ? padrao : v.trim();
+    }
+
+    public int getInt(String chave, int padrao) {
+        String v = get(chave, null);
+        return (v == null || v.isEmpty()) ? padrao : Integer.parseInt(v);
+    }
+
+    public long getLong(String chave, long padrao) {
+        String v = get(chave, null);
+        return (v == null || v.isEmpty()) ? padrao : Long.parseLong(v);
+    }
+
+    public boolean getBoolean(String chave, boolean padrao) {
+        String v = get(chave, null);
+        return (v == null || v.isEmpty()) ? padrao : Boolean.parseBoolean(v);
+    }
+
+    /** Todas as chaves que começam com o prefixo, com o prefixo removido (ex.: "db.driver."). */
+    public Properties comPrefixo(String prefixo) {
+        Properties p = new Properties();
+        for (String chave : valores.stringPropertyNames()) {
+            if (chave.startsWith(prefixo)) {
+                p.setProperty(chave.substring(prefixo.length()), valores.getProperty(chave).trim());
+            }
+        }
+        return p;
+    }
+}
@@ -1,20 +1,27 @@
 package controller;
 
-import dao.CadastroPessoaDao;
-import dao.TratamentoDao;
+import dao.AgendamentoDAO;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.GridPane;
 import javafx.util.StringConverter;
 import model.Agendamento;
 import model.Dentista;
+import model.HorarioLivre;
+import model.OcorrenciaSerie;
 import model.Pessoa;       // paciente
+import model.Recorrencia;
 import model.Tratamento;
 import model.StatusAgendamento;
 import service.AgendamentoService;
+import service.CadastroPessoaService;
+import service.TratamentoService;
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -50,13 +57,20 @@ public class AgendamentoController {
     @FXML private TextArea txtObs;
 
     // ====== Botões (ids opcionais, mas úteis para testes) ======
-    @FXML private Button btnNovo, btnSalvar, btnAtualizar, btnExcluir, btnRecarregar, btnLimpar;
+    @FXML private Button btnNovo, btnSalvar, btnAtualizar, btnExcluir, btnRecarregar, btnLimpar, btnHorarios, btnConfirmarDia, btnSerie;
 
     // ====== Infra ======
+    private static final int TAMANHO_PAGINA = 100;
+    private static final int SUGESTOES_PACIENTE = 20;
+    private static final int DIAS_BUSCA_HORARIOS = 90;
+    private static final int QTD_HORARIOS_SUGERIDOS = 10;
+
     private final ObservableList<Agendamento> dados = FXCollections.observableArrayList();
-    private final AgendamentoService service = new AgendamentoService(); // usa DurationProvider default (60min)
-    private final CadastroPessoaDao cadastroDao = new CadastroPessoaDao();
-    private final TratamentoDao tratamentoDao = new TratamentoDao();
+    private AgendamentoDAO.ChavePagina ultimaChave;   // keyset da última linha carregada
+    private boolean fimDosDados;
+    private final AgendamentoService service = new AgendamentoService(); // durações vêm do CatalogoDuracoes
+    private final CadastroPessoaService pessoaService = new CadastroPessoaService();   // listas via CacheReferencia
+    private final TratamentoService tratamentoService = new TratamentoService();
     private final SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
     private final DateTimeFormatter dpFmt = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
@@ -80,6 +94,10 @@ public class AgendamentoController {
 
 
         tabela.setItems(dados);
+        // Carrega a próxima página quando a rolagem chega ao fim da tabela
+        tabela.skinProperty().addListener((obs, old, skin) -> {
+            if (skin != null) instalarPaginacaoPorRolagem();
+        });
         tabela.getSelectionModel().selectedItemProperty().addListener((obs, old, sel) -> {
             if (sel != null) preencherFormulario(sel);
         });
@@ -99,17 +117,18 @@ public class AgendamentoController {
 
     private void carregarCombos() {
         try {
-            cbPaciente.setItems(FXCollections.observableArrayList(cadastroDao.listarPacientes()));
-            cbDentista.setItems(FXCollections.observableArrayList(cadastroDao.listarDentista()));
-            cbTratamento.setItems(FXCollections.observableArrayList(tratamentoDao.listar()));
-        } catch (SQLException e) {
+            cbPaciente.setItems(FXCollections.observableArrayList(pessoaService.buscarPacientes("", SUGESTOES_PACIENTE)));
+            cbDentista.setItems(FXCollections.observableArrayList(pessoaService.listarDentistas()));
+            cbTratamento.setItems(FXCollections.observableArrayList(tratamentoService.listar()));
+        } catch (SQLException | TratamentoService.ServiceException e) {
             mostrarErro("Erro ao carregar listas", e.getMessage());
         }
 
         cbStatus.setItems(FXCollections.observableArrayList(StatusAgendamento.values()));
 
         // Renderização dos itens
-        setupCombo(cbPaciente, Pessoa::getNome);
+        ComboAutoCompletar.configurar(cbPaciente, t -> pessoaService.buscarPacientes(t, SUGESTOES_PACIENTE),
+                Pessoa::getNome, e -> mostrarErro("Erro ao buscar pacientes", e.getMessage()));
         setupCombo(cbDentista, Dentista::getNome);
         setupCombo(cbTratamento, Tratamento::getDescricao);
 
@@ -139,18 +158,43 @@ public class AgendamentoController {
         });
     }
 
+    /** Recarrega do início (primeira página). */
     private void carregarDados() {
+        ultimaChave = null;
+        fimDosDados = false;
+        dados.clear();
+        carregarProximaPagina();
+    }
+
+    private void carregarProximaPagina() {
+        if (fimDosDados) return;
         try {
-            List<Agendamento> lista = service.listar();
-            dados.setAll(lista);
+            List<Agendamento> pagina = service.listar(null, null, null, null, ultimaChave, TAMANHO_PAGINA);
+            dados.addAll(pagina);
+            if (pagina.size() < TAMANHO_PAGINA) fimDosDados = true;
+            if (!pagina.isEmpty()) ultimaChave = AgendamentoDAO.ChavePagina.de(pagina.get(pagina.size() - 1));
         } catch (AgendamentoService.ServiceException e) {
             mostrarErro("Erro ao listar", e.getMessage());
         }
     }
 
+    private void instalarPaginacaoPorRolagem() {
+        for (Node n : tabela.lookupAll(".scroll-bar")) {
+            if (n instanceof ScrollBar sb && sb.getOrientation() == Orientation.VERTICAL) {
+                sb.valueProperty().addListener((obs, old, val) -> {
+                    if (val.doubleValue() >= sb.getMax() - 0.01) carregarProximaPagina();
+                });
+            }
+        }
+    }
+
     private void preencherFormulario(Agendamento a) {
         txtId.setText(a.getId_agendamento() == null ? "" : String.valueOf(a.getId_agendamento()));
-        selecionarComboPorId(cbPaciente, a.getId_paciente());
+        try {
+            cbPaciente.setValue(a.getId_paciente() == null ? null : pessoaService.buscarPaciente(a.getId_paciente()));
+        } catch (SQLException e) {
+            mostrarErro("Erro ao carregar paciente", e.getMessage());
+        }
         selecionarComboPorId(cbDentista, a.getId_dentista());
         selecionarComboPorId(cbTratamento, a.getId_tratamento());
         cbStatus.setValue(a.getStatus());
@@ -207,6 +251,9 @@ public class AgendamentoController {
     private void onAtualizar() {
         try {
             Agendamento a = lerFormulario(true);
+            // versão lida na listagem: se outra estação alterou o agendamento, o update falha
+            Agendamento sel = tabela.getSelectionModel().getSelectedItem();
+            if (sel != null && a.getId_agendamento().equals(sel.getId_agendamento())) a.setVersao(sel.getVersao());
             service.atualizar(a);
             mostrarInfo("Sucesso", "Agendamento atualizado.");
             carregarDados();
@@ -239,6 +286,120 @@ public class AgendamentoController {
         });
     }
 
+    /** Sugere os próximos horários livres do dentista/tratamento selecionados e preenche data/hora. */
+    @FXML
+    private void onHorariosLivres() {
+        Dentista den = cbDentista.getValue();
+        Tratamento trt = cbTratamento.getValue();
+        if (den == null || trt == null) {
+            mostrarAviso("Atenção", "Selecione dentista e tratamento.");
+            return;
+        }
+
+        LocalDate base = dpData.getValue() != null ? dpData.getValue() : LocalDate.now();
+        Date de = Date.from(base.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date ate = Date.from(base.plusDays(DIAS_BUSCA_HORARIOS).atStartOfDay(ZoneId.systemDefault()).toInstant());
+
+        try {
+            List<HorarioLivre> livres = service.buscarHorariosLivres(
+                    den.getId_dentista(), trt.getId_tratamento(), de, ate, QTD_HORARIOS_SUGERIDOS);
+            if (livres.isEmpty()) {
+                mostrarInfo("Horários livres", "Nenhum horário livre nos próximos " + DIAS_BUSCA_HORARIOS + " dias.");
+                return;
+            }
+
+            ChoiceDialog<String> dlg = new ChoiceDialog<>();
+            for (HorarioLivre h : livres) dlg.getItems().add(sdf.format(h.getInicio()));
+            dlg.setSelectedItem(dlg.getItems().get(0));
+            dlg.setHeaderText("Próximos horários livres de " + den.getNome());
+            dlg.setContentText("Horário:");
+            dlg.showAndWait().ifPresent(escolhido -> {
+                HorarioLivre h = livres.get(dlg.getItems().indexOf(escolhido));
+                LocalDateTime ldt = LocalDateTime.ofInstant(h.getInicio().toInstant(), ZoneId.systemDefault());
+                dpData.setValue(ldt.toLocalDate());
+                txtHora.setText(String.format("%02d:%02d", ldt.getHour(), ldt.getMinute()));
+            });
+        } catch (AgendamentoService.ServiceException e) {
+            mostrarErro("Erro ao buscar horários", e.getMessage());
+        }
+    }
+
+    /** Agenda o formulário atual como série recorrente (ex.: retorno a cada 4 semanas por 12 vezes). */
+    @FXML
+    private void onAgendarSerie() {
+        Agendamento base;
+        try {
+            base = lerFormulario(false);
+        } catch (IllegalArgumentException e) {
+            mostrarErro("Erro ao agendar série", e.getMessage());
+            return;
+        }
+
+        ComboBox<Recorrencia.Frequencia> cbFrequencia = new ComboBox<>(
+                FXCollections.observableArrayList(Recorrencia.Frequencia.values()));
+        cbFrequencia.setValue(Recorrencia.Frequencia.SEMANAL);
+        cbFrequencia.setConverter(new StringConverter<>() {
+            @Override public String toString(Recorrencia.Frequencia f) { return f == null ? "" : f.getDescricao(); }
+            @Override public Recorrencia.Frequencia fromString(String s) { return null; }
+        });
+        Spinner<Integer> spIntervalo = new Spinner<>(1, 52, 4);
+        Spinner<Integer> spQuantidade = new Spinner<>(1, 120, 12);
+        CheckBox chkPular = new CheckBox("Gravar só os horários livres");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(8);
+        grid.setVgap(8);
+        grid.addRow(0, new Label("Repetir a cada:"), spIntervalo, cbFrequencia);
+        grid.addRow(1, new Label("Ocorrências:"), spQuantidade);
+        grid.add(chkPular, 1, 2, 2, 1);
+
+        Dialog<ButtonType> dlg = new Dialog<>();
+        dlg.setTitle("Agendar série");
+        dlg.setHeaderText("Série a partir de " + sdf.format(base.getData_hora()));
+        dlg.getDialogPane().setContent(grid);
+        dlg.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        if (dlg.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        Recorrencia r = new Recorrencia(cbFrequencia.getValue(), spIntervalo.getValue(), spQuantidade.getValue(), null);
+        try {
+            List<OcorrenciaSerie> res = service.criarSerie(base, r, chkPular.isSelected());
+            StringBuilder sb = new StringBuilder();
+            int gravadas = 0;
+            for (OcorrenciaSerie o : res) {
+                if (o.getId_agendamento() != null) gravadas++;
+                else sb.append("\n").append(sdf.format(o.getInicio())).append(" - ocupado");
+            }
+            mostrarInfo("Série agendada", gravadas + " de " + res.size() + " ocorrência(s) gravada(s)." + sb);
+            carregarDados();
+        } catch (AgendamentoService.ServiceException e) {
+            mostrarErro("Erro ao agendar série", e.getMessage());
+        }
+    }
+
+    /** Confirma, num único UPDATE, os agendamentos pendentes da data escolhida (hoje se vazia). */
+    @FXML
+    private void onConfirmarPendentesDoDia() {
+        LocalDate dia = dpData.getValue() != null ? dpData.getValue() : LocalDate.now();
+        Dentista den = cbDentista.getValue();
+        Integer idDentista = den != null ? den.getId_dentista() : null;
+
+        Alert conf = new Alert(Alert.AlertType.CONFIRMATION,
+                "Confirmar todos os agendamentos pendentes de " + dia.format(dpFmt)
+                        + (den != null ? " de " + den.getNome() : "") + "?",
+                ButtonType.YES, ButtonType.NO);
+        conf.setHeaderText("Confirmação");
+        conf.showAndWait().ifPresent(bt -> {
+            if (bt != ButtonType.YES) return;
+            try {
+                int n = service.alterarStatusDoDia(dia, idDentista, StatusAgendamento.PENDENTE, StatusAgendamento.CONFIRMADO);
+                mostrarInfo("Sucesso", n + " agendamento(s) confirmado(s).");
+                carregarDados();
+            } catch (AgendamentoService.ServiceException e) {
+                mostrarErro("Erro ao confirmar", e.getMessage());
+            }
+        });
+    }
+
     @FXML private void onRecarregar() { carregarDados(); }
     @FXML private void onLimpar() { limparFormulario(); }
 
@@ -302,7 +463,7 @@ public class AgendamentoController {
 
     private void limparFormulario() {
         txtId.clear();
-        cbPaciente.getSelectionModel().clearSelection();
+        cbPaciente.setValue(null);
         cbDentista.getSelectionModel().clearSelection();
         cbTratamento.getSelectionModel().clearSelection();
         cbStatus.getSelectionModel().clearSelection();
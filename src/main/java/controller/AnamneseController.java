@@ -1,29 +1,48 @@
 package controller;
 
+import dao.RepositorioBlobsArquivos;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.scene.Cursor;
 import javafx.scene.Node;
 import javafx.scene.control.*;
+import javafx.scene.control.cell.ComboBoxTableCell;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.util.StringConverter;
 import model.Anamnese;
+import model.EstadoDente;
+import model.EstadoFace;
+import model.FaceDente;
+import model.ImagemOdontograma;
+import model.Odontograma;
+import model.PendenciaOdontograma;
 import model.Pessoa;
+import model.VersaoOdontograma;
 import service.AnamneseService;
 import service.CadastroPessoaService;
+import service.OdontogramaService;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
 
 /**
  * Controller da tela de Anamnese.
@@ -60,9 +79,21 @@ public class AnamneseController {
     // ====== Services ======
     private final CadastroPessoaService pessoaService = new CadastroPessoaService();
     private final AnamneseService anamneseService = new AnamneseService();
+    private final OdontogramaService odontogramaService = new OdontogramaService();
 
-    // Guarda bytes atuais da imagem (para salvar/limpar)
+    private static final int SUGESTOES_PACIENTE = 50;
+    /** Linhas da listagem cujas miniaturas são preparadas em segundo plano. */
+    private static final int MINIATURAS_ANTECIPADAS = 30;
+
+    // Imagem nova escolhida no arquivo (pendente de salvar)
     private byte[] odontogramaBytes;
+    // Imagem gravada do paciente selecionado; miniatura pedida só quando o ImageView aparece
+    private ImagemOdontograma imagemGravada;
+    // Imagem cuja miniatura está sendo preparada (evita pedir de novo a cada troca de visibilidade)
+    private ImagemOdontograma miniaturaPendente;
+    // Odontograma estruturado do paciente selecionado; gravado com a anamnese se foi alterado
+    private Odontograma dentes;
+    private boolean dentesAlterados;
 
     // ====== Init ======
     @FXML
@@ -83,39 +114,24 @@ public class AnamneseController {
             n.managedProperty().bind(n.visibleProperty());
             n.visibleProperty().bind(chkOdontoGrama.selectedProperty());
         }
+        imgOdonto.visibleProperty().addListener((o, antes, visivel) -> {
+            if (visivel) carregarImagemGravada();
+        });
     }
 
     /* ==========================================================
-       Combo de Pacientes: ID - Nome, converter e célula custom
+       Combo de Pacientes: ID - Nome, busca por nome/CPF/telefone
        ========================================================== */
     private void configurarComboPacientes() {
-        cbPaciente.setCellFactory(listView -> new ListCell<>() {
-            @Override protected void updateItem(Pessoa item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : item.getId_pessoa() + " - " + item.getNome());
-            }
-        });
-        cbPaciente.setButtonCell(new ListCell<>() {
-            @Override protected void updateItem(Pessoa item, boolean empty) {
-                super.updateItem(item, empty);
-                setText(empty || item == null ? null : item.getId_pessoa() + " - " + item.getNome());
-            }
-        });
-        cbPaciente.setConverter(new StringConverter<>() {
-            @Override public String toString(Pessoa p) { return p == null ? "" : p.getId_pessoa() + " - " + p.getNome(); }
-            @Override public Pessoa fromString(String s) {
-                if (s == null) return null;
-                return cbPaciente.getItems().stream()
-                        .filter(p -> (p.getId_pessoa() + " - " + p.getNome()).equals(s))
-                        .findFirst().orElse(null);
-            }
-        });
+        ComboAutoCompletar.configurar(cbPaciente, t -> pessoaService.buscarPacientes(t, SUGESTOES_PACIENTE),
+                p -> p.getId_pessoa() + " - " + p.getNome(),
+                e -> alertErro("Erro ao buscar pacientes: " + e.getMessage()));
     }
 
-    /** Carrega pacientes (somente quem está em TB_PACIENTE) no ComboBox. */
+    /** Sugestões iniciais do combo (somente quem está em TB_PACIENTE); o resto vem pela busca. */
     public void carregarPacientesIdNome() {
         try {
-            List<Pessoa> pessoas = pessoaService.listarPacientes();
+            List<Pessoa> pessoas = pessoaService.buscarPacientes("", SUGESTOES_PACIENTE);
             ObservableList<Pessoa> dados = FXCollections.observableArrayList(pessoas);
             cbPaciente.setItems(dados);
             cbPaciente.setPromptText("Selecione um paciente");
@@ -170,8 +186,8 @@ public class AnamneseController {
             @Override protected void updateItem(Void item, boolean empty) {
                 super.updateItem(item, empty);
                 if (empty) { setText(null); return; }
-                Anamnese a = getTableView().getItems().get(getIndex());
-                setText(a.getImagem_odontograma() != null ? "Sim" : "Não");
+                ImagemOdontograma img = getTableView().getItems().get(getIndex()).getImagem();
+                setText(img == null ? "Não" : "Sim (" + Math.max(1, img.getTamanho() / 1024) + " KB)");
             }
         });
     }
@@ -181,7 +197,7 @@ public class AnamneseController {
        ========================================================== */
     @FXML
     private void onPacienteSelecionado() {
-        Pessoa selecionado = cbPaciente.getSelectionModel().getSelectedItem();
+        Pessoa selecionado = cbPaciente.getValue();
         if (selecionado == null) return;
 
         try {
@@ -191,8 +207,10 @@ public class AnamneseController {
                 txtHistorico.setText(nullSafe(a.getHistorico_medico()));
                 txtMedicamentos.setText(nullSafe(a.getMedicamentos()));
                 txtDetalhes.setText(nullSafe(a.getDetalhes()));
-                setOdontogramaBytes(a.getImagem_odontograma());
-                chkOdontoGrama.setSelected(a.getImagem_odontograma() != null);
+                exibirImagemGravada(a.getImagem());
+                chkOdontoGrama.setSelected(a.getImagem() != null);
+                dentes = a.getDentes();
+                dentesAlterados = false;
 
                 tabela.setItems(FXCollections.observableArrayList(a)); // 0/1 item
             } else {
@@ -210,6 +228,10 @@ public class AnamneseController {
        ========================================================== */
     @FXML
     private void onCarregarImagem() {
+        if (RepositorioBlobsArquivos.diretorioConfigurado() == null) {
+            alertErro("Imagens do odontograma desativadas: configure blobs.diretorio em saco.properties.");
+            return;
+        }
         FileChooser fc = new FileChooser();
         fc.setTitle("Selecionar imagem do Odontograma");
         fc.getExtensionFilters().addAll(
@@ -233,7 +255,9 @@ public class AnamneseController {
 
         try (FileInputStream fis = new FileInputStream(file)) {
             odontogramaBytes = fis.readAllBytes();
-            imgOdonto.setImage(new Image(new ByteArrayInputStream(odontogramaBytes)));
+            // decodificada já reduzida ao tamanho do ImageView, em segundo plano
+            imgOdonto.setImage(new Image(file.toURI().toString(),
+                    imgOdonto.getFitWidth(), imgOdonto.getFitHeight(), true, true, true));
             chkOdontoGrama.setSelected(true); // força visibilidade
         } catch (Exception ex) {
             ex.printStackTrace();
@@ -245,14 +269,41 @@ public class AnamneseController {
     @FXML
     private void onRemoverImagem() {
         odontogramaBytes = null;
+        imagemGravada = null;
         imgOdonto.setImage(null);
         chkOdontoGrama.setSelected(false);
     }
 
-    /** Seta bytes vindos do banco e reflete na ImageView. */
-    private void setOdontogramaBytes(byte[] bytes) {
-        odontogramaBytes = bytes;
-        imgOdonto.setImage(bytes == null ? null : new Image(new ByteArrayInputStream(bytes)));
+    /** Troca a imagem exibida pela gravada do paciente; só a carrega se o ImageView estiver visível. */
+    private void exibirImagemGravada(ImagemOdontograma imagem) {
+        odontogramaBytes = null;
+        imagemGravada = imagem;
+        imgOdonto.setImage(null);
+        if (imgOdonto.isVisible()) carregarImagemGravada();
+    }
+
+    /**
+     * Mostra a miniatura da imagem gravada: na hora se estiver em memória; senão é preparada em
+     * segundo plano e exibida se o paciente ainda for o mesmo.
+     */
+    private void carregarImagemGravada() {
+        if (imagemGravada == null || odontogramaBytes != null || imgOdonto.getImage() != null) return;
+        Image pronta = anamneseService.miniaturaEmMemoria(imagemGravada);
+        if (pronta != null) { imgOdonto.setImage(pronta); return; }
+        if (miniaturaPendente == imagemGravada) return;
+
+        ImagemOdontograma pedida = imagemGravada;
+        miniaturaPendente = pedida;
+        anamneseService.miniatura(pedida).whenComplete((img, erro) -> Platform.runLater(() -> {
+            if (miniaturaPendente == pedida) miniaturaPendente = null;
+            if (pedida != imagemGravada || odontogramaBytes != null) return; // trocou de paciente/imagem
+            if (erro != null) alertErro("Erro ao carregar imagem: " + causa(erro).getMessage());
+            else imgOdonto.setImage(img);
+        }));
+    }
+
+    private static Throwable causa(Throwable t) {
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
     }
 
     /* ==========================================================
@@ -260,7 +311,7 @@ public class AnamneseController {
        ========================================================== */
     @FXML
     private void onSalvar() {
-        Pessoa paciente = cbPaciente.getSelectionModel().getSelectedItem();
+        Pessoa paciente = cbPaciente.getValue();
         if (paciente == null) { alertErro("Selecione um paciente."); return; }
 
         try {
@@ -270,7 +321,10 @@ public class AnamneseController {
             a.historico_medico = emptyToNull(txtHistorico.getText());
             a.medicamentos = emptyToNull(txtMedicamentos.getText());
             a.detalhes = emptyToNull(txtDetalhes.getText());
+            // sem imagem nova, a gravada é mantida (não precisa ter sido lida); desmarcado = remover
             a.imagem_odontograma = chkOdontoGrama.isSelected() ? odontogramaBytes : null;
+            a.remover_imagem = !chkOdontoGrama.isSelected();
+            a.dentes = dentesAlterados ? dentes : null;
 
             anamneseService.salvarOuAtualizar(a);
             alertInfo("Anamnese salva com sucesso.");
@@ -296,6 +350,9 @@ public class AnamneseController {
         try {
             var lista = anamneseService.listarTodas();
             tabela.setItems(FXCollections.observableArrayList(lista));
+            // adianta as miniaturas das primeiras linhas para a seleção do paciente ser imediata
+            lista.stream().map(Anamnese::getImagem).filter(i -> i != null)
+                    .limit(MINIATURAS_ANTECIPADAS).forEach(anamneseService::miniatura);
         } catch (SQLException e) {
             alertErro("Erro ao listar anamneses: " + e.getMessage());
         }
@@ -305,11 +362,13 @@ public class AnamneseController {
        Utilidades
        ========================================================== */
     private void limparCampos(boolean limparPaciente) {
-        if (limparPaciente) cbPaciente.getSelectionModel().clearSelection();
+        if (limparPaciente) cbPaciente.setValue(null);
         txtAlergias.clear();
         txtHistorico.clear();
         txtMedicamentos.clear();
         txtDetalhes.clear();
+        dentes = null;
+        dentesAlterados = false;
         onRemoverImagem();
     }
 
@@ -338,21 +397,30 @@ public class AnamneseController {
             {
                 btnAbrir.setOnAction(e -> {
                     Anamnese a = getTableView().getItems().get(getIndex());
-                    if (a.getImagem_odontograma() == null) { alertInfo("Sem imagem neste registro."); return; }
-                    ImageView iv = new ImageView(new Image(new ByteArrayInputStream(a.getImagem_odontograma())));
-                    iv.setPreserveRatio(true);
-                    iv.setFitWidth(520);
-                    iv.setFitHeight(300);
-                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                    alert.setHeaderText("Odontograma");
-                    alert.getDialogPane().setContent(iv);
-                    alert.getButtonTypes().setAll(ButtonType.CLOSE);
-                    alert.showAndWait();
+                    if (a.getImagem() == null) { alertInfo("Sem imagem neste registro."); return; }
+                    // resolução original decodificada fora da thread da UI
+                    getTableView().getScene().setCursor(Cursor.WAIT);
+                    btnAbrir.setDisable(true);
+                    anamneseService.imagemCompleta(a.getImagem()).whenComplete((img, erro) -> Platform.runLater(() -> {
+                        getTableView().getScene().setCursor(Cursor.DEFAULT);
+                        btnAbrir.setDisable(false);
+                        if (erro != null) { alertErro("Erro ao carregar imagem: " + causa(erro).getMessage()); return; }
+                        ImageView iv = new ImageView(img);
+                        iv.setPreserveRatio(true);
+                        iv.setSmooth(true);
+                        iv.setFitWidth(520);
+                        iv.setFitHeight(300);
+                        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                        alert.setHeaderText("Odontograma");
+                        alert.getDialogPane().setContent(iv);
+                        alert.getButtonTypes().setAll(ButtonType.CLOSE);
+                        alert.showAndWait();
+                    }));
                 });
 
                 btnBaixar.setOnAction(e -> {
                     Anamnese a = getTableView().getItems().get(getIndex());
-                    if (a.getImagem_odontograma() == null) { alertInfo("Sem imagem para baixar."); return; }
+                    if (a.getImagem() == null) { alertInfo("Sem imagem para baixar."); return; }
                     FileChooser fc = new FileChooser();
                     fc.setTitle("Salvar odontograma");
                     fc.getExtensionFilters().addAll(
@@ -363,9 +431,12 @@ public class AnamneseController {
                     fc.setInitialFileName("odontograma_" + a.getId_anamnese() + ".png");
                     File file = fc.showSaveDialog(getTableView().getScene().getWindow());
                     if (file == null) return;
-                    try (java.io.FileOutputStream fos = new java.io.FileOutputStream(file)) {
-                        fos.write(a.getImagem_odontograma());
-                        alertInfo("Arquivo salvo com sucesso.");
+                    try {
+                        // copia em stream do banco para o arquivo, sem carregar a imagem inteira
+                        Long copiados = anamneseService.lerImagem(a.getImagem(),
+                                in -> Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING));
+                        if (copiados == null) alertInfo("A imagem foi removida.");
+                        else alertInfo("Arquivo salvo com sucesso.");
                     } catch (Exception ex) {
                         ex.printStackTrace();
                         alertErro("Falha ao salvar arquivo: " + ex.getMessage());
@@ -374,21 +445,9 @@ public class AnamneseController {
 
                 btnExcluirImg.setOnAction(e -> {
                     Anamnese a = getTableView().getItems().get(getIndex());
-                    if (a.getImagem_odontograma() == null) { alertInfo("Este registro já não possui imagem."); return; }
+                    if (a.getImagem() == null) { alertInfo("Este registro já não possui imagem."); return; }
                     try {
-                        // Se houver método especializado:
-                        // anamneseService.removerImagemOdontograma(a.getId_anamnese());
-                        // Workaround com salvarOuAtualizar:
-                        Anamnese clone = new Anamnese();
-                        clone.id_anamnese = a.getId_anamnese();
-                        clone.id_paciente = a.getId_paciente();
-                        clone.alergias = a.getAlergias();
-                        clone.historico_medico = a.getHistorico_medico();
-                        clone.medicamentos = a.getMedicamentos();
-                        clone.detalhes = a.getDetalhes();
-                        clone.imagem_odontograma = null;
-
-                        anamneseService.salvarOuAtualizar(clone);
+                        anamneseService.removerImagem(a.getId_paciente());
                         alertInfo("Imagem removida do registro.");
                         onPacienteSelecionado(); // atualiza form se for o mesmo paciente
                         onListar();              // atualiza a tabela geral
@@ -411,27 +470,14 @@ public class AnamneseController {
 
     @FXML
     private void onRemoverImagemBD() {
-        Pessoa paciente = cbPaciente.getSelectionModel().getSelectedItem();
+        Pessoa paciente = cbPaciente.getValue();
         if (paciente == null) { alertErro("Selecione um paciente."); return; }
 
         try {
             Anamnese a = anamneseService.buscarPorPaciente(paciente.getId_pessoa());
             if (a == null) { alertInfo("Não há anamnese para este paciente."); return; }
 
-            // Se houver método especializado no service, prefira-o:
-            // anamneseService.removerImagemPorPaciente(paciente.getId_pessoa());
-
-            // Caso não: salva a anamnese com imagem nula (mantendo os demais campos)
-            Anamnese novo = new Anamnese();
-            novo.id_anamnese = a.getId_anamnese();
-            novo.id_paciente = a.getId_paciente();
-            novo.alergias = a.getAlergias();
-            novo.historico_medico = a.getHistorico_medico();
-            novo.medicamentos = a.getMedicamentos();
-            novo.detalhes = a.getDetalhes();
-            novo.imagem_odontograma = null;
-
-            anamneseService.salvarOuAtualizar(novo);
+            anamneseService.removerImagem(paciente.getId_pessoa());
 
             // Atualiza UI local
             onRemoverImagem(); // limpa bytes e esconde na UI
@@ -445,9 +491,195 @@ public class AnamneseController {
     }
 
 
+    /**
+     * Histórico do odontograma do paciente: a lista traz só os metadados; a miniatura de cada
+     * versão é carregada quando ela é selecionada. "Restaurar" torna a versão a imagem atual.
+     */
+    @FXML
+    private void onHistoricoImagem() {
+        Pessoa paciente = cbPaciente.getValue();
+        if (paciente == null) { alertErro("Selecione um paciente."); return; }
+
+        List<VersaoOdontograma> versoes;
+        try {
+            versoes = anamneseService.listarVersoes(paciente.getId_pessoa());
+        } catch (SQLException e) {
+            alertErro("Erro ao buscar histórico: " + e.getMessage());
+            return;
+        }
+        if (versoes.isEmpty()) { alertInfo("Este paciente não possui imagens gravadas."); return; }
+
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+        ListView<VersaoOdontograma> lista = new ListView<>(FXCollections.observableArrayList(versoes));
+        lista.setPrefHeight(160);
+        lista.setCellFactory(lv -> new ListCell<>() {
+            @Override protected void updateItem(VersaoOdontograma v, boolean empty) {
+                super.updateItem(v, empty);
+                if (empty || v == null) { setText(null); return; }
+                String quando = v.getData_criacao() == null ? "" : v.getData_criacao().toInstant()
+                        .atZone(ZoneId.systemDefault()).toLocalDateTime().format(fmt);
+                String armazenada = v.getArmazenado() == 0 ? "conteúdo já existente"
+                        : v.isDelta() ? "delta de " + Math.max(1, v.getArmazenado() / 1024) + " KB"
+                        : "completa";
+                setText(quando + " — " + Math.max(1, v.getTamanho() / 1024) + " KB (" + armazenada + ")");
+            }
+        });
+
+        ImageView previa = new ImageView();
+        previa.setPreserveRatio(true);
+        previa.setSmooth(true);
+        previa.setFitWidth(520);
+        previa.setFitHeight(300);
+        lista.getSelectionModel().selectedItemProperty().addListener((o, antes, v) -> {
+            previa.setImage(null);
+            if (v == null) return;
+            ImagemOdontograma img = anamneseService.imagemDaVersao(v);
+            Image pronta = anamneseService.miniaturaEmMemoria(img);
+            if (pronta != null) { previa.setImage(pronta); return; }
+            anamneseService.miniatura(img).whenComplete((m, erro) -> Platform.runLater(() -> {
+                if (lista.getSelectionModel().getSelectedItem() != v) return;
+                if (erro != null) alertErro("Erro ao carregar imagem: " + causa(erro).getMessage());
+                else previa.setImage(m);
+            }));
+        });
+        lista.getSelectionModel().selectFirst();
+
+        ButtonType restaurar = new ButtonType("Restaurar esta versão", ButtonBar.ButtonData.OTHER);
+        Alert dlg = new Alert(Alert.AlertType.INFORMATION);
+        dlg.setHeaderText("Histórico do odontograma — " + paciente.getNome() + " (" + versoes.size() + " versões)");
+        dlg.getDialogPane().setContent(new VBox(8, lista, previa));
+        dlg.getButtonTypes().setAll(restaurar, ButtonType.CLOSE);
+        if (dlg.showAndWait().orElse(ButtonType.CLOSE) != restaurar) return;
+
+        VersaoOdontograma escolhida = lista.getSelectionModel().getSelectedItem();
+        if (escolhida == null) return;
+        try {
+            anamneseService.restaurarVersao(escolhida);
+            onPacienteSelecionado();
+            onListar();
+        } catch (SQLException e) {
+            alertErro("Erro ao restaurar versão: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Edição do odontograma estruturado: uma linha por dente (FDI), com o estado do dente e de
+     * cada face. As alterações valem ao salvar a anamnese.
+     */
+    @FXML
+    private void onDentes() {
+        Pessoa paciente = cbPaciente.getValue();
+        if (paciente == null) { alertErro("Selecione um paciente."); return; }
+
+        Odontograma copia = dentes == null
+                ? new Odontograma(paciente.getId_pessoa(), null)
+                : new Odontograma(paciente.getId_pessoa(), dentes.getEstados());
+
+        List<Integer> numeros = new ArrayList<>();
+        for (int d : Odontograma.dentes()) numeros.add(d);
+        TableView<Integer> tv = new TableView<>(FXCollections.observableArrayList(numeros));
+        tv.setEditable(true);
+        tv.setPrefSize(820, 480);
+
+        TableColumn<Integer, Integer> colDente = new TableColumn<>("Dente");
+        colDente.setCellValueFactory(c -> new javafx.beans.property.SimpleObjectProperty<>(c.getValue()));
+        colDente.setEditable(false);
+        tv.getColumns().add(colDente);
+
+        TableColumn<Integer, EstadoDente> colEstado = new TableColumn<>("Dente (estado)");
+        colEstado.setCellValueFactory(c -> new javafx.beans.property.SimpleObjectProperty<>(copia.getEstado(c.getValue())));
+        colEstado.setCellFactory(ComboBoxTableCell.forTableColumn(conversor(EstadoDente::getDescricao), EstadoDente.values()));
+        colEstado.setOnEditCommit(e -> copia.setEstado(e.getRowValue(), e.getNewValue()));
+        colEstado.setPrefWidth(190);
+        tv.getColumns().add(colEstado);
+
+        for (FaceDente face : FaceDente.values()) {
+            TableColumn<Integer, EstadoFace> col = new TableColumn<>(face.getSigla());
+            col.setCellValueFactory(c -> new javafx.beans.property.SimpleObjectProperty<>(copia.getFace(c.getValue(), face)));
+            col.setCellFactory(ComboBoxTableCell.forTableColumn(conversor(EstadoFace::getDescricao), EstadoFace.values()));
+            col.setOnEditCommit(e -> copia.setFace(e.getRowValue(), face, e.getNewValue()));
+            col.setPrefWidth(110);
+            tv.getColumns().add(col);
+        }
+
+        Alert dlg = new Alert(Alert.AlertType.NONE);
+        dlg.setTitle("Odontograma");
+        dlg.setHeaderText("Dentes e faces — " + paciente.getNome() + " (grava ao salvar a anamnese)");
+        dlg.getDialogPane().setContent(tv);
+        dlg.getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
+        if (dlg.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        dentes = copia;
+        dentesAlterados = true;
+    }
+
+    /** Relatório: pacientes com tratamento pendente num dente, com o total por dente no cabeçalho. */
+    @FXML
+    private void onPendenciasPorDente() {
+        Map<Integer, Integer> porDente;
+        try {
+            porDente = odontogramaService.contarPendentesPorDente();
+        } catch (SQLException e) {
+            alertErro("Erro ao consultar pendências: " + e.getMessage());
+            return;
+        }
+        if (porDente.isEmpty()) { alertInfo("Nenhum paciente com tratamento pendente no odontograma."); return; }
+
+        TextInputDialog pergunta = new TextInputDialog();
+        pergunta.setTitle("Pendências por dente");
+        pergunta.setHeaderText("Pacientes com pendência por dente:\n" + resumirContagem(porDente));
+        pergunta.setContentText("Dente (FDI):");
+        String texto = pergunta.showAndWait().orElse(null);
+        if (texto == null || texto.isBlank()) return;
+
+        int fdi;
+        try {
+            fdi = Integer.parseInt(texto.trim());
+        } catch (NumberFormatException e) {
+            alertErro("Informe o número do dente (ex.: 36).");
+            return;
+        }
+
+        List<PendenciaOdontograma> pendencias;
+        try {
+            pendencias = odontogramaService.pendenciasNoDente(fdi);
+        } catch (SQLException e) {
+            alertErro(e.getMessage());
+            return;
+        }
+        if (pendencias.isEmpty()) { alertInfo("Nenhum paciente com pendência no dente " + fdi + "."); return; }
+
+        ListView<String> lista = new ListView<>(FXCollections.observableArrayList(pendencias.stream()
+                .map(p -> p.getNome() + " (" + p.getId_paciente() + ") — " + p.getDescricao())
+                .toList()));
+        lista.setPrefSize(620, 360);
+        Alert dlg = new Alert(Alert.AlertType.INFORMATION);
+        dlg.setTitle("Pendências por dente");
+        dlg.setHeaderText("Dente " + fdi + ": " + pendencias.size() + " paciente(s) com tratamento pendente");
+        dlg.getDialogPane().setContent(lista);
+        dlg.getButtonTypes().setAll(ButtonType.CLOSE);
+        dlg.showAndWait();
+    }
+
+    /** "36: 12, 46: 9, ..." dos dentes com mais pacientes pendentes. */
+    private static String resumirContagem(Map<Integer, Integer> porDente) {
+        return porDente.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed())
+                .limit(10)
+                .map(e -> e.getKey() + ": " + e.getValue())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static <T> StringConverter<T> conversor(Function<T, String> descricao) {
+        return new StringConverter<>() {
+            @Override public String toString(T t) { return t == null ? "" : descricao.apply(t); }
+            @Override public T fromString(String s) { return null; }
+        };
+    }
+
     @FXML
     private void onExcluirPacienteAnamnese() {
-        Pessoa paciente = cbPaciente.getSelectionModel().getSelectedItem();
+        Pessoa paciente = cbPaciente.getValue();
         if (paciente == null) { alertErro("Selecione um paciente."); return; }
 
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
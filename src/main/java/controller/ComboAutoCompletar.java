@@ -0,0 +1,84 @@
+package controller;
+
+import javafx.application.Platform;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.ListCell;
+import javafx.util.StringConverter;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Transforma um ComboBox em campo de busca: a cada tecla a lista de sugestões é trocada pelo
+ * resultado da busca (ex.: {@code CadastroPessoaService.buscarPacientes}), em vez de carregar o
+ * cadastro inteiro no combo.
+ *
+ * - O valor só muda ao escolher uma sugestão ou confirmar o texto (Enter / saída do campo);
+ *   texto que não é exatamente o de uma sugestão deixa o combo sem valor, para que nunca se
+ *   confirme um paciente que não foi escolhido.
+ * - O valor pode ser definido com {@code setValue} mesmo que não esteja entre as sugestões.
+ */
+public final class ComboAutoCompletar {
+
+    private ComboAutoCompletar() {}
+
+    /** Busca das sugestões para o texto digitado. */
+    @FunctionalInterface
+    public interface Busca<T> {
+        List<T> buscar(String texto) throws SQLException;
+    }
+
+    public static <T> void configurar(ComboBox<T> cb, Busca<T> busca, Function<T, String> texto,
+                                      Consumer<SQLException> aoFalhar) {
+        cb.setEditable(true);
+        cb.setCellFactory(lv -> new ListCell<>() {
+            @Override protected void updateItem(T it, boolean empty) {
+                super.updateItem(it, empty); setText(empty || it == null ? "" : texto.apply(it));
+            }
+        });
+        cb.setConverter(new StringConverter<>() {
+            @Override public String toString(T it) { return it == null ? "" : texto.apply(it); }
+            @Override public T fromString(String s) {
+                if (s == null || s.isBlank()) return null;
+                T atual = cb.getValue();
+                if (atual != null && texto.apply(atual).equals(s)) return atual;
+                for (T it : cb.getItems()) {
+                    if (texto.apply(it).equals(s)) return it;
+                }
+                return null;
+            }
+        });
+
+        boolean[] atualizando = {false};
+        cb.getEditor().textProperty().addListener((obs, antigo, digitado) -> {
+            if (atualizando[0] || !cb.getEditor().isFocused()) return;
+            if (Objects.equals(digitado, cb.getConverter().toString(cb.getValue()))) return;
+
+            List<T> sugestoes;
+            try {
+                sugestoes = busca.buscar(digitado == null ? "" : digitado);
+            } catch (SQLException e) {
+                aoFalhar.accept(e);
+                return;
+            }
+
+            // trocar os itens pode reescrever o editor com o valor atual: preserva o que foi digitado
+            atualizando[0] = true;
+            try {
+                int caret = cb.getEditor().getCaretPosition();
+                cb.getItems().setAll(sugestoes);
+                cb.getEditor().setText(digitado);
+                cb.getEditor().positionCaret(caret);
+            } finally {
+                atualizando[0] = false;
+            }
+            // show/hide dentro do listener de texto confunde o skin; adia para o próximo pulso
+            Platform.runLater(() -> {
+                if (sugestoes.isEmpty()) cb.hide(); else if (!cb.isShowing()) cb.show();
+            });
+        });
+    }
+}
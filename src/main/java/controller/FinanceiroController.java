@@ -224,11 +224,10 @@ public class FinanceiroController {
     private void onFinAtualizar() {
         try {
             Financeiro f = lerFormFinanceiro(true);
-            // Reaproveita a própria lógica do DAO via service: atualizar
-            // (não criei método específico; reaproveitamos inserir/atualizar do DAO)
-            if (!new dao.FinanceiroDAO().atualizar(f)) {
-                throw new FinanceiroService.ServiceException("Atualização não efetuada.");
-            }
+            // versão lida na listagem: se outra estação alterou o título, o update falha
+            Financeiro sel = tblFinanceiro.getSelectionModel().getSelectedItem();
+            if (sel != null && f.getId_financeiro().equals(sel.getId_financeiro())) f.setVersao(sel.getVersao());
+            service.atualizar(f);
             info("Sucesso", "Financeiro atualizado.");
             carregarFinanceiros();
             selecionarFinanceiroNaTabela(f.getId_financeiro());
@@ -8,9 +8,13 @@ import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
 import javafx.util.converter.NumberStringConverter;
 import model.Material;
+import model.PrevisaoFalta;
+import service.EstoqueService;
 import service.MaterialService;
 import service.MaterialService.ServiceException;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +24,7 @@ public class MaterialController {
     @FXML private TextField txtId;
     @FXML private TextField txtNome;
     @FXML private TextField txtQuantidade;
+    @FXML private TextField txtPontoReposicao;
 
     // ====== UI: Ações ======
     @FXML private Button btnNovo;
@@ -32,11 +37,14 @@ public class MaterialController {
     @FXML private TableView<Material> tabela;
     @FXML private TableColumn<Material, Integer> colId;
     @FXML private TableColumn<Material, Integer> colQuantidade;
+    @FXML private TableColumn<Material, Integer> colPontoReposicao;
     @FXML private TableColumn<Material, String> colNome;
     @FXML private TableColumn<Material, Void> colAcoes;
 
     // ====== Dados/Serviço ======
     private final MaterialService service = new MaterialService();
+    private final EstoqueService estoqueService = new EstoqueService();
+    private static final DateTimeFormatter FMT_DIA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private final ObservableList<Material> dados = FXCollections.observableArrayList();
 
     @FXML
@@ -63,6 +71,20 @@ public class MaterialController {
                 c.getValue().getQUANTIDADE() == null ? 0 : c.getValue().getQUANTIDADE()
         ).asObject());
 
+        colPontoReposicao.setCellValueFactory(c -> Bindings.createIntegerBinding(() ->
+                c.getValue().getPONTO_REPOSICAO() == null ? 0 : c.getValue().getPONTO_REPOSICAO()
+        ).asObject());
+
+        // Materiais no ponto de reposição (ou abaixo) destacados
+        tabela.setRowFactory(tv -> new TableRow<>() {
+            @Override protected void updateItem(Material m, boolean empty) {
+                super.updateItem(m, empty);
+                boolean repor = !empty && m != null && m.getPONTO_REPOSICAO() != null && m.getPONTO_REPOSICAO() > 0
+                        && m.getQUANTIDADE() != null && m.getQUANTIDADE() <= m.getPONTO_REPOSICAO();
+                setStyle(repor ? "-fx-background-color: #fde2e1;" : "");
+            }
+        });
+
         // Coluna de ações: Editar / Excluir
         colAcoes.setCellFactory(col -> new TableCell<>() {
             private final Button btnEditar  = new Button("Editar");
@@ -106,6 +128,12 @@ public class MaterialController {
                 txtQuantidade.setText(old == null ? "" : old);
             }
         });
+        txtPontoReposicao.textProperty().addListener((obs, old, val) -> {
+            if (val == null || val.isBlank()) return;
+            if (!val.matches("\\d+")) {
+                txtPontoReposicao.setText(old == null ? "" : old);
+            }
+        });
 
         // Estados dos botões
         btnExcluir.disableProperty().bind(
@@ -121,6 +149,7 @@ public class MaterialController {
         // Enter na quantidade/ nome -> salvar
         txtNome.setOnKeyPressed(e -> { if (e.getCode() == KeyCode.ENTER) onSalvar(); });
         txtQuantidade.setOnKeyPressed(e -> { if (e.getCode() == KeyCode.ENTER) onSalvar(); });
+        txtPontoReposicao.setOnKeyPressed(e -> { if (e.getCode() == KeyCode.ENTER) onSalvar(); });
     }
 
     // --------------------------------------------------------
@@ -138,13 +167,15 @@ public class MaterialController {
         String nome = safeTrim(txtNome.getText());
         String idStr = safeTrim(txtId.getText());
         String qStr  = safeTrim(txtQuantidade.getText());
+        String pStr  = safeTrim(txtPontoReposicao.getText());
 
         try {
             Integer qtd = parseIntOrZero(qStr);
+            Integer ponto = parseIntOrZero(pStr);
 
             if (idStr.isBlank()) {
                 // Criar
-                long id = service.criar(nome, qtd);
+                long id = service.criar(nome, qtd, ponto);
                 alertInfo("Material criado (ID=" + id + ").");
             } else {
                 // Atualizar
@@ -157,6 +188,10 @@ public class MaterialController {
                 m.setID(id);
                 m.setNOME(nome);
                 m.setQUANTIDADE(qtd);
+                m.setPONTO_REPOSICAO(ponto);
+                // versão lida na listagem: se outra estação alterou o material, o update falha
+                Material sel = tabela.getSelectionModel().getSelectedItem();
+                if (sel != null && id.equals(sel.getID())) m.setVERSAO(sel.getVERSAO());
 
                 service.atualizar(m);
                 alertInfo("Material atualizado.");
@@ -242,6 +277,48 @@ public class MaterialController {
         }
     }
 
+    /** Materiais que, pela agenda já marcada, chegam ao ponto de reposição ou acabam até a data escolhida. */
+    @FXML
+    public void onPrevisaoFalta() {
+        DatePicker dpAte = new DatePicker(LocalDate.now().plusDays(30));
+        Dialog<LocalDate> dlg = new Dialog<>();
+        dlg.setTitle("Previsão de falta");
+        dlg.setHeaderText("Materiais que acabam ou precisam ser repostos até:");
+        dlg.getDialogPane().setContent(dpAte);
+        dlg.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        dlg.setResultConverter(bt -> bt == ButtonType.OK ? dpAte.getValue() : null);
+
+        Optional<LocalDate> ate = dlg.showAndWait();
+        if (ate.isEmpty()) return;
+
+        try {
+            List<PrevisaoFalta> faltas = estoqueService.previsaoDeFalta(ate.get());
+            if (faltas.isEmpty()) {
+                alertInfo("Nenhum material acaba ou chega ao ponto de reposição até " + FMT_DIA.format(ate.get()) + ".");
+                return;
+            }
+
+            ListView<String> lista = new ListView<>();
+            for (PrevisaoFalta f : faltas) {
+                StringBuilder sb = new StringBuilder(f.getNome())
+                        .append(" — estoque ").append(f.getQuantidade())
+                        .append(", previsto ").append(f.getConsumoPrevisto())
+                        .append(", saldo ").append(f.getSaldoPrevisto());
+                if (f.getDataReposicao() != null) sb.append(" | repor até ").append(FMT_DIA.format(f.getDataReposicao()));
+                if (f.getDataEsgotamento() != null) sb.append(" | falta em ").append(FMT_DIA.format(f.getDataEsgotamento()));
+                lista.getItems().add(sb.toString());
+            }
+            lista.setPrefSize(640, 320);
+
+            Alert a = new Alert(Alert.AlertType.WARNING, null, ButtonType.OK);
+            a.setHeaderText("Previsão até " + FMT_DIA.format(ate.get()));
+            a.getDialogPane().setContent(lista);
+            a.showAndWait();
+        } catch (EstoqueService.ServiceException ex) {
+            alertErro(ex.getMessage());
+        }
+    }
+
     // --------------------------------------------------------
     // Auxiliares de ação
     // --------------------------------------------------------
@@ -298,12 +375,14 @@ public class MaterialController {
         txtId.setText(m.getID() == null ? "" : String.valueOf(m.getID()));
         txtNome.setText(m.getNOME());
         txtQuantidade.setText(String.valueOf(m.getQUANTIDADE() == null ? 0 : m.getQUANTIDADE()));
+        txtPontoReposicao.setText(String.valueOf(m.getPONTO_REPOSICAO() == null ? 0 : m.getPONTO_REPOSICAO()));
     }
 
     private void limparForm() {
         txtId.clear();
         txtNome.clear();
         txtQuantidade.clear();
+        txtPontoReposicao.clear();
     }
 
     private void carregarTabela() {
@@ -2,14 +2,23 @@ package controller;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.scene.Cursor;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
 import model.Dentista;
+import model.ErroImportacao;
 import model.Pessoa;
+import model.PossivelDuplicado;
+import model.ResultadoImportacao;
 import service.CadastroPessoaService;
+import service.ImportacaoPacientesService;
+
+import java.io.File;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
@@ -70,6 +79,7 @@ public class PacienteController {
     // ==========================
     private Pessoa pacienteEmEdicao = null;
     private final CadastroPessoaService service = new CadastroPessoaService();
+    private final ImportacaoPacientesService importacaoService = new ImportacaoPacientesService();
 
     // ==========================
     // Ciclo de Vida (init)
@@ -239,6 +249,7 @@ public class PacienteController {
                 service.atualizar(p, d); // UPDATE pessoa + upsert dentista
                 alertInfo("Registro atualizado com sucesso.");
             } else {
+                if (!confirmarMesmoComDuplicados(service.possiveisDuplicados(p))) return;
                 int novoId = Math.toIntExact(service.inserir(p, d)); // INSERT
                 p.id_pessoa = novoId;
                 alertInfo("Registro salvo com sucesso.");
@@ -256,6 +267,111 @@ public class PacienteController {
         }
     }
 
+    /** Importa pacientes de um CSV em segundo plano e mostra o relatório por linha. */
+    @FXML
+    public void onImportarCsv() {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Importar pacientes (CSV)");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Planilha CSV", "*.csv", "*.txt"));
+        File arquivo = fc.showOpenDialog(tabela.getScene().getWindow());
+        if (arquivo == null) return;
+
+        Task<ResultadoImportacao> tarefa = new Task<>() {
+            @Override protected ResultadoImportacao call() throws Exception {
+                return importacaoService.importar(arquivo.toPath());
+            }
+        };
+        tarefa.setOnSucceeded(e -> {
+            mostrarResultadoImportacao(tarefa.getValue());
+            carregarTabela();
+        });
+        tarefa.setOnFailed(e -> {
+            alertErro("Erro ao importar: " + tarefa.getException().getMessage());
+            carregarTabela();
+        });
+        tabela.getScene().setCursor(Cursor.WAIT);
+        tarefa.runningProperty().addListener((o, antes, rodando) -> {
+            if (!rodando) tabela.getScene().setCursor(Cursor.DEFAULT);
+        });
+
+        Thread t = new Thread(tarefa, "saco-importacao-pacientes");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void mostrarResultadoImportacao(ResultadoImportacao r) {
+        if (r.getErros().isEmpty()) {
+            alertInfo(r.getImportados() + " paciente(s) importado(s).");
+            return;
+        }
+        ListView<String> lista = new ListView<>();
+        for (ErroImportacao e : r.getErros()) lista.getItems().add("Linha " + e.getLinha() + ": " + e.getMensagem());
+        lista.setPrefSize(640, 320);
+
+        Alert a = new Alert(Alert.AlertType.WARNING, null, ButtonType.OK);
+        a.setHeaderText(r.getImportados() + " de " + r.getLidos() + " registro(s) importado(s); "
+                + r.getErros().size() + " com erro:");
+        a.getDialogPane().setContent(lista);
+        a.showAndWait();
+    }
+
+    /** Lista pessoas com nome foneticamente igual e pergunta se o cadastro segue assim mesmo. */
+    private boolean confirmarMesmoComDuplicados(List<Pessoa> candidatos) {
+        if (candidatos.isEmpty()) return true;
+
+        ListView<String> lista = new ListView<>();
+        for (Pessoa c : candidatos) lista.getItems().add(descrever(c));
+        lista.setPrefSize(560, Math.min(240, 40 + 26 * candidatos.size()));
+
+        Alert conf = new Alert(Alert.AlertType.CONFIRMATION, null, ButtonType.YES, ButtonType.NO);
+        conf.setHeaderText("Já existe cadastro com nome parecido. Salvar mesmo assim?");
+        conf.getDialogPane().setContent(lista);
+        return conf.showAndWait().orElse(ButtonType.NO) == ButtonType.YES;
+    }
+
+    /** Varre o cadastro inteiro por pares com a mesma chave fonética. */
+    @FXML
+    public void onDuplicados() {
+        try {
+            List<PossivelDuplicado> pares = service.varrerPossiveisDuplicados();
+            if (pares.isEmpty()) {
+                alertInfo("Nenhum possível duplicado encontrado.");
+                return;
+            }
+
+            ListView<String> lista = new ListView<>();
+            for (PossivelDuplicado d : pares) {
+                StringBuilder sb = new StringBuilder()
+                        .append(d.getId_pessoa_a()).append(" - ").append(d.getNome_a())
+                        .append("  ×  ")
+                        .append(d.getId_pessoa_b()).append(" - ").append(d.getNome_b());
+                if (d.isMesmoNascimento()) sb.append(" | mesmo nascimento");
+                if (d.isMesmoTelefone()) sb.append(" | mesmo telefone");
+                lista.getItems().add(sb.toString());
+            }
+            lista.setPrefSize(720, 360);
+
+            Alert a = new Alert(Alert.AlertType.WARNING, null, ButtonType.OK);
+            a.setHeaderText(pares.size() + " par(es) com nome foneticamente igual");
+            a.getDialogPane().setContent(lista);
+            a.showAndWait();
+        } catch (SQLException e) {
+            alertErro("Erro ao procurar duplicados: " + e.getMessage());
+        }
+    }
+
+    private static String descrever(Pessoa p) {
+        StringBuilder sb = new StringBuilder().append(p.getId_pessoa()).append(" - ").append(p.getNome())
+                .append(" | CPF ").append(p.getCpf() == null ? "-" : p.getCpf());
+        if (p.getDt_nascimento() != null) {
+            LocalDate ld = (p.getDt_nascimento() instanceof java.sql.Date sd)
+                    ? sd.toLocalDate()
+                    : p.getDt_nascimento().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+            sb.append(" | nasc. ").append(DateTimeFormatter.ofPattern("dd/MM/yyyy").format(ld));
+        }
+        return sb.toString();
+    }
+
     @FXML
     public void onLimpar() {
         limparCampos();
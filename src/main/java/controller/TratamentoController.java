@@ -1,5 +1,7 @@
 package controller;
 
+import dao.AgendamentoDAO;
+import dao.TratamentoDao;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -27,11 +29,13 @@ public class TratamentoController {
     @FXML private TextField txtId;
     @FXML private TextField txtNome;
     @FXML private TextArea  txtDescricao;
+    @FXML private Spinner<Integer> spDuracao;
 
     // Tabela de tratamentos
     @FXML private TableView<Tratamento> tblTratamentos;
     @FXML private TableColumn<Tratamento, Integer> colId;
     @FXML private TableColumn<Tratamento, String>  colNome;
+    @FXML private TableColumn<Tratamento, Integer> colDuracao;
     @FXML private TableColumn<Tratamento, String>  colDescricao;
 
     // Tabela de consumo (material x quantidade)
@@ -83,6 +87,7 @@ public class TratamentoController {
             // Colunas da Tabela de Tratamentos
             colId.setCellValueFactory(d -> new SimpleIntegerProperty(d.getValue().getId_tratamento()).asObject());
             colNome.setCellValueFactory(d -> new SimpleStringProperty(d.getValue().getNome()));
+            colDuracao.setCellValueFactory(d -> new SimpleIntegerProperty(d.getValue().getDuracao_minutos()).asObject());
             colDescricao.setCellValueFactory(d -> new SimpleStringProperty(d.getValue().getDescricao()));
 
             tblTratamentos.setItems(tratamentosObs);
@@ -131,6 +136,10 @@ public class TratamentoController {
             // Spinner: 1..999, default 1
             spQuantidade.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 999, 1));
 
+            // Spinner de duração: 5..1440 min, passo 5, default 60
+            spDuracao.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(
+                    5, (int) AgendamentoDAO.DURACAO_MAXIMA_MIN, TratamentoDao.DURACAO_PADRAO_MINUTOS, 5));
+
             // Carrega dados iniciais
             carregarTabela();
             carregarMateriaisDisponiveis();
@@ -150,6 +159,7 @@ public class TratamentoController {
         txtId.clear();
         txtNome.clear();
         txtDescricao.clear();
+        spDuracao.getValueFactory().setValue(TratamentoDao.DURACAO_PADRAO_MINUTOS);
         consumosObs.clear();
         tblTratamentos.getSelectionModel().clearSelection();
         // >>> reset do estado: ainda sem id
@@ -162,6 +172,7 @@ public class TratamentoController {
     public void onSalvar() {
         String nome = safeTrim(txtNome.getText());
         String descricao = safeTrim(txtDescricao.getText());
+        int duracao = spDuracao.getValue();
 
         List<ConsumoMaterial> consumos = new ArrayList<>();
         for (ConsumoVM vm : consumosObs) {
@@ -176,11 +187,11 @@ public class TratamentoController {
         Task<Void> t = new Task<>() {
             @Override protected Void call() throws Exception {
                 if (txtId.getText() == null || txtId.getText().isBlank() || idTratamentoAtual <= 0) {
-                    long idGerado = tratamentoService.criar(nome, descricao, consumos);
+                    long idGerado = tratamentoService.criar(nome, descricao, duracao, consumos);
                     idTratamentoAtual = (int) idGerado; // >>> guarda id
                 } else {
                     int idTrat = Integer.parseInt(txtId.getText());
-                    tratamentoService.atualizar(idTrat, nome, descricao, consumos);
+                    tratamentoService.atualizar(idTrat, nome, descricao, duracao, consumos);
                     idTratamentoAtual = idTrat; // >>> garante consistência
                 }
                 return null;
@@ -249,6 +260,7 @@ public class TratamentoController {
         txtId.setText(String.valueOf(t.getId_tratamento()));
         txtNome.setText(t.getNome());
         txtDescricao.setText(t.getDescricao());
+        spDuracao.getValueFactory().setValue(t.getDuracao_minutos());
 
         // >>> fixa o id atual para operações de upsert/remover
         idTratamentoAtual = t.getId_tratamento();
@@ -349,7 +361,7 @@ public class TratamentoController {
         // >>> background load
         Task<List<Material>> t = new Task<>() {
             @Override protected List<Material> call() throws Exception {
-                return materialService.listar(); // >>> usa o field existente
+                return materialService.listarCatalogo(); // >>> cache compartilhado entre as telas
             }
         };
         t.setOnSucceeded(e -> {
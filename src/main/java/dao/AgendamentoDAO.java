@@ -6,19 +6,34 @@ import model.StatusAgendamento;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class AgendamentoDAO {
 
-    public List<Agendamento> listar() throws SQLException {
-        List<Agendamento> lista = new ArrayList<>();
+    /**
+     * Duração máxima de um agendamento. Limita a faixa de DATA_HORA varrida na
+     * verificação de conflito (qualquer sobreposição começa no máximo isso antes do início).
+     */
+    public static final long DURACAO_MAXIMA_MIN = 24 * 60;
 
-        String sql = """
+    /** Posição da última linha de uma página (chave do keyset: DATA_HORA DESC, ID_AGENDAMENTO DESC). */
+    public record ChavePagina(Timestamp dataHora, int idAgendamento) {
+        public static ChavePagina de(Agendamento a) {
+            return new ChavePagina(new Timestamp(a.getData_hora().getTime()), a.getId_agendamento());
+        }
+    }
+
+    private static final String SQL_LISTAGEM = """
         SELECT 
             ag.ID_AGENDAMENTO,
             ag.DATA_HORA,
+            ag.DATA_HORA_FIM,
             ag.STATUS,
             ag.OBSERVACOES,
+            ag.VERSAO,
             pa.ID_PACIENTE,
             pePac.NOME AS NOME_PACIENTE,
             de.ID_DENTISTA,
@@ -31,49 +46,112 @@ public class AgendamentoDAO {
         INNER JOIN TB_DENTISTA de ON ag.ID_DENTISTA = de.ID_DENTISTA
         INNER JOIN TB_PESSOA peDen ON de.ID_DENTISTA = peDen.ID_PESSOA
         INNER JOIN TB_TRATAMENTO tr ON ag.ID_TRATAMENTO = tr.ID_TRATAMENTO
-        ORDER BY ag.DATA_HORA DESC
         """;
 
+    public List<Agendamento> listar() throws SQLException {
+        List<Agendamento> lista = new ArrayList<>();
+
+        String sql = SQL_LISTAGEM + "ORDER BY ag.DATA_HORA DESC";
+
         try (Connection conn = Conexao.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                Agendamento a = new Agendamento();
-                a.setId_agendamento(rs.getInt("ID_AGENDAMENTO"));
-                a.setId_paciente(rs.getInt("ID_PACIENTE"));
-                a.setId_dentista(rs.getInt("ID_DENTISTA"));
-                a.setId_tratamento(rs.getInt("ID_TRATAMENTO"));
-                a.setData_hora(rs.getTimestamp("DATA_HORA"));
-                a.setStatus(StatusAgendamento.fromString(rs.getString("STATUS")));
-                a.setObservacoes(rs.getString("OBSERVACOES"));
+                lista.add(mapListagem(rs));
+            }
+        }
 
-                // novos campos só para exibição
-                a.setNomePaciente(rs.getString("NOME_PACIENTE"));
-                a.setNomeDentista(rs.getString("NOME_DENTISTA"));
-                a.setNomeTratamento(rs.getString("NOME_TRATAMENTO"));
+        return lista;
+    }
 
-                lista.add(a);
-            }
+    /**
+     * Uma página da agenda, do mais recente para o mais antigo, com paginação por keyset
+     * em (DATA_HORA, ID_AGENDAMENTO): a página seguinte começa logo após {@code apos},
+     * sem OFFSET (custo constante, não importa quão fundo o usuário rolar).
+     *
+     * @param de         início (inclusive) do período; null = sem limite
+     * @param ate        fim (exclusive) do período; null = sem limite
+     * @param idDentista filtra por dentista; null = todos
+     * @param status     filtra por status; null = todos
+     * @param apos       chave da última linha da página anterior; null = primeira página
+     * @param limite     tamanho máximo da página
+     */
+    public List<Agendamento> listar(Timestamp de, Timestamp ate, Integer idDentista, StatusAgendamento status,
+                                    ChavePagina apos, int limite) throws SQLException {
+        StringBuilder sb = new StringBuilder(SQL_LISTAGEM).append("WHERE 1 = 1 ");
+        if (de != null) sb.append("AND ag.DATA_HORA >= ? ");
+        if (ate != null) sb.append("AND ag.DATA_HORA < ? ");
+        if (idDentista != null) sb.append("AND ag.ID_DENTISTA = ? ");
+        if (status != null) sb.append("AND ag.STATUS = ? ");
+        if (apos != null) {
+            sb.append("AND (ag.DATA_HORA < ? OR (ag.DATA_HORA = ? AND ag.ID_AGENDAMENTO < ?)) ");
         }
+        sb.append("ORDER BY ag.DATA_HORA DESC, ag.ID_AGENDAMENTO DESC").append(Conexao.getDialeto().limite());
+
+        List<Agendamento> lista = new ArrayList<>(limite);
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sb.toString())) {
+            int i = 1;
+            if (de != null) ps.setTimestamp(i++, de);
+            if (ate != null) ps.setTimestamp(i++, ate);
+            if (idDentista != null) ps.setInt(i++, idDentista);
+            if (status != null) ps.setString(i++, status.name());
+            if (apos != null) {
+                ps.setTimestamp(i++, apos.dataHora());
+                ps.setTimestamp(i++, apos.dataHora());
+                ps.setInt(i++, apos.idAgendamento());
+            }
+            ps.setInt(i, limite);
 
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(mapListagem(rs));
+                }
+            }
+        }
         return lista;
     }
 
+    private Agendamento mapListagem(ResultSet rs) throws SQLException {
+        Agendamento a = new Agendamento();
+        a.setId_agendamento(rs.getInt("ID_AGENDAMENTO"));
+        a.setId_paciente(rs.getInt("ID_PACIENTE"));
+        a.setId_dentista(rs.getInt("ID_DENTISTA"));
+        a.setId_tratamento(rs.getInt("ID_TRATAMENTO"));
+        a.setData_hora(rs.getTimestamp("DATA_HORA"));
+        a.setData_hora_fim(rs.getTimestamp("DATA_HORA_FIM"));
+        a.setStatus(StatusAgendamento.fromString(rs.getString("STATUS")));
+        a.setObservacoes(rs.getString("OBSERVACOES"));
+        a.setVersao(rs.getInt("VERSAO"));
+
+        // novos campos só para exibição
+        a.setNomePaciente(rs.getString("NOME_PACIENTE"));
+        a.setNomeDentista(rs.getString("NOME_DENTISTA"));
+        a.setNomeTratamento(rs.getString("NOME_TRATAMENTO"));
+        return a;
+    }
+
     public int cadastrar(Agendamento a) throws SQLException {
+        try (Connection conn = Conexao.getConnection()) {
+            return cadastrar(conn, a);
+        }
+    }
+
+    private int cadastrar(Connection conn, Agendamento a) throws SQLException {
         String sql = "INSERT INTO TB_AGENDAMENTO " +
-                "(ID_PACIENTE, ID_DENTISTA, ID_TRATAMENTO, DATA_HORA, STATUS, OBSERVACOES) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
+                "(ID_PACIENTE, ID_DENTISTA, ID_TRATAMENTO, DATA_HORA, DATA_HORA_FIM, STATUS, OBSERVACOES) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = Conexao.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) { // <- peça as chaves
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) { // <- peça as chaves
 
             ps.setInt(1, a.getId_paciente());
             ps.setInt(2, a.getId_dentista());
             ps.setInt(3, a.getId_tratamento());
             ps.setTimestamp(4, new java.sql.Timestamp(a.getData_hora().getTime()));
-            ps.setString(5, a.getStatus().name());
-            if (a.getObservacoes() == null) ps.setNull(6, java.sql.Types.VARCHAR); else ps.setString(6, a.getObservacoes());
+            ps.setTimestamp(5, fimObrigatorio(a));
+            ps.setString(6, a.getStatus().name());
+            if (a.getObservacoes() == null) ps.setNull(7, java.sql.Types.VARCHAR); else ps.setString(7, a.getObservacoes());
 
             ps.executeUpdate();
 
@@ -88,29 +166,487 @@ public class AgendamentoDAO {
         return -1;
     }
 
+    /**
+     * Insere o agendamento somente se o dentista estiver livre em [inicio, fim).
+     * Trava a linha do dentista (serializa marcações concorrentes do mesmo dentista),
+     * refaz a verificação de conflito e insere, tudo na mesma transação.
+     *
+     * @throws ConflitoAgendaException se houver sobreposição.
+     */
+    public int cadastrarSemConflito(Agendamento a, Timestamp fim) throws SQLException {
+        a.setData_hora_fim(fim);
+        Connection conn = Conexao.getConnection();
+        try {
+            conn.setAutoCommit(false);
+            Timestamp inicio = new Timestamp(a.getData_hora().getTime());
+
+            travarAgendaDentista(conn, a.getId_dentista());
+            if (existeConflitoHorario(conn, a.getId_dentista(), inicio, fim, null)) {
+                throw new ConflitoAgendaException("Conflito de agenda para o dentista no horário informado.");
+            }
+            int id = cadastrar(conn, a);
+
+            conn.commit();
+            return id;
+        } catch (SQLException e) {
+            try { conn.rollback(); } catch (SQLException ignore) {}
+            throw e;
+        } finally {
+            try { conn.setAutoCommit(true); } catch (SQLException ignore) {}
+            try { conn.close(); } catch (SQLException ignore) {}
+        }
+    }
 
     public boolean atualizar(Agendamento a) throws SQLException {
+        try (Connection conn = Conexao.getConnection()) {
+            return atualizar(conn, a);
+        }
+    }
+
+    /**
+     * UPDATE com controle otimista: com {@code versao} preenchida, só grava se a linha
+     * ainda estiver nessa versão e a incrementa; sem versão, grava incondicionalmente.
+     *
+     * @throws ConflitoVersaoException se outra estação alterou o agendamento depois da leitura.
+     */
+    private boolean atualizar(Connection conn, Agendamento a) throws SQLException {
         String sql = "UPDATE TB_AGENDAMENTO SET " +
                 "ID_PACIENTE = ?, ID_DENTISTA = ?, ID_TRATAMENTO = ?, " +
-                "DATA_HORA = ?, STATUS = ?, OBSERVACOES = ? " +
-                "WHERE ID_AGENDAMENTO = ?";
+                "DATA_HORA = ?, DATA_HORA_FIM = ?, STATUS = ?, OBSERVACOES = ?, VERSAO = VERSAO + 1 " +
+                "WHERE ID_AGENDAMENTO = ?" +
+                (a.getVersao() != null ? " AND VERSAO = ?" : "");
 
-        try (Connection conn = Conexao.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, a.getId_paciente());
             ps.setInt(2, a.getId_dentista());
             ps.setInt(3, a.getId_tratamento());
             ps.setTimestamp(4, new java.sql.Timestamp(a.getData_hora().getTime()));
-            ps.setString(5, a.getStatus().name());
-            ps.setString(6, a.getObservacoes());
-            ps.setInt(7, a.getId_agendamento());
+            ps.setTimestamp(5, fimObrigatorio(a));
+            ps.setString(6, a.getStatus().name());
+            ps.setString(7, a.getObservacoes());
+            ps.setInt(8, a.getId_agendamento());
+            if (a.getVersao() != null) ps.setInt(9, a.getVersao());
 
             int linhas = ps.executeUpdate();
-            return linhas > 0;
+            if (linhas > 0) {
+                if (a.getVersao() != null) a.setVersao(a.getVersao() + 1);
+                return true;
+            }
+            if (a.getVersao() != null && existe(conn, a.getId_agendamento())) {
+                throw new ConflitoVersaoException("O agendamento " + a.getId_agendamento()
+                        + " foi alterado por outro usuário. Recarregue e tente novamente.");
+            }
+            return false;
+        }
+    }
+
+    /** Status atual com a linha travada até o fim da transação (null se não existe). */
+    private StatusAgendamento travarStatus(Connection conn, int idAgendamento) throws SQLException {
+        String sql = "SELECT STATUS FROM TB_AGENDAMENTO WHERE ID_AGENDAMENTO = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, idAgendamento);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? StatusAgendamento.fromString(rs.getString(1)) : null;
+            }
+        }
+    }
+
+    private boolean existe(Connection conn, int idAgendamento) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM TB_AGENDAMENTO WHERE ID_AGENDAMENTO = ?")) {
+            ps.setInt(1, idAgendamento);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Atualiza o agendamento somente se o novo horário não conflitar com outro do mesmo dentista
+     * (verificação e UPDATE na mesma transação, com a agenda do dentista travada).
+     * Se o status passar a CONCLUIDO, os materiais do tratamento são baixados na mesma transação.
+     *
+     * @throws ConflitoAgendaException se houver sobreposição.
+     * @throws ConflitoVersaoException se o agendamento foi alterado por outra estação.
+     * @throws EstoqueInsuficienteException se a passagem para CONCLUIDO deixaria material negativo.
+     */
+    public boolean atualizarSemConflito(Agendamento a, Timestamp fim) throws SQLException {
+        a.setData_hora_fim(fim);
+        Connection conn = Conexao.getConnection();
+        try {
+            conn.setAutoCommit(false);
+            Timestamp inicio = new Timestamp(a.getData_hora().getTime());
+
+            travarAgendaDentista(conn, a.getId_dentista());
+            if (existeConflitoHorario(conn, a.getId_dentista(), inicio, fim, a.getId_agendamento())) {
+                throw new ConflitoAgendaException("Conflito de agenda para o dentista no horário informado.");
+            }
+            StatusAgendamento anterior = travarStatus(conn, a.getId_agendamento());
+            boolean ok = atualizar(conn, a);
+            if (ok && a.getStatus() == StatusAgendamento.CONCLUIDO && anterior != StatusAgendamento.CONCLUIDO) {
+                MaterialDAO.baixarConsumo(conn, List.of(a.getId_agendamento()));
+            }
+
+            conn.commit();
+            return ok;
+        } catch (SQLException e) {
+            try { conn.rollback(); } catch (SQLException ignore) {}
+            throw e;
+        } finally {
+            try { conn.setAutoCommit(true); } catch (SQLException ignore) {}
+            try { conn.close(); } catch (SQLException ignore) {}
+        }
+    }
+
+    /**
+     * Grava uma série de agendamentos do mesmo dentista numa única transação:
+     * trava a agenda do dentista, verifica todas as ocorrências numa só consulta
+     * ({@link #ocorrenciasEmConflito}) e insere as livres num único lote.
+     *
+     * @param ocorrencias   agendamentos já com DATA_HORA e DATA_HORA_FIM preenchidos
+     * @param pularConflitos false = nada é gravado se alguma ocorrência conflitar;
+     *                       true  = grava só as ocorrências livres
+     * @return por ocorrência (mesma ordem), o ID gerado ou null se não foi gravada
+     * @throws ConflitoAgendaException se houver conflito e {@code pularConflitos} for false
+     */
+    public Integer[] cadastrarSerieSemConflito(List<Agendamento> ocorrencias, boolean pularConflitos)
+            throws SQLException {
+        Integer[] ids = new Integer[ocorrencias.size()];
+        if (ocorrencias.isEmpty()) return ids;
+        int idDentista = ocorrencias.get(0).getId_dentista();
+
+        Connection conn = Conexao.getConnection();
+        try {
+            conn.setAutoCommit(false);
+
+            travarAgendaDentista(conn, idDentista);
+            Set<Integer> conflitos = ocorrenciasEmConflito(conn, idDentista, ocorrencias);
+            if (!conflitos.isEmpty() && !pularConflitos) {
+                throw new ConflitoAgendaException(conflitos.size() + " ocorrência(s) da série em conflito com a agenda do dentista.");
+            }
+
+            String sql = "INSERT INTO TB_AGENDAMENTO " +
+                    "(ID_PACIENTE, ID_DENTISTA, ID_TRATAMENTO, DATA_HORA, DATA_HORA_FIM, STATUS, OBSERVACOES) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
+            List<Integer> gravadas = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < ocorrencias.size(); i++) {
+                    if (conflitos.contains(i)) continue;
+                    Agendamento a = ocorrencias.get(i);
+                    ps.setInt(1, a.getId_paciente());
+                    ps.setInt(2, a.getId_dentista());
+                    ps.setInt(3, a.getId_tratamento());
+                    ps.setTimestamp(4, new Timestamp(a.getData_hora().getTime()));
+                    ps.setTimestamp(5, fimObrigatorio(a));
+                    ps.setString(6, a.getStatus().name());
+                    if (a.getObservacoes() == null) ps.setNull(7, Types.VARCHAR); else ps.setString(7, a.getObservacoes());
+                    ps.addBatch();
+                    gravadas.add(i);
+                }
+                if (!gravadas.isEmpty()) {
+                    ps.executeBatch();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        for (int i : gravadas) {
+                            if (!rs.next()) break;
+                            ids[i] = rs.getInt(1);
+                            ocorrencias.get(i).setId_agendamento(ids[i]);
+                        }
+                    }
+                }
+            }
+
+            conn.commit();
+            return ids;
+        } catch (SQLException e) {
+            try { conn.rollback(); } catch (SQLException ignore) {}
+            throw e;
+        } finally {
+            try { conn.setAutoCommit(true); } catch (SQLException ignore) {}
+            try { conn.close(); } catch (SQLException ignore) {}
+        }
+    }
+
+    /**
+     * Posições (0..n-1) das ocorrências que sobrepõem algum agendamento do dentista,
+     * numa única consulta: as ocorrências viram uma tabela derivada e cada uma faz
+     * a mesma busca por faixa de índice de {@link #existeConflitoHorario}.
+     */
+    private Set<Integer> ocorrenciasEmConflito(Connection conn, int idDentista, List<Agendamento> ocorrencias)
+            throws SQLException {
+        Dialeto dialeto = Conexao.getDialeto();
+        String tipo = dialeto.tipoDataHora();
+        StringBuilder sb = new StringBuilder("SELECT o.N FROM (");
+        for (int i = 0; i < ocorrencias.size(); i++) {
+            sb.append(i == 0
+                    ? "SELECT ? AS N, CAST(? AS " + tipo + ") AS INI, CAST(? AS " + tipo + ") AS FIM"
+                    : " UNION ALL SELECT ?, ?, ?");
+        }
+        sb.append(") o WHERE EXISTS (")
+                .append("SELECT 1 FROM TB_AGENDAMENTO ag ")
+                .append("WHERE ag.ID_DENTISTA = ? ")
+                .append("AND ag.DATA_HORA >= ").append(dialeto.somarMinutos("o.INI", -DURACAO_MAXIMA_MIN)).append(' ')
+                .append("AND ag.DATA_HORA < o.FIM ")
+                .append("AND ag.DATA_HORA_FIM > o.INI)");
+
+        Set<Integer> conflitos = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement(sb.toString())) {
+            int p = 1;
+            for (int i = 0; i < ocorrencias.size(); i++) {
+                Agendamento a = ocorrencias.get(i);
+                ps.setInt(p++, i);
+                ps.setTimestamp(p++, new Timestamp(a.getData_hora().getTime()));
+                ps.setTimestamp(p++, fimObrigatorio(a));
+            }
+            ps.setInt(p, idDentista);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) conflitos.add(rs.getInt(1));
+            }
+        }
+        return conflitos;
+    }
+
+    /** SELECT ... FOR UPDATE na linha do dentista: marcações concorrentes do mesmo dentista ficam em fila. */
+    private void travarAgendaDentista(Connection conn, int idDentista) throws SQLException {
+        String sql = "SELECT ID_DENTISTA FROM TB_DENTISTA WHERE ID_DENTISTA = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, idDentista);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new SQLException("Dentista não encontrado (ID=" + idDentista + ").");
+            }
+        }
+    }
+
+    // ============================================================
+    // ================== TRANSIÇÕES DE STATUS ====================
+    // ============================================================
+
+    /**
+     * Muda o status num único UPDATE, condicionado ao status atual estar entre os
+     * predecessores permitidos de {@code novo} (ver {@link StatusAgendamento#sucessores()}).
+     * Retorna false se o agendamento não existe ou se o status atual não permite a transição
+     * (inclusive quando outra estação o alterou antes).
+     */
+    public boolean alterarStatus(int idAgendamento, StatusAgendamento novo) throws SQLException {
+        Set<StatusAgendamento> permitidos = novo.predecessores();
+        if (permitidos.isEmpty()) return false;
+
+        String sql = "UPDATE TB_AGENDAMENTO SET STATUS = ?, VERSAO = VERSAO + 1 " +
+                "WHERE ID_AGENDAMENTO = ? AND STATUS IN (" + marcadores(permitidos.size()) + ")";
+
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, novo.name());
+            ps.setInt(2, idAgendamento);
+            definirStatus(ps, 3, permitidos);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Aplica a mesma transição a vários agendamentos num único lote (uma ida ao banco, um commit).
+     * @return ids que não mudaram (inexistentes ou em status que não permite a transição)
+     */
+    public List<Integer> alterarStatus(List<Integer> ids, StatusAgendamento novo) throws SQLException {
+        Set<StatusAgendamento> permitidos = novo.predecessores();
+        if (ids.isEmpty() || permitidos.isEmpty()) return new ArrayList<>(ids);
+
+        String sql = "UPDATE TB_AGENDAMENTO SET STATUS = ?, VERSAO = VERSAO + 1 " +
+                "WHERE ID_AGENDAMENTO = ? AND STATUS IN (" + marcadores(permitidos.size()) + ")";
+
+        try (Connection conn = Conexao.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Integer id : ids) {
+                    ps.setString(1, novo.name());
+                    ps.setInt(2, id);
+                    definirStatus(ps, 3, permitidos);
+                    ps.addBatch();
+                }
+                int[] linhas = ps.executeBatch();
+                conn.commit();
+
+                List<Integer> naoAlterados = new ArrayList<>();
+                for (int i = 0; i < linhas.length; i++) {
+                    if (linhas[i] == 0) naoAlterados.add(ids.get(i));
+                }
+                return naoAlterados;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
     }
 
+    /**
+     * Move de {@code atual} para {@code novo} todos os agendamentos que começam em [de, ate)
+     * (opcionalmente de um dentista) num único UPDATE pela faixa do índice de DATA_HORA.
+     * A validade da transição atual -> novo é responsabilidade do chamador.
+     * @return quantidade de agendamentos alterados
+     */
+    public int alterarStatusPorPeriodo(Timestamp de, Timestamp ate, Integer idDentista,
+                                       StatusAgendamento atual, StatusAgendamento novo) throws SQLException {
+        String sql = "UPDATE TB_AGENDAMENTO SET STATUS = ?, VERSAO = VERSAO + 1 " +
+                "WHERE DATA_HORA >= ? AND DATA_HORA < ? AND STATUS = ?" +
+                (idDentista != null ? " AND ID_DENTISTA = ?" : "");
+
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, novo.name());
+            ps.setTimestamp(2, de);
+            ps.setTimestamp(3, ate);
+            ps.setString(4, atual.name());
+            if (idDentista != null) ps.setInt(5, idDentista);
+            return ps.executeUpdate();
+        }
+    }
+
+    // ============================================================
+    // ================ CONCLUSÃO COM BAIXA DE ESTOQUE ============
+    // ============================================================
+
+    /**
+     * Conclui o agendamento e baixa do estoque os materiais do tratamento, na mesma transação.
+     * Retorna false se o agendamento não existe ou o status atual não permite concluir.
+     *
+     * @throws EstoqueInsuficienteException se algum material ficaria negativo (nada é gravado)
+     */
+    public boolean concluir(int idAgendamento) throws SQLException {
+        return concluir(List.of(idAgendamento)).isEmpty();
+    }
+
+    /**
+     * Conclui vários agendamentos numa transação: um UPDATE de status, um UPDATE de estoque
+     * e um INSERT no livro, independentemente da quantidade de agendamentos.
+     *
+     * @return ids que não foram concluídos (inexistentes ou em status que não permite concluir)
+     * @throws EstoqueInsuficienteException se algum material ficaria negativo (nada é gravado)
+     */
+    public List<Integer> concluir(List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) return new ArrayList<>();
+        String sql = "SELECT ID_AGENDAMENTO FROM TB_AGENDAMENTO WHERE ID_AGENDAMENTO IN (" + marcadores(ids.size()) + ")";
+
+        return emTransacao(conn -> {
+            List<Integer> concluidos = travarConcluiveis(conn, sql, ps -> {
+                int i = 1;
+                for (Integer id : ids) ps.setInt(i++, id);
+                return i;
+            });
+            concluirTravados(conn, concluidos);
+
+            List<Integer> naoConcluidos = new ArrayList<>(ids);
+            naoConcluidos.removeAll(concluidos);
+            return naoConcluidos;
+        });
+    }
+
+    /**
+     * Conclui, com baixa de estoque, todos os agendamentos que começam em [de, ate)
+     * (opcionalmente de um dentista e/ou só os que estão em {@code atual}) e ainda podem
+     * ser concluídos. Ex.: fechar o dia.
+     *
+     * @return quantidade de agendamentos concluídos
+     * @throws EstoqueInsuficienteException se algum material ficaria negativo (nada é gravado)
+     */
+    public int concluirPorPeriodo(Timestamp de, Timestamp ate, Integer idDentista, StatusAgendamento atual)
+            throws SQLException {
+        String sql = "SELECT ID_AGENDAMENTO FROM TB_AGENDAMENTO WHERE DATA_HORA >= ? AND DATA_HORA < ?" +
+                (idDentista != null ? " AND ID_DENTISTA = ?" : "") +
+                (atual != null ? " AND STATUS = ?" : "");
+
+        return emTransacao(conn -> {
+            List<Integer> concluidos = travarConcluiveis(conn, sql, ps -> {
+                int i = 1;
+                ps.setTimestamp(i++, de);
+                ps.setTimestamp(i++, ate);
+                if (idDentista != null) ps.setInt(i++, idDentista);
+                if (atual != null) ps.setString(i++, atual.name());
+                return i;
+            });
+            concluirTravados(conn, concluidos);
+            return concluidos.size();
+        });
+    }
+
+    @FunctionalInterface
+    private interface Parametros {
+        /** Preenche os parâmetros e devolve o próximo índice livre. */
+        int definir(PreparedStatement ps) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface Trabalho<T> {
+        T executar(Connection conn) throws SQLException;
+    }
+
+    private static <T> T emTransacao(Trabalho<T> trabalho) throws SQLException {
+        try (Connection conn = Conexao.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T resultado = trabalho.executar(conn);
+                conn.commit();
+                return resultado;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /** Ids selecionados por {@code sqlBase} que podem ir para CONCLUIDO, com as linhas travadas. */
+    private List<Integer> travarConcluiveis(Connection conn, String sqlBase, Parametros parametros)
+            throws SQLException {
+        Set<StatusAgendamento> permitidos = StatusAgendamento.CONCLUIDO.predecessores();
+        String sql = sqlBase + " AND STATUS IN (" + marcadores(permitidos.size()) + ") FOR UPDATE";
+
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            definirStatus(ps, parametros.definir(ps), permitidos);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    private void concluirTravados(Connection conn, List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) return;
+        String sql = "UPDATE TB_AGENDAMENTO SET STATUS = ?, VERSAO = VERSAO + 1 " +
+                "WHERE ID_AGENDAMENTO IN (" + marcadores(ids.size()) + ")";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, StatusAgendamento.CONCLUIDO.name());
+            int i = 2;
+            for (Integer id : ids) ps.setInt(i++, id);
+            ps.executeUpdate();
+        }
+        MaterialDAO.baixarConsumo(conn, ids);
+    }
+
+    /** Status atual (null se o agendamento não existe); usado para explicar uma transição recusada. */
+    public StatusAgendamento buscarStatus(int idAgendamento) throws SQLException {
+        String sql = "SELECT STATUS FROM TB_AGENDAMENTO WHERE ID_AGENDAMENTO = ?";
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, idAgendamento);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? StatusAgendamento.fromString(rs.getString(1)) : null;
+            }
+        }
+    }
+
+    private static String marcadores(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    private static void definirStatus(PreparedStatement ps, int indice, Set<StatusAgendamento> status)
+            throws SQLException {
+        for (StatusAgendamento st : status) ps.setString(indice++, st.name());
+    }
+
     public boolean deletar(int idAgendamento) throws SQLException {
         String sql = "DELETE FROM TB_AGENDAMENTO WHERE ID_AGENDAMENTO = ?";
 
@@ -124,26 +660,36 @@ public class AgendamentoDAO {
     }
 
     public boolean existeConflitoHorario(int idDentista, Timestamp inicio, Timestamp fim, Integer ignorarId) throws SQLException {
+        try (Connection conn = Conexao.getConnection()) {
+            return existeConflitoHorario(conn, idDentista, inicio, fim, ignorarId);
+        }
+    }
+
+    private boolean existeConflitoHorario(Connection conn, int idDentista, Timestamp inicio, Timestamp fim, Integer ignorarId) throws SQLException {
+        // Predicado só com faixas sobre o índice (ID_DENTISTA, DATA_HORA, DATA_HORA_FIM):
+        // sobreposição: inicioA < fimB AND fimA > inicioB, com DATA_HORA limitado
+        // a [inicio - duração máxima, fim) para a varredura ficar curta.
         StringBuilder sb = new StringBuilder();
         sb.append("SELECT 1 ")
                 .append("FROM TB_AGENDAMENTO ")
                 .append("WHERE ID_DENTISTA = ? ")
-                // sobreposição: inicioA < fimB AND fimA > inicioB
+                .append("AND DATA_HORA >= ? ")
                 .append("AND DATA_HORA < ? ")
-                .append("AND DATE_ADD(DATA_HORA, INTERVAL 60 MINUTE) > ? ");
+                .append("AND DATA_HORA_FIM > ? ");
 
         if (ignorarId != null) {
             sb.append("AND ID_AGENDAMENTO <> ? ");
         }
-        sb.append("LIMIT 1");
+        sb.append(Conexao.getDialeto().limite());
 
-        try (Connection conn = Conexao.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sb.toString())) {
+        try (PreparedStatement ps = conn.prepareStatement(sb.toString())) {
             int i = 1;
             ps.setInt(i++, idDentista);
+            ps.setTimestamp(i++, new Timestamp(inicio.getTime() - DURACAO_MAXIMA_MIN * 60_000L));
             ps.setTimestamp(i++, fim);
             ps.setTimestamp(i++, inicio);
             if (ignorarId != null) ps.setInt(i++, ignorarId);
+            ps.setInt(i, 1);
 
             try (ResultSet rs = ps.executeQuery()) {
                 return rs.next();
@@ -151,6 +697,100 @@ public class AgendamentoDAO {
         }
     }
 
+    /**
+     * Agendamentos (todos os dentistas) com início em [de, ate), apenas os campos
+     * necessários para montar o índice de intervalos em memória.
+     */
+    public List<Agendamento> listarIntervalos(Timestamp de, Timestamp ate) throws SQLException {
+        String sql = """
+        SELECT ID_AGENDAMENTO, ID_DENTISTA, ID_TRATAMENTO, DATA_HORA, DATA_HORA_FIM
+          FROM TB_AGENDAMENTO
+         WHERE DATA_HORA >= ? AND DATA_HORA < ?
+        """;
+
+        List<Agendamento> lista = new ArrayList<>();
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, de);
+            ps.setTimestamp(2, ate);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Agendamento a = new Agendamento();
+                    a.setId_agendamento(rs.getInt("ID_AGENDAMENTO"));
+                    a.setId_dentista(rs.getInt("ID_DENTISTA"));
+                    a.setId_tratamento(rs.getInt("ID_TRATAMENTO"));
+                    a.setData_hora(rs.getTimestamp("DATA_HORA"));
+                    a.setData_hora_fim(rs.getTimestamp("DATA_HORA_FIM"));
+                    lista.add(a);
+                }
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Ocupações de um dentista que sobrepõem [de, ate), ordenadas por DATA_HORA
+     * (mesmo predicado por faixas da verificação de conflito).
+     */
+    public List<Agendamento> listarOcupacoes(int idDentista, Timestamp de, Timestamp ate) throws SQLException {
+        String sql = """
+        SELECT ID_AGENDAMENTO, ID_DENTISTA, DATA_HORA, DATA_HORA_FIM
+          FROM TB_AGENDAMENTO
+         WHERE ID_DENTISTA = ?
+           AND DATA_HORA >= ? AND DATA_HORA < ?
+           AND DATA_HORA_FIM > ?
+         ORDER BY DATA_HORA
+        """;
+
+        List<Agendamento> lista = new ArrayList<>();
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, idDentista);
+            ps.setTimestamp(2, new Timestamp(de.getTime() - DURACAO_MAXIMA_MIN * 60_000L));
+            ps.setTimestamp(3, ate);
+            ps.setTimestamp(4, de);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Agendamento a = new Agendamento();
+                    a.setId_agendamento(rs.getInt("ID_AGENDAMENTO"));
+                    a.setId_dentista(rs.getInt("ID_DENTISTA"));
+                    a.setData_hora(rs.getTimestamp("DATA_HORA"));
+                    a.setData_hora_fim(rs.getTimestamp("DATA_HORA_FIM"));
+                    lista.add(a);
+                }
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Agendamentos antes de {@code ate} que ainda vão consumir material ao serem concluídos
+     * (status que pode ir para CONCLUIDO), incluindo os atrasados, que continuam pendentes.
+     * Usado pela previsão de estoque.
+     */
+    public List<Agendamento> listarPendentesDeBaixa(Timestamp ate) throws SQLException {
+        Set<StatusAgendamento> pendentes = StatusAgendamento.CONCLUIDO.predecessores();
+        String sql = "SELECT ID_AGENDAMENTO, ID_TRATAMENTO, DATA_HORA FROM TB_AGENDAMENTO " +
+                "WHERE DATA_HORA < ? AND STATUS IN (" + marcadores(pendentes.size()) + ")";
+
+        List<Agendamento> lista = new ArrayList<>();
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, ate);
+            definirStatus(ps, 2, pendentes);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Agendamento a = new Agendamento();
+                    a.setId_agendamento(rs.getInt("ID_AGENDAMENTO"));
+                    a.setId_tratamento(rs.getInt("ID_TRATAMENTO"));
+                    a.setData_hora(rs.getTimestamp("DATA_HORA"));
+                    lista.add(a);
+                }
+            }
+        }
+        return lista;
+    }
+
     public Agendamento buscarPorId(int id) throws SQLException {
         String sql = "SELECT * FROM TB_AGENDAMENTO WHERE ID_AGENDAMENTO = ?";
 
@@ -171,9 +811,14 @@ public class AgendamentoDAO {
                     if (ts != null) {
                         a.setData_hora(new java.util.Date(ts.getTime()));
                     }
+                    Timestamp tsFim = rs.getTimestamp("DATA_HORA_FIM");
+                    if (tsFim != null) {
+                        a.setData_hora_fim(new java.util.Date(tsFim.getTime()));
+                    }
 
                     a.setStatus(StatusAgendamento.fromString(rs.getString("STATUS")));
                     a.setObservacoes(rs.getString("OBSERVACOES"));
+                    a.setVersao(rs.getInt("VERSAO"));
 
                     return a;
                 }
@@ -182,5 +827,10 @@ public class AgendamentoDAO {
         return null; // não encontrado
     }
 
-
+    private static Timestamp fimObrigatorio(Agendamento a) throws SQLException {
+        if (a.getData_hora_fim() == null) {
+            throw new SQLException("Data/hora de término do agendamento não informada.");
+        }
+        return new Timestamp(a.getData_hora_fim().getTime());
+    }
 }
@@ -1,7 +1,15 @@
 package dao;
 
+import config.Configuracao;
 import model.Anamnese;
+import model.ImagemOdontograma;
+import model.Odontograma;
+import model.VersaoOdontograma;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -11,10 +19,51 @@ import java.util.List;
 
 /**
  * DAO responsável por manipular tb_anamnese e tb_odontograma.
- * - Cada paciente tem 1 anamnese e 0/1 odontograma.
+ * - Cada paciente tem 1 anamnese, 0/1 odontograma (imagem) e 0/1 odontograma estruturado
+ *   ({@link OdontogramaDao}), que vem junto com a anamnese e é gravado na mesma transação.
+ * - A imagem fica num {@link RepositorioBlobs}; TB_ODONTOGRAMA guarda só hash, tamanho e tipo.
+ *   Salvar a mesma imagem de novo (mesmo hash) não grava nada.
+ * - Cada imagem nova vira uma versão em TB_ODONTOGRAMA_VERSAO. Conteúdo que já existe não é
+ *   gravado de novo; imagem parecida com a última versão completa é gravada só como
+ *   {@link DeltaBinario delta} dela, se o delta couber em {@code odontograma.versoes.deltaMaximoPercentual}.
+ * - As consultas de anamnese trazem só a referência da imagem (LEFT JOIN);
+ *   os bytes são lidos em stream por {@link #lerImagemOdontograma}, quando exibidos.
  */
 public class AnamneseDao {
 
+    /** Consome o stream da imagem enquanto a conexão está aberta. */
+    @FunctionalInterface
+    public interface LeitorImagem<T> {
+        T ler(InputStream imagem) throws IOException;
+    }
+
+    private static final String SELECT_ANAMNESE = """
+            SELECT a.ID_ANAMNESE, a.ID_PACIENTE, a.ALERGIAS, a.HISTORICO_MEDICO, a.MEDICAMENTOS,
+                   a.DETALHES, a.DATA_REGISTRO, o.HASH_IMAGEM, o.TAMANHO_IMAGEM, o.MIME_IMAGEM,
+                   d.ESTADOS
+              FROM TB_ANAMNESE a
+              LEFT JOIN TB_ODONTOGRAMA o ON o.ID_PACIENTE = a.ID_PACIENTE
+              LEFT JOIN TB_ODONTOGRAMA_DENTE d ON d.ID_PACIENTE = a.ID_PACIENTE
+            """;
+
+    /** Como o conteúdo de uma versão fica guardado: inteiro ({@code hashDelta} null) ou delta de {@code hashBase}. */
+    private record Armazenamento(String hash, long tamanho, String mime,
+                                 String hashBase, String hashDelta, long armazenado) {}
+
+    private final RepositorioBlobs blobs;
+    private final int deltaMaximoPercentual;
+
+    /** Sobre o repositório compartilhado; sem {@code blobs.diretorio}, com as imagens desativadas. */
+    public AnamneseDao() {
+        this(RepositorioBlobsArquivos.diretorioConfigurado() == null
+                ? RepositorioBlobs.INDISPONIVEL : RepositorioBlobsArquivos.compartilhado());
+    }
+
+    public AnamneseDao(RepositorioBlobs blobs) {
+        this.blobs = blobs;
+        this.deltaMaximoPercentual = Configuracao.get().getInt("odontograma.versoes.deltaMaximoPercentual", 50);
+    }
+
     /* ----------------- ANAMNESE ----------------- */
 
     public void inserirOuAtualizarAnamnese(Anamnese a) throws SQLException {
@@ -62,61 +111,66 @@ public class AnamneseDao {
         }
     }
 
+    /** Anamnese do paciente com a referência da imagem (sem os bytes), ou null. */
     public Anamnese buscarPorPaciente(long idPaciente) throws SQLException {
-        String sql = "SELECT * FROM TB_ANAMNESE WHERE ID_PACIENTE = ?";
+        String sql = SELECT_ANAMNESE + " WHERE a.ID_PACIENTE = ?";
         try (Connection conn = Conexao.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, idPaciente);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    Anamnese a = new Anamnese();
-                    a.id_anamnese = rs.getLong("ID_ANAMNESE");
-                    a.id_paciente = rs.getLong("ID_PACIENTE");
-                    a.alergias = rs.getString("ALERGIAS");
-                    a.historico_medico = rs.getString("HISTORICO_MEDICO");
-                    a.medicamentos = rs.getString("MEDICAMENTOS");
-                    a.detalhes = rs.getString("DETALHES");
-                    a.data_registro = rs.getTimestamp("DATA_REGISTRO");
-                    a.imagem_odontograma = buscarImagemOdontograma(idPaciente);
-                    return a;
-                }
-                return null;
+                return rs.next() ? mapear(rs) : null;
             }
         }
     }
 
     public List<Anamnese> listarTodas() throws SQLException {
         List<Anamnese> lista = new ArrayList<>();
-        String sql = "SELECT * FROM TB_ANAMNESE ORDER BY DATA_REGISTRO DESC";
+        String sql = SELECT_ANAMNESE + " ORDER BY a.DATA_REGISTRO DESC";
         try (Connection conn = Conexao.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                Anamnese a = new Anamnese();
-                a.id_anamnese = rs.getLong("ID_ANAMNESE");
-                a.id_paciente = rs.getLong("ID_PACIENTE");
-                a.alergias = rs.getString("ALERGIAS");
-                a.historico_medico = rs.getString("HISTORICO_MEDICO");
-                a.medicamentos = rs.getString("MEDICAMENTOS");
-                a.detalhes = rs.getString("DETALHES");
-                a.data_registro = rs.getTimestamp("DATA_REGISTRO");
-                lista.add(a);
-            }
+            while (rs.next()) lista.add(mapear(rs));
         }
         return lista;
     }
 
+    private Anamnese mapear(ResultSet rs) throws SQLException {
+        Anamnese a = new Anamnese();
+        a.id_anamnese = rs.getLong("ID_ANAMNESE");
+        a.id_paciente = rs.getLong("ID_PACIENTE");
+        a.alergias = rs.getString("ALERGIAS");
+        a.historico_medico = rs.getString("HISTORICO_MEDICO");
+        a.medicamentos = rs.getString("MEDICAMENTOS");
+        a.detalhes = rs.getString("DETALHES");
+        a.data_registro = rs.getTimestamp("DATA_REGISTRO");
+        String hash = rs.getString("HASH_IMAGEM");
+        if (hash != null) {
+            a.imagem = new ImagemOdontograma(a.id_paciente, hash, rs.getLong("TAMANHO_IMAGEM"), rs.getString("MIME_IMAGEM"));
+        }
+        byte[] estados = rs.getBytes("ESTADOS");
+        if (estados != null) a.dentes = new Odontograma(a.id_paciente, estados);
+        return a;
+    }
+
     public void excluirPorPaciente(long idPaciente) throws SQLException {
         String sqlA = "DELETE FROM TB_ANAMNESE WHERE ID_PACIENTE = ?";
         String sqlO = "DELETE FROM TB_ODONTOGRAMA WHERE ID_PACIENTE = ?";
+        String sqlD = "DELETE FROM TB_ODONTOGRAMA_DENTE WHERE ID_PACIENTE = ?";
+        String sqlP = "DELETE FROM TB_ODONTOGRAMA_PENDENTE WHERE ID_PACIENTE = ?";
         try (Connection conn = Conexao.getConnection()) {
             conn.setAutoCommit(false);
             try (PreparedStatement p1 = conn.prepareStatement(sqlO);
-                 PreparedStatement p2 = conn.prepareStatement(sqlA)) {
+                 PreparedStatement p2 = conn.prepareStatement(sqlA);
+                 PreparedStatement p3 = conn.prepareStatement(sqlD);
+                 PreparedStatement p4 = conn.prepareStatement(sqlP)) {
                 p1.setLong(1, idPaciente);
                 p2.setLong(1, idPaciente);
+                p3.setLong(1, idPaciente);
+                p4.setLong(1, idPaciente);
                 p1.executeUpdate();
                 p2.executeUpdate();
+                p3.executeUpdate();
+                p4.executeUpdate();
             }
             conn.commit();
         }
@@ -126,48 +180,241 @@ public class AnamneseDao {
 
     public void salvarOuAtualizarImagem(long idPaciente, byte[] imagem) throws SQLException {
         if (imagem == null) return;
-        String sqlUpdate = "UPDATE TB_ODONTOGRAMA SET IMAGEM_REF=?, DATA_CRIACAO=NOW() WHERE ID_PACIENTE=?";
-        String sqlInsert = "INSERT INTO TB_ODONTOGRAMA (ID_PACIENTE, IMAGEM_REF, DATA_CRIACAO) VALUES (?, ?, NOW())";
-        String sqlVerifica = "SELECT ID_ODONTOGRAMA FROM TB_ODONTOGRAMA WHERE ID_PACIENTE = ?";
-
+        Armazenamento arm = armazenar(idPaciente, imagem);
         try (Connection conn = Conexao.getConnection()) {
             conn.setAutoCommit(false);
+            try {
+                gravarReferencia(conn, idPaciente, arm);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
 
-            boolean existe;
-            try (PreparedStatement check = conn.prepareStatement(sqlVerifica)) {
-                check.setLong(1, idPaciente);
-                ResultSet rs = check.executeQuery();
-                existe = rs.next();
+    public byte[] buscarImagemOdontograma(long idPaciente) throws SQLException {
+        return lerImagemOdontograma(idPaciente, InputStream::readAllBytes);
+    }
+
+    /** Entrega a imagem atual do paciente em stream para {@code leitor}; null se não há imagem. */
+    public <T> T lerImagemOdontograma(long idPaciente, LeitorImagem<T> leitor) throws SQLException {
+        String sql = "SELECT HASH_IMAGEM FROM TB_ODONTOGRAMA WHERE ID_PACIENTE = ?";
+        String hash;
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, idPaciente);
+            try (ResultSet rs = ps.executeQuery()) {
+                hash = rs.next() ? rs.getString("HASH_IMAGEM") : null;
             }
+        }
+        return hash == null ? null : lerBlob(hash, leitor);
+    }
 
-            if (existe) {
-                try (PreparedStatement ps = conn.prepareStatement(sqlUpdate)) {
-                    ps.setBytes(1, imagem);
-                    ps.setLong(2, idPaciente);
-                    ps.executeUpdate();
+    /**
+     * Entrega o conteúdo de {@code hash} em stream para {@code leitor} (ex.: decodificar direto
+     * num Image ou copiar para arquivo). Conteúdo guardado inteiro vem direto do repositório, sem
+     * passar pelo banco (o conteúdo de um hash não muda); guardado como delta, é reconstruído.
+     * Imagem migrada (008) cujo arquivo não está no repositório vem de IMAGEM_REF, enquanto a
+     * limpeza ({@code Migracoes limpar-imagens-banco}) não tiver rodado.
+     */
+    public <T> T lerBlob(String hash, LeitorImagem<T> leitor) throws SQLException {
+        try {
+            try (InputStream in = blobs.abrir(hash)) {
+                return leitor.ler(in);
+            } catch (NoSuchFileException e) {
+                byte[] conteudo = reconstruir(hash);
+                if (conteudo == null) conteudo = lerDoBanco(hash);
+                if (conteudo == null) throw e;
+                return leitor.ler(new ByteArrayInputStream(conteudo));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Falha ao ler a imagem do odontograma (" + hash + "): " + e.getMessage(), e);
+        }
+    }
+
+    /** Versões do odontograma do paciente, da mais recente para a mais antiga (sem os bytes). */
+    public List<VersaoOdontograma> listarVersoes(long idPaciente) throws SQLException {
+        String sql = """
+                SELECT ID_VERSAO, ID_PACIENTE, HASH_IMAGEM, TAMANHO_IMAGEM, MIME_IMAGEM,
+                       HASH_DELTA, TAMANHO_ARMAZENADO, DATA_CRIACAO
+                  FROM TB_ODONTOGRAMA_VERSAO
+                 WHERE ID_PACIENTE = ?
+                 ORDER BY ID_VERSAO DESC
+                """;
+        List<VersaoOdontograma> lista = new ArrayList<>();
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, idPaciente);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(new VersaoOdontograma(rs.getLong("ID_VERSAO"), rs.getLong("ID_PACIENTE"),
+                            rs.getString("HASH_IMAGEM"), rs.getLong("TAMANHO_IMAGEM"), rs.getString("MIME_IMAGEM"),
+                            rs.getString("HASH_DELTA") != null, rs.getLong("TAMANHO_ARMAZENADO"),
+                            rs.getTimestamp("DATA_CRIACAO")));
                 }
-            } else {
-                try (PreparedStatement ps = conn.prepareStatement(sqlInsert)) {
-                    ps.setLong(1, idPaciente);
-                    ps.setBytes(2, imagem);
-                    ps.executeUpdate();
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Grava o conteúdo de uma imagem nova no repositório (fora da transação: blob sem referência
+     * não faz mal), do jeito mais barato:
+     * - conteúdo que já está em alguma versão ou no repositório: nada a gravar;
+     * - parecido com a última versão completa do paciente: só o delta;
+     * - senão, a imagem inteira.
+     */
+    private Armazenamento armazenar(long idPaciente, byte[] imagem) throws SQLException {
+        String hash = RepositorioBlobsArquivos.sha256(imagem);
+        long tamanho = imagem.length;
+        String mime = tipoDaImagem(imagem);
+
+        String base;
+        try (Connection conn = Conexao.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT HASH_BASE, HASH_DELTA FROM TB_ODONTOGRAMA_VERSAO WHERE HASH_IMAGEM = ?"
+                            + Conexao.getDialeto().limite())) {
+                ps.setString(1, hash);
+                ps.setInt(2, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return new Armazenamento(hash, tamanho, mime, rs.getString("HASH_BASE"), rs.getString("HASH_DELTA"), 0);
+                    }
+                }
+            }
+            // base do delta: a última versão completa (a última versão ou a base dela)
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT HASH_IMAGEM, HASH_BASE FROM TB_ODONTOGRAMA_VERSAO WHERE ID_PACIENTE = ? ORDER BY ID_VERSAO DESC"
+                            + Conexao.getDialeto().limite())) {
+                ps.setLong(1, idPaciente);
+                ps.setInt(2, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    base = !rs.next() ? null
+                            : rs.getString("HASH_BASE") != null ? rs.getString("HASH_BASE") : rs.getString("HASH_IMAGEM");
                 }
             }
+        }
 
-            conn.commit();
+        try {
+            if (blobs.existe(hash)) return new Armazenamento(hash, tamanho, mime, null, null, 0);
+
+            if (base != null && blobs.existe(base)) {
+                byte[] conteudoBase;
+                try (InputStream in = blobs.abrir(base)) {
+                    conteudoBase = in.readAllBytes();
+                }
+                int maximo = (int) (tamanho * deltaMaximoPercentual / 100);
+                byte[] delta = DeltaBinario.calcular(conteudoBase, imagem, maximo);
+                if (delta != null && delta.length <= maximo) {
+                    return new Armazenamento(hash, tamanho, mime, base, blobs.gravar(delta), delta.length);
+                }
+            }
+            blobs.gravar(imagem);
+            return new Armazenamento(hash, tamanho, mime, null, null, tamanho);
+        } catch (IOException e) {
+            throw new SQLException("Falha ao gravar a imagem do odontograma: " + e.getMessage(), e);
         }
     }
 
-    public byte[] buscarImagemOdontograma(long idPaciente) throws SQLException {
-        String sql = "SELECT IMAGEM_REF FROM TB_ODONTOGRAMA WHERE ID_PACIENTE = ?";
+    /** Conteúdo de uma versão guardada como delta, conferido pelo hash; null se não há delta. */
+    private byte[] reconstruir(String hash) throws SQLException, IOException {
+        String base, delta;
         try (Connection conn = Conexao.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT HASH_BASE, HASH_DELTA FROM TB_ODONTOGRAMA_VERSAO WHERE HASH_IMAGEM = ? AND HASH_DELTA IS NOT NULL"
+                             + Conexao.getDialeto().limite())) {
+            ps.setString(1, hash);
+            ps.setInt(2, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                base = rs.getString("HASH_BASE");
+                delta = rs.getString("HASH_DELTA");
+            }
+        }
+
+        byte[] conteudoBase, conteudoDelta;
+        try (InputStream in = blobs.abrir(base)) {
+            conteudoBase = in.readAllBytes();
+        }
+        try (InputStream in = blobs.abrir(delta)) {
+            conteudoDelta = in.readAllBytes();
+        }
+        byte[] imagem = DeltaBinario.aplicar(conteudoBase, conteudoDelta);
+        if (!RepositorioBlobsArquivos.sha256(imagem).equals(hash)) {
+            throw new IOException("versão reconstruída não confere com o hash");
+        }
+        return imagem;
+    }
+
+    /** Cópia antiga em TB_ODONTOGRAMA.IMAGEM_REF (anterior à 008), conferida pelo hash; null se não há. */
+    private byte[] lerDoBanco(String hash) throws SQLException {
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT IMAGEM_REF FROM TB_ODONTOGRAMA WHERE HASH_IMAGEM = ? AND IMAGEM_REF IS NOT NULL"
+                             + Conexao.getDialeto().limite())) {
+            ps.setString(1, hash);
+            ps.setInt(2, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                byte[] imagem = rs.getBytes("IMAGEM_REF");
+                return RepositorioBlobsArquivos.sha256(imagem).equals(hash) ? imagem : null;
+            }
+        }
+    }
+
+    /**
+     * Aponta o odontograma do paciente para a imagem armazenada e registra a versão, na transação
+     * do chamador. Se já aponta para o mesmo hash, não escreve nada.
+     */
+    private void gravarReferencia(Connection conn, long idPaciente, Armazenamento arm) throws SQLException {
+        String atual = null;
+        boolean existe;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT HASH_IMAGEM FROM TB_ODONTOGRAMA WHERE ID_PACIENTE = ? FOR UPDATE")) {
+            ps.setLong(1, idPaciente);
+            try (ResultSet rs = ps.executeQuery()) {
+                existe = rs.next();
+                if (existe) atual = rs.getString("HASH_IMAGEM");
+            }
+        }
+        if (arm.hash().equals(atual)) return;
+
+        String sql = existe
+                ? "UPDATE TB_ODONTOGRAMA SET HASH_IMAGEM=?, TAMANHO_IMAGEM=?, MIME_IMAGEM=?, IMAGEM_REF=NULL, DATA_CRIACAO=NOW() WHERE ID_PACIENTE=?"
+                : "INSERT INTO TB_ODONTOGRAMA (HASH_IMAGEM, TAMANHO_IMAGEM, MIME_IMAGEM, ID_PACIENTE, DATA_CRIACAO) VALUES (?, ?, ?, ?, NOW())";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, arm.hash());
+            ps.setLong(2, arm.tamanho());
+            ps.setString(3, arm.mime());
+            ps.setLong(4, idPaciente);
+            ps.executeUpdate();
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement("""
+                INSERT INTO TB_ODONTOGRAMA_VERSAO
+                       (ID_PACIENTE, HASH_IMAGEM, TAMANHO_IMAGEM, MIME_IMAGEM, HASH_BASE, HASH_DELTA, TAMANHO_ARMAZENADO)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """)) {
             ps.setLong(1, idPaciente);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) return rs.getBytes("IMAGEM_REF");
-            return null;
+            ps.setString(2, arm.hash());
+            ps.setLong(3, arm.tamanho());
+            ps.setString(4, arm.mime());
+            ps.setString(5, arm.hashBase());
+            ps.setString(6, arm.hashDelta());
+            ps.setLong(7, arm.armazenado());
+            ps.executeUpdate();
         }
     }
+
+    /** Tipo MIME pelos primeiros bytes (a tela aceita PNG e JPEG). */
+    static String tipoDaImagem(byte[] b) {
+        if (b.length >= 4 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') return "image/png";
+        if (b.length >= 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8 && (b[2] & 0xFF) == 0xFF) return "image/jpeg";
+        return "application/octet-stream";
+    }
     // UPDATE da anamnese pelos campos (usa ID_PACIENTE)
     public void atualizar(Anamnese a) throws SQLException {
         final String sql = """
@@ -209,8 +456,12 @@ public class AnamneseDao {
     /**
      * Transação completa:
      * - Upsert da anamnese (inserirOuAtualizar)
-     * - Se houver imagem -> upsert da imagem
-     * - Se NÃO houver imagem -> remove imagem (se existir)
+     * - Ao final, {@code a.imagem} aponta para a imagem gravada (null se removida)
+     * - Se houver imagem nova -> grava no repositório de blobs e aponta o odontograma para o
+     *   hash (mesmo hash que o atual = nada a gravar)
+     * - Se remover_imagem -> remove imagem (se existir)
+     * - Se houver odontograma estruturado -> grava (substitui) o do paciente
+     * - Senão a imagem gravada fica como está (não precisa ter sido lida)
      */
     public void salvarCompleto(Anamnese a) throws SQLException {
         final String sqlVerificaAna = "SELECT ID_ANAMNESE FROM TB_ANAMNESE WHERE ID_PACIENTE = ?";
@@ -224,18 +475,12 @@ public class AnamneseDao {
          WHERE ID_PACIENTE=?
     """;
 
-        final String sqlVerificaOdo = "SELECT ID_ODONTOGRAMA FROM TB_ODONTOGRAMA WHERE ID_PACIENTE = ?";
-        final String sqlInsertOdo = """
-        INSERT INTO TB_ODONTOGRAMA (ID_PACIENTE, IMAGEM_REF, DATA_CRIACAO)
-        VALUES (?, ?, NOW())
-    """;
-        final String sqlUpdateOdo = """
-        UPDATE TB_ODONTOGRAMA
-           SET IMAGEM_REF=?, DATA_CRIACAO=NOW()
-         WHERE ID_PACIENTE=?
-    """;
         final String sqlDeleteOdo = "DELETE FROM TB_ODONTOGRAMA WHERE ID_PACIENTE=?";
 
+        // blob gravado antes da transação; se ela falhar, o arquivo só fica sem referência
+        boolean temImagemNova = a.imagem_odontograma != null && a.imagem_odontograma.length > 0;
+        Armazenamento arm = temImagemNova ? armazenar(a.id_paciente, a.imagem_odontograma) : null;
+
         Connection conn = Conexao.getConnection();
         try {
             conn.setAutoCommit(false);
@@ -270,36 +515,27 @@ public class AnamneseDao {
             }
 
             // Odontograma: upsert ou remove
-            if (a.imagem_odontograma != null && a.imagem_odontograma.length > 0) {
-                boolean existeOdo;
-                try (PreparedStatement checkO = conn.prepareStatement(sqlVerificaOdo)) {
-                    checkO.setLong(1, a.id_paciente);
-                    try (ResultSet rs = checkO.executeQuery()) {
-                        existeOdo = rs.next();
-                    }
-                }
-                if (existeOdo) {
-                    try (PreparedStatement ps = conn.prepareStatement(sqlUpdateOdo)) {
-                        ps.setBytes(1, a.imagem_odontograma);
-                        ps.setLong(2, a.id_paciente);
-                        ps.executeUpdate();
-                    }
-                } else {
-                    try (PreparedStatement ps = conn.prepareStatement(sqlInsertOdo)) {
-                        ps.setLong(1, a.id_paciente);
-                        ps.setBytes(2, a.imagem_odontograma);
-                        ps.executeUpdate();
-                    }
-                }
-            } else {
-                // veio sem imagem -> remove registro do odontograma (se existir)
+            if (temImagemNova) {
+                gravarReferencia(conn, a.id_paciente, arm);
+            } else if (a.remover_imagem) {
+                // pedido explícito de remoção; sem imagem nova e sem remoção, a gravada é mantida
                 try (PreparedStatement del = conn.prepareStatement(sqlDeleteOdo)) {
                     del.setLong(1, a.id_paciente);
                     del.executeUpdate();
                 }
             }
 
+            if (a.dentes != null) {
+                a.dentes.id_paciente = a.id_paciente;
+                OdontogramaDao.gravar(conn, a.dentes);
+            }
+
             conn.commit();
+            if (temImagemNova) {
+                a.imagem = new ImagemOdontograma(a.id_paciente, arm.hash(), arm.tamanho(), arm.mime());
+            } else if (a.remover_imagem) {
+                a.imagem = null;
+            }
         } catch (SQLException e) {
             try { conn.rollback(); } catch (SQLException ignore) {}
             throw e;
@@ -1,10 +1,16 @@
 package dao;
 
+import model.ChaveFonetica;
 import model.Dentista;
 import model.Pessoa;
+import model.PossivelDuplicado;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class CadastroPessoaDao {
     private static final int LIMITE_DENTISTAS_LOGADOS = 2;
@@ -34,11 +40,40 @@ public class CadastroPessoaDao {
         return lista;
     }
 
+    public List<Dentista> listarDentistasPorEspecialidade(String especialidade) throws SQLException {
+        List<Dentista> lista = new ArrayList<>();
+
+        String sql = """
+                SELECT de.ID_DENTISTA, pe.NOME, de.CRO, de.ESPECIALIDADE
+                FROM TB_DENTISTA de
+                INNER JOIN TB_PESSOA pe ON de.ID_DENTISTA = pe.ID_PESSOA
+                WHERE de.ESPECIALIDADE = ?
+                ORDER BY pe.NOME
+                """;
+
+        try (Connection conn = Conexao.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, especialidade);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Dentista d = new Dentista();
+                    d.setId_dentista(rs.getInt("ID_DENTISTA"));
+                    d.setNome(rs.getString("NOME"));
+                    d.setCro(rs.getString("CRO"));
+                    d.setEspecialidade(rs.getString("ESPECIALIDADE"));
+                    lista.add(d);
+                }
+            }
+        }
+
+        return lista;
+    }
+
     public List<Pessoa> listarPacientes() throws SQLException {
         List<Pessoa> lista = new ArrayList<>();
 
         String sql = """
-                SELECT pa.ID_PACIENTE, pe.NOME
+                SELECT pa.ID_PACIENTE, pe.NOME, pe.CPF, pe.TELEFONE
                 FROM TB_PACIENTE pa
                 INNER JOIN TB_PESSOA pe ON pa.ID_PACIENTE = pe.ID_PESSOA
                 ORDER BY pe.NOME
@@ -52,6 +87,8 @@ public class CadastroPessoaDao {
                 Pessoa p = new Pessoa();
                 p.setId_pessoa(rs.getInt("ID_PACIENTE"));
                 p.setNome(rs.getString("NOME"));
+                p.setCpf(rs.getString("CPF"));
+                p.setTelefone(rs.getString("TELEFONE"));
                 lista.add(p);
             }
         }
@@ -62,11 +99,12 @@ public class CadastroPessoaDao {
     Integer id_pessoa = null;
 
     public Integer ultimocadastro() throws SQLException {
-        String sql = "SELECT ID_PESSOA FROM TB_PESSOA ORDER BY ID_PESSOA DESC LIMIT 1";
+        // MAX é portável entre dialetos e lê só a ponta do índice da PK
+        String sql = "SELECT MAX(ID_PESSOA) AS ID_PESSOA FROM TB_PESSOA";
         try (Connection conn = Conexao.getConnection();
                 Statement st = conn.createStatement();
                 ResultSet rs = st.executeQuery(sql)) {
-            if (rs.next()) {
+            if (rs.next() && rs.getObject("ID_PESSOA") != null) {
                 id_pessoa = rs.getInt("ID_PESSOA");
                 return id_pessoa;
             }
@@ -97,7 +135,7 @@ public class CadastroPessoaDao {
     }
 
     public long inserirPessoa(Pessoa pessoa, Dentista dentista) throws SQLException {
-        final String sqlPessoa = "INSERT INTO TB_PESSOA (NOME, CPF, TELEFONE, EMAIL, DT_NASCIMENTO) VALUES (?,?,?,?,?)";
+        final String sqlPessoa = "INSERT INTO TB_PESSOA (NOME, CPF, TELEFONE, EMAIL, DT_NASCIMENTO, CHAVE_FONETICA) VALUES (?,?,?,?,?,?)";
         final String sqlDentista = "INSERT INTO TB_DENTISTA (ID_DENTISTA, CRO, ESPECIALIDADE) VALUES (?,?,?)";
         final String sqlPaciente = "INSERT INTO TB_PACIENTE (ID_PACIENTE) VALUES (?)";
 
@@ -117,6 +155,7 @@ public class CadastroPessoaDao {
                 } else {
                     ps.setNull(5, java.sql.Types.DATE);
                 }
+                ps.setString(6, ChaveFonetica.deNome(pessoa.nome));
 
                 ps.executeUpdate();
 
@@ -163,6 +202,172 @@ public class CadastroPessoaDao {
         }
     }
 
+    // ============================================================
+    // ================== POSSÍVEIS DUPLICADOS ====================
+    // ============================================================
+
+    /**
+     * Pessoas com a mesma chave fonética (índice IX_PESSOA_CHAVE_FONETICA), exceto {@code ignorarId}.
+     * Mesma data de nascimento primeiro.
+     */
+    public List<Pessoa> listarPorChaveFonetica(String chave, java.util.Date nascimento, Integer ignorarId)
+            throws SQLException {
+        String sql = """
+                SELECT ID_PESSOA, NOME, CPF, TELEFONE, EMAIL, DT_NASCIMENTO
+                  FROM TB_PESSOA
+                 WHERE CHAVE_FONETICA = ? AND ID_PESSOA <> ?
+                 ORDER BY CASE WHEN DT_NASCIMENTO = ? THEN 0 ELSE 1 END, NOME
+                """;
+
+        List<Pessoa> lista = new ArrayList<>();
+        try (Connection conn = Conexao.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, chave);
+            ps.setInt(2, ignorarId == null ? 0 : ignorarId);
+            if (nascimento != null) ps.setDate(3, new java.sql.Date(nascimento.getTime()));
+            else ps.setNull(3, Types.DATE);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Pessoa p = new Pessoa();
+                    p.setId_pessoa(rs.getInt("ID_PESSOA"));
+                    p.setNome(rs.getString("NOME"));
+                    p.setCpf(rs.getString("CPF"));
+                    p.setTelefone(rs.getString("TELEFONE"));
+                    p.setEmail(rs.getString("EMAIL"));
+                    p.setDt_nascimento(rs.getDate("DT_NASCIMENTO"));
+                    lista.add(p);
+                }
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Varredura de toda a TB_PESSOA por pares com a mesma chave fonética (bloqueio): cada pessoa
+     * só é comparada com as do seu bloco, nunca com a tabela inteira. Em blocos maiores que
+     * {@code maximoPorBloco} (nomes muito comuns) só entram pares com a mesma data de nascimento,
+     * o que mantém o número de pares proporcional ao de pessoas.
+     */
+    public List<PossivelDuplicado> listarPossiveisDuplicados(int maximoPorBloco) throws SQLException {
+        String sql = """
+                SELECT a.ID_PESSOA AS ID_A, a.NOME AS NOME_A, b.ID_PESSOA AS ID_B, b.NOME AS NOME_B,
+                       a.CHAVE_FONETICA,
+                       CASE WHEN a.DT_NASCIMENTO = b.DT_NASCIMENTO THEN 1 ELSE 0 END AS MESMO_NASCIMENTO,
+                       CASE WHEN a.TELEFONE <> '' AND a.TELEFONE = b.TELEFONE THEN 1 ELSE 0 END AS MESMO_TELEFONE
+                  FROM (SELECT CHAVE_FONETICA, COUNT(*) AS QTD
+                          FROM TB_PESSOA
+                         WHERE CHAVE_FONETICA <> ''
+                         GROUP BY CHAVE_FONETICA
+                        HAVING COUNT(*) > 1) blk
+                  JOIN TB_PESSOA a ON a.CHAVE_FONETICA = blk.CHAVE_FONETICA
+                  JOIN TB_PESSOA b ON b.CHAVE_FONETICA = a.CHAVE_FONETICA AND b.ID_PESSOA > a.ID_PESSOA
+                 WHERE blk.QTD <= ? OR a.DT_NASCIMENTO = b.DT_NASCIMENTO
+                 ORDER BY MESMO_NASCIMENTO DESC, MESMO_TELEFONE DESC, a.CHAVE_FONETICA, a.ID_PESSOA, b.ID_PESSOA
+                """;
+
+        List<PossivelDuplicado> lista = new ArrayList<>();
+        try (Connection conn = Conexao.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, maximoPorBloco);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(new PossivelDuplicado(
+                            rs.getInt("ID_A"), rs.getString("NOME_A"),
+                            rs.getInt("ID_B"), rs.getString("NOME_B"),
+                            rs.getString("CHAVE_FONETICA"),
+                            rs.getBoolean("MESMO_NASCIMENTO"), rs.getBoolean("MESMO_TELEFONE")));
+                }
+            }
+        }
+        return lista;
+    }
+
+    // ============================================================
+    // ==================== IMPORTAÇÃO EM LOTE ====================
+    // ============================================================
+
+    /** Quais dos {@code cpfs} (só dígitos) já existem em TB_PESSOA; uma consulta por chamada. */
+    public Set<String> cpfsExistentes(Collection<String> cpfs) throws SQLException {
+        Set<String> existentes = new HashSet<>();
+        if (cpfs.isEmpty()) return existentes;
+        String sql = "SELECT CPF FROM TB_PESSOA WHERE CPF IN ("
+                + String.join(", ", Collections.nCopies(cpfs.size(), "?")) + ")";
+
+        try (Connection conn = Conexao.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (String cpf : cpfs) ps.setString(i++, cpf);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) existentes.add(rs.getString("CPF"));
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * Insere pacientes numa única transação: TB_PESSOA em lote com as chaves geradas
+     * devolvidas na ordem da lista (gravadas em cada {@code id_pessoa}), depois TB_PACIENTE
+     * em lote. Qualquer erro desfaz o lote inteiro e é relançado.
+     */
+    public void inserirPacientesEmLote(List<Pessoa> pessoas) throws SQLException {
+        if (pessoas.isEmpty()) return;
+        final String sqlPessoa = "INSERT INTO TB_PESSOA (NOME, CPF, TELEFONE, EMAIL, DT_NASCIMENTO, CHAVE_FONETICA) VALUES (?,?,?,?,?,?)";
+        final String sqlPaciente = "INSERT INTO TB_PACIENTE (ID_PACIENTE) VALUES (?)";
+
+        Connection conn = Conexao.getConnection();
+        try {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(sqlPessoa, Statement.RETURN_GENERATED_KEYS)) {
+                for (Pessoa p : pessoas) {
+                    ps.setString(1, p.nome);
+                    ps.setString(2, p.cpf);
+                    ps.setString(3, p.telefone);
+                    ps.setString(4, p.email);
+                    if (p.dt_nascimento != null) ps.setDate(5, new java.sql.Date(p.dt_nascimento.getTime()));
+                    else ps.setNull(5, Types.DATE);
+                    ps.setString(6, ChaveFonetica.deNome(p.nome));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < pessoas.size()) pessoas.get(i++).id_pessoa = keys.getInt(1);
+                    if (i != pessoas.size())
+                        throw new SQLException("Chaves geradas (" + i + ") não conferem com o lote (" + pessoas.size() + ").");
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(sqlPaciente)) {
+                for (Pessoa p : pessoas) {
+                    ps.setInt(1, p.id_pessoa);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            conn.commit();
+        } catch (SQLException e) {
+            for (Pessoa p : pessoas) p.id_pessoa = 0;
+            try {
+                conn.rollback();
+            } catch (SQLException ignore) {
+            }
+            throw e;
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ignore) {
+            }
+            try {
+                conn.close();
+            } catch (SQLException ignore) {
+            }
+        }
+    }
+
     public Dentista buscarDentistaPorPessoaId(int pessoaId) throws SQLException {
         String sql = "SELECT ID_DENTISTA, CRO, ESPECIALIDADE " +
                 "FROM TB_DENTISTA WHERE ID_DENTISTA = ?";
@@ -216,7 +421,7 @@ public class CadastroPessoaDao {
 
     public void atualizarPessoa(Pessoa p) throws SQLException {
         final String sql = "UPDATE TB_PESSOA " +
-                "   SET NOME = ?, CPF = ?, TELEFONE = ?, EMAIL = ?, DT_NASCIMENTO = ? " +
+                "   SET NOME = ?, CPF = ?, TELEFONE = ?, EMAIL = ?, DT_NASCIMENTO = ?, CHAVE_FONETICA = ? " +
                 " WHERE ID_PESSOA = ?";
 
         try (Connection conn = Conexao.getConnection();
@@ -232,8 +437,9 @@ public class CadastroPessoaDao {
             } else {
                 ps.setNull(5, java.sql.Types.DATE);
             }
+            ps.setString(6, ChaveFonetica.deNome(p.nome));
 
-            ps.setInt(6, p.id_pessoa); // ID (PK) da pessoa
+            ps.setInt(7, p.id_pessoa); // ID (PK) da pessoa
 
             int linhas = ps.executeUpdate();
             if (linhas == 0) {
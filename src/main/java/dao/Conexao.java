@@ -1,24 +1,81 @@
 package dao;
 
+import config.Configuracao;
+
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
 
+/**
+ * Ponto único de acesso a conexões para os DAOs.
+ * URL, credenciais, dimensionamento do pool e propriedades do driver vêm de {@link Configuracao}
+ * (saco.properties + perfil + ambiente), lidos uma vez na criação do pool.
+ */
 public class Conexao {
-    private static final String URL = "jdbc:mysql://localhost:3306/pi_athur";
-    private static final String USER = "root";
-    private static final String PASSWORD = "iarc1001";
 
+    private static volatile PoolConexoes pool;
+    private static volatile Dialeto dialeto;
+
+    /** Empresta uma conexão do pool; {@code close()} devolve a conexão em vez de fechá-la. */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return getPool().getConnection();
+    }
+
+    /** DataSource compartilhado por todos os DAOs. */
+    public static DataSource getDataSource() {
+        return getPool();
+    }
+
+    /** Contadores de ocupação/espera do pool. */
+    public static PoolConexoes.Estatisticas getEstatisticas() {
+        return getPool().getEstatisticas();
+    }
+
+    /** Dialeto SQL do banco configurado, resolvido uma vez junto com o pool (sem ida ao banco). */
+    public static Dialeto getDialeto() {
+        getPool();
+        return dialeto;
+    }
+
+    /** Encerra o pool (chamado no fechamento da aplicação). */
+    public static synchronized void fechar() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
     }
 
-    /** Retorna o nome do driver JDBC (MySQL, PostgreSQL, etc.) */
-    public static String getDriverName() {
-        try (Connection conn = getConnection()) {
-            return conn.getMetaData().getDriverName();
-        } catch (SQLException e) {
-            throw new RuntimeException("Erro ao obter nome do driver JDBC", e);
+    private static PoolConexoes getPool() {
+        PoolConexoes p = pool;
+        if (p == null) {
+            synchronized (Conexao.class) {
+                p = pool;
+                if (p == null) {
+                    Configuracao cfg = Configuracao.get();
+                    dialeto = Dialeto.resolver(cfg.get("db.dialeto", ""), cfg.get("db.url"));
+                    pool = p = criarPool(cfg);
+                }
+            }
         }
+        return p;
+    }
+
+    private static PoolConexoes criarPool(Configuracao cfg) {
+        // Knobs do driver (cachePrepStmts, rewriteBatchedStatements, timeouts...) valem para toda conexão
+        Properties props = cfg.comPrefixo("db.driver.");
+        props.setProperty("user", cfg.get("db.usuario"));
+        props.setProperty("password", cfg.get("db.senha", ""));
+
+        PoolConexoes.Configuracao dimensionamento = new PoolConexoes.Configuracao(
+                cfg.getInt("pool.minimoOciosas", 2),
+                cfg.getInt("pool.maximoConexoes", 10),
+                cfg.getLong("pool.tempoMaximoVidaMs", 30 * 60_000L),
+                cfg.getLong("pool.tempoMaximoOciosaMs", 10 * 60_000L),
+                cfg.getLong("pool.tempoEsperaMs", 10_000L),
+                cfg.getLong("pool.limiteVazamentoMs", 60_000L),
+                cfg.getInt("pool.tempoValidacaoSeg", 2)
+        );
+        return new PoolConexoes(cfg.get("db.url"), props, dimensionamento);
     }
 }
@@ -0,0 +1,11 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Lançada quando a verificação autoritativa (dentro da transação de escrita)
+ * encontra outro agendamento do mesmo dentista sobrepondo o horário.
+ */
+public class ConflitoAgendaException extends SQLException {
+    public ConflitoAgendaException(String message) { super(message); }
+}
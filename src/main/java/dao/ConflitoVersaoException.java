@@ -0,0 +1,12 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Lançada quando um UPDATE com controle de versão (WHERE ... AND VERSAO = ?) não encontra
+ * a versão lida: outra estação alterou o registro depois que ele foi carregado na tela.
+ * O chamador deve recarregar o registro e reaplicar a alteração.
+ */
+public class ConflitoVersaoException extends SQLException {
+    public ConflitoVersaoException(String message) { super(message); }
+}
@@ -0,0 +1,211 @@
+package dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Delta binário entre duas versões de um arquivo: o alvo descrito como trechos copiados da
+ * base e bytes novos, comprimido com Deflate. Usado no histórico do odontograma para não
+ * gravar de novo uma imagem quase igual à anterior.
+ *
+ * - A base é indexada em blocos de {@value #BLOCO} bytes; o alvo é percorrido com hash
+ *   deslizante (Rabin-Karp) e cada bloco encontrado é estendido para os dois lados.
+ * - O delta é exato: {@link #aplicar} devolve o alvo byte a byte (o chamador confere o hash).
+ * - Formato: "SD1", tamanho da base e do alvo e a sequência de operações COPIAR(posição, tamanho)
+ *   e INSERIR(tamanho, bytes), em varint, tudo dentro de um stream Deflate.
+ */
+public final class DeltaBinario {
+
+    static final int BLOCO = 32;
+    private static final int PRIMO = 0x01000193;
+    private static final byte[] MAGICO = {'S', 'D', '1'};
+    private static final int COPIAR = 0;
+    private static final int INSERIR = 1;
+
+    private DeltaBinario() {}
+
+    /** Delta que transforma {@code base} em {@code alvo}. */
+    public static byte[] calcular(byte[] base, byte[] alvo) {
+        return calcular(base, alvo, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Delta que transforma {@code base} em {@code alvo}, ou null assim que os bytes novos
+     * passarem de {@code maximoInserido} (as versões são diferentes demais para valer a pena).
+     */
+    public static byte[] calcular(byte[] base, byte[] alvo, int maximoInserido) {
+        Indice indice = new Indice(base);
+        long inserido = 0;
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        saida.writeBytes(MAGICO);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(saida, new Deflater(Deflater.BEST_SPEED))) {
+            escreverVarint(out, base.length);
+            escreverVarint(out, alvo.length);
+
+            int pendente = 0;                 // início dos bytes ainda não cobertos por COPIAR
+            int i = 0;
+            int potencia = potencia();
+            int h = alvo.length >= BLOCO ? hash(alvo, 0) : 0;
+            while (i + BLOCO <= alvo.length) {
+                int pos = indice.posicao(h);
+                if (pos >= 0 && iguais(base, pos, alvo, i, BLOCO)) {
+                    // estende para trás (sobre os bytes pendentes) e para frente
+                    int ini = i, b = pos;
+                    while (ini > pendente && b > 0 && alvo[ini - 1] == base[b - 1]) { ini--; b--; }
+                    int fim = i + BLOCO, bf = pos + BLOCO;
+                    while (fim < alvo.length && bf < base.length && alvo[fim] == base[bf]) { fim++; bf++; }
+
+                    inserido += ini - pendente;
+                    if (inserido > maximoInserido) return null;
+                    escreverInsercao(out, alvo, pendente, ini);
+                    out.write(COPIAR);
+                    escreverVarint(out, b);
+                    escreverVarint(out, fim - ini);
+                    pendente = fim;
+                    i = fim;
+                    if (i + BLOCO <= alvo.length) h = hash(alvo, i);
+                    continue;
+                }
+                if (i - pendente > maximoInserido - inserido) return null;
+                if (i + BLOCO < alvo.length) {
+                    h = (h - (alvo[i] & 0xFF) * potencia) * PRIMO + (alvo[i + BLOCO] & 0xFF);
+                }
+                i++;
+            }
+            if (inserido + alvo.length - pendente > maximoInserido) return null;
+            escreverInsercao(out, alvo, pendente, alvo.length);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // só escreve em memória
+        }
+        return saida.toByteArray();
+    }
+
+    /** Reconstrói o alvo a partir da base e do delta. */
+    public static byte[] aplicar(byte[] base, byte[] delta) throws IOException {
+        if (delta.length < MAGICO.length || delta[0] != MAGICO[0] || delta[1] != MAGICO[1] || delta[2] != MAGICO[2]) {
+            throw new IOException("Delta em formato desconhecido.");
+        }
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(delta, MAGICO.length, delta.length - MAGICO.length)))) {
+            int tamanhoBase = lerVarint(in);
+            int tamanhoAlvo = lerVarint(in);
+            if (tamanhoBase != base.length) throw new IOException("Delta calculado sobre outra base.");
+
+            byte[] alvo = new byte[tamanhoAlvo];
+            int p = 0;
+            while (p < tamanhoAlvo) {
+                int op = in.read();
+                int tamanho;
+                if (op == COPIAR) {
+                    int origem = lerVarint(in);
+                    tamanho = lerVarint(in);
+                    if (origem < 0 || origem + tamanho > base.length || p + tamanho > tamanhoAlvo) {
+                        throw new IOException("Delta corrompido.");
+                    }
+                    System.arraycopy(base, origem, alvo, p, tamanho);
+                } else if (op == INSERIR) {
+                    tamanho = lerVarint(in);
+                    if (p + tamanho > tamanhoAlvo) throw new IOException("Delta corrompido.");
+                    in.readFully(alvo, p, tamanho);
+                } else {
+                    throw new IOException("Delta corrompido.");
+                }
+                p += tamanho;
+            }
+            return alvo;
+        }
+    }
+
+    // ============================================================
+    // ========================= INTERNOS =========================
+    // ============================================================
+
+    /**
+     * Hash de cada bloco alinhado da base -> posição (primeira ocorrência), em endereçamento
+     * aberto sobre int[]: a consulta roda para cada byte do alvo.
+     */
+    private static final class Indice {
+        private final int[] hashes;
+        private final int[] posicoes;     // posição + 1; 0 = vazio
+        private final int mascara;
+
+        Indice(byte[] base) {
+            int capacidade = Integer.highestOneBit(Math.max(16, base.length / BLOCO * 2) - 1) << 1;
+            hashes = new int[capacidade];
+            posicoes = new int[capacidade];
+            mascara = capacidade - 1;
+            for (int p = 0; p + BLOCO <= base.length; p += BLOCO) {
+                int h = hash(base, p);
+                int s = espalhar(h) & mascara;
+                while (posicoes[s] != 0 && hashes[s] != h) s = (s + 1) & mascara;
+                if (posicoes[s] == 0) { hashes[s] = h; posicoes[s] = p + 1; }
+            }
+        }
+
+        int posicao(int h) {
+            int s = espalhar(h) & mascara;
+            while (posicoes[s] != 0) {
+                if (hashes[s] == h) return posicoes[s] - 1;
+                s = (s + 1) & mascara;
+            }
+            return -1;
+        }
+
+        private static int espalhar(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private static int hash(byte[] b, int ini) {
+        int h = 0;
+        for (int k = 0; k < BLOCO; k++) h = h * PRIMO + (b[ini + k] & 0xFF);
+        return h;
+    }
+
+    /** PRIMO^(BLOCO-1): peso do byte que sai da janela. */
+    private static int potencia() {
+        int p = 1;
+        for (int k = 1; k < BLOCO; k++) p *= PRIMO;
+        return p;
+    }
+
+    private static boolean iguais(byte[] a, int pa, byte[] b, int pb, int n) {
+        return Arrays.equals(a, pa, pa + n, b, pb, pb + n);
+    }
+
+    private static void escreverInsercao(OutputStream out, byte[] alvo, int ini, int fim) throws IOException {
+        if (fim <= ini) return;
+        out.write(INSERIR);
+        escreverVarint(out, fim - ini);
+        out.write(alvo, ini, fim - ini);
+    }
+
+    private static void escreverVarint(OutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static int lerVarint(InputStream in) throws IOException {
+        int v = 0;
+        for (int desloc = 0; desloc < 35; desloc += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Delta truncado.");
+            v |= (b & 0x7F) << desloc;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Delta corrompido.");
+    }
+}
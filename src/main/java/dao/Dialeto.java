@@ -0,0 +1,114 @@
+package dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Trechos de SQL que mudam de um banco para outro (upsert, limite de linhas, aritmética de datas).
+ *
+ * Resolvido uma única vez, na criação do pool ({@link Conexao#getDialeto()}), a partir de
+ * {@code db.dialeto} ou do prefixo de {@code db.url}, sem abrir conexão. Os DAOs montam o SQL
+ * com estes métodos em vez de consultar o driver a cada chamada.
+ *
+ * O restante dos DAOs segue escrito para o MySQL (UPDATE com JOIN, LAST_INSERT_ID(expr), INSERT IGNORE).
+ */
+public enum Dialeto {
+
+    MYSQL {
+        @Override
+        public String upsert(String tabela, List<String> chave, List<String> valores) {
+            StringBuilder sb = new StringBuilder(insert(tabela, chave, valores)).append(" ON DUPLICATE KEY UPDATE ");
+            for (int i = 0; i < valores.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(valores.get(i)).append(" = VALUES(").append(valores.get(i)).append(')');
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String somarMinutos(String expressao, long minutos) {
+            return "DATE_ADD(" + expressao + ", INTERVAL " + minutos + " MINUTE)";
+        }
+    },
+
+    POSTGRESQL {
+        @Override
+        public String upsert(String tabela, List<String> chave, List<String> valores) {
+            StringBuilder sb = new StringBuilder(insert(tabela, chave, valores))
+                    .append(" ON CONFLICT (").append(String.join(", ", chave)).append(") DO UPDATE SET ");
+            for (int i = 0; i < valores.size(); i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(valores.get(i)).append(" = EXCLUDED.").append(valores.get(i));
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String somarMinutos(String expressao, long minutos) {
+            return "(" + expressao + " + INTERVAL '" + minutos + " minutes')";
+        }
+
+        @Override
+        public String tipoDataHora() {
+            return "TIMESTAMP";
+        }
+    },
+
+    /** Banco não reconhecido: SQL padrão; upsert fica a cargo do chamador (UPDATE e, se nada mudou, INSERT). */
+    GENERICO {
+        @Override
+        public String upsert(String tabela, List<String> chave, List<String> valores) {
+            return null;
+        }
+
+        @Override
+        public String limite() {
+            return " FETCH FIRST ? ROWS ONLY";
+        }
+
+        @Override
+        public String somarMinutos(String expressao, long minutos) {
+            return "{fn TIMESTAMPADD(SQL_TSI_MINUTE, " + minutos + ", " + expressao + ")}";
+        }
+
+        @Override
+        public String tipoDataHora() {
+            return "TIMESTAMP";
+        }
+    };
+
+    /**
+     * INSERT das colunas {@code chave} + {@code valores} (nessa ordem, um parâmetro cada) que,
+     * se a chave já existir, atualiza as colunas {@code valores}.
+     * @return null se o banco não tem upsert numa instrução
+     */
+    public abstract String upsert(String tabela, List<String> chave, List<String> valores);
+
+    /** Sufixo que limita o resultado a um parâmetro {@code ?} de linhas (após o ORDER BY). */
+    public String limite() {
+        return " LIMIT ?";
+    }
+
+    /** {@code expressao} (data/hora) somada de {@code minutos} (negativo subtrai). */
+    public abstract String somarMinutos(String expressao, long minutos);
+
+    /** Tipo usado em CAST de parâmetros de data/hora. */
+    public String tipoDataHora() {
+        return "DATETIME";
+    }
+
+    /** Dialeto pelo nome configurado (mysql, postgresql...) ou, na falta dele, pelo prefixo da URL JDBC. */
+    public static Dialeto resolver(String configurado, String url) {
+        String nome = configurado != null && !configurado.isBlank() ? configurado : url;
+        String n = nome == null ? "" : nome.toLowerCase();
+        if (n.contains("mysql") || n.contains("mariadb")) return MYSQL;
+        if (n.contains("postgresql")) return POSTGRESQL;
+        return GENERICO;
+    }
+
+    private static String insert(String tabela, List<String> chave, List<String> valores) {
+        int n = chave.size() + valores.size();
+        return "INSERT INTO " + tabela + " (" + String.join(", ", chave) + ", " + String.join(", ", valores) + ")"
+                + " VALUES (" + String.join(", ", Collections.nCopies(n, "?")) + ")";
+    }
+}
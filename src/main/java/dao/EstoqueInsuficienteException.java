@@ -0,0 +1,11 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Lançada quando a baixa de materiais de um ou mais agendamentos deixaria o estoque
+ * de algum material negativo; a transação inteira é desfeita.
+ */
+public class EstoqueInsuficienteException extends SQLException {
+    public EstoqueInsuficienteException(String message) { super(message); }
+}
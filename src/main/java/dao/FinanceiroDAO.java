@@ -30,12 +30,18 @@ public class FinanceiroDAO {
         return -1L;
     }
 
+    /**
+     * UPDATE com controle otimista: com {@code versao} preenchida, só grava se o título
+     * ainda estiver nessa versão e a incrementa; sem versão, grava incondicionalmente.
+     *
+     * @throws ConflitoVersaoException se outra estação alterou o título depois da leitura.
+     */
     public boolean atualizar(Financeiro f) throws SQLException {
         String sql = """
             UPDATE TB_FINANCEIRO
-            SET ID_AGENDAMENTO=?, VALOR_TOTAL=?, DT_EMISSAO=?, STATUS=?, METODO_PAGAMENTO=?
+            SET ID_AGENDAMENTO=?, VALOR_TOTAL=?, DT_EMISSAO=?, STATUS=?, METODO_PAGAMENTO=?, VERSAO=VERSAO+1
             WHERE ID_FINANCEIRO=?
-            """;
+            """ + (f.getVersao() != null ? " AND VERSAO=?" : "");
         try (Connection c = Conexao.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
 
@@ -45,7 +51,26 @@ public class FinanceiroDAO {
             ps.setString(4, f.getStatus().name());
             ps.setString(5, f.getMetodo_pagamento().name());
             ps.setLong(6, f.getId_financeiro());
-            return ps.executeUpdate() > 0;
+            if (f.getVersao() != null) ps.setInt(7, f.getVersao());
+
+            if (ps.executeUpdate() > 0) {
+                if (f.getVersao() != null) f.setVersao(f.getVersao() + 1);
+                return true;
+            }
+            if (f.getVersao() != null && existe(c, f.getId_financeiro())) {
+                throw new ConflitoVersaoException("O título financeiro " + f.getId_financeiro()
+                        + " foi alterado por outro usuário. Recarregue e tente novamente.");
+            }
+            return false;
+        }
+    }
+
+    private boolean existe(Connection c, long id) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT 1 FROM TB_FINANCEIRO WHERE ID_FINANCEIRO=?")) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
         }
     }
 
@@ -102,6 +127,7 @@ public class FinanceiroDAO {
         f.setDt_emissao(ts != null ? new java.util.Date(ts.getTime()) : null);
         f.setStatus(model.StatusFinanceiro.valueOf(rs.getString("STATUS")));
         f.setMetodo_pagamento(model.MetodoPagamento.valueOf(rs.getString("METODO_PAGAMENTO")));
+        f.setVersao(rs.getInt("VERSAO"));
         return f;
     }
 }
@@ -1,16 +1,24 @@
 package dao;
 
 import model.Material;
+import model.MovimentacaoEstoque;
+import model.TipoMovimentacao;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 public class MaterialDAO {
 
+    /** Materiais ativos, os no ponto de reposição (ou abaixo) primeiro; depois por quantidade. */
     public List<Material> listar() throws SQLException {
         List<Material> lista = new ArrayList<>();
-        String sql = "SELECT ID_MATERIAL, NOME, QUANTIDADE FROM TB_MATERIAL ORDER BY QUANTIDADE DESC";
+        String sql = "SELECT ID_MATERIAL, NOME, QUANTIDADE, PONTO_REPOSICAO, VERSAO FROM TB_MATERIAL " +
+                "WHERE ATIVO = 1 ORDER BY (QUANTIDADE <= PONTO_REPOSICAO) DESC, QUANTIDADE DESC";
 
         try (Connection conn = Conexao.getConnection();
              Statement st = conn.createStatement();
@@ -21,64 +29,361 @@ public class MaterialDAO {
                 p.setID(rs.getInt("ID_MATERIAL"));
                 p.setNOME(rs.getString("NOME"));
                 p.setQUANTIDADE(rs.getInt("QUANTIDADE"));
+                p.setPONTO_REPOSICAO(rs.getInt("PONTO_REPOSICAO"));
+                p.setVERSAO(rs.getInt("VERSAO"));
                 lista.add(p);
             }
         }
         return lista;
     }
 
+    /** Insere o material e retorna o ID gerado; a quantidade inicial entra no livro como entrada. */
     public long inserirMaterial(Material material) throws SQLException {
-        String sql = "INSERT INTO TB_MATERIAL (NOME, QUANTIDADE) VALUES (?, ?)";
+        String sql = "INSERT INTO TB_MATERIAL (NOME, QUANTIDADE, PONTO_REPOSICAO) VALUES (?, ?, ?)";
 
-        try (Connection conn = Conexao.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, material.getNOME());
-            ps.setInt(2, material.getQUANTIDADE());
-
-            if (ps.executeUpdate() == 0) {
-                throw new SQLException("Nenhuma linha inserida em TB_MATERIAL.");
-            }
+        try {
+            return emTransacao(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setString(1, material.getNOME());
+                    ps.setInt(2, material.getQUANTIDADE());
+                    ps.setInt(3, material.getPONTO_REPOSICAO() == null ? 0 : material.getPONTO_REPOSICAO());
 
+                    if (ps.executeUpdate() == 0) {
+                        throw new SQLException("Nenhuma linha inserida em TB_MATERIAL.");
+                    }
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (!rs.next()) throw new SQLException("ID do material não retornado.");
+                        int id = rs.getInt(1);
+                        material.setID(id);
+                        if (material.getQUANTIDADE() != 0) {
+                            MovimentacaoEstoqueDAO.inserir(conn, List.of(MovimentacaoEstoque.de(
+                                    id, TipoMovimentacao.ENTRADA, material.getQUANTIDADE(), "Cadastro do material")));
+                        }
+                        return (long) id;
+                    }
+                }
+            });
         } catch (SQLException e) {
             throw new SQLException("Erro ao inserir material: " + e.getMessage(), e);
         }
-        return 0;
     }
 
+    /**
+     * Exclusão lógica: o material sai das listagens, mas continua em TB_MATERIAL para o livro de
+     * estoque e os relatórios de períodos anteriores (as FKs do livro são ON DELETE RESTRICT).
+     * Na mesma transação sai das fichas dos tratamentos (TB_CONSUMO_MATERIAL), que o CASCADE
+     * removia: um material inativo não é mais baixado nem exigido ao concluir um agendamento.
+     */
     public void excluirMaterial(int materialID) throws SQLException {
-        final String sql = "DELETE FROM TB_MATERIAL WHERE ID_MATERIAL = ?";
+        final String sql = "UPDATE TB_MATERIAL SET ATIVO = 0, VERSAO = VERSAO + 1 WHERE ID_MATERIAL = ? AND ATIVO = 1";
+        final String sqlConsumos = "DELETE FROM TB_CONSUMO_MATERIAL WHERE ID_MATERIAL = ?";
 
-        Connection conn = Conexao.getConnection();
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, materialID);
-            int afetados = ps.executeUpdate();
-            if (afetados == 0) {
-                throw new SQLException("Material não encontrado para exclusão (ID=" + materialID + ").");
-            }
+        try {
+            emTransacao(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, materialID);
+                    if (ps.executeUpdate() == 0) {
+                        throw new SQLException("Material não encontrado para exclusão (ID=" + materialID + ").");
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(sqlConsumos)) {
+                    ps.setInt(1, materialID);
+                    ps.executeUpdate();
+                }
+                return null;
+            });
         } catch (SQLException e) {
             throw new SQLException("Erro ao excluir material: " + e.getMessage(), e);
-        } finally {
-            try { conn.close(); } catch (SQLException ignore) {}
         }
     }
 
-    public void atualizarMaterial(Material m) throws SQLException {
-        final String sql =
-                "UPDATE TB_MATERIAL SET NOME = ?, QUANTIDADE = ? WHERE ID_MATERIAL = ?";
+    /** Material ativo pelo ID; null se não existe ou foi excluído. */
+    public Material buscarPorId(int materialID) throws SQLException {
+        String sql = "SELECT ID_MATERIAL, NOME, QUANTIDADE, PONTO_REPOSICAO, VERSAO FROM TB_MATERIAL " +
+                "WHERE ID_MATERIAL = ? AND ATIVO = 1";
 
         try (Connection conn = Conexao.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, materialID);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                Material m = new Material();
+                m.setID(rs.getInt("ID_MATERIAL"));
+                m.setNOME(rs.getString("NOME"));
+                m.setQUANTIDADE(rs.getInt("QUANTIDADE"));
+                m.setPONTO_REPOSICAO(rs.getInt("PONTO_REPOSICAO"));
+                m.setVERSAO(rs.getInt("VERSAO"));
+                return m;
+            }
+        }
+    }
+
+    /** Ajuste manual de estoque (registrado no livro como AJUSTE). Ver {@link #ajustarQuantidade(MovimentacaoEstoque)}. */
+    public int ajustarQuantidade(int materialID, int delta) throws SQLException {
+        return ajustarQuantidade(MovimentacaoEstoque.de(materialID, TipoMovimentacao.AJUSTE, delta, null));
+    }
+
+    /**
+     * Soma {@code mov.quantidade} ao estoque num único UPDATE, que só é aplicado se o resultado
+     * não ficar negativo (seguro com várias estações mexendo no mesmo material), e registra a
+     * movimentação no livro na mesma transação.
+     * A nova quantidade volta na mesma ida ao banco via LAST_INSERT_ID(expr) do MySQL.
+     *
+     * @return nova quantidade, ou -1 se o material não existe, foi excluído ou o estoque ficaria negativo
+     */
+    public int ajustarQuantidade(MovimentacaoEstoque mov) throws SQLException {
+        final String sql = "UPDATE TB_MATERIAL " +
+                "SET QUANTIDADE = LAST_INSERT_ID(QUANTIDADE + ?), VERSAO = VERSAO + 1 " +
+                "WHERE ID_MATERIAL = ? AND ATIVO = 1 AND QUANTIDADE + ? >= 0";
 
-            ps.setString(1, m.getNOME());
-            ps.setInt(2, m.getQUANTIDADE());
-            ps.setInt(3, m.getID());
+        return emTransacao(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                ps.setInt(1, mov.getQuantidade());
+                ps.setInt(2, mov.getId_material());
+                ps.setInt(3, mov.getQuantidade());
+                if (ps.executeUpdate() == 0) return -1;
 
-            int linhas = ps.executeUpdate();
-            if (linhas == 0) {
+                MovimentacaoEstoqueDAO.inserir(conn, List.of(mov));
+
+                // LAST_INSERT_ID(0) não gera chave: sem linha no ResultSet a nova quantidade é zero
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+        });
+    }
+
+    /** Vários ajustes manuais (ID_MATERIAL -> delta). Ver {@link #ajustarQuantidades(List)}. */
+    public List<Integer> ajustarQuantidades(Map<Integer, Integer> deltas) throws SQLException {
+        List<MovimentacaoEstoque> movs = new ArrayList<>(deltas.size());
+        deltas.forEach((id, delta) -> movs.add(MovimentacaoEstoque.de(id, TipoMovimentacao.AJUSTE, delta, null)));
+        return ajustarQuantidades(movs);
+    }
+
+    /**
+     * Aplica várias movimentações num único lote de UPDATEs e num único lote de inserções
+     * no livro, na mesma transação: ou todas entram, ou nenhuma. Os UPDATEs vão em ordem de
+     * ID_MATERIAL, a mesma em que {@link #baixarConsumo} trava as linhas, para que duas
+     * transações sobre os mesmos materiais não se travem mutuamente.
+     *
+     * @return IDs de materiais que não puderam ser ajustados (inexistentes, excluídos ou que ficariam negativos),
+     *         na ordem de {@code movs}; se não estiver vazia, nada foi gravado
+     */
+    public List<Integer> ajustarQuantidades(List<MovimentacaoEstoque> movs) throws SQLException {
+        List<Integer> recusados = new ArrayList<>();
+        if (movs.isEmpty()) return recusados;
+
+        final String sql = "UPDATE TB_MATERIAL SET QUANTIDADE = QUANTIDADE + ?, VERSAO = VERSAO + 1 " +
+                "WHERE ID_MATERIAL = ? AND ATIVO = 1 AND QUANTIDADE + ? >= 0";
+
+        try (Connection conn = Conexao.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                Integer[] ordem = new Integer[movs.size()];
+                for (int i = 0; i < ordem.length; i++) ordem[i] = i;
+                Arrays.sort(ordem, Comparator.comparingInt(i -> movs.get(i).getId_material()));
+                for (int i : ordem) {
+                    MovimentacaoEstoque m = movs.get(i);
+                    ps.setInt(1, m.getQuantidade());
+                    ps.setInt(2, m.getId_material());
+                    ps.setInt(3, m.getQuantidade());
+                    ps.addBatch();
+                }
+                int[] linhas = ps.executeBatch();
+                boolean[] recusado = new boolean[movs.size()];
+                for (int j = 0; j < linhas.length; j++) {
+                    if (linhas[j] == 0) recusado[ordem[j]] = true;
+                }
+                for (int i = 0; i < recusado.length; i++) {
+                    if (recusado[i]) recusados.add(movs.get(i).getId_material());
+                }
+
+                if (recusados.isEmpty()) {
+                    MovimentacaoEstoqueDAO.inserir(conn, movs);
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+                return recusados;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Define a quantidade (inventário) e registra a diferença no livro como AJUSTE.
+     * Retorna false se o material não existe ou foi excluído.
+     */
+    public boolean definirQuantidade(int materialID, int quantidade) throws SQLException {
+        final String sql = "UPDATE TB_MATERIAL SET QUANTIDADE = ?, VERSAO = VERSAO + 1 WHERE ID_MATERIAL = ?";
+
+        return emTransacao(conn -> {
+            Integer anterior = travarQuantidade(conn, materialID);
+            if (anterior == null) return false;
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, quantidade);
+                ps.setInt(2, materialID);
+                ps.executeUpdate();
+            }
+            registrarDiferenca(conn, materialID, anterior, quantidade, "Inventário");
+            return true;
+        });
+    }
+
+    /**
+     * UPDATE com controle otimista: com {@code VERSAO} preenchida, só grava se o material
+     * ainda estiver nessa versão e a incrementa; sem versão, grava incondicionalmente.
+     * Mudança de quantidade é registrada no livro como AJUSTE.
+     * Ponto de reposição nulo mantém o atual.
+     *
+     * @throws ConflitoVersaoException se outra estação alterou o material depois da leitura.
+     */
+    public void atualizarMaterial(Material m) throws SQLException {
+        final String sql =
+                "UPDATE TB_MATERIAL SET NOME = ?, QUANTIDADE = ?, PONTO_REPOSICAO = COALESCE(?, PONTO_REPOSICAO), " +
+                        "VERSAO = VERSAO + 1 WHERE ID_MATERIAL = ?"
+                        + (m.getVERSAO() != null ? " AND VERSAO = ?" : "");
+
+        emTransacao(conn -> {
+            Integer anterior = travarQuantidade(conn, m.getID());
+            if (anterior == null) {
                 throw new SQLException("Material não encontrado para atualização (ID=" + m.getID() + ").");
             }
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, m.getNOME());
+                ps.setInt(2, m.getQUANTIDADE());
+                if (m.getPONTO_REPOSICAO() == null) ps.setNull(3, Types.INTEGER); else ps.setInt(3, m.getPONTO_REPOSICAO());
+                ps.setInt(4, m.getID());
+                if (m.getVERSAO() != null) ps.setInt(5, m.getVERSAO());
+
+                if (ps.executeUpdate() == 0) {
+                    throw new ConflitoVersaoException("O material " + m.getID()
+                            + " foi alterado por outro usuário. Recarregue e tente novamente.");
+                }
+            }
+            registrarDiferenca(conn, m.getID(), anterior, m.getQUANTIDADE(), "Edição do material");
+            if (m.getVERSAO() != null) m.setVERSAO(m.getVERSAO() + 1);
+            return null;
+        });
+    }
+
+    /**
+     * Baixa do estoque os materiais (TB_CONSUMO_MATERIAL) dos tratamentos dos agendamentos
+     * informados, na transação do chamador:
+     * - só materiais ativos: uma ficha que ainda cite um material excluído (gravada por uma
+     *   tela desatualizada) não o baixa nem impede a conclusão;
+     * - trava e confere os materiais envolvidos (nenhum pode ficar negativo);
+     * - um único UPDATE com join no consumo agregado por material (no MySQL o UPDATE
+     *   multi-tabela altera cada linha uma só vez, por isso a soma antes do join);
+     * - um único INSERT ... SELECT das movimentações de CONSUMO no livro.
+     *
+     * @throws EstoqueInsuficienteException se algum material ficaria negativo
+     */
+    static void baixarConsumo(Connection conn, List<Integer> idsAgendamento) throws SQLException {
+        if (idsAgendamento.isEmpty()) return;
+        String ids = String.join(", ", Collections.nCopies(idsAgendamento.size(), "?"));
+        String consumoAgregado = """
+                SELECT c.ID_MATERIAL, SUM(c.QUANTIDADE) AS TOTAL
+                  FROM TB_AGENDAMENTO a
+                  JOIN TB_CONSUMO_MATERIAL c ON c.ID_TRATAMENTO = a.ID_TRATAMENTO
+                  JOIN TB_MATERIAL ma ON ma.ID_MATERIAL = c.ID_MATERIAL AND ma.ATIVO = 1
+                 WHERE a.ID_AGENDAMENTO IN (%s)
+                 GROUP BY c.ID_MATERIAL
+                """.formatted(ids);
+
+        String sqlFaltas = "SELECT m.NOME, m.QUANTIDADE, t.TOTAL FROM TB_MATERIAL m " +
+                "JOIN (" + consumoAgregado + ") t ON t.ID_MATERIAL = m.ID_MATERIAL " +
+                "ORDER BY m.ID_MATERIAL FOR UPDATE";
+        List<String> faltas = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sqlFaltas)) {
+            definirIds(ps, 1, idsAgendamento);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getInt("QUANTIDADE") < rs.getInt("TOTAL")) {
+                        faltas.add(rs.getString("NOME") + " (estoque " + rs.getInt("QUANTIDADE")
+                                + ", necessário " + rs.getInt("TOTAL") + ")");
+                    }
+                }
+            }
+        }
+        if (!faltas.isEmpty()) {
+            throw new EstoqueInsuficienteException("Estoque insuficiente: " + String.join("; ", faltas) + ".");
+        }
+
+        String sqlBaixa = "UPDATE TB_MATERIAL m JOIN (" + consumoAgregado + ") t ON t.ID_MATERIAL = m.ID_MATERIAL " +
+                "SET m.QUANTIDADE = m.QUANTIDADE - t.TOTAL, m.VERSAO = m.VERSAO + 1";
+        try (PreparedStatement ps = conn.prepareStatement(sqlBaixa)) {
+            definirIds(ps, 1, idsAgendamento);
+            ps.executeUpdate();
+        }
+
+        String sqlLivro = """
+                INSERT INTO TB_MOVIMENTACAO_ESTOQUE
+                    (ID_MATERIAL, TIPO, QUANTIDADE, ID_TRATAMENTO, ID_AGENDAMENTO, OBSERVACAO)
+                SELECT c.ID_MATERIAL, 'CONSUMO', -c.QUANTIDADE, a.ID_TRATAMENTO, a.ID_AGENDAMENTO,
+                       'Conclusão do agendamento'
+                  FROM TB_AGENDAMENTO a
+                  JOIN TB_CONSUMO_MATERIAL c ON c.ID_TRATAMENTO = a.ID_TRATAMENTO
+                  JOIN TB_MATERIAL ma ON ma.ID_MATERIAL = c.ID_MATERIAL AND ma.ATIVO = 1
+                 WHERE a.ID_AGENDAMENTO IN (%s)
+                """.formatted(ids);
+        try (PreparedStatement ps = conn.prepareStatement(sqlLivro)) {
+            definirIds(ps, 1, idsAgendamento);
+            ps.executeUpdate();
         }
     }
 
+    private static void definirIds(PreparedStatement ps, int indice, List<Integer> ids) throws SQLException {
+        for (Integer id : ids) ps.setInt(indice++, id);
+    }
+
+    // ============================================================
+    // ========================= INTERNOS =========================
+    // ============================================================
+
+    @FunctionalInterface
+    private interface Trabalho<T> {
+        T executar(Connection conn) throws SQLException;
+    }
+
+    private static <T> T emTransacao(Trabalho<T> trabalho) throws SQLException {
+        try (Connection conn = Conexao.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T resultado = trabalho.executar(conn);
+                conn.commit();
+                return resultado;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /** Quantidade atual com a linha travada até o fim da transação; null se o material não existe ou foi excluído. */
+    private static Integer travarQuantidade(Connection conn, int materialID) throws SQLException {
+        String sql = "SELECT QUANTIDADE FROM TB_MATERIAL WHERE ID_MATERIAL = ? AND ATIVO = 1 FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, materialID);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    private static void registrarDiferenca(Connection conn, int materialID, int anterior, int nova, String observacao)
+            throws SQLException {
+        if (nova != anterior) {
+            MovimentacaoEstoqueDAO.inserir(conn, List.of(MovimentacaoEstoque.de(
+                    materialID, TipoMovimentacao.AJUSTE, nova - anterior, observacao)));
+        }
+    }
 }
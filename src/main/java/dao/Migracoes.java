@@ -0,0 +1,666 @@
+package dao;
+
+import config.Configuracao;
+import model.ChaveFonetica;
+import model.Odontograma;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Migrações de esquema versionadas, aplicadas em ordem e registradas em TB_MIGRACAO.
+ * - Cada passo é idempotente (confere coluna/índice antes de criar), pois DDL no MySQL
+ *   não é transacional e duas estações podem iniciar ao mesmo tempo.
+ * - Executadas na inicialização quando {@code db.migracoes.automaticas=true},
+ *   ou manualmente pelo {@link #main(String[])}.
+ */
+public final class Migracoes {
+
+    @FunctionalInterface
+    private interface Passo {
+        void aplicar(Connection conn) throws SQLException;
+    }
+
+    private Migracoes() {}
+
+    /** Sem argumentos aplica as migrações; {@code limpar-imagens-banco} roda {@link #limparImagensNoBanco()}. */
+    public static void main(String[] args) throws SQLException {
+        try {
+            if (args.length > 0 && args[0].equals("limpar-imagens-banco")) limparImagensNoBanco();
+            else executar();
+        } finally {
+            Conexao.fechar();
+        }
+    }
+
+    /** Aplica as migrações pendentes. */
+    public static void executar() throws SQLException {
+        try (Connection conn = Conexao.getConnection()) {
+            criarTabelaControle(conn);
+            aplicar(conn, "001_agendamento_data_hora_fim", Migracoes::agendamentoDataHoraFim);
+            aplicar(conn, "002_agendamento_indice_listagem", Migracoes::agendamentoIndiceListagem);
+            aplicar(conn, "003_tratamento_duracao", Migracoes::tratamentoDuracao);
+            aplicar(conn, "004_versao_otimista", Migracoes::versaoOtimista);
+            aplicar(conn, "005_movimentacao_estoque", Migracoes::movimentacaoEstoque);
+            aplicar(conn, "006_material_ponto_reposicao", Migracoes::materialPontoReposicao);
+            aplicar(conn, "007_pessoa_chave_fonetica", Migracoes::pessoaChaveFonetica);
+            aplicar(conn, "008_odontograma_blob_externo", Migracoes::odontogramaBlobExterno);
+            aplicar(conn, "009_odontograma_versoes", Migracoes::odontogramaVersoes);
+            aplicar(conn, "010_odontograma_dentes", Migracoes::odontogramaDentes);
+            aplicar(conn, "011_pessoa_chave_fonetica_cedilha", Migracoes::pessoaChaveFoneticaCedilha);
+            aplicar(conn, "012_material_exclusao_logica", Migracoes::materialExclusaoLogica);
+            aplicar(conn, "013_odontograma_pendentes", Migracoes::odontogramaPendentes);
+            // única que depende do repositório de blobs: fica pendente até blobs.diretorio existir
+            if (RepositorioBlobsArquivos.diretorioConfigurado() != null) {
+                aplicar(conn, "014_odontograma_imagens_repositorio", Migracoes::odontogramaImagensRepositorio);
+            } else if (!aplicada(conn, "014_odontograma_imagens_repositorio")) {
+                System.err.println("⚠ Migração 014_odontograma_imagens_repositorio adiada: blobs.diretorio não configurado.");
+            }
+        }
+    }
+
+    // ============================================================
+    // ========================== PASSOS ==========================
+    // ============================================================
+
+    /**
+     * TB_AGENDAMENTO.DATA_HORA_FIM: término gravado na escrita, preenchido em lotes
+     * para as linhas existentes (duração padrão de 60 min, a usada até então),
+     * mais o índice composto usado pela consulta de conflito.
+     */
+    private static void agendamentoDataHoraFim(Connection conn) throws SQLException {
+        if (!existeColuna(conn, "TB_AGENDAMENTO", "DATA_HORA_FIM")) {
+            executarDdl(conn, "ALTER TABLE TB_AGENDAMENTO ADD COLUMN DATA_HORA_FIM DATETIME NULL AFTER DATA_HORA");
+        }
+
+        int lote = Configuracao.get().getInt("db.migracoes.tamanhoLote", 5000);
+        preencherEmLotes(conn, "TB_AGENDAMENTO", "ID_AGENDAMENTO", lote, """
+                UPDATE TB_AGENDAMENTO
+                   SET DATA_HORA_FIM = DATE_ADD(DATA_HORA, INTERVAL 60 MINUTE)
+                 WHERE ID_AGENDAMENTO >= ? AND ID_AGENDAMENTO < ?
+                   AND DATA_HORA_FIM IS NULL
+                """);
+
+        executarDdl(conn, "ALTER TABLE TB_AGENDAMENTO MODIFY DATA_HORA_FIM DATETIME NOT NULL");
+        if (!existeIndice(conn, "TB_AGENDAMENTO", "IX_AGENDAMENTO_DENTISTA_PERIODO")) {
+            executarDdl(conn, "CREATE INDEX IX_AGENDAMENTO_DENTISTA_PERIODO "
+                    + "ON TB_AGENDAMENTO (ID_DENTISTA, DATA_HORA, DATA_HORA_FIM)");
+        }
+    }
+
+    /** Índice para a listagem paginada por (DATA_HORA, ID_AGENDAMENTO); o InnoDB anexa a PK ao índice. */
+    private static void agendamentoIndiceListagem(Connection conn) throws SQLException {
+        if (!existeIndice(conn, "TB_AGENDAMENTO", "IX_AGENDAMENTO_DATA_HORA")) {
+            executarDdl(conn, "CREATE INDEX IX_AGENDAMENTO_DATA_HORA ON TB_AGENDAMENTO (DATA_HORA)");
+        }
+    }
+
+    /** TB_TRATAMENTO.DURACAO_MINUTOS; as linhas existentes ficam com 60 min (duração usada até então). */
+    private static void tratamentoDuracao(Connection conn) throws SQLException {
+        if (!existeColuna(conn, "TB_TRATAMENTO", "DURACAO_MINUTOS")) {
+            executarDdl(conn, "ALTER TABLE TB_TRATAMENTO ADD COLUMN DURACAO_MINUTOS INT NOT NULL DEFAULT "
+                    + TratamentoDao.DURACAO_PADRAO_MINUTOS);
+        }
+    }
+
+    /** Coluna VERSAO para os UPDATEs com controle otimista (compare-and-set) de concorrência. */
+    private static void versaoOtimista(Connection conn) throws SQLException {
+        for (String tabela : new String[]{"TB_AGENDAMENTO", "TB_FINANCEIRO", "TB_MATERIAL"}) {
+            if (!existeColuna(conn, tabela, "VERSAO")) {
+                executarDdl(conn, "ALTER TABLE " + tabela + " ADD COLUMN VERSAO INT NOT NULL DEFAULT 0");
+            }
+        }
+    }
+
+    /**
+     * Livro de movimentações de estoque (somente inserção) e fotografias periódicas de saldo.
+     * O saldo atual de cada material entra como movimentação inicial de ajuste, para que
+     * livro e TB_MATERIAL.QUANTIDADE partam do mesmo valor.
+     */
+    private static void movimentacaoEstoque(Connection conn) throws SQLException {
+        executarDdl(conn, """
+                CREATE TABLE IF NOT EXISTS TB_MOVIMENTACAO_ESTOQUE (
+                    ID_MOVIMENTACAO BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    ID_MATERIAL     INT NOT NULL,
+                    TIPO            VARCHAR(20) NOT NULL,
+                    QUANTIDADE      INT NOT NULL,
+                    DATA_HORA       DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    ID_TRATAMENTO   INT NULL,
+                    ID_AGENDAMENTO  INT NULL,
+                    OBSERVACAO      VARCHAR(255) NULL,
+                    INDEX IX_MOVIMENTACAO_MATERIAL (ID_MATERIAL, ID_MOVIMENTACAO),
+                    INDEX IX_MOVIMENTACAO_DATA (DATA_HORA),
+                    CONSTRAINT FK_MOVIMENTACAO_MATERIAL FOREIGN KEY (ID_MATERIAL)
+                        REFERENCES TB_MATERIAL (ID_MATERIAL) ON DELETE RESTRICT
+                )
+                """);
+        executarDdl(conn, """
+                CREATE TABLE IF NOT EXISTS TB_SALDO_ESTOQUE (
+                    ID_MATERIAL         INT NOT NULL,
+                    ID_MOVIMENTACAO_ATE BIGINT NOT NULL,
+                    DATA_HORA           DATETIME NOT NULL,
+                    SALDO               INT NOT NULL,
+                    PRIMARY KEY (ID_MATERIAL, ID_MOVIMENTACAO_ATE),
+                    INDEX IX_SALDO_DATA (ID_MATERIAL, DATA_HORA),
+                    CONSTRAINT FK_SALDO_MATERIAL FOREIGN KEY (ID_MATERIAL)
+                        REFERENCES TB_MATERIAL (ID_MATERIAL) ON DELETE RESTRICT
+                )
+                """);
+        executarDdl(conn, """
+                INSERT INTO TB_MOVIMENTACAO_ESTOQUE (ID_MATERIAL, TIPO, QUANTIDADE, OBSERVACAO)
+                SELECT m.ID_MATERIAL, 'AJUSTE', m.QUANTIDADE, 'Saldo inicial'
+                  FROM TB_MATERIAL m
+                 WHERE m.QUANTIDADE <> 0
+                   AND NOT EXISTS (SELECT 1 FROM TB_MOVIMENTACAO_ESTOQUE x WHERE x.ID_MATERIAL = m.ID_MATERIAL)
+                """);
+    }
+
+    /** TB_MATERIAL.PONTO_REPOSICAO: quantidade a partir da qual o material deve ser recomprado (0 = sem alerta). */
+    private static void materialPontoReposicao(Connection conn) throws SQLException {
+        if (!existeColuna(conn, "TB_MATERIAL", "PONTO_REPOSICAO")) {
+            executarDdl(conn, "ALTER TABLE TB_MATERIAL ADD COLUMN PONTO_REPOSICAO INT NOT NULL DEFAULT 0 AFTER QUANTIDADE");
+        }
+    }
+
+    /**
+     * TB_MATERIAL.ATIVO: excluir um material só o desativa, pois o livro de estoque e as
+     * fotografias de saldo são histórico. Bancos criados com a 005 antiga têm as FKs do livro
+     * em ON DELETE CASCADE (um DELETE apagaria o histórico); elas são recriadas com RESTRICT.
+     */
+    private static void materialExclusaoLogica(Connection conn) throws SQLException {
+        if (!existeColuna(conn, "TB_MATERIAL", "ATIVO")) {
+            executarDdl(conn, "ALTER TABLE TB_MATERIAL ADD COLUMN ATIVO TINYINT(1) NOT NULL DEFAULT 1 AFTER PONTO_REPOSICAO");
+        }
+        if ("CASCADE".equals(regraExclusao(conn, "TB_MOVIMENTACAO_ESTOQUE", "FK_MOVIMENTACAO_MATERIAL"))) {
+            executarDdl(conn, """
+                    ALTER TABLE TB_MOVIMENTACAO_ESTOQUE
+                      DROP FOREIGN KEY FK_MOVIMENTACAO_MATERIAL,
+                      ADD CONSTRAINT FK_MOVIMENTACAO_MATERIAL FOREIGN KEY (ID_MATERIAL)
+                          REFERENCES TB_MATERIAL (ID_MATERIAL) ON DELETE RESTRICT
+                    """);
+        }
+        if ("CASCADE".equals(regraExclusao(conn, "TB_SALDO_ESTOQUE", "FK_SALDO_MATERIAL"))) {
+            executarDdl(conn, """
+                    ALTER TABLE TB_SALDO_ESTOQUE
+                      DROP FOREIGN KEY FK_SALDO_MATERIAL,
+                      ADD CONSTRAINT FK_SALDO_MATERIAL FOREIGN KEY (ID_MATERIAL)
+                          REFERENCES TB_MATERIAL (ID_MATERIAL) ON DELETE RESTRICT
+                    """);
+        }
+    }
+
+    /**
+     * TB_PESSOA.CHAVE_FONETICA ({@link ChaveFonetica}) e índice (CHAVE_FONETICA, DT_NASCIMENTO)
+     * para a busca de possíveis duplicados. A chave é calculada em Java, então as linhas
+     * existentes são preenchidas em lotes por faixa de ID, cada lote em sua transação.
+     */
+    private static void pessoaChaveFonetica(Connection conn) throws SQLException {
+        if (!existeColuna(conn, "TB_PESSOA", "CHAVE_FONETICA")) {
+            executarDdl(conn, "ALTER TABLE TB_PESSOA ADD COLUMN CHAVE_FONETICA VARCHAR("
+                    + ChaveFonetica.TAMANHO_MAXIMO + ") NULL AFTER NOME");
+        }
+
+        int lote = Configuracao.get().getInt("db.migracoes.tamanhoLote", 5000);
+        String sqlSel = """
+                SELECT ID_PESSOA, NOME FROM TB_PESSOA
+                 WHERE ID_PESSOA > ? AND CHAVE_FONETICA IS NULL
+                 ORDER BY ID_PESSOA LIMIT ?
+                """;
+        String sqlUpd = "UPDATE TB_PESSOA SET CHAVE_FONETICA = ? WHERE ID_PESSOA = ?";
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement sel = conn.prepareStatement(sqlSel);
+             PreparedStatement upd = conn.prepareStatement(sqlUpd)) {
+            int ultimo = 0;
+            while (true) {
+                int lidas = 0;
+                sel.setInt(1, ultimo);
+                sel.setInt(2, lote);
+                try (ResultSet rs = sel.executeQuery()) {
+                    while (rs.next()) {
+                        ultimo = rs.getInt("ID_PESSOA");
+                        upd.setString(1, ChaveFonetica.deNome(rs.getString("NOME")));
+                        upd.setInt(2, ultimo);
+                        upd.addBatch();
+                        lidas++;
+                    }
+                }
+                if (lidas == 0) break;
+                upd.executeBatch();
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        if (!existeIndice(conn, "TB_PESSOA", "IX_PESSOA_CHAVE_FONETICA")) {
+            executarDdl(conn, "CREATE INDEX IX_PESSOA_CHAVE_FONETICA ON TB_PESSOA (CHAVE_FONETICA, DT_NASCIMENTO)");
+        }
+    }
+
+    /**
+     * Recalcula CHAVE_FONETICA dos nomes com cedilha: até aqui Ç virava S, o que separava
+     * "Conceição" de "Conceicao". Com collation sem acento o LIKE traz também nomes com C;
+     * só as chaves que mudaram são regravadas.
+     */
+    private static void pessoaChaveFoneticaCedilha(Connection conn) throws SQLException {
+        int lote = Configuracao.get().getInt("db.migracoes.tamanhoLote", 5000);
+        String sqlSel = """
+                SELECT ID_PESSOA, NOME, CHAVE_FONETICA FROM TB_PESSOA
+                 WHERE ID_PESSOA > ? AND (NOME LIKE '%ç%' OR NOME LIKE '%Ç%')
+                 ORDER BY ID_PESSOA LIMIT ?
+                """;
+        String sqlUpd = "UPDATE TB_PESSOA SET CHAVE_FONETICA = ? WHERE ID_PESSOA = ?";
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement sel = conn.prepareStatement(sqlSel);
+             PreparedStatement upd = conn.prepareStatement(sqlUpd)) {
+            int ultimo = 0;
+            while (true) {
+                int lidas = 0;
+                sel.setInt(1, ultimo);
+                sel.setInt(2, lote);
+                try (ResultSet rs = sel.executeQuery()) {
+                    while (rs.next()) {
+                        ultimo = rs.getInt("ID_PESSOA");
+                        lidas++;
+                        String chave = ChaveFonetica.deNome(rs.getString("NOME"));
+                        if (chave.equals(rs.getString("CHAVE_FONETICA"))) continue;
+                        upd.setString(1, chave);
+                        upd.setInt(2, ultimo);
+                        upd.addBatch();
+                    }
+                }
+                if (lidas == 0) break;
+                upd.executeBatch();
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * TB_ODONTOGRAMA.HASH_IMAGEM / TAMANHO_IMAGEM / MIME_IMAGEM: a imagem passa para o
+     * {@link RepositorioBlobsArquivos} e a linha guarda a referência. Só o esquema; as imagens
+     * existentes são copiadas pela {@link #odontogramaImagensRepositorio 014}.
+     */
+    private static void odontogramaBlobExterno(Connection conn) throws SQLException {
+        if (!existeColuna(conn, "TB_ODONTOGRAMA", "HASH_IMAGEM")) {
+            executarDdl(conn, "ALTER TABLE TB_ODONTOGRAMA ADD COLUMN HASH_IMAGEM CHAR(64) NULL AFTER ID_PACIENTE");
+        }
+        if (!existeColuna(conn, "TB_ODONTOGRAMA", "TAMANHO_IMAGEM")) {
+            executarDdl(conn, "ALTER TABLE TB_ODONTOGRAMA ADD COLUMN TAMANHO_IMAGEM BIGINT NULL AFTER HASH_IMAGEM");
+        }
+        if (!existeColuna(conn, "TB_ODONTOGRAMA", "MIME_IMAGEM")) {
+            executarDdl(conn, "ALTER TABLE TB_ODONTOGRAMA ADD COLUMN MIME_IMAGEM VARCHAR(50) NULL AFTER TAMANHO_IMAGEM");
+        }
+    }
+
+    /**
+     * Copia as imagens gravadas em TB_ODONTOGRAMA.IMAGEM_REF para o repositório de blobs, poucas
+     * por transação (cada uma pode ter vários MB), e registra cada uma como primeira versão do
+     * paciente. IMAGEM_REF fica como cópia de segurança, lida se o arquivo faltar, até
+     * {@link #limparImagensNoBanco()}. Só roda com {@code blobs.diretorio} configurado: copiar
+     * para uma pasta qualquer deixaria as imagens só naquela estação.
+     */
+    private static void odontogramaImagensRepositorio(Connection conn) throws SQLException {
+        RepositorioBlobs blobs = RepositorioBlobsArquivos.compartilhado();
+        int lote = 20;
+        String sqlSel = """
+                SELECT ID_ODONTOGRAMA, IMAGEM_REF FROM TB_ODONTOGRAMA
+                 WHERE ID_ODONTOGRAMA > ? AND IMAGEM_REF IS NOT NULL AND HASH_IMAGEM IS NULL
+                 ORDER BY ID_ODONTOGRAMA LIMIT ?
+                """;
+        String sqlUpd = """
+                UPDATE TB_ODONTOGRAMA
+                   SET HASH_IMAGEM = ?, TAMANHO_IMAGEM = ?, MIME_IMAGEM = ?
+                 WHERE ID_ODONTOGRAMA = ?
+                """;
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement sel = conn.prepareStatement(sqlSel);
+             PreparedStatement upd = conn.prepareStatement(sqlUpd)) {
+            long ultimo = 0;
+            while (true) {
+                int lidas = 0;
+                sel.setLong(1, ultimo);
+                sel.setInt(2, lote);
+                try (ResultSet rs = sel.executeQuery()) {
+                    while (rs.next()) {
+                        ultimo = rs.getLong("ID_ODONTOGRAMA");
+                        byte[] imagem;
+                        try (InputStream in = rs.getBinaryStream("IMAGEM_REF")) {
+                            imagem = in.readAllBytes();
+                        }
+                        upd.setString(1, blobs.gravar(imagem));
+                        upd.setLong(2, imagem.length);
+                        upd.setString(3, AnamneseDao.tipoDaImagem(imagem));
+                        upd.setLong(4, ultimo);
+                        upd.addBatch();
+                        lidas++;
+                    }
+                }
+                if (lidas == 0) break;
+                upd.executeBatch();
+                conn.commit();
+            }
+        } catch (IOException e) {
+            conn.rollback();
+            throw new SQLException("Falha ao copiar imagem para o repositório de blobs: " + e.getMessage(), e);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        registrarVersoesIniciais(conn);
+    }
+
+    /**
+     * Histórico do odontograma: uma linha por versão, com o conteúdo inteiro no repositório de
+     * blobs ou como delta da última versão completa (HASH_BASE + HASH_DELTA). A imagem atual de
+     * cada paciente entra como primeira versão.
+     */
+    private static void odontogramaVersoes(Connection conn) throws SQLException {
+        executarDdl(conn, """
+                CREATE TABLE IF NOT EXISTS TB_ODONTOGRAMA_VERSAO (
+                    ID_VERSAO          BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    ID_PACIENTE        INT      NOT NULL,
+                    HASH_IMAGEM        CHAR(64) NOT NULL,
+                    TAMANHO_IMAGEM     BIGINT   NOT NULL,
+                    MIME_IMAGEM        VARCHAR(50) NULL,
+                    HASH_BASE          CHAR(64) NULL,
+                    HASH_DELTA         CHAR(64) NULL,
+                    TAMANHO_ARMAZENADO BIGINT   NOT NULL,
+                    DATA_CRIACAO       DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    INDEX IX_ODONTO_VERSAO_PACIENTE (ID_PACIENTE, ID_VERSAO),
+                    INDEX IX_ODONTO_VERSAO_HASH (HASH_IMAGEM),
+                    CONSTRAINT FK_ODONTO_VERSAO_PACIENTE FOREIGN KEY (ID_PACIENTE)
+                        REFERENCES TB_PACIENTE (ID_PACIENTE) ON DELETE CASCADE
+                )
+                """);
+        registrarVersoesIniciais(conn);
+    }
+
+    /** Imagem atual de cada paciente sem histórico como sua primeira versão. */
+    private static void registrarVersoesIniciais(Connection conn) throws SQLException {
+        executarDdl(conn, """
+                INSERT INTO TB_ODONTOGRAMA_VERSAO
+                       (ID_PACIENTE, HASH_IMAGEM, TAMANHO_IMAGEM, MIME_IMAGEM, TAMANHO_ARMAZENADO, DATA_CRIACAO)
+                SELECT o.ID_PACIENTE, o.HASH_IMAGEM, o.TAMANHO_IMAGEM, o.MIME_IMAGEM, o.TAMANHO_IMAGEM, o.DATA_CRIACAO
+                  FROM TB_ODONTOGRAMA o
+                 WHERE o.HASH_IMAGEM IS NOT NULL
+                   AND NOT EXISTS (SELECT 1 FROM TB_ODONTOGRAMA_VERSAO v WHERE v.ID_PACIENTE = o.ID_PACIENTE)
+                """);
+    }
+
+    /**
+     * Odontograma estruturado ({@link model.Odontograma}): estados de dentes e faces compactados
+     * por paciente e a máscara de dentes com pendência (o filtro por dente usa a tabela da 013).
+     */
+    private static void odontogramaDentes(Connection conn) throws SQLException {
+        executarDdl(conn, """
+                CREATE TABLE IF NOT EXISTS TB_ODONTOGRAMA_DENTE (
+                    ID_PACIENTE       INT PRIMARY KEY,
+                    ESTADOS           VARBINARY(255) NOT NULL,
+                    MASCARA_PENDENTES BIGINT   NOT NULL DEFAULT 0,
+                    DATA_ATUALIZACAO  DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    CONSTRAINT FK_ODONTO_DENTE_PACIENTE FOREIGN KEY (ID_PACIENTE)
+                        REFERENCES TB_PACIENTE (ID_PACIENTE) ON DELETE CASCADE
+                )
+                """);
+    }
+
+    /**
+     * TB_ODONTOGRAMA_PENDENTE: uma linha por (DENTE, ID_PACIENTE) com tratamento pendente, para
+     * os relatórios por dente buscarem pela chave primária. {@code (MASCARA_PENDENTES & ?) <> 0}
+     * não usa o índice da máscara, que é removido; as linhas saem da máscara já gravada.
+     */
+    private static void odontogramaPendentes(Connection conn) throws SQLException {
+        executarDdl(conn, """
+                CREATE TABLE IF NOT EXISTS TB_ODONTOGRAMA_PENDENTE (
+                    DENTE       TINYINT NOT NULL,
+                    ID_PACIENTE INT     NOT NULL,
+                    PRIMARY KEY (DENTE, ID_PACIENTE),
+                    INDEX IX_ODONTO_PENDENTE_PACIENTE (ID_PACIENTE),
+                    CONSTRAINT FK_ODONTO_PENDENTE_PACIENTE FOREIGN KEY (ID_PACIENTE)
+                        REFERENCES TB_PACIENTE (ID_PACIENTE) ON DELETE CASCADE
+                )
+                """);
+
+        int lote = Configuracao.get().getInt("db.migracoes.tamanhoLote", 5000);
+        String sqlSel = """
+                SELECT ID_PACIENTE, MASCARA_PENDENTES FROM TB_ODONTOGRAMA_DENTE
+                 WHERE ID_PACIENTE > ? AND MASCARA_PENDENTES <> 0
+                 ORDER BY ID_PACIENTE LIMIT ?
+                """;
+        String sqlIns = "INSERT IGNORE INTO TB_ODONTOGRAMA_PENDENTE (DENTE, ID_PACIENTE) VALUES (?, ?)";
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement sel = conn.prepareStatement(sqlSel);
+             PreparedStatement ins = conn.prepareStatement(sqlIns)) {
+            int ultimo = 0;
+            while (true) {
+                int lidas = 0;
+                sel.setInt(1, ultimo);
+                sel.setInt(2, lote);
+                try (ResultSet rs = sel.executeQuery()) {
+                    while (rs.next()) {
+                        ultimo = rs.getInt("ID_PACIENTE");
+                        for (int fdi : Odontograma.dentesDaMascara(rs.getLong("MASCARA_PENDENTES"))) {
+                            ins.setInt(1, fdi);
+                            ins.setInt(2, ultimo);
+                            ins.addBatch();
+                        }
+                        lidas++;
+                    }
+                }
+                if (lidas == 0) break;
+                ins.executeBatch();
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        if (existeIndice(conn, "TB_ODONTOGRAMA_DENTE", "IX_ODONTO_DENTE_PENDENTES")) {
+            executarDdl(conn, "DROP INDEX IX_ODONTO_DENTE_PENDENTES ON TB_ODONTOGRAMA_DENTE");
+        }
+    }
+
+    // ============================================================
+    // ======================== LIMPEZA ===========================
+    // ============================================================
+
+    /**
+     * Passo manual, depois que todas as estações já usam o repositório de blobs: zera
+     * TB_ODONTOGRAMA.IMAGEM_REF das linhas cujo arquivo está no repositório e confere com o hash.
+     * Linhas sem arquivo (ou com arquivo divergente) são listadas e mantidas.
+     * Para devolver o espaço ao disco, rodar OPTIMIZE TABLE TB_ODONTOGRAMA depois.
+     */
+    public static void limparImagensNoBanco() throws SQLException {
+        RepositorioBlobs blobs = RepositorioBlobsArquivos.compartilhado();
+        int lote = Configuracao.get().getInt("db.migracoes.tamanhoLote", 5000);
+        String sqlSel = """
+                SELECT ID_ODONTOGRAMA, HASH_IMAGEM FROM TB_ODONTOGRAMA
+                 WHERE ID_ODONTOGRAMA > ? AND IMAGEM_REF IS NOT NULL AND HASH_IMAGEM IS NOT NULL
+                 ORDER BY ID_ODONTOGRAMA LIMIT ?
+                """;
+        String sqlUpd = "UPDATE TB_ODONTOGRAMA SET IMAGEM_REF = NULL WHERE ID_ODONTOGRAMA = ? AND HASH_IMAGEM = ?";
+
+        int limpas = 0, mantidas = 0;
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement sel = conn.prepareStatement(sqlSel);
+             PreparedStatement upd = conn.prepareStatement(sqlUpd)) {
+            long ultimo = 0;
+            while (true) {
+                int lidas = 0;
+                sel.setLong(1, ultimo);
+                sel.setInt(2, lote);
+                try (ResultSet rs = sel.executeQuery()) {
+                    while (rs.next()) {
+                        lidas++;
+                        ultimo = rs.getLong("ID_ODONTOGRAMA");
+                        String hash = rs.getString("HASH_IMAGEM");
+                        if (!confere(blobs, hash)) {
+                            System.err.println("⚠ Odontograma " + ultimo + ": arquivo " + hash
+                                    + " ausente ou divergente no repositório; IMAGEM_REF mantido.");
+                            mantidas++;
+                            continue;
+                        }
+                        upd.setLong(1, ultimo);
+                        upd.setString(2, hash);
+                        upd.addBatch();
+                        limpas++;
+                    }
+                }
+                if (lidas == 0) break;
+                upd.executeBatch();
+            }
+        }
+        System.out.println("✔ Imagens removidas do banco: " + limpas + "; mantidas: " + mantidas);
+    }
+
+    private static boolean confere(RepositorioBlobs blobs, String hash) {
+        try (InputStream in = blobs.abrir(hash)) {
+            return RepositorioBlobsArquivos.sha256(in.readAllBytes()).equals(hash);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ============================================================
+    // ======================== INFRA =============================
+    // ============================================================
+
+    private static void criarTabelaControle(Connection conn) throws SQLException {
+        executarDdl(conn, """
+                CREATE TABLE IF NOT EXISTS TB_MIGRACAO (
+                    ID_MIGRACAO VARCHAR(100) PRIMARY KEY,
+                    APLICADA_EM DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+                )
+                """);
+    }
+
+    private static boolean aplicada(Connection conn, String id) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM TB_MIGRACAO WHERE ID_MIGRACAO = ?")) {
+            ps.setString(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void aplicar(Connection conn, String id, Passo passo) throws SQLException {
+        if (aplicada(conn, id)) return;
+
+        try {
+            passo.aplicar(conn);
+        } catch (SQLException e) {
+            throw new SQLException("Erro na migração " + id + ": " + e.getMessage(), e);
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement("INSERT IGNORE INTO TB_MIGRACAO (ID_MIGRACAO) VALUES (?)")) {
+            ps.setString(1, id);
+            ps.executeUpdate();
+        }
+        System.out.println("✔ Migração aplicada: " + id);
+    }
+
+    /**
+     * Executa um UPDATE parametrizado (faixa [de, ate) da chave primária) lote a lote,
+     * cada lote em sua própria transação curta, para não segurar locks na tabela toda.
+     */
+    static void preencherEmLotes(Connection conn, String tabela, String pk, int lote, String sqlUpdate)
+            throws SQLException {
+        long min, max;
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(" + pk + "), MAX(" + pk + ") FROM " + tabela)) {
+            if (!rs.next() || rs.getObject(1) == null) return;
+            min = rs.getLong(1);
+            max = rs.getLong(2);
+        }
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(sqlUpdate)) {
+            for (long de = min; de <= max; de += lote) {
+                ps.setLong(1, de);
+                ps.setLong(2, de + lote);
+                ps.executeUpdate();
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    static void executarDdl(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    static boolean existeColuna(Connection conn, String tabela, String coluna) throws SQLException {
+        DatabaseMetaData md = conn.getMetaData();
+        try (ResultSet rs = md.getColumns(conn.getCatalog(), null, tabela, coluna)) {
+            if (rs.next()) return true;
+        }
+        try (ResultSet rs = md.getColumns(conn.getCatalog(), null, tabela.toLowerCase(), coluna.toLowerCase())) {
+            return rs.next();
+        }
+    }
+
+    /** DELETE_RULE da FK (CASCADE, RESTRICT...), ou null se ela não existe. */
+    static String regraExclusao(Connection conn, String tabela, String fk) throws SQLException {
+        String sql = """
+                SELECT DELETE_RULE FROM INFORMATION_SCHEMA.REFERENTIAL_CONSTRAINTS
+                 WHERE CONSTRAINT_SCHEMA = DATABASE() AND UPPER(TABLE_NAME) = ? AND UPPER(CONSTRAINT_NAME) = ?
+                """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, tabela.toUpperCase());
+            ps.setString(2, fk.toUpperCase());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    static boolean existeIndice(Connection conn, String tabela, String indice) throws SQLException {
+        String sql = """
+                SELECT 1 FROM INFORMATION_SCHEMA.STATISTICS
+                 WHERE TABLE_SCHEMA = DATABASE() AND UPPER(TABLE_NAME) = ? AND UPPER(INDEX_NAME) = ?
+                 LIMIT 1
+                """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, tabela.toUpperCase());
+            ps.setString(2, indice.toUpperCase());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package dao;
+
+import model.MovimentacaoEstoque;
+import model.ResumoEstoque;
+import model.TipoMovimentacao;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Livro de movimentações de estoque (TB_MOVIMENTACAO_ESTOQUE) e fotografias de saldo (TB_SALDO_ESTOQUE).
+ *
+ * - As movimentações só são inseridas, sempre na mesma transação que altera TB_MATERIAL.QUANTIDADE
+ *   (ver {@link MaterialDAO}), em lote.
+ * - Saldo em uma data = última fotografia anterior + soma das movimentações posteriores a ela
+ *   ("cauda"), sem somar o livro inteiro.
+ * - {@link #consolidarSaldos(Timestamp)} grava novas fotografias periodicamente.
+ */
+public class MovimentacaoEstoqueDAO {
+
+    /** Insere as movimentações em lote na transação do chamador (DATA_HORA = horário do servidor). */
+    static void inserir(Connection conn, List<MovimentacaoEstoque> movimentacoes) throws SQLException {
+        if (movimentacoes.isEmpty()) return;
+        String sql = "INSERT INTO TB_MOVIMENTACAO_ESTOQUE " +
+                "(ID_MATERIAL, TIPO, QUANTIDADE, ID_TRATAMENTO, ID_AGENDAMENTO, OBSERVACAO) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (MovimentacaoEstoque m : movimentacoes) {
+                ps.setInt(1, m.getId_material());
+                ps.setString(2, m.getTipo().name());
+                ps.setInt(3, m.getQuantidade());
+                if (m.getId_tratamento() == null) ps.setNull(4, Types.INTEGER); else ps.setInt(4, m.getId_tratamento());
+                if (m.getId_agendamento() == null) ps.setNull(5, Types.INTEGER); else ps.setInt(5, m.getId_agendamento());
+                if (m.getObservacao() == null) ps.setNull(6, Types.VARCHAR); else ps.setString(6, m.getObservacao());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // ============================================================
+    // ======================== CONSULTAS =========================
+    // ============================================================
+
+    /** Movimentações em [de, ate), opcionalmente de um material, da mais recente para a mais antiga. */
+    public List<MovimentacaoEstoque> listar(Integer idMaterial, Timestamp de, Timestamp ate, int limite)
+            throws SQLException {
+        StringBuilder sb = new StringBuilder("""
+                SELECT ID_MOVIMENTACAO, ID_MATERIAL, TIPO, QUANTIDADE, DATA_HORA,
+                       ID_TRATAMENTO, ID_AGENDAMENTO, OBSERVACAO
+                  FROM TB_MOVIMENTACAO_ESTOQUE
+                 WHERE DATA_HORA >= ? AND DATA_HORA < ?
+                """);
+        if (idMaterial != null) sb.append(" AND ID_MATERIAL = ?");
+        sb.append(" ORDER BY ID_MOVIMENTACAO DESC").append(Conexao.getDialeto().limite());
+
+        List<MovimentacaoEstoque> lista = new ArrayList<>();
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sb.toString())) {
+            int i = 1;
+            ps.setTimestamp(i++, de);
+            ps.setTimestamp(i++, ate);
+            if (idMaterial != null) ps.setInt(i++, idMaterial);
+            ps.setInt(i, limite);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    MovimentacaoEstoque m = new MovimentacaoEstoque();
+                    m.setId_movimentacao(rs.getLong("ID_MOVIMENTACAO"));
+                    m.setId_material(rs.getInt("ID_MATERIAL"));
+                    m.setTipo(TipoMovimentacao.valueOf(rs.getString("TIPO")));
+                    m.setQuantidade(rs.getInt("QUANTIDADE"));
+                    m.setData_hora(rs.getTimestamp("DATA_HORA"));
+                    m.setId_tratamento((Integer) rs.getObject("ID_TRATAMENTO"));
+                    m.setId_agendamento((Integer) rs.getObject("ID_AGENDAMENTO"));
+                    m.setObservacao(rs.getString("OBSERVACAO"));
+                    lista.add(m);
+                }
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Saldo de cada material considerando as movimentações anteriores a {@code em}:
+     * última fotografia anterior a {@code em} + cauda de movimentações depois dela.
+     */
+    public Map<Integer, Integer> saldosEm(Timestamp em) throws SQLException {
+        String sql = """
+                SELECT mat.ID_MATERIAL,
+                       COALESCE(s.SALDO, 0) + COALESCE(SUM(m.QUANTIDADE), 0) AS SALDO
+                  FROM TB_MATERIAL mat
+                  LEFT JOIN TB_SALDO_ESTOQUE s
+                         ON s.ID_MATERIAL = mat.ID_MATERIAL
+                        AND s.ID_MOVIMENTACAO_ATE = (SELECT MAX(s2.ID_MOVIMENTACAO_ATE)
+                                                       FROM TB_SALDO_ESTOQUE s2
+                                                      WHERE s2.ID_MATERIAL = mat.ID_MATERIAL
+                                                        AND s2.DATA_HORA < ?)
+                  LEFT JOIN TB_MOVIMENTACAO_ESTOQUE m
+                         ON m.ID_MATERIAL = mat.ID_MATERIAL
+                        AND m.ID_MOVIMENTACAO > COALESCE(s.ID_MOVIMENTACAO_ATE, 0)
+                        AND m.DATA_HORA < ?
+                 GROUP BY mat.ID_MATERIAL, s.SALDO
+                """;
+
+        Map<Integer, Integer> saldos = new HashMap<>();
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, em);
+            ps.setTimestamp(2, em);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) saldos.put(rs.getInt("ID_MATERIAL"), rs.getInt("SALDO"));
+            }
+        }
+        return saldos;
+    }
+
+    /**
+     * Entradas, consumos e ajustes de cada material em [de, ate), com saldo no início e no fim.
+     * Ex.: quanto de resina composta foi usado em março.
+     */
+    public List<ResumoEstoque> resumir(Timestamp de, Timestamp ate) throws SQLException {
+        Map<Integer, Integer> saldoInicial = saldosEm(de);
+
+        String sql = """
+                SELECT mat.ID_MATERIAL, mat.NOME,
+                       COALESCE(SUM(CASE WHEN m.TIPO = 'ENTRADA' THEN m.QUANTIDADE END), 0) AS ENTRADAS,
+                       COALESCE(SUM(CASE WHEN m.TIPO = 'CONSUMO' THEN -m.QUANTIDADE END), 0) AS CONSUMOS,
+                       COALESCE(SUM(CASE WHEN m.TIPO = 'AJUSTE'  THEN m.QUANTIDADE END), 0) AS AJUSTES
+                  FROM TB_MATERIAL mat
+                  LEFT JOIN TB_MOVIMENTACAO_ESTOQUE m
+                         ON m.ID_MATERIAL = mat.ID_MATERIAL
+                        AND m.DATA_HORA >= ? AND m.DATA_HORA < ?
+                 GROUP BY mat.ID_MATERIAL, mat.NOME
+                 ORDER BY mat.NOME
+                """;
+
+        Map<Integer, ResumoEstoque> porMaterial = new LinkedHashMap<>();
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, de);
+            ps.setTimestamp(2, ate);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("ID_MATERIAL");
+                    int inicial = saldoInicial.getOrDefault(id, 0);
+                    int entradas = rs.getInt("ENTRADAS");
+                    int consumos = rs.getInt("CONSUMOS");
+                    int ajustes = rs.getInt("AJUSTES");
+                    porMaterial.put(id, new ResumoEstoque(id, rs.getString("NOME"), inicial,
+                            entradas, consumos, ajustes, inicial + entradas - consumos + ajustes));
+                }
+            }
+        }
+        return new ArrayList<>(porMaterial.values());
+    }
+
+    // ============================================================
+    // ======================= FOTOGRAFIAS ========================
+    // ============================================================
+
+    /**
+     * Grava, para cada material com movimentações após a última fotografia, uma nova fotografia
+     * com o saldo até a movimentação mais recente anterior a {@code limite}. Um único INSERT ... SELECT.
+     *
+     * O limite deve ficar alguns minutos no passado: uma transação ainda aberta pode ter recebido
+     * um ID menor que outro já confirmado, e a fotografia não pode passar por cima dela.
+     * INSERT IGNORE torna segura a execução simultânea por duas estações.
+     *
+     * @return quantidade de fotografias gravadas
+     */
+    public int consolidarSaldos(Timestamp limite) throws SQLException {
+        String sql = """
+                INSERT IGNORE INTO TB_SALDO_ESTOQUE (ID_MATERIAL, ID_MOVIMENTACAO_ATE, DATA_HORA, SALDO)
+                SELECT t.ID_MATERIAL, t.ATE, t.DATA_HORA, COALESCE(s.SALDO, 0) + t.SOMA
+                  FROM (SELECT m.ID_MATERIAL, u.ULTIMO,
+                               MAX(m.ID_MOVIMENTACAO) AS ATE,
+                               MAX(m.DATA_HORA)       AS DATA_HORA,
+                               SUM(m.QUANTIDADE)      AS SOMA
+                          FROM TB_MOVIMENTACAO_ESTOQUE m
+                          LEFT JOIN (SELECT ID_MATERIAL, MAX(ID_MOVIMENTACAO_ATE) AS ULTIMO
+                                       FROM TB_SALDO_ESTOQUE
+                                      GROUP BY ID_MATERIAL) u ON u.ID_MATERIAL = m.ID_MATERIAL
+                         WHERE m.ID_MOVIMENTACAO > COALESCE(u.ULTIMO, 0)
+                           AND m.DATA_HORA < ?
+                         GROUP BY m.ID_MATERIAL, u.ULTIMO) t
+                  LEFT JOIN TB_SALDO_ESTOQUE s
+                         ON s.ID_MATERIAL = t.ID_MATERIAL AND s.ID_MOVIMENTACAO_ATE = t.ULTIMO
+                """;
+
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, limite);
+            return ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package dao;
+
+import model.EstadoDente;
+import model.EstadoFace;
+import model.FaceDente;
+import model.Odontograma;
+import model.PendenciaOdontograma;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Odontograma estruturado (TB_ODONTOGRAMA_DENTE): uma linha por paciente com os estados
+ * compactados ({@link Odontograma}, {@value Odontograma#TAMANHO} bytes) e a máscara de dentes
+ * com tratamento pendente. Os dentes pendentes ficam também em TB_ODONTOGRAMA_PENDENTE, uma
+ * linha por (DENTE, ID_PACIENTE): é por ela, pela chave primária, que os relatórios filtram por
+ * dente (uma expressão sobre a máscara não usaria índice).
+ *
+ * - A gravação acompanha a da anamnese ({@link AnamneseDao#salvarCompleto}), na mesma transação,
+ *   e reescreve as linhas de pendência do paciente.
+ * - Os relatórios varrem em stream, uma linha curta por paciente, só os pacientes encontrados
+ *   pela tabela de pendências, sem trazer nem decodificar os estados de quem não interessa.
+ */
+public class OdontogramaDao {
+
+    /** Recebe cada odontograma da varredura (não deve usar o banco: a conexão está em stream). */
+    @FunctionalInterface
+    public interface Visitante {
+        void visitar(Odontograma odontograma);
+    }
+
+    /** Grava (insere ou substitui) o odontograma e suas pendências na transação do chamador. */
+    static void gravar(Connection conn, Odontograma o) throws SQLException {
+        gravarEstados(conn, o);
+        try (PreparedStatement del = conn.prepareStatement("DELETE FROM TB_ODONTOGRAMA_PENDENTE WHERE ID_PACIENTE = ?")) {
+            del.setLong(1, o.id_paciente);
+            del.executeUpdate();
+        }
+        int[] pendentes = o.dentesPendentes();
+        if (pendentes.length == 0) return;
+        try (PreparedStatement ins = conn.prepareStatement(
+                "INSERT INTO TB_ODONTOGRAMA_PENDENTE (DENTE, ID_PACIENTE) VALUES (?, ?)")) {
+            for (int fdi : pendentes) {
+                ins.setInt(1, fdi);
+                ins.setLong(2, o.id_paciente);
+                ins.addBatch();
+            }
+            ins.executeBatch();
+        }
+    }
+
+    private static void gravarEstados(Connection conn, Odontograma o) throws SQLException {
+        Timestamp agora = new Timestamp(System.currentTimeMillis());
+        String sql = Conexao.getDialeto().upsert("TB_ODONTOGRAMA_DENTE",
+                List.of("ID_PACIENTE"), List.of("ESTADOS", "MASCARA_PENDENTES", "DATA_ATUALIZACAO"));
+
+        if (sql == null) {
+            try (PreparedStatement upd = conn.prepareStatement(
+                    "UPDATE TB_ODONTOGRAMA_DENTE SET ESTADOS = ?, MASCARA_PENDENTES = ?, DATA_ATUALIZACAO = ? WHERE ID_PACIENTE = ?")) {
+                upd.setBytes(1, o.estados);
+                upd.setLong(2, o.mascaraPendentes());
+                upd.setTimestamp(3, agora);
+                upd.setLong(4, o.id_paciente);
+                if (upd.executeUpdate() > 0) return;
+            }
+            sql = "INSERT INTO TB_ODONTOGRAMA_DENTE (ID_PACIENTE, ESTADOS, MASCARA_PENDENTES, DATA_ATUALIZACAO) VALUES (?, ?, ?, ?)";
+        }
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, o.id_paciente);
+            ps.setBytes(2, o.estados);
+            ps.setLong(3, o.mascaraPendentes());
+            ps.setTimestamp(4, agora);
+            ps.executeUpdate();
+        }
+    }
+
+    public void salvar(Odontograma o) throws SQLException {
+        try (Connection conn = Conexao.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                gravar(conn, o);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /** Odontograma do paciente, ou null se nunca foi preenchido. */
+    public Odontograma buscar(long idPaciente) throws SQLException {
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT ESTADOS FROM TB_ODONTOGRAMA_DENTE WHERE ID_PACIENTE = ?")) {
+            ps.setLong(1, idPaciente);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Odontograma(idPaciente, rs.getBytes("ESTADOS")) : null;
+            }
+        }
+    }
+
+    // ============================================================
+    // ======================== RELATÓRIOS ========================
+    // ============================================================
+
+    /**
+     * Entrega a {@code visitante} o odontograma de cada paciente que tem pendência em algum
+     * dos dentes {@code fdi}; nenhum = todos os pacientes.
+     */
+    public void varrer(int[] fdi, Visitante visitante) throws SQLException {
+        String sql = "SELECT ID_PACIENTE, ESTADOS FROM TB_ODONTOGRAMA_DENTE"
+                + (fdi.length > 0
+                        ? " WHERE ID_PACIENTE IN (SELECT ID_PACIENTE FROM TB_ODONTOGRAMA_PENDENTE WHERE DENTE IN ("
+                                + String.join(", ", Collections.nCopies(fdi.length, "?")) + "))"
+                        : "");
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            if (Conexao.getDialeto() == Dialeto.MYSQL) ps.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < fdi.length; i++) ps.setInt(i + 1, fdi[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    visitante.visitar(new Odontograma(rs.getLong("ID_PACIENTE"), rs.getBytes("ESTADOS")));
+                }
+            }
+        }
+    }
+
+    /** Pacientes com tratamento pendente no dente {@code fdi}, por nome, com o que está pendente. */
+    public List<PendenciaOdontograma> pendenciasNoDente(int fdi) throws SQLException {
+        String sql = """
+                SELECT d.ID_PACIENTE, p.NOME, d.ESTADOS
+                  FROM TB_ODONTOGRAMA_PENDENTE x
+                  JOIN TB_ODONTOGRAMA_DENTE d ON d.ID_PACIENTE = x.ID_PACIENTE
+                  JOIN TB_PESSOA p ON p.ID_PESSOA = d.ID_PACIENTE
+                 WHERE x.DENTE = ?
+                 ORDER BY p.NOME
+                """;
+        List<PendenciaOdontograma> lista = new ArrayList<>();
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, fdi);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Odontograma o = new Odontograma(rs.getLong("ID_PACIENTE"), rs.getBytes("ESTADOS"));
+                    lista.add(new PendenciaOdontograma(o.id_paciente, rs.getString("NOME"), fdi, descreverPendencias(o, fdi)));
+                }
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Quantidade de pacientes com pendência em cada dente (FDI -> pacientes), só dos dentes com
+     * alguma, na ordem de {@link Odontograma#dentes()}. Agrupa a tabela de pendências pela
+     * chave primária, sem ler os estados.
+     */
+    public Map<Integer, Integer> contarPendentesPorDente() throws SQLException {
+        Map<Integer, Integer> contagem = new HashMap<>();
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT DENTE, COUNT(*) FROM TB_ODONTOGRAMA_PENDENTE GROUP BY DENTE");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) contagem.put(rs.getInt(1), rs.getInt(2));
+        }
+        Map<Integer, Integer> porDente = new LinkedHashMap<>();
+        for (int d : Odontograma.dentes()) {
+            Integer n = contagem.get(d);
+            if (n != null) porDente.put(d, n);
+        }
+        return porDente;
+    }
+
+    private static String descreverPendencias(Odontograma o, int fdi) {
+        List<String> partes = new ArrayList<>();
+        EstadoDente estado = o.getEstado(fdi);
+        if (estado.isPendente()) partes.add(estado.getDescricao());
+        for (FaceDente f : FaceDente.values()) {
+            EstadoFace ef = o.getFace(fdi, f);
+            if (ef.isPendente()) partes.add(f.getSigla() + ": " + ef.getDescricao());
+        }
+        return String.join("; ", partes);
+    }
+}
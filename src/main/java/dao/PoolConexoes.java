@@ -0,0 +1,396 @@
+package dao;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Pool simples de conexões JDBC.
+ * - Reaproveita conexões físicas (evita handshake TCP/TLS/autenticação a cada consulta).
+ * - Mantém um mínimo de conexões ociosas e limita o total de conexões abertas.
+ * - Valida a conexão no empréstimo e descarta as que passaram do tempo máximo de vida.
+ * - Detecta vazamentos (conexão emprestada há mais tempo que o limite configurado).
+ * - Expõe contadores de ocupação e tempo de espera via {@link #getEstatisticas()}.
+ *
+ * As conexões entregues são proxies: {@code close()} devolve a conexão ao pool
+ * (com rollback de transação pendente e autoCommit restaurado) em vez de fechá-la.
+ */
+public class PoolConexoes implements DataSource, AutoCloseable {
+
+    /** Parâmetros de dimensionamento e tempos do pool. */
+    public record Configuracao(
+            int minimoOciosas,
+            int maximoConexoes,
+            long tempoMaximoVidaMs,
+            long tempoMaximoOciosaMs,
+            long tempoEsperaMs,
+            long limiteVazamentoMs,
+            int tempoValidacaoSeg
+    ) {
+        public Configuracao {
+            if (maximoConexoes <= 0) throw new IllegalArgumentException("maximoConexoes deve ser > 0.");
+            if (minimoOciosas < 0 || minimoOciosas > maximoConexoes)
+                throw new IllegalArgumentException("minimoOciosas deve estar entre 0 e maximoConexoes.");
+        }
+    }
+
+    /** Fotografia dos contadores do pool (para diagnóstico/monitoramento). */
+    public record Estatisticas(
+            int ativas,
+            int ociosas,
+            int total,
+            int aguardando,
+            long emprestimos,
+            long criadas,
+            long descartadas,
+            long timeouts,
+            long vazamentos,
+            double esperaMediaMs,
+            double esperaMaximaMs
+    ) {}
+
+    private final String url;
+    private final Properties propriedades;
+    private final Configuracao cfg;
+
+    private final LinkedBlockingDeque<ConexaoFisica> ociosas = new LinkedBlockingDeque<>();
+    private final Set<Emprestimo> emUso = ConcurrentHashMap.newKeySet();
+    private final Semaphore permissoes;
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService manutencao;
+    private volatile boolean fechado;
+
+    // Contadores
+    private final AtomicLong emprestimos = new AtomicLong();
+    private final AtomicLong criadas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong vazamentos = new AtomicLong();
+    private final AtomicLong esperaTotalNanos = new AtomicLong();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+
+    private PrintWriter logWriter;
+
+    public PoolConexoes(String url, Properties propriedades, Configuracao cfg) {
+        this.url = url;
+        this.propriedades = propriedades;
+        this.cfg = cfg;
+        this.permissoes = new Semaphore(cfg.maximoConexoes(), true);
+
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "saco-pool-manutencao");
+            t.setDaemon(true);
+            return t;
+        });
+        this.manutencao.scheduleWithFixedDelay(this::manter, 5, 5, TimeUnit.SECONDS);
+    }
+
+    // ============================================================
+    // ======================== EMPRÉSTIMO ========================
+    // ============================================================
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (fechado) throw new SQLException("Pool de conexões encerrado.");
+
+        long inicio = System.nanoTime();
+        try {
+            if (!permissoes.tryAcquire(cfg.tempoEsperaMs(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException(
+                        "Tempo esgotado (" + cfg.tempoEsperaMs() + " ms) aguardando conexão do pool. " + getEstatisticas());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando conexão do pool.", e);
+        }
+
+        try {
+            ConexaoFisica fisica = obterValida();
+            registrarEspera(System.nanoTime() - inicio);
+            emprestimos.incrementAndGet();
+            return embrulhar(fisica);
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool configurado com credenciais fixas.");
+    }
+
+    /** Pega uma conexão ociosa válida (LIFO, mantém as "quentes") ou abre uma nova. */
+    private ConexaoFisica obterValida() throws SQLException {
+        ConexaoFisica c;
+        while ((c = ociosas.pollFirst()) != null) {
+            if (!c.expirada(cfg.tempoMaximoVidaMs()) && c.valida(cfg.tempoValidacaoSeg())) {
+                return c;
+            }
+            descartar(c);
+        }
+        return criar();
+    }
+
+    private ConexaoFisica criar() throws SQLException {
+        total.incrementAndGet();
+        try {
+            Connection real = DriverManager.getConnection(url, propriedades);
+            criadas.incrementAndGet();
+            return new ConexaoFisica(real);
+        } catch (SQLException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private Connection embrulhar(ConexaoFisica fisica) {
+        Emprestimo e = new Emprestimo(fisica, cfg.limiteVazamentoMs() > 0 ? new Throwable("Conexão emprestada aqui") : null);
+        emUso.add(e);
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, e);
+    }
+
+    // ============================================================
+    // ========================= DEVOLUÇÃO ========================
+    // ============================================================
+
+    private void devolver(Emprestimo e) {
+        emUso.remove(e);
+        ConexaoFisica c = e.fisica;
+        try {
+            boolean reaproveitar = !fechado && !c.expirada(cfg.tempoMaximoVidaMs()) && c.restaurar();
+            if (reaproveitar) {
+                c.ultimoUso = System.currentTimeMillis();
+                ociosas.offerFirst(c);
+            } else {
+                descartar(c);
+            }
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    private void descartar(ConexaoFisica c) {
+        total.decrementAndGet();
+        descartadas.incrementAndGet();
+        try { c.real.close(); } catch (SQLException ignore) {}
+    }
+
+    // ============================================================
+    // ======================== MANUTENÇÃO ========================
+    // ============================================================
+
+    /** Executada periodicamente: vazamentos, expiração, ociosidade e mínimo de ociosas. */
+    private void manter() {
+        try {
+            long agora = System.currentTimeMillis();
+
+            if (cfg.limiteVazamentoMs() > 0) {
+                for (Emprestimo e : emUso) {
+                    if (!e.reportado && agora - e.emprestadaEm > cfg.limiteVazamentoMs()) {
+                        e.reportado = true;
+                        vazamentos.incrementAndGet();
+                        System.err.println("⚠ Possível vazamento de conexão: emprestada há "
+                                + (agora - e.emprestadaEm) + " ms sem devolução.");
+                        e.origem.printStackTrace();
+                    }
+                }
+            }
+
+            // Remove expiradas e ociosas em excesso (acima do mínimo)
+            for (ConexaoFisica c : ociosas) {
+                boolean excesso = ociosas.size() > cfg.minimoOciosas()
+                        && cfg.tempoMaximoOciosaMs() > 0
+                        && agora - c.ultimoUso > cfg.tempoMaximoOciosaMs();
+                if ((c.expirada(cfg.tempoMaximoVidaMs()) || excesso) && ociosas.remove(c)) {
+                    descartar(c);
+                }
+            }
+
+            // Repõe o mínimo de ociosas, respeitando o máximo total. Cada criação ocupa uma
+            // permissão, como um empréstimo: sem ela, um empréstimo concorrente que não achou
+            // ociosa abriria outra conexão ao mesmo tempo e o total passaria do máximo.
+            // Sem permissão livre o pool está todo em uso e não há o que repor.
+            while (!fechado && ociosas.size() < cfg.minimoOciosas() && total.get() < cfg.maximoConexoes()
+                    && !permissoes.hasQueuedThreads() && permissoes.tryAcquire()) {
+                try {
+                    if (total.get() >= cfg.maximoConexoes()) break;
+                    ociosas.offerLast(criar());
+                } finally {
+                    permissoes.release();
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠ Pool: falha ao abrir conexão ociosa: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void registrarEspera(long nanos) {
+        esperaTotalNanos.addAndGet(nanos);
+        esperaMaximaNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Estatisticas getEstatisticas() {
+        long n = emprestimos.get();
+        return new Estatisticas(
+                emUso.size(),
+                ociosas.size(),
+                total.get(),
+                permissoes.getQueueLength(),
+                n,
+                criadas.get(),
+                descartadas.get(),
+                timeouts.get(),
+                vazamentos.get(),
+                n == 0 ? 0.0 : esperaTotalNanos.get() / (double) n / 1_000_000.0,
+                esperaMaximaNanos.get() / 1_000_000.0
+        );
+    }
+
+    public Configuracao getConfiguracao() {
+        return cfg;
+    }
+
+    /** Fecha as conexões ociosas e impede novos empréstimos. As emprestadas são fechadas ao voltar. */
+    @Override
+    public void close() {
+        fechado = true;
+        manutencao.shutdownNow();
+        ConexaoFisica c;
+        while ((c = ociosas.pollFirst()) != null) descartar(c);
+    }
+
+    // ============================================================
+    // ===================== CLASSES INTERNAS =====================
+    // ============================================================
+
+    /** Conexão física real, com metadados de idade/uso. */
+    private static final class ConexaoFisica {
+        final Connection real;
+        final long criadaEm = System.currentTimeMillis();
+        volatile long ultimoUso = criadaEm;
+
+        ConexaoFisica(Connection real) { this.real = real; }
+
+        boolean expirada(long tempoMaximoVidaMs) {
+            return tempoMaximoVidaMs > 0 && System.currentTimeMillis() - criadaEm > tempoMaximoVidaMs;
+        }
+
+        boolean valida(int timeoutSeg) {
+            try {
+                return !real.isClosed() && real.isValid(timeoutSeg);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /** Desfaz transação pendente e volta ao estado padrão. Retorna false se a conexão ficou inutilizável. */
+        boolean restaurar() {
+            try {
+                if (real.isClosed()) return false;
+                if (!real.getAutoCommit()) {
+                    real.rollback();
+                    real.setAutoCommit(true);
+                }
+                if (real.isReadOnly()) real.setReadOnly(false);
+                real.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    /** Proxy entregue ao DAO: intercepta close() para devolver ao pool. */
+    private final class Emprestimo implements InvocationHandler {
+        final ConexaoFisica fisica;
+        final Throwable origem;
+        final long emprestadaEm = System.currentTimeMillis();
+        /** Só o close() que a vira de false para true devolve a conexão, mesmo com closes concorrentes. */
+        final AtomicBoolean devolvida = new AtomicBoolean();
+        volatile boolean reportado;
+
+        Emprestimo(ConexaoFisica fisica, Throwable origem) {
+            this.fisica = fisica;
+            this.origem = origem;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (devolvida.compareAndSet(false, true)) devolver(this);
+                    return null;
+                }
+                case "isClosed" -> {
+                    return devolvida.get() || fisica.real.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PoolConexoes$Conexao[" + fisica.real + "]";
+                }
+                default -> {
+                    if (devolvida.get()) throw new SQLException("Conexão já devolvida ao pool.");
+                    try {
+                        return method.invoke(fisica.real, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                }
+            }
+        }
+    }
+
+    // ============================================================
+    // ==================== DataSource (padrão) ===================
+    // ============================================================
+
+    @Override public PrintWriter getLogWriter() { return logWriter; }
+    @Override public void setLogWriter(PrintWriter out) { this.logWriter = out; }
+    @Override public void setLoginTimeout(int seconds) { DriverManager.setLoginTimeout(seconds); }
+    @Override public int getLoginTimeout() { return DriverManager.getLoginTimeout(); }
+    @Override public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return (T) this;
+        throw new SQLException("Não é wrapper de " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,39 @@
+package dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * Armazenamento de conteúdo binário (imagens) fora do banco, endereçado pelo conteúdo:
+ * a chave é o SHA-256 dos bytes, então conteúdo igual é gravado uma vez só e um blob
+ * gravado nunca muda. O banco guarda só a chave (ex.: TB_ODONTOGRAMA.HASH_IMAGEM).
+ *
+ * Implementação padrão: {@link RepositorioBlobsArquivos}.
+ */
+public interface RepositorioBlobs {
+
+    /** Grava {@code conteudo} se ainda não existir e devolve a chave (SHA-256 em hexadecimal). */
+    String gravar(byte[] conteudo) throws IOException;
+
+    /** Abre o conteúdo da chave para leitura; {@link java.nio.file.NoSuchFileException} se não existir. */
+    InputStream abrir(String hash) throws IOException;
+
+    boolean existe(String hash);
+
+    /**
+     * Repositório de quem não configurou {@code blobs.diretorio}: nada é encontrado (a leitura
+     * cai na cópia antiga do banco, se houver) e gravar falha com a explicação.
+     */
+    RepositorioBlobs INDISPONIVEL = new RepositorioBlobs() {
+        @Override public String gravar(byte[] conteudo) throws IOException {
+            throw new IOException("imagens do odontograma desativadas: configure blobs.diretorio em saco.properties");
+        }
+        @Override public InputStream abrir(String hash) throws IOException {
+            throw new NoSuchFileException(hash, null, "blobs.diretorio não configurado");
+        }
+        @Override public boolean existe(String hash) {
+            return false;
+        }
+    };
+}
@@ -0,0 +1,122 @@
+package dao;
+
+import config.Configuracao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * {@link RepositorioBlobs} em diretório local ou compartilhado na rede ({@code blobs.diretorio}).
+ *
+ * - Caminho: {@code <raiz>/ab/cd/abcd...} (dois níveis pelos primeiros caracteres do hash),
+ *   para não acumular milhares de arquivos num único diretório.
+ * - Escrita atômica: grava em {@code <raiz>/tmp} e renomeia para o destino; quem lê nunca vê
+ *   arquivo pela metade. Duas estações gravando o mesmo conteúdo produzem o mesmo arquivo,
+ *   então perder a corrida do rename não é erro.
+ * - Conteúdo já existente não é regravado (deduplicação).
+ */
+public class RepositorioBlobsArquivos implements RepositorioBlobs {
+
+    private static volatile RepositorioBlobsArquivos compartilhado;
+
+    private final Path raiz;
+    private final Path temporarios;
+
+    public RepositorioBlobsArquivos(Path raiz) {
+        this.raiz = raiz;
+        this.temporarios = raiz.resolve("tmp");
+    }
+
+    /**
+     * Diretório de {@code blobs.diretorio} ({@code ~} no início = pasta do usuário), ou null se
+     * não configurado. O arquivo base não define padrão: as imagens gravadas por uma estação
+     * precisam ser vistas pelas outras, então a pasta tem de ser escolhida (compartilhada na
+     * rede quando houver mais de uma estação). Sem ela, as imagens ficam desativadas
+     * ({@link RepositorioBlobs#INDISPONIVEL}) e o resto da aplicação funciona normalmente.
+     */
+    public static Path diretorioConfigurado() {
+        String dir = Configuracao.get().get("blobs.diretorio", "").trim();
+        if (dir.isEmpty()) return null;
+        if (dir.equals("~") || dir.startsWith("~/")) dir = System.getProperty("user.home") + dir.substring(1);
+        return Path.of(dir);
+    }
+
+    /** Instância sobre {@code blobs.diretorio}, criada no primeiro uso. */
+    public static RepositorioBlobsArquivos compartilhado() {
+        RepositorioBlobsArquivos r = compartilhado;
+        if (r == null) {
+            synchronized (RepositorioBlobsArquivos.class) {
+                if (compartilhado == null) {
+                    Path raiz = diretorioConfigurado();
+                    if (raiz == null) {
+                        throw new IllegalStateException("blobs.diretorio não configurado: informe a pasta "
+                                + "(compartilhada entre as estações) onde ficam as imagens do odontograma.");
+                    }
+                    compartilhado = new RepositorioBlobsArquivos(raiz);
+                }
+                r = compartilhado;
+            }
+        }
+        return r;
+    }
+
+    @Override
+    public String gravar(byte[] conteudo) throws IOException {
+        String hash = sha256(conteudo);
+        Path destino = caminho(hash);
+        if (Files.exists(destino)) return hash;
+
+        Files.createDirectories(destino.getParent());
+        Files.createDirectories(temporarios);
+        Path tmp = Files.createTempFile(temporarios, hash.substring(0, 8), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp, StandardOpenOption.WRITE)) {
+                out.write(conteudo);
+            }
+            try {
+                Files.move(tmp, destino, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, destino);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // outra estação gravou o mesmo conteúdo antes: mesmo hash, mesmo arquivo
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return hash;
+    }
+
+    @Override
+    public InputStream abrir(String hash) throws IOException {
+        return Files.newInputStream(caminho(hash));
+    }
+
+    @Override
+    public boolean existe(String hash) {
+        return Files.exists(caminho(hash));
+    }
+
+    private Path caminho(String hash) {
+        if (hash == null || !hash.matches("[0-9a-f]{64}"))
+            throw new IllegalArgumentException("Hash inválido: " + hash);
+        return raiz.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    public static String sha256(byte[] conteudo) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(conteudo));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e); // obrigatório em toda JVM
+        }
+    }
+}
@@ -6,17 +6,23 @@ import model.Tratamento;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TratamentoDao {
 
+    /** Valor padrão de TB_TRATAMENTO.DURACAO_MINUTOS (a duração fixa usada antes da coluna existir). */
+    public static final int DURACAO_PADRAO_MINUTOS = 60;
+
     // ============================================================
     // ========================== LISTAR ==========================
     // ============================================================
 
     public List<Tratamento> listar() throws SQLException {
         List<Tratamento> lista = new ArrayList<>();
-        String sql = "SELECT ID_TRATAMENTO, NOME, DESCRICAO FROM TB_TRATAMENTO ORDER BY NOME DESC";
+        String sql = "SELECT ID_TRATAMENTO, NOME, DESCRICAO, DURACAO_MINUTOS FROM TB_TRATAMENTO ORDER BY NOME DESC";
 
         try (Connection conn = Conexao.getConnection();
              Statement st = conn.createStatement();
@@ -27,6 +33,7 @@ public class TratamentoDao {
                 t.setId_tratamento(rs.getInt("ID_TRATAMENTO"));
                 t.setNome(rs.getString("NOME"));
                 t.setDescricao(rs.getString("DESCRICAO"));
+                t.setDuracao_minutos(rs.getInt("DURACAO_MINUTOS"));
                 lista.add(t);
             }
         }
@@ -37,15 +44,21 @@ public class TratamentoDao {
     // ========================== CRIAR ===========================
     // ============================================================
 
-    /** Insere o tratamento e retorna o ID gerado. */
+    /** Insere o tratamento (duração padrão da coluna) e retorna o ID gerado. */
     public long salvarTratamento(String nome, String descricao) throws SQLException {
-        String sql = "INSERT INTO TB_TRATAMENTO (NOME, DESCRICAO) VALUES (?, ?)";
+        return salvarTratamento(nome, descricao, DURACAO_PADRAO_MINUTOS);
+    }
+
+    /** Insere o tratamento com a duração (minutos) e retorna o ID gerado. */
+    public long salvarTratamento(String nome, String descricao, int duracaoMinutos) throws SQLException {
+        String sql = "INSERT INTO TB_TRATAMENTO (NOME, DESCRICAO, DURACAO_MINUTOS) VALUES (?, ?, ?)";
 
         try (Connection conn = Conexao.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, nome);
             ps.setString(2, descricao);
+            ps.setInt(3, duracaoMinutos);
             ps.executeUpdate();
 
             try (ResultSet keys = ps.getGeneratedKeys()) {
@@ -116,6 +129,55 @@ public class TratamentoDao {
         }
     }
 
+    public void atualizarTratamento(int idTratamento, String nome, String descricao, int duracaoMinutos) throws SQLException {
+        String sql = "UPDATE TB_TRATAMENTO SET NOME = ?, DESCRICAO = ?, DURACAO_MINUTOS = ? WHERE ID_TRATAMENTO = ?";
+
+        try (Connection conn = Conexao.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, nome);
+            ps.setString(2, descricao);
+            ps.setInt(3, duracaoMinutos);
+            ps.setInt(4, idTratamento);
+
+            if (ps.executeUpdate() == 0) {
+                throw new SQLException("Nenhum tratamento atualizado (ID inexistente?).");
+            }
+        }
+    }
+
+    /** Mapa ID_TRATAMENTO -> DURACAO_MINUTOS de todo o catálogo (uma consulta). */
+    public Map<Integer, Integer> listarDuracoes() throws SQLException {
+        String sql = "SELECT ID_TRATAMENTO, DURACAO_MINUTOS FROM TB_TRATAMENTO";
+        Map<Integer, Integer> mapa = new HashMap<>();
+
+        try (Connection conn = Conexao.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                mapa.put(rs.getInt("ID_TRATAMENTO"), rs.getInt("DURACAO_MINUTOS"));
+            }
+        }
+        return mapa;
+    }
+
+    /** Ficha de materiais ativos de todo o catálogo: ID_TRATAMENTO -> (ID_MATERIAL -> quantidade), numa consulta. */
+    public Map<Integer, Map<Integer, Integer>> listarConsumos() throws SQLException {
+        String sql = "SELECT c.ID_TRATAMENTO, c.ID_MATERIAL, c.QUANTIDADE FROM TB_CONSUMO_MATERIAL c " +
+                "JOIN TB_MATERIAL m ON m.ID_MATERIAL = c.ID_MATERIAL WHERE m.ATIVO = 1";
+        Map<Integer, Map<Integer, Integer>> mapa = new HashMap<>();
+
+        try (Connection conn = Conexao.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                mapa.computeIfAbsent(rs.getInt("ID_TRATAMENTO"), k -> new HashMap<>())
+                        .put(rs.getInt("ID_MATERIAL"), rs.getInt("QUANTIDADE"));
+            }
+        }
+        return mapa;
+    }
+
     // ============================================================
     // ===================== EXCLUIR TRATAMENTO ===================
     // ============================================================
@@ -154,39 +216,90 @@ public class TratamentoDao {
     // ============================================================
 
     /**
-     * Substitui os consumos do tratamento: apaga todos e insere a nova lista (com quantidades).
-     * Se a lista for vazia, fica sem nenhum consumo.
-     * Se usar UNIQUE(ID_TRATAMENTO, ID_MATERIAL), essa abordagem evita conflitos.
+     * Substitui os consumos do tratamento pela nova lista (com quantidades), gravando só a diferença:
+     * - lê os consumos atuais travando as linhas do tratamento;
+     * - compara por material e emite no máximo três lotes: DELETE dos que saíram,
+     *   UPDATE dos que mudaram de quantidade e INSERT dos novos;
+     * - material repetido na lista tem as quantidades somadas.
+     * Se a lista for vazia, fica sem nenhum consumo. Trocar uma quantidade vira um único UPDATE,
+     * em vez de apagar e reinserir a ficha inteira.
+     *
+     * @return quantidade de linhas inseridas, alteradas ou removidas (0 = nada mudou)
      */
-    public void atualizarConsumoMaterial(int idTratamento, List<ConsumoMaterial> novosConsumos) throws SQLException {
-        String sqlDel = "DELETE FROM TB_CONSUMO_MATERIAL WHERE ID_TRATAMENTO = ?";
+    public int atualizarConsumoMaterial(int idTratamento, List<ConsumoMaterial> novosConsumos) throws SQLException {
+        String sqlSel = "SELECT ID_MATERIAL, QUANTIDADE FROM TB_CONSUMO_MATERIAL WHERE ID_TRATAMENTO = ? FOR UPDATE";
+        String sqlDel = "DELETE FROM TB_CONSUMO_MATERIAL WHERE ID_TRATAMENTO = ? AND ID_MATERIAL = ?";
+        String sqlUpd = "UPDATE TB_CONSUMO_MATERIAL SET QUANTIDADE = ? WHERE ID_TRATAMENTO = ? AND ID_MATERIAL = ?";
         String sqlIns = "INSERT INTO TB_CONSUMO_MATERIAL (ID_TRATAMENTO, ID_MATERIAL, QUANTIDADE) VALUES (?, ?, ?)";
 
-        try (Connection conn = Conexao.getConnection();
-             PreparedStatement psDel = conn.prepareStatement(sqlDel);
-             PreparedStatement psIns = conn.prepareStatement(sqlIns)) {
+        Map<Integer, Integer> desejados = new LinkedHashMap<>();
+        if (novosConsumos != null) {
+            for (ConsumoMaterial c : novosConsumos) desejados.merge(c.getIdMaterial(), c.getQuantidade(), Integer::sum);
+        }
 
+        try (Connection conn = Conexao.getConnection()) {
             conn.setAutoCommit(false);
             try {
-                // remove todos os vínculos atuais
-                psDel.setInt(1, idTratamento);
-                psDel.executeUpdate();
-
-                // recria conforme a nova lista (se houver)
-                if (novosConsumos != null && !novosConsumos.isEmpty()) {
-                    for (ConsumoMaterial c : novosConsumos) {
-                        psIns.setInt(1, idTratamento);
-                        psIns.setInt(2, c.getIdMaterial());
-                        psIns.setInt(3, c.getQuantidade());
-                        psIns.addBatch();
+                Map<Integer, Integer> atuais = new HashMap<>();
+                try (PreparedStatement ps = conn.prepareStatement(sqlSel)) {
+                    ps.setInt(1, idTratamento);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) atuais.put(rs.getInt("ID_MATERIAL"), rs.getInt("QUANTIDADE"));
+                    }
+                }
+
+                List<Integer> remover = new ArrayList<>();
+                for (Integer idMat : atuais.keySet()) {
+                    if (!desejados.containsKey(idMat)) remover.add(idMat);
+                }
+                Map<Integer, Integer> alterar = new LinkedHashMap<>();
+                Map<Integer, Integer> inserir = new LinkedHashMap<>();
+                desejados.forEach((idMat, qtd) -> {
+                    Integer atual = atuais.get(idMat);
+                    if (atual == null) inserir.put(idMat, qtd);
+                    else if (!atual.equals(qtd)) alterar.put(idMat, qtd);
+                });
+
+                if (!remover.isEmpty()) {
+                    try (PreparedStatement ps = conn.prepareStatement(sqlDel)) {
+                        for (Integer idMat : remover) {
+                            ps.setInt(1, idTratamento);
+                            ps.setInt(2, idMat);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                if (!alterar.isEmpty()) {
+                    try (PreparedStatement ps = conn.prepareStatement(sqlUpd)) {
+                        for (Map.Entry<Integer, Integer> e : alterar.entrySet()) {
+                            ps.setInt(1, e.getValue());
+                            ps.setInt(2, idTratamento);
+                            ps.setInt(3, e.getKey());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                if (!inserir.isEmpty()) {
+                    try (PreparedStatement ps = conn.prepareStatement(sqlIns)) {
+                        for (Map.Entry<Integer, Integer> e : inserir.entrySet()) {
+                            ps.setInt(1, idTratamento);
+                            ps.setInt(2, e.getKey());
+                            ps.setInt(3, e.getValue());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
                     }
-                    psIns.executeBatch();
                 }
 
                 conn.commit();
+                return remover.size() + alterar.size() + inserir.size();
             } catch (SQLException ex) {
                 conn.rollback();
                 throw ex;
+            } finally {
+                conn.setAutoCommit(true);
             }
         }
     }
@@ -237,7 +350,7 @@ public class TratamentoDao {
                    c.QUANTIDADE AS QTD_CONSUMO
               FROM TB_CONSUMO_MATERIAL c
               JOIN TB_MATERIAL m ON m.ID_MATERIAL = c.ID_MATERIAL
-             WHERE c.ID_TRATAMENTO = ?
+             WHERE c.ID_TRATAMENTO = ? AND m.ATIVO = 1
              ORDER BY m.NOME
             """;
 
@@ -279,25 +392,11 @@ public class TratamentoDao {
      * Requer UNIQUE(ID_TRATAMENTO, ID_MATERIAL) para funcionar bem.
      */
     public void upsertConsumoMaterial(int idTratamento, int idMaterial, int quantidade) throws SQLException {
-        // Exemplo para bancos que suportam MERGE/ON CONFLICT:
-        // Ajuste conforme seu SGBD (Postgres, MySQL, SQL Server, etc.)
-        String driver = Conexao.getDriverName().toLowerCase();
-
-        String sql;
-        if (driver.contains("postgresql")) {
-            sql = """
-                INSERT INTO TB_CONSUMO_MATERIAL (ID_TRATAMENTO, ID_MATERIAL, QUANTIDADE)
-                VALUES (?, ?, ?)
-                ON CONFLICT (ID_TRATAMENTO, ID_MATERIAL)
-                DO UPDATE SET QUANTIDADE = EXCLUDED.QUANTIDADE
-                """;
-        } else if (driver.contains("mysql")) {
-            sql = """
-                INSERT INTO TB_CONSUMO_MATERIAL (ID_TRATAMENTO, ID_MATERIAL, QUANTIDADE)
-                VALUES (?, ?, ?)
-                ON DUPLICATE KEY UPDATE QUANTIDADE = VALUES(QUANTIDADE)
-                """;
-        } else {
+        // SQL do dialeto resolvido na inicialização: nenhuma consulta extra ao driver por chamada
+        String sql = Conexao.getDialeto().upsert("TB_CONSUMO_MATERIAL",
+                List.of("ID_TRATAMENTO", "ID_MATERIAL"), List.of("QUANTIDADE"));
+
+        if (sql == null) {
             // fallback: tenta atualizar; se não afetar linhas, insere
             try (Connection conn = Conexao.getConnection()) {
                 conn.setAutoCommit(false);
@@ -321,6 +420,8 @@ public class TratamentoDao {
                 } catch (SQLException ex) {
                     conn.rollback();
                     throw ex;
+                } finally {
+                    conn.setAutoCommit(true);
                 }
             }
         }
@@ -20,7 +20,11 @@ public class Agendamento {
     public Integer id_dentista;
     public Integer id_tratamento;
     public Date data_hora;
+    /** Término previsto (DATA_HORA + duração do tratamento), gravado na escrita. */
+    public Date data_hora_fim;
     public String observacoes;
+    /** Versão lida do banco (controle otimista de concorrência). */
+    public Integer versao;
     public String nomePaciente;
     public String nomeDentista;
     public String nomeTratamento;
@@ -17,5 +17,11 @@ public class Anamnese {
     public String medicamentos;
     public String detalhes;
     public Date data_registro;
+    /** Imagem gravada (só a referência; null = sem imagem). */
+    public ImagemOdontograma imagem;
+    /** Imagem nova a gravar ao salvar; null mantém a gravada, a não ser que {@link #remover_imagem}. */
     public byte[] imagem_odontograma;
+    public boolean remover_imagem;
+    /** Odontograma estruturado (dentes e faces); null = não preenchido / não alterar ao salvar. */
+    public Odontograma dentes;
 }
@@ -0,0 +1,128 @@
+package model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Chave fonética de nomes em português do Brasil, gravada em TB_PESSOA.CHAVE_FONETICA.
+ *
+ * - Cada palavra vira um código: sem acentos (Ç -> C), Z/SS/SC(e,i) -> S, CH/SH/X -> X,
+ *   C/Q/K -> K (C antes de E/I -> S), G antes de E/I -> J, PH -> F, W -> V, Y -> I,
+ *   H mudo, E -> I, O -> U, M antes de consoante -> N, letras repetidas contadas uma vez.
+ *   Ex.: "Conceição" e "Conceicao" -> KUNSIKAU; "Luiz" e "Luis" -> LUIS; "Thiago" e "Tiago" -> TIAGU.
+ * - A chave do nome é o código do primeiro e do último nome, sem partículas (da, de, dos...):
+ *   "Maria da Conceição Souza" e "Maria Conceicao Sousa" ficam no mesmo bloco.
+ *
+ * Serve de chave de bloqueio: só pessoas com a mesma chave são comparadas como possíveis duplicadas.
+ */
+public final class ChaveFonetica {
+
+    /** Tamanho da coluna; nomes muito longos são truncados (só afeta o bloqueio). */
+    public static final int TAMANHO_MAXIMO = 60;
+
+    private static final Set<String> PARTICULAS = Set.of("DA", "DAS", "DE", "DI", "DO", "DOS", "DU", "E");
+
+    private ChaveFonetica() {}
+
+    /** Chave de bloqueio do nome ("" se não houver letras). */
+    public static String deNome(String nome) {
+        List<String> codigos = new ArrayList<>();
+        for (String palavra : palavras(nome)) {
+            if (PARTICULAS.contains(palavra)) continue;
+            String codigo = codificar(palavra);
+            if (!codigo.isEmpty()) codigos.add(codigo);
+        }
+        if (codigos.isEmpty()) return "";
+
+        String chave = codigos.size() == 1
+                ? codigos.get(0)
+                : codigos.get(0) + " " + codigos.get(codigos.size() - 1);
+        return chave.length() > TAMANHO_MAXIMO ? chave.substring(0, TAMANHO_MAXIMO) : chave;
+    }
+
+    /**
+     * Palavras do nome em maiúsculas, sem acentos. Ç perde a cedilha como os outros acentos,
+     * para coincidir com a grafia sem acento ("Conceicao", "Goncalves").
+     */
+    private static List<String> palavras(String nome) {
+        List<String> r = new ArrayList<>();
+        if (nome == null) return r;
+        String s = Normalizer.normalize(nome.toUpperCase(), Normalizer.Form.NFD);
+
+        StringBuilder atual = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                atual.append(c);
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && atual.length() > 0) {
+                r.add(atual.toString());
+                atual.setLength(0);
+            }
+        }
+        if (atual.length() > 0) r.add(atual.toString());
+        return r;
+    }
+
+    /** Código fonético de uma palavra em maiúsculas, só com letras A-Z. */
+    static String codificar(String w) {
+        StringBuilder out = new StringBuilder(w.length());
+        int n = w.length();
+        for (int i = 0; i < n; i++) {
+            char c = w.charAt(i);
+            char prox = i + 1 < n ? w.charAt(i + 1) : 0;
+            char prox2 = i + 2 < n ? w.charAt(i + 2) : 0;
+            char som;
+            switch (c) {
+                case 'A', 'I', 'U' -> som = c;
+                case 'E' -> som = 'I';
+                case 'O' -> som = 'U';
+                case 'Y' -> som = 'I';
+                case 'H' -> { continue; }                     // mudo; dígrafos tratados na letra anterior
+                case 'C' -> {
+                    if (prox == 'H') {
+                        som = (prox2 == 'R' || prox2 == 'L') ? 'K' : 'X'; // Christina, Chloe
+                        i++;
+                    } else {
+                        som = frontal(prox) ? 'S' : 'K';
+                    }
+                }
+                case 'Q' -> {
+                    som = 'K';
+                    if (prox == 'U' && frontal(prox2)) i++;     // QUE, QUI: U mudo
+                }
+                case 'G' -> {
+                    if (frontal(prox)) som = 'J';
+                    else {
+                        som = 'G';
+                        if (prox == 'U' && frontal(prox2)) i++; // GUE, GUI: U mudo
+                    }
+                }
+                case 'P' -> {
+                    if (prox == 'H') { som = 'F'; i++; } else som = 'P';
+                }
+                case 'S' -> {
+                    if (prox == 'H') { som = 'X'; i++; }
+                    else if (prox == 'C' && frontal(prox2)) { som = 'S'; i++; }
+                    else som = 'S';
+                }
+                case 'Z' -> som = 'S';
+                case 'W' -> som = 'V';
+                case 'K' -> som = 'K';
+                case 'M' -> som = (prox == 0 || !vogal(prox)) ? 'N' : 'M';
+                default -> som = c;                            // B D F J L N R T V X
+            }
+            if (out.length() == 0 || out.charAt(out.length() - 1) != som) out.append(som);
+        }
+        return out.toString();
+    }
+
+    private static boolean frontal(char c) {
+        return c == 'E' || c == 'I' || c == 'Y';
+    }
+
+    private static boolean vogal(char c) {
+        return c == 'A' || c == 'E' || c == 'I' || c == 'O' || c == 'U' || c == 'Y';
+    }
+}
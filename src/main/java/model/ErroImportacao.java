@@ -0,0 +1,15 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Linha do arquivo de importação que não foi gravada, com o motivo (não persistido). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErroImportacao {
+    /** Linha do arquivo (1 = cabeçalho). */
+    public long linha;
+    public String mensagem;
+}
@@ -0,0 +1,30 @@
+package model;
+
+/**
+ * Estado do dente inteiro no odontograma estruturado ({@link Odontograma}).
+ * O código gravado é a posição na lista (4 bits): só acrescentar no fim, nunca reordenar.
+ */
+public enum EstadoDente {
+    HIGIDO("Hígido", false),
+    AUSENTE("Ausente", false),
+    EXTRACAO_INDICADA("Extração indicada", true),
+    CANAL_INDICADO("Tratamento de canal indicado", true),
+    CANAL_REALIZADO("Canal realizado", false),
+    COROA("Coroa", false),
+    COROA_INDICADA("Coroa indicada", true),
+    IMPLANTE("Implante", false),
+    PROTESE("Prótese", false);
+
+    private final String descricao;
+    private final boolean pendente;
+    EstadoDente(String descricao, boolean pendente) { this.descricao = descricao; this.pendente = pendente; }
+    public String getDescricao() { return descricao; }
+
+    /** Indica tratamento ainda a fazer. */
+    public boolean isPendente() { return pendente; }
+
+    public static EstadoDente doCodigo(int codigo) {
+        EstadoDente[] v = values();
+        return codigo >= 0 && codigo < v.length ? v[codigo] : HIGIDO;
+    }
+}
@@ -0,0 +1,28 @@
+package model;
+
+/**
+ * Estado de uma face do dente no odontograma estruturado ({@link Odontograma}).
+ * O código gravado é a posição na lista (4 bits): só acrescentar no fim, nunca reordenar.
+ */
+public enum EstadoFace {
+    HIGIDA("Hígida", false),
+    CARIE("Cárie", true),
+    RESTAURACAO_INDICADA("Restauração indicada", true),
+    RESTAURADA("Restaurada", false),
+    RESTAURACAO_DEFEITUOSA("Restauração defeituosa", true),
+    SELANTE("Selante", false),
+    FRATURA("Fratura", true);
+
+    private final String descricao;
+    private final boolean pendente;
+    EstadoFace(String descricao, boolean pendente) { this.descricao = descricao; this.pendente = pendente; }
+    public String getDescricao() { return descricao; }
+
+    /** Indica tratamento ainda a fazer. */
+    public boolean isPendente() { return pendente; }
+
+    public static EstadoFace doCodigo(int codigo) {
+        EstadoFace[] v = values();
+        return codigo >= 0 && codigo < v.length ? v[codigo] : HIGIDA;
+    }
+}
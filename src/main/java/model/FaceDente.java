@@ -0,0 +1,14 @@
+package model;
+
+/** Faces do dente no odontograma estruturado (a ordem define a posição no registro compactado). */
+public enum FaceDente {
+    MESIAL("M"),
+    DISTAL("D"),
+    OCLUSAL("O/I"),      // incisal nos anteriores
+    VESTIBULAR("V"),
+    LINGUAL("L/P");      // palatina nos superiores
+
+    private final String sigla;
+    FaceDente(String sigla) { this.sigla = sigla; }
+    public String getSigla() { return sigla; }
+}
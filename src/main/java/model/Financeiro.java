@@ -9,6 +9,8 @@ public class Financeiro {
     private Date dt_emissao;
     private StatusFinanceiro status;
     private MetodoPagamento metodo_pagamento;
+    /** Versão lida do banco (controle otimista de concorrência). */
+    private Integer versao;
 
     public Long getId_financeiro() { return id_financeiro; }
     public void setId_financeiro(Long id) { this.id_financeiro = id; }
@@ -27,4 +29,7 @@ public class Financeiro {
 
     public MetodoPagamento getMetodo_pagamento() { return metodo_pagamento; }
     public void setMetodo_pagamento(MetodoPagamento metodo_pagamento) { this.metodo_pagamento = metodo_pagamento; }
+
+    public Integer getVersao() { return versao; }
+    public void setVersao(Integer versao) { this.versao = versao; }
 }
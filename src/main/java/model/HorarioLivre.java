@@ -0,0 +1,18 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/** Horário livre sugerido pela busca de agenda (não persistido). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HorarioLivre {
+    public Integer id_dentista;
+    public String nomeDentista;
+    public Date inicio;
+    public Date fim;
+}
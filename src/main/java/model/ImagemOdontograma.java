@@ -0,0 +1,23 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Referência à imagem de odontograma gravada de um paciente, sem os bytes.
+ * Vem junto com a anamnese (hash, tamanho e tipo gravados em TB_ODONTOGRAMA);
+ * o conteúdo é lido em stream só quando for exibido ou baixado
+ * ({@code AnamneseService.lerImagem}).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImagemOdontograma {
+    public long id_paciente;
+    /** SHA-256 do conteúdo: chave no repositório de blobs. */
+    public String hash;
+    /** Tamanho em bytes. */
+    public long tamanho;
+    public String mime;
+}
@@ -23,6 +23,15 @@ public class Material {
     @Column(name = "quantidade")
     private Integer QUANTIDADE;
 
+    /** Quantidade a partir da qual o material deve ser reposto (0 = sem alerta). */
+    @Column(name = "ponto_reposicao")
+    private Integer PONTO_REPOSICAO;
+
+    /** Versão lida do banco (controle otimista de concorrência). */
+    @Version
+    @Column(name = "versao")
+    private Integer VERSAO;
+
     /**
      * Quantidade consumida em um tratamento.
      * Campo não mapeado para o banco (apenas uso temporário na aplicação).
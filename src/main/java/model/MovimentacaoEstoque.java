@@ -0,0 +1,32 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/** Linha do livro de movimentações de estoque (TB_MOVIMENTACAO_ESTOQUE), somente inserção. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovimentacaoEstoque {
+    public Long id_movimentacao;
+    public Integer id_material;
+    public TipoMovimentacao tipo;
+    /** Variação do estoque: positiva em entradas, negativa em consumos. */
+    public int quantidade;
+    public Date data_hora;
+    public Integer id_tratamento;
+    public Integer id_agendamento;
+    public String observacao;
+
+    public static MovimentacaoEstoque de(int idMaterial, TipoMovimentacao tipo, int quantidade, String observacao) {
+        MovimentacaoEstoque m = new MovimentacaoEstoque();
+        m.setId_material(idMaterial);
+        m.setTipo(tipo);
+        m.setQuantidade(quantidade);
+        m.setObservacao(observacao);
+        return m;
+    }
+}
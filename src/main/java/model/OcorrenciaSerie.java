@@ -0,0 +1,22 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/** Resultado de uma ocorrência ao agendar uma série recorrente (não persistido). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcorrenciaSerie {
+    /** Posição na série, a partir de 1. */
+    public int numero;
+    public Date inicio;
+    public Date fim;
+    /** ID gerado; null se a ocorrência não foi gravada. */
+    public Integer id_agendamento;
+    /** true se o dentista já estava ocupado nesse horário. */
+    public boolean conflito;
+}
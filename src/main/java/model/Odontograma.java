@@ -0,0 +1,124 @@
+package model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * Odontograma estruturado de um paciente (TB_ODONTOGRAMA_DENTE), ao lado da imagem.
+ *
+ * - Dentes pela numeração FDI: permanentes 11-18, 21-28, 31-38, 41-48 e decíduos 51-55,
+ *   61-65, 71-75, 81-85 ({@link #DENTES}, 52 ao todo).
+ * - Cada dente ocupa 6 nibbles (4 bits) em {@link #estados}: o {@link EstadoDente} e um
+ *   {@link EstadoFace} para cada {@link FaceDente}. 52 x 6 nibbles = {@value #TAMANHO} bytes por
+ *   paciente, lidos e gravados de uma vez.
+ * - {@link #mascaraPendentes()}: um bit por dente (posição em {@link #DENTES}) com tratamento
+ *   pendente, gravado junto; {@link #dentesPendentes()} dá os mesmos dentes pelo número FDI,
+ *   uma linha de TB_ODONTOGRAMA_PENDENTE cada, por onde os relatórios filtram no banco.
+ */
+@Data
+@NoArgsConstructor
+public class Odontograma {
+
+    /** Numeração FDI, na ordem em que os dentes ficam no registro compactado. */
+    private static final int[] DENTES = {
+            11, 12, 13, 14, 15, 16, 17, 18,  21, 22, 23, 24, 25, 26, 27, 28,
+            31, 32, 33, 34, 35, 36, 37, 38,  41, 42, 43, 44, 45, 46, 47, 48,
+            51, 52, 53, 54, 55,  61, 62, 63, 64, 65,  71, 72, 73, 74, 75,  81, 82, 83, 84, 85
+    };
+    private static final int NIBBLES_POR_DENTE = 1 + FaceDente.values().length;
+    public static final int TAMANHO = DENTES.length * NIBBLES_POR_DENTE / 2;
+
+    /** FDI -> posição em {@link #DENTES} (-1 = número inválido). */
+    private static final int[] POSICAO = new int[100];
+    static {
+        Arrays.fill(POSICAO, -1);
+        for (int i = 0; i < DENTES.length; i++) POSICAO[DENTES[i]] = i;
+    }
+
+    public long id_paciente;
+    /** Estados compactados ({@value #TAMANHO} bytes; todos zero = todos hígidos). */
+    public byte[] estados = new byte[TAMANHO];
+
+    public Odontograma(long idPaciente, byte[] estados) {
+        this.id_paciente = idPaciente;
+        // registro gravado antes de a lista crescer: completa com zeros (hígido)
+        this.estados = estados == null ? new byte[TAMANHO] : Arrays.copyOf(estados, TAMANHO);
+    }
+
+    /** Números FDI de todos os dentes, permanentes primeiro. */
+    public static int[] dentes() {
+        return DENTES.clone();
+    }
+
+    public static boolean denteValido(int fdi) {
+        return fdi >= 0 && fdi < POSICAO.length && POSICAO[fdi] >= 0;
+    }
+
+    public EstadoDente getEstado(int fdi) {
+        return EstadoDente.doCodigo(nibble(posicao(fdi) * NIBBLES_POR_DENTE));
+    }
+
+    public void setEstado(int fdi, EstadoDente estado) {
+        definirNibble(posicao(fdi) * NIBBLES_POR_DENTE, estado.ordinal());
+    }
+
+    public EstadoFace getFace(int fdi, FaceDente face) {
+        return EstadoFace.doCodigo(nibble(posicao(fdi) * NIBBLES_POR_DENTE + 1 + face.ordinal()));
+    }
+
+    public void setFace(int fdi, FaceDente face, EstadoFace estado) {
+        definirNibble(posicao(fdi) * NIBBLES_POR_DENTE + 1 + face.ordinal(), estado.ordinal());
+    }
+
+    /** Dente com estado ou alguma face pendente. */
+    public boolean isPendente(int fdi) {
+        return pendente(posicao(fdi));
+    }
+
+    public long mascaraPendentes() {
+        long mascara = 0;
+        for (int i = 0; i < DENTES.length; i++) {
+            if (pendente(i)) mascara |= 1L << i;
+        }
+        return mascara;
+    }
+
+    /** Números FDI dos dentes com tratamento pendente, na ordem de {@link #dentes()}. */
+    public int[] dentesPendentes() {
+        return dentesDaMascara(mascaraPendentes());
+    }
+
+    /** Números FDI dos dentes marcados numa máscara gravada (ver {@link #mascaraPendentes()}). */
+    public static int[] dentesDaMascara(long mascara) {
+        int[] r = new int[Long.bitCount(mascara)];
+        for (int n = 0; mascara != 0; mascara &= mascara - 1) r[n++] = DENTES[Long.numberOfTrailingZeros(mascara)];
+        return r;
+    }
+
+    private boolean pendente(int posicao) {
+        int n = posicao * NIBBLES_POR_DENTE;
+        if (EstadoDente.doCodigo(nibble(n)).isPendente()) return true;
+        for (int f = 1; f < NIBBLES_POR_DENTE; f++) {
+            if (EstadoFace.doCodigo(nibble(n + f)).isPendente()) return true;
+        }
+        return false;
+    }
+
+    private static int posicao(int fdi) {
+        if (!denteValido(fdi)) throw new IllegalArgumentException("Dente inválido (numeração FDI): " + fdi);
+        return POSICAO[fdi];
+    }
+
+    private int nibble(int n) {
+        int b = estados[n >> 1] & 0xFF;
+        return (n & 1) == 0 ? b & 0x0F : b >>> 4;
+    }
+
+    private void definirNibble(int n, int valor) {
+        int b = estados[n >> 1] & 0xFF;
+        b = (n & 1) == 0 ? (b & 0xF0) | valor : (b & 0x0F) | (valor << 4);
+        estados[n >> 1] = (byte) b;
+    }
+}
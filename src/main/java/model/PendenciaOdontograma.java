@@ -0,0 +1,18 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Linha de relatório: paciente com tratamento pendente num dente (não persistido). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendenciaOdontograma {
+    public long id_paciente;
+    public String nome;
+    /** Numeração FDI. */
+    public int dente;
+    /** Ex.: "Tratamento de canal indicado; M: Cárie; O/I: Restauração indicada". */
+    public String descricao;
+}
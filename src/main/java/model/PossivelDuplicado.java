@@ -0,0 +1,22 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Par de pessoas com a mesma {@link ChaveFonetica} (não persistido), para conferência manual.
+ * Os indicadores ajudam a ordenar: mesmo nascimento ou mesmo telefone pesa mais que só o nome.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PossivelDuplicado {
+    public int id_pessoa_a;
+    public String nome_a;
+    public int id_pessoa_b;
+    public String nome_b;
+    public String chave_fonetica;
+    public boolean mesmoNascimento;
+    public boolean mesmoTelefone;
+}
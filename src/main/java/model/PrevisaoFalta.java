@@ -0,0 +1,29 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Material que, pela agenda já marcada, chega ao ponto de reposição ou acaba
+ * até a data consultada (não persistido).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrevisaoFalta {
+    public Integer id_material;
+    public String nome;
+    public int quantidade;
+    public int ponto_reposicao;
+    /** Consumo dos agendamentos pendentes até a data consultada. */
+    public int consumoPrevisto;
+    /** quantidade - consumoPrevisto (negativo = faltará material). */
+    public int saldoPrevisto;
+    /** Primeiro dia em que o saldo fica no ponto de reposição ou abaixo (null = não chega). */
+    public LocalDate dataReposicao;
+    /** Primeiro dia em que o estoque não cobre os agendamentos (null = não falta). */
+    public LocalDate dataEsgotamento;
+}
@@ -0,0 +1,21 @@
+package model;
+
+import java.util.Date;
+
+/**
+ * Regra de repetição de um agendamento (subconjunto de RRULE): a cada {@code intervalo}
+ * dias/semanas/meses, até {@code quantidade} ocorrências e/ou até a data {@code ate}.
+ * Pelo menos um dos limites deve ser informado.
+ */
+public record Recorrencia(Frequencia frequencia, int intervalo, Integer quantidade, Date ate) {
+
+    public enum Frequencia {
+        DIARIA("Dia(s)"),
+        SEMANAL("Semana(s)"),
+        MENSAL("Mês(es)");
+
+        private final String descricao;
+        Frequencia(String descricao) { this.descricao = descricao; }
+        public String getDescricao() { return descricao; }
+    }
+}
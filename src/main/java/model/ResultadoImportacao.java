@@ -0,0 +1,19 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Resumo de uma importação de pacientes (não persistido). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoImportacao {
+    /** Registros lidos, sem contar o cabeçalho. */
+    public int lidos;
+    public int importados;
+    public List<ErroImportacao> erros = new ArrayList<>();
+}
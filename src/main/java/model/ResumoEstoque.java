@@ -0,0 +1,20 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Totais de um material num período (não persistido). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoEstoque {
+    public Integer id_material;
+    public String nome;
+    public int saldoInicial;
+    public int entradas;
+    /** Soma dos consumos, em valor positivo. */
+    public int consumos;
+    public int ajustes;
+    public int saldoFinal;
+}
@@ -1,5 +1,8 @@
 package model;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum StatusAgendamento {
     PENDENTE("Pendente"),
     CONFIRMADO("Confirmado"),
@@ -10,6 +13,32 @@ public enum StatusAgendamento {
     StatusAgendamento(String descricao) { this.descricao = descricao; }
     public String getDescricao() { return descricao; }
 
+    /**
+     * Máquina de estados: PENDENTE -> CONFIRMADO; PENDENTE/CONFIRMADO -> CONCLUIDO (a confirmação
+     * não é obrigatória: paciente atendido sem ter confirmado); PENDENTE/CONFIRMADO -> CANCELADO;
+     * CONFIRMADO pode voltar a PENDENTE. CANCELADO e CONCLUIDO são finais.
+     */
+    public Set<StatusAgendamento> sucessores() {
+        return switch (this) {
+            case PENDENTE -> EnumSet.of(CONFIRMADO, CANCELADO, CONCLUIDO);
+            case CONFIRMADO -> EnumSet.of(PENDENTE, CANCELADO, CONCLUIDO);
+            case CANCELADO, CONCLUIDO -> EnumSet.noneOf(StatusAgendamento.class);
+        };
+    }
+
+    /** Status a partir dos quais se pode chegar a este. */
+    public Set<StatusAgendamento> predecessores() {
+        Set<StatusAgendamento> anteriores = EnumSet.noneOf(StatusAgendamento.class);
+        for (StatusAgendamento s : values()) {
+            if (s.sucessores().contains(this)) anteriores.add(s);
+        }
+        return anteriores;
+    }
+
+    public boolean podeIrPara(StatusAgendamento destino) {
+        return sucessores().contains(destino);
+    }
+
     public static StatusAgendamento fromString(String valor) {
         if (valor == null) return null;
         for (StatusAgendamento s : values()) {
@@ -0,0 +1,12 @@
+package model;
+
+/** Natureza de uma movimentação de estoque (a quantidade gravada já vem com sinal). */
+public enum TipoMovimentacao {
+    ENTRADA("Entrada"),
+    CONSUMO("Consumo"),
+    AJUSTE("Ajuste");
+
+    private final String descricao;
+    TipoMovimentacao(String descricao) { this.descricao = descricao; }
+    public String getDescricao() { return descricao; }
+}
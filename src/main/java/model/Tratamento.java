@@ -16,4 +16,6 @@ public class Tratamento {
     public int id_tratamento;
     public String nome;
     public String descricao;
+    /** Duração padrão do atendimento, em minutos (bloqueia a agenda do dentista). */
+    public int duracao_minutos;
 }
@@ -0,0 +1,28 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Uma versão do odontograma de um paciente (TB_ODONTOGRAMA_VERSAO), sem os bytes.
+ * O conteúdo é lido pelo hash só quando a versão é aberta no histórico.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersaoOdontograma {
+    public long id_versao;
+    public long id_paciente;
+    public String hash;
+    /** Tamanho da imagem em bytes. */
+    public long tamanho;
+    public String mime;
+    /** Guardada como delta da versão completa anterior (e não como arquivo inteiro). */
+    public boolean delta;
+    /** Bytes efetivamente gravados por esta versão (0 = conteúdo já existia). */
+    public long armazenado;
+    public Date data_criacao;
+}
@@ -1,33 +1,65 @@
 package service;
 
 import dao.AgendamentoDAO;
+import dao.CadastroPessoaDao;
+import dao.ConflitoAgendaException;
+import dao.ConflitoVersaoException;
+import dao.EstoqueInsuficienteException;
 import model.Agendamento;
+import model.Dentista;
+import model.HorarioLivre;
+import model.OcorrenciaSerie;
+import model.Recorrencia;
 import model.StatusAgendamento;
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 
 public class AgendamentoService {
 
+    /** Margem para carregar agendamentos que começam antes da janela mas ainda a ocupam. */
+    private static final long MARGEM_AQUECIMENTO_MS = AgendamentoDAO.DURACAO_MAXIMA_MIN * 60_000L;
+
     private final AgendamentoDAO dao;
     private final DurationProvider durationProvider;
+    private final IndiceAgenda indice;
+    private final PrevisaoEstoque previsao = PrevisaoEstoque.compartilhado();
+    private final CacheReferencia cache = CacheReferencia.compartilhado();
+    private final CadastroPessoaDao pessoaDao = new CadastroPessoaDao();
+    private final Expediente expediente = Expediente.daConfiguracao();
+
+    /** Maior número de ocorrências de uma série recorrente (uma consulta + um lote). */
+    static final int MAXIMO_OCORRENCIAS_SERIE = 120;
+
+    /** Maior janela aceita na busca de horários livres. */
+    private static final long JANELA_MAXIMA_BUSCA_MS = 366L * 24 * 60 * 60_000L;
 
-    // ======= Forma simples: usa 60 minutos por padrão =======
+    // ======= Forma simples: durações do catálogo de tratamentos em memória =======
     public AgendamentoService() {
-        this(new AgendamentoDAO(), idTratamento -> 60L);
+        this(new AgendamentoDAO(), CatalogoDuracoes.compartilhado());
     }
 
     public AgendamentoService(AgendamentoDAO dao) {
-        this(dao, idTratamento -> 60L);
+        this(dao, CatalogoDuracoes.compartilhado());
     }
 
     // ======= Forma avançada: injeta provedor de duração =======
     public AgendamentoService(AgendamentoDAO dao, DurationProvider durationProvider) {
+        this(dao, durationProvider, IndiceAgenda.compartilhado());
+    }
+
+    public AgendamentoService(AgendamentoDAO dao, DurationProvider durationProvider, IndiceAgenda indice) {
         this.dao = Objects.requireNonNull(dao);
         this.durationProvider = Objects.requireNonNull(durationProvider);
+        this.indice = Objects.requireNonNull(indice);
     }
 
     /** Fornece a duração (em minutos) de um tratamento (ex.: vindo da TB_TRATAMENTO). */
@@ -45,6 +77,19 @@ public class AgendamentoService {
         }
     }
 
+    /** Página da agenda (keyset em DATA_HORA/ID, mais recentes primeiro). Ver {@link AgendamentoDAO#listar}. */
+    public List<Agendamento> listar(Date de, Date ate, Integer idDentista, StatusAgendamento status,
+                                    AgendamentoDAO.ChavePagina apos, int limite) throws ServiceException {
+        if (limite <= 0) throw new ServiceException("Tamanho de página inválido.");
+        if (de != null && ate != null && !de.before(ate))
+            throw new ServiceException("Período inválido: início deve ser anterior ao fim.");
+        try {
+            return dao.listar(de == null ? null : ts(de), ate == null ? null : ts(ate), idDentista, status, apos, limite);
+        } catch (SQLException e) {
+            throw wrap("Erro ao listar agendamentos", e);
+        }
+    }
+
     public Agendamento buscarPorId(int id) throws ServiceException {
         if (id <= 0) throw new ServiceException("ID inválido.");
         try {
@@ -62,20 +107,110 @@ public class AgendamentoService {
         validarDataNoFuturo(a);
 
         try {
-            long duracaoMin = durationProvider.getDuracaoMinutos(a.getId_tratamento());
+            long duracaoMin = duracaoValida(a.getId_tratamento());
             Timestamp inicio = ts(a.getData_hora());
             Timestamp fim = addMin(inicio, duracaoMin);
 
-            if (dao.existeConflitoHorario(a.getId_dentista(), inicio, fim, null)) {
-                throw new ServiceException("Conflito de agenda para o dentista no horário informado.");
-            }
+            verificarConflitoNoIndice(a.getId_dentista(), inicio, fim, null);
 
-            return dao.cadastrar(a);
+            // verificação autoritativa + INSERT na mesma transação
+            int id = dao.cadastrarSemConflito(a, fim);
+            indice.registrar(new IndiceAgenda.Intervalo(id, a.getId_dentista(), inicio.getTime(), fim.getTime()));
+            previsao.registrar(id, a.getId_tratamento(), a.getData_hora(), a.getStatus());
+            return id;
+        } catch (ConflitoAgendaException e) {
+            throw new ServiceException(e.getMessage(), e);
         } catch (SQLException e) {
             throw wrap("Erro ao criar agendamento", e);
         }
     }
 
+    // === Séries recorrentes ===
+
+    /**
+     * Agenda uma série (ex.: manutenção ortodôntica a cada 4 semanas por um ano) a partir de
+     * {@code base}: expande a recorrência, verifica todas as ocorrências numa única consulta
+     * e grava a série num único lote/transação.
+     *
+     * @param pularConflitos false = tudo ou nada; true = grava as ocorrências livres e
+     *                       devolve as demais marcadas como conflito
+     * @return uma entrada por ocorrência, na ordem da série
+     */
+    public List<OcorrenciaSerie> criarSerie(Agendamento base, Recorrencia recorrencia, boolean pularConflitos)
+            throws ServiceException {
+        validarCamposObrigatorios(base);
+        validarDataNoFuturo(base);
+        List<Date> inicios = expandir(base.getData_hora(), recorrencia);
+
+        try {
+            long duracaoMin = duracaoValida(base.getId_tratamento());
+
+            List<Agendamento> ocorrencias = new ArrayList<>(inicios.size());
+            for (Date inicio : inicios) {
+                Agendamento a = new Agendamento();
+                a.setId_paciente(base.getId_paciente());
+                a.setId_dentista(base.getId_dentista());
+                a.setId_tratamento(base.getId_tratamento());
+                a.setStatus(base.getStatus());
+                a.setObservacoes(base.getObservacoes());
+                a.setData_hora(ts(inicio));
+                a.setData_hora_fim(addMin(ts(inicio), duracaoMin));
+                ocorrencias.add(a);
+            }
+
+            Integer[] ids = dao.cadastrarSerieSemConflito(ocorrencias, pularConflitos);
+
+            List<OcorrenciaSerie> resultado = new ArrayList<>(ocorrencias.size());
+            for (int i = 0; i < ocorrencias.size(); i++) {
+                Agendamento a = ocorrencias.get(i);
+                if (ids[i] != null) {
+                    indice.registrar(new IndiceAgenda.Intervalo(ids[i], a.getId_dentista(),
+                            a.getData_hora().getTime(), a.getData_hora_fim().getTime()));
+                    previsao.registrar(ids[i], a.getId_tratamento(), a.getData_hora(), a.getStatus());
+                }
+                resultado.add(new OcorrenciaSerie(i + 1, a.getData_hora(), a.getData_hora_fim(), ids[i], ids[i] == null));
+            }
+            return resultado;
+        } catch (ConflitoAgendaException e) {
+            throw new ServiceException(e.getMessage(), e);
+        } catch (SQLException e) {
+            throw wrap("Erro ao criar série de agendamentos", e);
+        }
+    }
+
+    /**
+     * Datas de início da série. Cada ocorrência é calculada a partir do início original
+     * (31/01 + 1 mês = 28/02, + 2 meses = 31/03), sem acumular deslocamentos.
+     */
+    private List<Date> expandir(Date inicio, Recorrencia r) throws ServiceException {
+        if (r == null || r.frequencia() == null) throw new ServiceException("Recorrência é obrigatória.");
+        if (r.intervalo() <= 0) throw new ServiceException("Intervalo da recorrência deve ser maior que zero.");
+        if (r.quantidade() == null && r.ate() == null)
+            throw new ServiceException("Informe a quantidade de ocorrências ou a data final da série.");
+        if (r.quantidade() != null && (r.quantidade() <= 0 || r.quantidade() > MAXIMO_OCORRENCIAS_SERIE))
+            throw new ServiceException("Quantidade de ocorrências deve estar entre 1 e " + MAXIMO_OCORRENCIAS_SERIE + ".");
+
+        ZoneId zona = ZoneId.systemDefault();
+        LocalDateTime primeiro = LocalDateTime.ofInstant(inicio.toInstant(), zona);
+        int limite = r.quantidade() != null ? r.quantidade() : MAXIMO_OCORRENCIAS_SERIE + 1;
+
+        List<Date> inicios = new ArrayList<>();
+        for (int k = 0; k < limite; k++) {
+            long passo = (long) k * r.intervalo();
+            LocalDateTime t = switch (r.frequencia()) {
+                case DIARIA -> primeiro.plusDays(passo);
+                case SEMANAL -> primeiro.plusWeeks(passo);
+                case MENSAL -> primeiro.plusMonths(passo);
+            };
+            Date d = Date.from(t.atZone(zona).toInstant());
+            if (r.ate() != null && d.after(r.ate())) break;
+            inicios.add(d);
+        }
+        if (inicios.size() > MAXIMO_OCORRENCIAS_SERIE)
+            throw new ServiceException("A série excede " + MAXIMO_OCORRENCIAS_SERIE + " ocorrências.");
+        return inicios;
+    }
+
     // === Atualização ===
     public void atualizar(Agendamento a) throws ServiceException {
         if (a == null || a.getId_agendamento() == null || a.getId_agendamento() <= 0) {
@@ -85,19 +220,26 @@ public class AgendamentoService {
         validarDataNoFuturo(a);
 
         try {
-            // garante que existe
-            buscarPorId(a.getId_agendamento());
+            // garante que existe e que a mudança de status respeita a máquina de estados
+            Agendamento atual = buscarPorId(a.getId_agendamento());
+            if (a.getStatus() != atual.getStatus() && !atual.getStatus().podeIrPara(a.getStatus()))
+                throw new ServiceException("Não é possível passar de " + atual.getStatus().getDescricao()
+                        + " para " + a.getStatus().getDescricao() + ".");
 
-            long duracaoMin = durationProvider.getDuracaoMinutos(a.getId_tratamento());
+            long duracaoMin = duracaoValida(a.getId_tratamento());
             Timestamp inicio = ts(a.getData_hora());
             Timestamp fim = addMin(inicio, duracaoMin);
 
-            if (dao.existeConflitoHorario(a.getId_dentista(), inicio, fim, a.getId_agendamento())) {
-                throw new ServiceException("Conflito de agenda para o dentista no horário informado.");
-            }
+            verificarConflitoNoIndice(a.getId_dentista(), inicio, fim, a.getId_agendamento());
 
-            boolean ok = dao.atualizar(a);
+            boolean ok = dao.atualizarSemConflito(a, fim);
             if (!ok) throw new ServiceException("Não foi possível atualizar o agendamento.");
+            indice.registrar(new IndiceAgenda.Intervalo(
+                    a.getId_agendamento(), a.getId_dentista(), inicio.getTime(), fim.getTime()));
+            previsao.registrar(a.getId_agendamento(), a.getId_tratamento(), a.getData_hora(), a.getStatus());
+            if (a.getStatus() == StatusAgendamento.CONCLUIDO) cache.invalidar(CacheReferencia.MATERIAIS);
+        } catch (ConflitoAgendaException | ConflitoVersaoException | EstoqueInsuficienteException e) {
+            throw new ServiceException(e.getMessage(), e);
         } catch (SQLException e) {
             throw wrap("Erro ao atualizar agendamento (ID=" + a.getId_agendamento() + ")", e);
         }
@@ -112,6 +254,8 @@ public class AgendamentoService {
 
             boolean ok = dao.deletar(idAgendamento);
             if (!ok) throw new ServiceException("Não foi possível excluir o agendamento.");
+            indice.remover(idAgendamento);
+            previsao.remover(idAgendamento);
         } catch (SQLException e) {
             throw wrap("Erro ao excluir agendamento (ID=" + idAgendamento + ")", e);
         }
@@ -119,19 +263,213 @@ public class AgendamentoService {
 
     // === Operações de status (opcional, mas comum em agenda) ===
     public void alterarStatus(int idAgendamento, String novoStatus) throws ServiceException {
-        if (idAgendamento <= 0) throw new ServiceException("ID inválido.");
         if (novoStatus == null || novoStatus.isBlank()) throw new ServiceException("Status é obrigatório.");
+        StatusAgendamento novo;
+        try {
+            novo = StatusAgendamento.fromString(novoStatus);
+        } catch (IllegalArgumentException e) {
+            throw new ServiceException(e.getMessage());
+        }
+        alterarStatus(idAgendamento, novo);
+    }
+
+    /**
+     * Transição de status num único UPDATE condicionado ao status atual
+     * (sem ler nem regravar o restante do agendamento).
+     */
+    public void alterarStatus(int idAgendamento, StatusAgendamento novo) throws ServiceException {
+        if (idAgendamento <= 0) throw new ServiceException("ID inválido.");
+        if (novo == null) throw new ServiceException("Status é obrigatório.");
 
         try {
-            Agendamento atual = buscarPorId(idAgendamento);
-            atual.setStatus(StatusAgendamento.valueOf(novoStatus));
-            boolean ok = dao.atualizar(atual);
-            if (!ok) throw new ServiceException("Não foi possível alterar o status.");
+            boolean ok = novo == StatusAgendamento.CONCLUIDO
+                    ? dao.concluir(idAgendamento)               // + baixa de materiais na mesma transação
+                    : dao.alterarStatus(idAgendamento, novo);
+            if (ok) {
+                if (!novo.podeIrPara(StatusAgendamento.CONCLUIDO)) previsao.remover(idAgendamento);
+                if (novo == StatusAgendamento.CONCLUIDO) cache.invalidar(CacheReferencia.MATERIAIS);
+                return;
+            }
+
+            // Caminho raro: descobre o motivo só quando a transição foi recusada
+            StatusAgendamento atual = dao.buscarStatus(idAgendamento);
+            if (atual == null) throw new ServiceException("Agendamento não encontrado (ID=" + idAgendamento + ").");
+            if (atual == novo) return;
+            throw new ServiceException("Não é possível passar de " + atual.getDescricao()
+                    + " para " + novo.getDescricao() + ".");
+        } catch (EstoqueInsuficienteException e) {
+            throw new ServiceException(e.getMessage(), e);
         } catch (SQLException e) {
             throw wrap("Erro ao alterar status (ID=" + idAgendamento + ")", e);
         }
     }
 
+    /**
+     * Mesma transição para vários agendamentos, num único lote.
+     * @return ids que não foram alterados (inexistentes ou em status que não permite a transição)
+     */
+    public List<Integer> alterarStatus(List<Integer> ids, StatusAgendamento novo) throws ServiceException {
+        if (ids == null || ids.isEmpty()) return List.of();
+        if (novo == null) throw new ServiceException("Status é obrigatório.");
+        try {
+            List<Integer> naoAlterados = novo == StatusAgendamento.CONCLUIDO ? dao.concluir(ids) : dao.alterarStatus(ids, novo);
+            if (!novo.podeIrPara(StatusAgendamento.CONCLUIDO)) {
+                for (Integer id : ids) if (!naoAlterados.contains(id)) previsao.remover(id);
+            }
+            if (novo == StatusAgendamento.CONCLUIDO) cache.invalidar(CacheReferencia.MATERIAIS);
+            return naoAlterados;
+        } catch (EstoqueInsuficienteException e) {
+            throw new ServiceException(e.getMessage(), e);
+        } catch (SQLException e) {
+            throw wrap("Erro ao alterar status em lote", e);
+        }
+    }
+
+    /**
+     * Move de {@code atual} para {@code novo} todos os agendamentos do dia
+     * (opcionalmente de um dentista) num único UPDATE. Ex.: confirmar os pendentes de hoje.
+     * Para CONCLUIDO, baixa também os materiais de todos eles na mesma transação.
+     * @return quantidade de agendamentos alterados
+     */
+    public int alterarStatusDoDia(LocalDate dia, Integer idDentista, StatusAgendamento atual, StatusAgendamento novo)
+            throws ServiceException {
+        if (dia == null) throw new ServiceException("Data é obrigatória.");
+        if (atual == null || novo == null) throw new ServiceException("Status é obrigatório.");
+        if (!atual.podeIrPara(novo))
+            throw new ServiceException("Não é possível passar de " + atual.getDescricao()
+                    + " para " + novo.getDescricao() + ".");
+
+        ZoneId zona = ZoneId.systemDefault();
+        Timestamp de = Timestamp.from(dia.atStartOfDay(zona).toInstant());
+        Timestamp ate = Timestamp.from(dia.plusDays(1).atStartOfDay(zona).toInstant());
+        try {
+            int alterados = novo == StatusAgendamento.CONCLUIDO
+                    ? dao.concluirPorPeriodo(de, ate, idDentista, atual)
+                    : dao.alterarStatusPorPeriodo(de, ate, idDentista, atual, novo);
+            // os ids alterados não voltam do UPDATE por período: recarrega a previsão
+            if (alterados > 0 && !novo.podeIrPara(StatusAgendamento.CONCLUIDO)) previsao.invalidar();
+            if (alterados > 0 && novo == StatusAgendamento.CONCLUIDO) cache.invalidar(CacheReferencia.MATERIAIS);
+            return alterados;
+        } catch (EstoqueInsuficienteException e) {
+            throw new ServiceException(e.getMessage(), e);
+        } catch (SQLException e) {
+            throw wrap("Erro ao alterar status dos agendamentos de " + dia, e);
+        }
+    }
+
+    // === Busca de horários livres ===
+
+    /**
+     * Próximos {@code quantidade} horários livres do dentista para o tratamento em [de, ate),
+     * dentro do expediente. Usa o índice em memória quando a janela está coberta
+     * (sem ida ao banco); fora dela, uma única consulta por faixa de índice.
+     */
+    public List<HorarioLivre> buscarHorariosLivres(int idDentista, int idTratamento, Date de, Date ate, int quantidade)
+            throws ServiceException {
+        if (idDentista <= 0) throw new ServiceException("Dentista é obrigatório.");
+        long[] janela = validarBusca(idTratamento, de, ate, quantidade);
+        try {
+            long duracaoMs = duracaoValida(idTratamento) * 60_000L;
+            return paraHorarios(idDentista, null,
+                    expediente.horariosLivres(ocupados(idDentista, janela[0], janela[1]),
+                            janela[0], janela[1], duracaoMs, quantidade));
+        } catch (SQLException e) {
+            throw wrap("Erro ao buscar horários livres", e);
+        }
+    }
+
+    /** Como {@link #buscarHorariosLivres}, considerando qualquer dentista da especialidade (mais cedo primeiro). */
+    public List<HorarioLivre> buscarHorariosLivresPorEspecialidade(String especialidade, int idTratamento,
+                                                                  Date de, Date ate, int quantidade)
+            throws ServiceException {
+        if (especialidade == null || especialidade.isBlank()) throw new ServiceException("Especialidade é obrigatória.");
+        long[] janela = validarBusca(idTratamento, de, ate, quantidade);
+        try {
+            long duracaoMs = duracaoValida(idTratamento) * 60_000L;
+            List<HorarioLivre> todos = new ArrayList<>();
+            for (Dentista d : pessoaDao.listarDentistasPorEspecialidade(especialidade.trim())) {
+                todos.addAll(paraHorarios(d.getId_dentista(), d.getNome(),
+                        expediente.horariosLivres(ocupados(d.getId_dentista(), janela[0], janela[1]),
+                                janela[0], janela[1], duracaoMs, quantidade)));
+            }
+            todos.sort(Comparator.comparing(HorarioLivre::getInicio));
+            return todos.size() > quantidade ? new ArrayList<>(todos.subList(0, quantidade)) : todos;
+        } catch (SQLException e) {
+            throw wrap("Erro ao buscar horários livres", e);
+        }
+    }
+
+    private long[] validarBusca(int idTratamento, Date de, Date ate, int quantidade) throws ServiceException {
+        if (idTratamento <= 0) throw new ServiceException("Tratamento é obrigatório.");
+        if (quantidade <= 0) throw new ServiceException("Quantidade de horários deve ser maior que zero.");
+        if (de == null || ate == null || !de.before(ate)) throw new ServiceException("Período de busca inválido.");
+        long inicio = Math.max(de.getTime(), System.currentTimeMillis());
+        long fim = ate.getTime();
+        if (fim - inicio > JANELA_MAXIMA_BUSCA_MS) throw new ServiceException("Período de busca maior que um ano.");
+        return new long[]{inicio, fim};
+    }
+
+    /** Ocupações ordenadas do dentista em [de, ate): do índice se a janela estiver coberta, senão do banco. */
+    private List<long[]> ocupados(int idDentista, long de, long ate) throws SQLException {
+        garantirIndiceAquecido();
+        if (indice.cobre(de, ate)) return indice.ocupados(idDentista, de, ate);
+
+        List<long[]> lista = new ArrayList<>();
+        for (Agendamento o : dao.listarOcupacoes(idDentista, new Timestamp(de), new Timestamp(ate))) {
+            lista.add(new long[]{o.getData_hora().getTime(), o.getData_hora_fim().getTime()});
+        }
+        return lista;
+    }
+
+    private List<HorarioLivre> paraHorarios(int idDentista, String nomeDentista, List<long[]> livres) {
+        List<HorarioLivre> lista = new ArrayList<>(livres.size());
+        for (long[] l : livres) {
+            lista.add(new HorarioLivre(idDentista, nomeDentista, new Date(l[0]), new Date(l[1])));
+        }
+        return lista;
+    }
+
+    // === Índice de intervalos ===
+
+    /**
+     * Pré-verificação em memória (O(log n)). Se o índice aponta conflito, confirma no banco
+     * antes de recusar: o índice pode estar defasado por escritas de outra estação.
+     */
+    private void verificarConflitoNoIndice(int idDentista, Timestamp inicio, Timestamp fim, Integer ignorarId)
+            throws SQLException, ServiceException {
+        garantirIndiceAquecido();
+        if (!indice.cobre(inicio.getTime(), fim.getTime())) return; // fora da janela: só o SQL decide
+
+        if (indice.buscarConflito(idDentista, inicio.getTime(), fim.getTime(), ignorarId) != null) {
+            if (dao.existeConflitoHorario(idDentista, inicio, fim, ignorarId)) {
+                throw new ServiceException("Conflito de agenda para o dentista no horário informado.");
+            }
+            indice.invalidar(); // índice defasado: recarrega na próxima consulta
+        }
+    }
+
+    /** Carrega a janela móvel do banco se o índice ainda não foi aquecido ou o TTL expirou. */
+    private void garantirIndiceAquecido() throws SQLException {
+        long agora = System.currentTimeMillis();
+        if (!indice.precisaAquecer(agora)) return;
+
+        long[] janela = indice.janelaPara(agora);
+        List<Agendamento> ocupados = dao.listarIntervalos(
+                new Timestamp(janela[0] - MARGEM_AQUECIMENTO_MS), new Timestamp(janela[1]));
+
+        List<IndiceAgenda.Intervalo> intervalos = new ArrayList<>(ocupados.size());
+        for (Agendamento o : ocupados) {
+            long inicio = o.getData_hora().getTime();
+            long fim = o.getData_hora_fim() != null
+                    ? o.getData_hora_fim().getTime()
+                    : inicio + durationProvider.getDuracaoMinutos(o.getId_tratamento()) * 60_000L;
+            if (fim > janela[0]) {
+                intervalos.add(new IndiceAgenda.Intervalo(o.getId_agendamento(), o.getId_dentista(), inicio, fim));
+            }
+        }
+        indice.carregar(intervalos, janela[0], janela[1], agora);
+    }
+
     // === Validações ===
     private void validarCamposObrigatorios(Agendamento a) throws ServiceException {
         if (a == null) throw new ServiceException("Agendamento não pode ser nulo.");
@@ -155,6 +493,15 @@ public class AgendamentoService {
         }
     }
 
+    /** Duração do tratamento, dentro do limite usado pela consulta de conflito. */
+    private long duracaoValida(int idTratamento) throws SQLException, ServiceException {
+        long duracaoMin = durationProvider.getDuracaoMinutos(idTratamento);
+        if (duracaoMin <= 0 || duracaoMin > AgendamentoDAO.DURACAO_MAXIMA_MIN) {
+            throw new ServiceException("Duração do tratamento inválida: " + duracaoMin + " min.");
+        }
+        return duracaoMin;
+    }
+
     // === Utils ===
     private Timestamp ts(Date d) { return new Timestamp(d.getTime()); }
     private Timestamp addMin(Timestamp inicio, long minutos) { return new Timestamp(inicio.getTime() + minutos * 60_000L); }
@@ -2,18 +2,29 @@ package service;
 
 import dao.AnamneseDao;
 import model.Anamnese;
+import model.ImagemOdontograma;
+import model.VersaoOdontograma;
 
+import javafx.scene.image.Image;
+
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class AnamneseService {
     private final AnamneseDao dao = new AnamneseDao();
+    private final MiniaturasOdontograma miniaturas = MiniaturasOdontograma.compartilhado();
 
     // uma chamada que faz tudo (upsert + imagem)
     public void salvarOuAtualizar(Anamnese a) throws SQLException {
         if (a == null) throw new SQLException("Objeto anamnese nulo.");
         if (a.id_paciente <= 0) throw new SQLException("Paciente inválido.");
         dao.salvarCompleto(a);
+        // miniatura da imagem nova gerada já agora, a partir dos bytes em memória
+        if (a.imagem_odontograma != null && a.imagem != null) {
+            miniaturas.gerarEmSegundoPlano(a.imagem.getHash(), a.imagem_odontograma);
+        }
     }
 
     public Anamnese buscarPorPaciente(long idPaciente) throws SQLException {
@@ -35,5 +46,42 @@ public class AnamneseService {
     public void removerImagem(long idPaciente) throws SQLException {
         dao.removerImagemOdontograma(idPaciente);
     }
-}
 
+    /** Lê a imagem referenciada em stream, direto do repositório de blobs pelo hash. */
+    public <T> T lerImagem(ImagemOdontograma imagem, AnamneseDao.LeitorImagem<T> leitor) throws SQLException {
+        if (imagem == null) return null;
+        if (imagem.getHash() != null) return dao.lerBlob(imagem.getHash(), leitor);
+        return dao.lerImagemOdontograma(imagem.getId_paciente(), leitor);
+    }
+
+    /** Miniatura já em memória (exibição imediata), ou null. */
+    public Image miniaturaEmMemoria(ImagemOdontograma imagem) {
+        return imagem == null ? null : miniaturas.emMemoria(imagem.getHash());
+    }
+
+    /** Miniatura para pré-visualização, do cache ou gerada em segundo plano. */
+    public CompletableFuture<Image> miniatura(ImagemOdontograma imagem) {
+        return miniaturas.miniatura(imagem.getHash());
+    }
+
+    /** Imagem em resolução original, decodificada em segundo plano. */
+    public CompletableFuture<Image> imagemCompleta(ImagemOdontograma imagem) {
+        return miniaturas.imagemCompleta(imagem.getHash());
+    }
+
+    /** Histórico do odontograma do paciente (só metadados; as imagens são lidas ao abrir). */
+    public List<VersaoOdontograma> listarVersoes(long idPaciente) throws SQLException {
+        return dao.listarVersoes(idPaciente);
+    }
+
+    /** Referência para exibir uma versão do histórico (miniatura ou imagem completa). */
+    public ImagemOdontograma imagemDaVersao(VersaoOdontograma v) {
+        return new ImagemOdontograma(v.getId_paciente(), v.getHash(), v.getTamanho(), v.getMime());
+    }
+
+    /** Volta a imagem de uma versão antiga como atual (nova versão, sem gravar o conteúdo de novo). */
+    public void restaurarVersao(VersaoOdontograma v) throws SQLException {
+        byte[] imagem = dao.lerBlob(v.getHash(), InputStream::readAllBytes);
+        dao.salvarOuAtualizarImagem(v.getId_paciente(), imagem);
+    }
+}
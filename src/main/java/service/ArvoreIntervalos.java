@@ -0,0 +1,164 @@
+package service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Árvore de intervalos [inicio, fim) em milissegundos, implementada como treap
+ * (árvore binária de busca balanceada por prioridade aleatória) ordenada por (inicio, id)
+ * e aumentada com o maior "fim" de cada subárvore.
+ *
+ * Inserção, remoção e busca de sobreposição em O(log n) esperado.
+ * Não é thread-safe: o acesso é sincronizado por {@link IndiceAgenda}.
+ */
+final class ArvoreIntervalos {
+
+    private static final class No {
+        final int id;
+        final long inicio;
+        final long fim;
+        final int prioridade = ThreadLocalRandom.current().nextInt();
+        long maxFim;
+        No esq, dir;
+
+        No(int id, long inicio, long fim) {
+            this.id = id;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.maxFim = fim;
+        }
+
+        int comparar(long outroInicio, int outroId) {
+            int c = Long.compare(inicio, outroInicio);
+            return c != 0 ? c : Integer.compare(id, outroId);
+        }
+    }
+
+    private No raiz;
+    private int tamanho;
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    void inserir(int id, long inicio, long fim) {
+        raiz = inserir(raiz, new No(id, inicio, fim));
+        tamanho++;
+    }
+
+    /** Remove o intervalo (id, inicio). Retorna false se não existia. */
+    boolean remover(int id, long inicio) {
+        int antes = tamanho;
+        raiz = remover(raiz, id, inicio);
+        return tamanho < antes;
+    }
+
+    /**
+     * Retorna o id de algum intervalo que sobrepõe [inicio, fim), ignorando {@code ignorarId},
+     * ou -1 se não houver sobreposição.
+     */
+    int buscarSobreposicao(long inicio, long fim, int ignorarId) {
+        return buscar(raiz, inicio, fim, ignorarId);
+    }
+
+    /**
+     * Adiciona ao destino, em ordem de início, todos os intervalos que sobrepõem [inicio, fim)
+     * como {inicio, fim}. O(log n + k).
+     */
+    void coletar(long inicio, long fim, List<long[]> destino) {
+        coletar(raiz, inicio, fim, destino);
+    }
+
+    // ============================================================
+    // ========================= INTERNOS =========================
+    // ============================================================
+
+    private No inserir(No n, No novo) {
+        if (n == null) return novo;
+        if (n.comparar(novo.inicio, novo.id) > 0) {
+            n.esq = inserir(n.esq, novo);
+            if (n.esq.prioridade > n.prioridade) n = girarDireita(n);
+        } else {
+            n.dir = inserir(n.dir, novo);
+            if (n.dir.prioridade > n.prioridade) n = girarEsquerda(n);
+        }
+        atualizar(n);
+        return n;
+    }
+
+    private No remover(No n, int id, long inicio) {
+        if (n == null) return null;
+        int c = n.comparar(inicio, id);
+        if (c > 0) {
+            n.esq = remover(n.esq, id, inicio);
+        } else if (c < 0) {
+            n.dir = remover(n.dir, id, inicio);
+        } else {
+            tamanho--;
+            return unir(n.esq, n.dir);
+        }
+        atualizar(n);
+        return n;
+    }
+
+    /** Une duas subárvores (todas as chaves de a < chaves de b). */
+    private No unir(No a, No b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.prioridade > b.prioridade) {
+            a.dir = unir(a.dir, b);
+            atualizar(a);
+            return a;
+        }
+        b.esq = unir(a, b.esq);
+        atualizar(b);
+        return b;
+    }
+
+    private int buscar(No n, long inicio, long fim, int ignorarId) {
+        // Nenhum intervalo da subárvore termina depois do início procurado
+        if (n == null || n.maxFim <= inicio) return -1;
+
+        int r = buscar(n.esq, inicio, fim, ignorarId);
+        if (r >= 0) return r;
+
+        if (n.inicio < fim && n.fim > inicio && n.id != ignorarId) return n.id;
+
+        // À direita todos começam em n.inicio ou depois
+        if (n.inicio >= fim) return -1;
+        return buscar(n.dir, inicio, fim, ignorarId);
+    }
+
+    private void coletar(No n, long inicio, long fim, List<long[]> destino) {
+        if (n == null || n.maxFim <= inicio) return;
+        coletar(n.esq, inicio, fim, destino);
+        if (n.inicio >= fim) return;
+        if (n.fim > inicio) destino.add(new long[]{n.inicio, n.fim});
+        coletar(n.dir, inicio, fim, destino);
+    }
+
+    private static void atualizar(No n) {
+        long m = n.fim;
+        if (n.esq != null && n.esq.maxFim > m) m = n.esq.maxFim;
+        if (n.dir != null && n.dir.maxFim > m) m = n.dir.maxFim;
+        n.maxFim = m;
+    }
+
+    private static No girarDireita(No n) {
+        No e = n.esq;
+        n.esq = e.dir;
+        e.dir = n;
+        atualizar(n);
+        atualizar(e);
+        return e;
+    }
+
+    private static No girarEsquerda(No n) {
+        No d = n.dir;
+        n.dir = d.esq;
+        d.esq = n;
+        atualizar(n);
+        atualizar(d);
+        return d;
+    }
+}
@@ -0,0 +1,122 @@
+package service;
+
+import config.Configuracao;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache em memória dos cadastros de referência usados nas listas e combos das telas
+ * (pacientes, dentistas, tratamentos, materiais e a ficha de materiais de cada tratamento).
+ *
+ * - Cada entrada é uma lista imutável sob uma chave ({@link #PACIENTES}, {@link #materiaisDoTratamento(int)}...).
+ * - Limitado a N entradas, descartando a usada há mais tempo (LRU), e com TTL para absorver
+ *   escritas de outras estações.
+ * - Invalidado pelos services a cada escrita no cadastro correspondente (write-through), então
+ *   trocar de tela sem alterar nada não consulta o banco.
+ *
+ * Compartilhado por todas as telas via {@link #compartilhado()}.
+ */
+public class CacheReferencia {
+
+    public static final String PACIENTES = "pacientes";
+    public static final String DENTISTAS = "dentistas";
+    public static final String TRATAMENTOS = "tratamentos";
+    public static final String MATERIAIS = "materiais";
+    private static final String PREFIXO_FICHA = "tratamento.materiais:";
+
+    /** Consulta que preenche uma entrada ausente ou expirada. */
+    @FunctionalInterface
+    public interface Carregador<T> {
+        List<T> carregar() throws SQLException;
+    }
+
+    private record Entrada(List<?> valores, long carregadaEm) {}
+
+    private static final CacheReferencia COMPARTILHADO = new CacheReferencia(
+            Configuracao.get().getInt("cache.referencia.maximoEntradas", 64),
+            Configuracao.get().getLong("cache.referencia.ttlMinutos", 10)
+    );
+
+    private final int maximoEntradas;
+    private final long ttlMs;
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    /** Incrementada a cada invalidação: carga iniciada antes dela não é guardada. */
+    private long geracao;
+
+    public CacheReferencia(int maximoEntradas, long ttlMinutos) {
+        this.maximoEntradas = Math.max(1, maximoEntradas);
+        this.ttlMs = ttlMinutos * 60_000L;
+    }
+
+    public static CacheReferencia compartilhado() {
+        return COMPARTILHADO;
+    }
+
+    /** Chave da ficha de materiais (com quantidade consumida) de um tratamento. */
+    public static String materiaisDoTratamento(int idTratamento) {
+        return PREFIXO_FICHA + idTratamento;
+    }
+
+    /**
+     * Lista guardada sob {@code chave} ou, se ausente/expirada, o resultado de {@code carregador}
+     * (a consulta roda fora do lock, sem bloquear as demais telas).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> obter(String chave, Carregador<T> carregador) throws SQLException {
+        long inicio;
+        synchronized (this) {
+            Entrada e = entradas.get(chave);
+            if (e != null && System.currentTimeMillis() - e.carregadaEm() <= ttlMs) return (List<T>) e.valores();
+            inicio = geracao;
+        }
+
+        List<T> valores = List.copyOf(carregador.carregar());
+
+        synchronized (this) {
+            if (geracao == inicio) {
+                entradas.put(chave, new Entrada(valores, System.currentTimeMillis()));
+                Iterator<Map.Entry<String, Entrada>> it = entradas.entrySet().iterator();
+                while (entradas.size() > maximoEntradas && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+        }
+        return valores;
+    }
+
+    /** Lista guardada sob {@code chave} se presente e dentro do TTL, ou null (não consulta o banco). */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> List<T> emCache(String chave) {
+        Entrada e = entradas.get(chave);
+        if (e == null || System.currentTimeMillis() - e.carregadaEm() > ttlMs) return null;
+        return (List<T>) e.valores();
+    }
+
+    /** Descarta as entradas informadas; a próxima leitura de cada uma vai ao banco. */
+    public synchronized void invalidar(String... chaves) {
+        geracao++;
+        for (String c : chaves) entradas.remove(c);
+    }
+
+    /** Descarta a ficha de materiais de um tratamento. */
+    public void invalidarFicha(int idTratamento) {
+        invalidar(materiaisDoTratamento(idTratamento));
+    }
+
+    /** Descarta as fichas de materiais de todos os tratamentos (ex.: material renomeado ou excluído). */
+    public synchronized void invalidarFichas() {
+        geracao++;
+        entradas.keySet().removeIf(c -> c.startsWith(PREFIXO_FICHA));
+    }
+
+    /** Descarta tudo. */
+    public synchronized void limpar() {
+        geracao++;
+        entradas.clear();
+    }
+}
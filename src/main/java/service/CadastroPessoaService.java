@@ -1,8 +1,11 @@
 package service;
 
+import config.Configuracao;
 import dao.CadastroPessoaDao;
+import model.ChaveFonetica;
 import model.Dentista;
 import model.Pessoa;
+import model.PossivelDuplicado;
 import java.sql.SQLException;
 
 import java.time.LocalDate;
@@ -13,6 +16,8 @@ import java.util.regex.Pattern;
 public class CadastroPessoaService {
 
     private final CadastroPessoaDao dao = new CadastroPessoaDao();
+    private final CacheReferencia cache = CacheReferencia.compartilhado();
+    private final IndicePacientes indice = IndicePacientes.compartilhado();
 
     /* ======================
      * LISTAGEM
@@ -23,9 +28,53 @@ public class CadastroPessoaService {
         return dao.listar();
     }
 
-    /** Lista apenas pacientes (não dentistas) */
+    /** Lista apenas pacientes (não dentistas); lista imutável vinda do {@link CacheReferencia} */
     public List<Pessoa> listarPacientes() throws SQLException {
-        return dao.listarPacientes();
+        return cache.obter(CacheReferencia.PACIENTES, dao::listarPacientes);
+    }
+
+    /**
+     * Até {@code limite} pacientes por nome (sem acento, qualquer parte), CPF ou telefone,
+     * do mais para o menos relevante, pelo {@link IndicePacientes} (sem ida ao banco
+     * enquanto a lista de pacientes não mudar).
+     */
+    public List<Pessoa> buscarPacientes(String consulta, int limite) throws SQLException {
+        atualizarIndice();
+        return indice.buscar(consulta, limite);
+    }
+
+    /**
+     * Paciente pelo ID a partir do índice (null se não for paciente). Se ele ainda não está no
+     * índice (ex.: recém-cadastrado), sincroniza na hora em vez de esperar a atualização.
+     */
+    public Pessoa buscarPaciente(int idPessoa) throws SQLException {
+        atualizarIndice();
+        Pessoa p = indice.porId(idPessoa);
+        if (p == null) {
+            indice.sincronizar(listarPacientes());
+            p = indice.porId(idPessoa);
+        }
+        return p;
+    }
+
+    /**
+     * Chamado a cada tecla (thread da UI): só a primeira construção do índice é feita aqui.
+     * Com a lista expirada ou alterada, recarga e reconstrução vão para segundo plano e a
+     * busca usa o índice anterior.
+     */
+    private void atualizarIndice() throws SQLException {
+        if (!indice.isConstruido()) {
+            indice.sincronizar(listarPacientes());
+            return;
+        }
+        if (!indice.atualizadoCom(cache.emCache(CacheReferencia.PACIENTES))) {
+            indice.atualizarEmSegundoPlano(this::listarPacientes);
+        }
+    }
+
+    /** Lista os dentistas; lista imutável vinda do {@link CacheReferencia} */
+    public List<Dentista> listarDentistas() throws SQLException {
+        return cache.obter(CacheReferencia.DENTISTAS, dao::listarDentista);
     }
 
     /* ======================
@@ -35,7 +84,9 @@ public class CadastroPessoaService {
     /** Insere uma nova pessoa (paciente ou dentista) */
     public long inserir(Pessoa p, Dentista d) throws SQLException {
         validarCamposObrigatorios(p, d);
-        return dao.inserirPessoa(p, d);
+        long id = dao.inserirPessoa(p, d);
+        cache.invalidar(CacheReferencia.PACIENTES, CacheReferencia.DENTISTAS);
+        return id;
     }
 
     /* ======================
@@ -47,6 +98,7 @@ public class CadastroPessoaService {
         validarCamposObrigatorios(p, d);
         dao.atualizarPessoa(p);
         dao.upsertDentista(p.id_pessoa, d);
+        cache.invalidar(CacheReferencia.PACIENTES, CacheReferencia.DENTISTAS);
     }
 
     /* ======================
@@ -56,6 +108,28 @@ public class CadastroPessoaService {
     /** Exclui uma pessoa e suas relações (CASCADE) */
     public void excluir(int idPessoa) throws SQLException {
         dao.excluirPessoa(idPessoa);
+        cache.invalidar(CacheReferencia.PACIENTES, CacheReferencia.DENTISTAS);
+    }
+
+    /* ======================
+     * POSSÍVEIS DUPLICADOS
+     * ====================== */
+
+    /**
+     * Pessoas já cadastradas com nome foneticamente igual ao de {@code p} (primeiro e último
+     * nome, ver {@link ChaveFonetica}), exceto a própria. Consultado antes de inserir, já que
+     * o banco só barra CPF repetido.
+     */
+    public List<Pessoa> possiveisDuplicados(Pessoa p) throws SQLException {
+        String chave = ChaveFonetica.deNome(p.nome);
+        if (chave.isEmpty()) return List.of();
+        return dao.listarPorChaveFonetica(chave, p.dt_nascimento, p.id_pessoa == 0 ? null : p.id_pessoa);
+    }
+
+    /** Varre todo o cadastro por pares com a mesma chave fonética (ver {@link CadastroPessoaDao#listarPossiveisDuplicados}). */
+    public List<PossivelDuplicado> varrerPossiveisDuplicados() throws SQLException {
+        int maximoPorBloco = Configuracao.get().getInt("pessoa.duplicados.maximoPorBloco", 50);
+        return dao.listarPossiveisDuplicados(Math.max(2, maximoPorBloco));
     }
 
     /* ======================
@@ -0,0 +1,75 @@
+package service;
+
+import dao.TratamentoDao;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Durações dos tratamentos (TB_TRATAMENTO.DURACAO_MINUTOS) mantidas em memória.
+ *
+ * - Carregado inteiro numa única consulta no primeiro uso; depois a verificação de
+ *   conflito da agenda não faz nenhuma ida ao banco para saber a duração.
+ * - Invalidado pelo {@link TratamentoService} a cada escrita no catálogo. A consulta roda fora
+ *   do lock; carga iniciada antes de uma invalidação não é guardada (como no {@link CacheReferencia}).
+ * - Um id desconhecido (tratamento criado por outra estação) provoca uma única recarga;
+ *   se continuar ausente, fica anotado como ausente até a próxima invalidação e usa
+ *   {@link TratamentoDao#DURACAO_PADRAO_MINUTOS}, sem recarregar a cada consulta.
+ *
+ * Compartilhado por todas as telas via {@link #compartilhado()}.
+ */
+public class CatalogoDuracoes implements AgendamentoService.DurationProvider {
+
+    private static final CatalogoDuracoes COMPARTILHADO = new CatalogoDuracoes(new TratamentoDao());
+
+    private final TratamentoDao dao;
+
+    /** Mapa imutável id -> minutos; null = precisa carregar. */
+    private Map<Integer, Integer> duracoes;
+    /** Ids ausentes na última carga. */
+    private final Set<Integer> ausentes = new HashSet<>();
+    /** Incrementada a cada invalidação: carga iniciada antes dela não é guardada. */
+    private long geracao;
+
+    public CatalogoDuracoes(TratamentoDao dao) {
+        this.dao = dao;
+    }
+
+    public static CatalogoDuracoes compartilhado() {
+        return COMPARTILHADO;
+    }
+
+    @Override
+    public long getDuracaoMinutos(int idTratamento) throws SQLException {
+        long inicio;
+        synchronized (this) {
+            if (duracoes != null) {
+                Integer minutos = duracoes.get(idTratamento);
+                if (minutos != null) return minutos;
+                if (ausentes.contains(idTratamento)) return TratamentoDao.DURACAO_PADRAO_MINUTOS;
+            }
+            inicio = geracao;
+        }
+
+        Map<Integer, Integer> mapa = Map.copyOf(dao.listarDuracoes());
+
+        synchronized (this) {
+            if (geracao == inicio) {
+                duracoes = mapa;
+                ausentes.clear();
+                if (!mapa.containsKey(idTratamento)) ausentes.add(idTratamento);
+            }
+        }
+        Integer minutos = mapa.get(idTratamento);
+        return minutos != null ? minutos : TratamentoDao.DURACAO_PADRAO_MINUTOS;
+    }
+
+    /** Descarta o cache; a próxima consulta recarrega o catálogo. */
+    public synchronized void invalidar() {
+        geracao++;
+        duracoes = null;
+        ausentes.clear();
+    }
+}
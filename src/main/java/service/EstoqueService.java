@@ -0,0 +1,192 @@
+package service;
+
+import dao.AgendamentoDAO;
+import dao.MaterialDAO;
+import dao.MovimentacaoEstoqueDAO;
+import dao.TratamentoDao;
+import model.Agendamento;
+import model.Material;
+import model.MovimentacaoEstoque;
+import model.PrevisaoFalta;
+import model.ResumoEstoque;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Consultas sobre o livro de movimentações de estoque, consolidação periódica dos saldos
+ * e previsão de falta de material pela agenda.
+ * As movimentações em si são gravadas pelo {@link MaterialService} (ou por quem consome
+ * material), na mesma transação que altera a quantidade.
+ */
+public class EstoqueService {
+
+    private final MovimentacaoEstoqueDAO dao;
+    private final MaterialDAO materialDao = new MaterialDAO();
+    private final AgendamentoDAO agendamentoDao = new AgendamentoDAO();
+    private final TratamentoDao tratamentoDao = new TratamentoDao();
+    private final PrevisaoEstoque previsao = PrevisaoEstoque.compartilhado();
+
+    public EstoqueService() {
+        this(new MovimentacaoEstoqueDAO());
+    }
+
+    public EstoqueService(MovimentacaoEstoqueDAO dao) {
+        this.dao = Objects.requireNonNull(dao);
+    }
+
+    /** Movimentações em [de, ate), opcionalmente de um material, da mais recente para a mais antiga. */
+    public List<MovimentacaoEstoque> listarMovimentacoes(Integer idMaterial, Date de, Date ate, int limite)
+            throws ServiceException {
+        validarPeriodo(de, ate);
+        if (limite <= 0) throw new ServiceException("Limite deve ser maior que zero.");
+        try {
+            return dao.listar(idMaterial, new Timestamp(de.getTime()), new Timestamp(ate.getTime()), limite);
+        } catch (SQLException e) {
+            throw wrap("Erro ao listar movimentações de estoque", e);
+        }
+    }
+
+    /** Saldo de cada material (ID -> quantidade) no instante informado. */
+    public Map<Integer, Integer> saldosEm(Date em) throws ServiceException {
+        if (em == null) throw new ServiceException("Data é obrigatória.");
+        try {
+            return dao.saldosEm(new Timestamp(em.getTime()));
+        } catch (SQLException e) {
+            throw wrap("Erro ao calcular saldos de estoque", e);
+        }
+    }
+
+    /** Entradas, consumos e ajustes de cada material em [de, ate), com saldos inicial e final. */
+    public List<ResumoEstoque> resumoPorPeriodo(Date de, Date ate) throws ServiceException {
+        validarPeriodo(de, ate);
+        try {
+            return dao.resumir(new Timestamp(de.getTime()), new Timestamp(ate.getTime()));
+        } catch (SQLException e) {
+            throw wrap("Erro ao resumir movimentações de estoque", e);
+        }
+    }
+
+    /**
+     * Grava novas fotografias de saldo até {@code margemMinutos} atrás
+     * (executado periodicamente; ver estoque.saldos.* em saco.properties).
+     * @return quantidade de fotografias gravadas
+     */
+    public int consolidarSaldos(long margemMinutos) throws ServiceException {
+        try {
+            return dao.consolidarSaldos(new Timestamp(System.currentTimeMillis() - margemMinutos * 60_000L));
+        } catch (SQLException e) {
+            throw wrap("Erro ao consolidar saldos de estoque", e);
+        }
+    }
+
+    // === Previsão de falta ===
+
+    /**
+     * Materiais que chegam ao ponto de reposição ou acabam até {@code ate} (inclusive),
+     * projetando o estoque atual contra o consumo dos agendamentos pendentes
+     * (agenda x ficha de materiais do tratamento), do que falta primeiro para o que falta depois.
+     * Materiais já no ponto de reposição entram com data de reposição = hoje.
+     */
+    public List<PrevisaoFalta> previsaoDeFalta(LocalDate ate) throws ServiceException {
+        LocalDate hoje = LocalDate.now();
+        if (ate == null) throw new ServiceException("Data é obrigatória.");
+        if (ate.isBefore(hoje)) throw new ServiceException("A data da previsão não pode estar no passado.");
+
+        try {
+            garantirPrevisaoAquecida(hoje);
+            if (!previsao.cobre(ate))
+                throw new ServiceException("A previsão cobre no máximo " + previsao.getDiasJanela() + " dias.");
+
+            Map<Integer, SortedMap<LocalDate, Integer>> consumo = previsao.consumoAte(ate);
+            List<PrevisaoFalta> faltas = new ArrayList<>();
+            for (Material m : materialDao.listar()) {
+                PrevisaoFalta f = projetar(m, consumo.getOrDefault(m.getID(), new TreeMap<>()), hoje);
+                if (f.getDataReposicao() != null || f.getDataEsgotamento() != null) faltas.add(f);
+            }
+            faltas.sort(Comparator.comparing(EstoqueService::primeiraData).thenComparing(PrevisaoFalta::getNome));
+            return faltas;
+        } catch (SQLException e) {
+            throw wrap("Erro ao calcular previsão de estoque", e);
+        }
+    }
+
+    /**
+     * Desconta o consumo dia a dia e anota quando o saldo cruza o ponto de reposição e o zero.
+     * Consumo de dias anteriores a {@code hoje} (atrasados, ou carga feita antes da virada do dia
+     * e ainda dentro do TTL) conta como de hoje: ainda não foi baixado.
+     */
+    private static PrevisaoFalta projetar(Material m, SortedMap<LocalDate, Integer> consumoPorDia, LocalDate hoje) {
+        int quantidade = m.getQUANTIDADE() == null ? 0 : m.getQUANTIDADE();
+        int ponto = m.getPONTO_REPOSICAO() == null ? 0 : m.getPONTO_REPOSICAO();
+
+        int saldo = quantidade;
+        LocalDate reposicao = ponto > 0 && saldo <= ponto ? hoje : null;
+        LocalDate esgotamento = null;
+        for (Map.Entry<LocalDate, Integer> e : consumoPorDia.entrySet()) {
+            saldo -= e.getValue();
+            LocalDate dia = e.getKey().isBefore(hoje) ? hoje : e.getKey();
+            if (reposicao == null && ponto > 0 && saldo <= ponto) reposicao = dia;
+            if (esgotamento == null && saldo < 0) esgotamento = dia;
+        }
+        return new PrevisaoFalta(m.getID(), m.getNOME(), quantidade, ponto,
+                quantidade - saldo, saldo, reposicao, esgotamento);
+    }
+
+    private static LocalDate primeiraData(PrevisaoFalta f) {
+        if (f.getDataReposicao() == null) return f.getDataEsgotamento();
+        if (f.getDataEsgotamento() == null) return f.getDataReposicao();
+        return f.getDataEsgotamento().isBefore(f.getDataReposicao()) ? f.getDataEsgotamento() : f.getDataReposicao();
+    }
+
+    /**
+     * Carrega agenda pendente e fichas de materiais se a previsão ainda não foi aquecida ou o TTL
+     * expirou. Carga atropelada por uma escrita na agenda é descartada e refeita (até 3 vezes).
+     */
+    private void garantirPrevisaoAquecida(LocalDate hoje) throws SQLException, ServiceException {
+        ZoneId zona = ZoneId.systemDefault();
+        LocalDate[] janela = previsao.janelaPara(hoje);
+        for (int tentativa = 0; tentativa < 3; tentativa++) {
+            long geracao = previsao.getGeracao();
+            long agora = System.currentTimeMillis();
+            if (!previsao.precisaAquecer(agora)) return;
+
+            List<Agendamento> pendentes = agendamentoDao.listarPendentesDeBaixa(
+                    Timestamp.from(janela[1].atStartOfDay(zona).toInstant()));
+
+            List<PrevisaoEstoque.Reserva> reservas = new ArrayList<>(pendentes.size());
+            for (Agendamento a : pendentes) {
+                reservas.add(new PrevisaoEstoque.Reserva(a.getId_agendamento(), a.getId_tratamento(),
+                        a.getData_hora().toInstant().atZone(zona).toLocalDate()));
+            }
+            if (previsao.carregar(reservas, tratamentoDao.listarConsumos(), janela[0], janela[1], agora, geracao)) return;
+        }
+        if (!previsao.cobre(hoje)) {
+            throw new ServiceException("A agenda está sendo alterada; tente calcular a previsão novamente.");
+        }
+    }
+
+    private void validarPeriodo(Date de, Date ate) throws ServiceException {
+        if (de == null || ate == null) throw new ServiceException("Período é obrigatório.");
+        if (!de.before(ate)) throw new ServiceException("Data inicial deve ser anterior à final.");
+    }
+
+    private ServiceException wrap(String msg, SQLException cause) {
+        return new ServiceException(msg + ": " + cause.getMessage(), cause);
+    }
+
+    public static class ServiceException extends Exception {
+        public ServiceException(String message) { super(message); }
+        public ServiceException(String message, Throwable cause) { super(message, cause); }
+    }
+}
@@ -0,0 +1,120 @@
+package service;
+
+import config.Configuracao;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Horário de atendimento da clínica (dias da semana + períodos do dia) e varredura de
+ * horários livres sobre a lista ordenada de ocupações de um dentista.
+ *
+ * Configuração (saco.properties):
+ * - agenda.expediente.dias      = 1,2,3,4,5        (1 = segunda ... 7 = domingo)
+ * - agenda.expediente.periodos  = 08:00-12:00,13:00-18:00
+ * - agenda.expediente.passoMinutos = 15           (grade dos horários sugeridos)
+ */
+public final class Expediente {
+
+    private record Periodo(LocalTime inicio, LocalTime fim) {}
+
+    private final Set<DayOfWeek> dias;
+    private final List<Periodo> periodos;
+    private final long passoMs;
+    private final ZoneId zona;
+
+    private Expediente(Set<DayOfWeek> dias, List<Periodo> periodos, long passoMinutos, ZoneId zona) {
+        this.dias = dias;
+        this.periodos = periodos;
+        this.passoMs = passoMinutos * 60_000L;
+        this.zona = zona;
+    }
+
+    public static Expediente daConfiguracao() {
+        Configuracao cfg = Configuracao.get();
+        return de(cfg.get("agenda.expediente.dias", "1,2,3,4,5"),
+                cfg.get("agenda.expediente.periodos", "08:00-12:00,13:00-18:00"),
+                cfg.getLong("agenda.expediente.passoMinutos", 15),
+                ZoneId.systemDefault());
+    }
+
+    /** Expediente a partir dos valores no formato de saco.properties (ver o cabeçalho da classe). */
+    static Expediente de(String textoDias, String textoPeriodos, long passo, ZoneId zona) {
+        Set<DayOfWeek> dias = EnumSet.noneOf(DayOfWeek.class);
+        for (String d : textoDias.split(",")) {
+            if (!d.isBlank()) dias.add(DayOfWeek.of(Integer.parseInt(d.trim())));
+        }
+
+        List<Periodo> periodos = new ArrayList<>();
+        for (String p : textoPeriodos.split(",")) {
+            if (p.isBlank()) continue;
+            String[] partes = p.trim().split("-");
+            LocalTime ini = LocalTime.parse(partes[0].trim());
+            LocalTime fim = LocalTime.parse(partes[1].trim());
+            if (!ini.isBefore(fim)) throw new IllegalStateException("Período de expediente inválido: " + p);
+            periodos.add(new Periodo(ini, fim));
+        }
+        periodos.sort((a, b) -> a.inicio().compareTo(b.inicio()));
+
+        if (passo <= 0) throw new IllegalStateException("agenda.expediente.passoMinutos deve ser > 0.");
+
+        return new Expediente(dias, periodos, passo, zona);
+    }
+
+    /**
+     * Primeiros {@code quantidade} horários [inicio, inicio + duracao) livres em [de, ate),
+     * dentro do expediente e alinhados à grade do passo, numa única passada sobre
+     * {@code ocupados} (ordenado pelo início, elementos {inicio, fim}).
+     *
+     * Custo O(dias × períodos + horários candidatos + ocupações), sem consultas ao banco.
+     */
+    List<long[]> horariosLivres(List<long[]> ocupados, long de, long ate, long duracaoMs, int quantidade) {
+        List<long[]> livres = new ArrayList<>(quantidade);
+        int b = 0; // primeira ocupação que ainda pode terminar depois do cursor
+
+        LocalDate dia = Instant.ofEpochMilli(de).atZone(zona).toLocalDate();
+        LocalDate ultimoDia = Instant.ofEpochMilli(ate).atZone(zona).toLocalDate();
+
+        for (; !dia.isAfter(ultimoDia) && livres.size() < quantidade; dia = dia.plusDays(1)) {
+            if (!dias.contains(dia.getDayOfWeek())) continue;
+
+            for (Periodo p : periodos) {
+                long inicioPeriodo = dia.atTime(p.inicio()).atZone(zona).toInstant().toEpochMilli();
+                long fimPeriodo = Math.min(dia.atTime(p.fim()).atZone(zona).toInstant().toEpochMilli(), ate);
+
+                long t = alinhar(Math.max(inicioPeriodo, de), inicioPeriodo);
+                while (t + duracaoMs <= fimPeriodo && livres.size() < quantidade) {
+                    while (b < ocupados.size() && ocupados.get(b)[1] <= t) b++;
+
+                    // Maior fim entre as ocupações que sobrepõem [t, t + duracao)
+                    long bloqueadoAte = -1;
+                    for (int j = b; j < ocupados.size() && ocupados.get(j)[0] < t + duracaoMs; j++) {
+                        if (ocupados.get(j)[1] > t) bloqueadoAte = Math.max(bloqueadoAte, ocupados.get(j)[1]);
+                    }
+
+                    if (bloqueadoAte < 0) {
+                        livres.add(new long[]{t, t + duracaoMs});
+                        t += passoMs;
+                    } else {
+                        t = alinhar(bloqueadoAte, inicioPeriodo);
+                    }
+                }
+            }
+        }
+        return livres;
+    }
+
+    /** Menor horário >= t na grade base + k × passo. */
+    private long alinhar(long t, long base) {
+        if (t <= base) return base;
+        long k = (t - base + passoMs - 1) / passoMs;
+        return base + k * passoMs;
+    }
+}
@@ -1,6 +1,7 @@
 // service/FinanceiroService.java
 package service;
 
+import dao.ConflitoVersaoException;
 import dao.FinanceiroDAO;
 import dao.PagamentoDAO;
 import model.*;
@@ -13,6 +14,9 @@ import java.util.Objects;
 
 public class FinanceiroService {
 
+    /** Releituras após conflito de versão ao recalcular a quitação. */
+    private static final int TENTATIVAS_CONFLITO = 3;
+
     private final FinanceiroDAO finDAO;
     private final PagamentoDAO pagDAO;
 
@@ -62,6 +66,19 @@ public class FinanceiroService {
         catch (SQLException e) { throw wrap("Erro ao listar financeiros", e); }
     }
 
+    /** Grava as alterações do título; falha se ele foi alterado por outra estação desde a leitura. */
+    public void atualizar(Financeiro f) throws ServiceException {
+        if (f == null || f.getId_financeiro() == null || f.getId_financeiro() <= 0)
+            throw new ServiceException("ID do financeiro é obrigatório.");
+        try {
+            if (!finDAO.atualizar(f)) throw new ServiceException("Atualização não efetuada.");
+        } catch (ConflitoVersaoException e) {
+            throw new ServiceException(e.getMessage(), e);
+        } catch (SQLException e) {
+            throw wrap("Erro ao atualizar financeiro (ID=" + f.getId_financeiro() + ")", e);
+        }
+    }
+
     public void cancelar(long id) throws ServiceException {
         try {
             Financeiro f = buscarPorId(id);
@@ -69,6 +86,8 @@ public class FinanceiroService {
                 throw new ServiceException("Título já quitado. Não é possível cancelar.");
             f.setStatus(StatusFinanceiro.CANCELADO);
             if (!finDAO.atualizar(f)) throw new ServiceException("Não foi possível cancelar o financeiro.");
+        } catch (ConflitoVersaoException e) {
+            throw new ServiceException(e.getMessage(), e);
         } catch (SQLException e) {
             throw wrap("Erro ao cancelar financeiro (ID=" + id + ")", e);
         }
@@ -103,13 +122,7 @@ public class FinanceiroService {
             long idPg = pagDAO.inserir(p);
 
             // Se o pagamento foi LIQUIDADO, avalia quitação
-            if (status == StatusPagamento.LIQUIDADO) {
-                BigDecimal totalPago = finDAO.somaPagamentos(idFinanceiro);
-                if (totalPago.compareTo(f.getValor_total()) >= 0) {
-                    f.setStatus(StatusFinanceiro.QUITADO);
-                    finDAO.atualizar(f);
-                }
-            }
+            if (status == StatusPagamento.LIQUIDADO) reavaliarQuitacao(idFinanceiro);
 
             return idPg;
         } catch (SQLException e) {
@@ -127,19 +140,38 @@ public class FinanceiroService {
             if (!pagDAO.atualizarStatus(idPagamento, StatusPagamento.ESTORNADO))
                 throw new ServiceException("Não foi possível estornar pagamento.");
 
-            Financeiro f = buscarPorId(idFinanceiro);
-            if (f.getStatus() == StatusFinanceiro.QUITADO) {
-                BigDecimal totalPago = finDAO.somaPagamentos(idFinanceiro);
-                if (totalPago.compareTo(f.getValor_total()) < 0) {
-                    f.setStatus(StatusFinanceiro.ABERTO);
-                    finDAO.atualizar(f);
-                }
-            }
+            reavaliarQuitacao(idFinanceiro);
         } catch (SQLException e) {
             throw wrap("Erro ao estornar pagamento", e);
         }
     }
 
+    /**
+     * ABERTO <-> QUITADO conforme o total liquidado. Grava com controle de versão e,
+     * se outra estação alterou o título no meio, relê e reavalia.
+     */
+    private void reavaliarQuitacao(long idFinanceiro) throws ServiceException, SQLException {
+        for (int tentativa = 1; ; tentativa++) {
+            Financeiro f = buscarPorId(idFinanceiro);
+            BigDecimal totalPago = finDAO.somaPagamentos(idFinanceiro);
+
+            StatusFinanceiro novo = f.getStatus();
+            if (f.getStatus() == StatusFinanceiro.ABERTO && totalPago.compareTo(f.getValor_total()) >= 0)
+                novo = StatusFinanceiro.QUITADO;
+            else if (f.getStatus() == StatusFinanceiro.QUITADO && totalPago.compareTo(f.getValor_total()) < 0)
+                novo = StatusFinanceiro.ABERTO;
+            if (novo == f.getStatus()) return;
+
+            f.setStatus(novo);
+            try {
+                finDAO.atualizar(f);
+                return;
+            } catch (ConflitoVersaoException e) {
+                if (tentativa >= TENTATIVAS_CONFLITO) throw new ServiceException(e.getMessage(), e);
+            }
+        }
+    }
+
     // ===== Util =====
     private ServiceException wrap(String msg, SQLException cause) {
         return new ServiceException(msg + ": " + cause.getMessage(), cause);
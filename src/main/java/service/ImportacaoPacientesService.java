@@ -0,0 +1,333 @@
+package service;
+
+import config.Configuracao;
+import dao.CadastroPessoaDao;
+import model.ErroImportacao;
+import model.Pessoa;
+import model.ResultadoImportacao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Importação de pacientes a partir de planilha CSV (migração de outros sistemas).
+ *
+ * - O arquivo é lido em streaming, um lote de {@code importacao.pacientes.tamanhoLote} registros
+ *   por vez; só o lote corrente e os CPFs já vistos ficam em memória.
+ * - A validação de cada lote (nome, CPF com dígitos verificadores, telefone, data) roda em paralelo.
+ * - Cada lote válido é gravado numa transação (TB_PESSOA e TB_PACIENTE em lote, ver
+ *   {@link CadastroPessoaDao#inserirPacientesEmLote}). Se o lote falhar no banco, é regravado
+ *   registro a registro para apontar só as linhas com problema.
+ * - Erros são reportados por linha; o restante do arquivo segue sendo importado.
+ *
+ * Cabeçalho obrigatório, separador ";" ou "," (o que aparecer mais no cabeçalho). Colunas
+ * reconhecidas: nome, cpf, telefone (ou celular), email, nascimento (dd/MM/aaaa ou aaaa-MM-dd).
+ */
+public class ImportacaoPacientesService {
+
+    private static final DateTimeFormatter DATA_BR = DateTimeFormatter.ofPattern("d/M/uuuu");
+
+    private final CadastroPessoaDao dao = new CadastroPessoaDao();
+    private final CacheReferencia cache = CacheReferencia.compartilhado();
+    private final int tamanhoLote = Math.max(1, Configuracao.get().getInt("importacao.pacientes.tamanhoLote", 500));
+
+    /** Registro lido do CSV, com a linha do arquivo onde começa. */
+    private record Registro(long linha, List<String> campos) {}
+
+    /** Resultado da validação de um registro: pessoa pronta para gravar ou mensagem de erro. */
+    private record Validado(long linha, Pessoa pessoa, String erro) {}
+
+    /** Importa o arquivo; a codificação (UTF-8 ou Windows-1252, comum em planilhas) é detectada antes. */
+    public ResultadoImportacao importar(Path arquivo) throws IOException, SQLException {
+        try (BufferedReader in = Files.newBufferedReader(arquivo, codificacaoDe(arquivo))) {
+            return importar(in);
+        }
+    }
+
+    public ResultadoImportacao importar(Reader origem) throws IOException, SQLException {
+        LeitorCsv leitor = new LeitorCsv(origem instanceof BufferedReader b ? b : new BufferedReader(origem));
+        Map<String, Integer> colunas = lerCabecalho(leitor);
+
+        ResultadoImportacao resultado = new ResultadoImportacao();
+        Set<String> cpfsDoArquivo = new HashSet<>();
+        try {
+            List<Registro> lote = new ArrayList<>(tamanhoLote);
+            Registro r;
+            while ((r = leitor.proximo()) != null) {
+                if (r.campos().stream().allMatch(String::isBlank)) continue; // linha em branco
+                lote.add(r);
+                if (lote.size() == tamanhoLote) {
+                    processarLote(lote, colunas, cpfsDoArquivo, resultado);
+                    lote.clear();
+                }
+            }
+            processarLote(lote, colunas, cpfsDoArquivo, resultado);
+        } finally {
+            if (resultado.getImportados() > 0) cache.invalidar(CacheReferencia.PACIENTES);
+        }
+        resultado.getErros().sort(Comparator.comparingLong(ErroImportacao::getLinha));
+        return resultado;
+    }
+
+    // ============================================================
+    // =========================== LOTE ===========================
+    // ============================================================
+
+    private void processarLote(List<Registro> lote, Map<String, Integer> colunas, Set<String> cpfsDoArquivo,
+                               ResultadoImportacao resultado) throws SQLException {
+        if (lote.isEmpty()) return;
+        resultado.lidos += lote.size();
+
+        List<Validado> validados = lote.parallelStream().map(r -> validar(r, colunas)).toList();
+
+        // CPF repetido no próprio arquivo ou já cadastrado: checagem sequencial, uma consulta por lote
+        Map<String, Validado> candidatos = new LinkedHashMap<>();
+        for (Validado v : validados) {
+            if (v.erro() != null) {
+                resultado.erros.add(new ErroImportacao(v.linha(), v.erro()));
+            } else if (!cpfsDoArquivo.add(v.pessoa().cpf)) {
+                resultado.erros.add(new ErroImportacao(v.linha(), "CPF repetido no arquivo."));
+            } else {
+                candidatos.put(v.pessoa().cpf, v);
+            }
+        }
+        for (String cpf : dao.cpfsExistentes(candidatos.keySet())) {
+            resultado.erros.add(new ErroImportacao(candidatos.remove(cpf).linha(), "CPF já cadastrado."));
+        }
+        if (candidatos.isEmpty()) return;
+
+        List<Pessoa> pessoas = new ArrayList<>(candidatos.size());
+        for (Validado v : candidatos.values()) pessoas.add(v.pessoa());
+        try {
+            dao.inserirPacientesEmLote(pessoas);
+            resultado.importados += pessoas.size();
+        } catch (SQLException e) {
+            // lote desfeito: regrava um a um para isolar as linhas com erro (ex.: CPF inserido
+            // por outra estação entre a checagem e o INSERT)
+            for (Validado v : candidatos.values()) {
+                try {
+                    dao.inserirPacientesEmLote(List.of(v.pessoa()));
+                    resultado.importados++;
+                } catch (SQLException porLinha) {
+                    resultado.erros.add(new ErroImportacao(v.linha(), mensagemBanco(porLinha)));
+                }
+            }
+        }
+    }
+
+    private static String mensagemBanco(SQLException e) {
+        String state = e.getSQLState();
+        if ("23000".equals(state) || "23505".equals(state)) return "CPF já cadastrado.";
+        return "Erro no banco: " + e.getMessage();
+    }
+
+    // ============================================================
+    // ========================= VALIDAÇÃO ========================
+    // ============================================================
+
+    /** Sem estado compartilhado: roda em paralelo. */
+    private static Validado validar(Registro r, Map<String, Integer> colunas) {
+        String nome = campo(r, colunas, "nome").trim().replaceAll("\\s+", " ");
+        if (nome.isEmpty()) return erro(r, "Nome é obrigatório.");
+        if (nome.length() > 120) return erro(r, "Nome com mais de 120 caracteres.");
+
+        String cpf = campo(r, colunas, "cpf").replaceAll("\\D", "");
+        if (cpf.length() < 11 && !cpf.isEmpty()) cpf = "0".repeat(11 - cpf.length()) + cpf; // zeros perdidos na planilha
+        if (!cpfValido(cpf)) return erro(r, "CPF inválido: \"" + campo(r, colunas, "cpf") + "\".");
+
+        String telefone = campo(r, colunas, "telefone").replaceAll("\\D", "");
+        if (!telefone.isEmpty() && (telefone.length() < 10 || telefone.length() > 11))
+            return erro(r, "Telefone deve ter 10 ou 11 dígitos (DDD + número).");
+
+        String email = campo(r, colunas, "email").trim();
+        if (email.length() > 120) return erro(r, "E-mail com mais de 120 caracteres.");
+        if (!email.isEmpty() && !email.matches("[^@\\s]+@[^@\\s]+\\.[^@\\s]+"))
+            return erro(r, "E-mail inválido: \"" + email + "\".");
+
+        Date nascimento = null;
+        String textoData = campo(r, colunas, "nascimento").trim();
+        if (!textoData.isEmpty()) {
+            LocalDate data;
+            try {
+                data = textoData.contains("/") ? LocalDate.parse(textoData, DATA_BR) : LocalDate.parse(textoData);
+            } catch (DateTimeParseException e) {
+                return erro(r, "Data de nascimento inválida: \"" + textoData + "\".");
+            }
+            if (data.isAfter(LocalDate.now()) || data.getYear() < 1900)
+                return erro(r, "Data de nascimento fora do intervalo: \"" + textoData + "\".");
+            nascimento = Date.from(data.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        }
+
+        Pessoa p = new Pessoa();
+        p.nome = nome;
+        p.cpf = cpf;
+        p.telefone = telefone;
+        p.email = email.isEmpty() ? null : email;
+        p.dt_nascimento = nascimento;
+        return new Validado(r.linha(), p, null);
+    }
+
+    private static Validado erro(Registro r, String mensagem) {
+        return new Validado(r.linha(), null, mensagem);
+    }
+
+    private static String campo(Registro r, Map<String, Integer> colunas, String nome) {
+        Integer i = colunas.get(nome);
+        return i == null || i >= r.campos().size() ? "" : r.campos().get(i);
+    }
+
+    /** 11 dígitos, não todos iguais, com os dois dígitos verificadores corretos. */
+    static boolean cpfValido(String cpf) {
+        if (cpf.length() != 11 || cpf.chars().distinct().count() == 1) return false;
+        for (int dv = 9; dv <= 10; dv++) {
+            int soma = 0;
+            for (int i = 0; i < dv; i++) soma += (cpf.charAt(i) - '0') * (dv + 1 - i);
+            int esperado = (soma * 10) % 11 % 10;
+            if (cpf.charAt(dv) - '0' != esperado) return false;
+        }
+        return true;
+    }
+
+    // ============================================================
+    // ======================== LEITURA CSV =======================
+    // ============================================================
+
+    private static Map<String, Integer> lerCabecalho(LeitorCsv leitor) throws IOException {
+        String primeira = leitor.espiarLinha();
+        if (primeira == null) throw new IOException("Arquivo vazio.");
+        leitor.separador = contar(primeira, ';') >= contar(primeira, ',') ? ';' : ',';
+
+        Registro cabecalho = leitor.proximo();
+        Map<String, Integer> colunas = new HashMap<>();
+        for (int i = 0; i < cabecalho.campos().size(); i++) {
+            String c = IndicePacientes.normalizar(cabecalho.campos().get(i).replace("\uFEFF", ""))
+                    .replace("_", " ").replace("-", "");
+            String chave = switch (c) {
+                case "nome", "nome completo", "paciente" -> "nome";
+                case "cpf" -> "cpf";
+                case "telefone", "celular", "fone", "tel" -> "telefone";
+                case "email" -> "email";
+                case "nascimento", "data nascimento", "data de nascimento", "dt nascimento" -> "nascimento";
+                default -> null;
+            };
+            if (chave != null) colunas.putIfAbsent(chave, i);
+        }
+        if (!colunas.containsKey("nome") || !colunas.containsKey("cpf"))
+            throw new IOException("Cabeçalho precisa das colunas \"nome\" e \"cpf\".");
+        return colunas;
+    }
+
+    private static int contar(String s, char c) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) if (s.charAt(i) == c) n++;
+        return n;
+    }
+
+    /** UTF-8 se o arquivo inteiro decodifica sem erro; senão Windows-1252 (Excel em pt-BR). */
+    private static Charset codificacaoDe(Path arquivo) throws IOException {
+        CharsetDecoder dec = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        try (InputStream in = Files.newInputStream(arquivo)) {
+            byte[] buf = new byte[64 * 1024];
+            ByteBuffer pendente = ByteBuffer.allocate(buf.length + 8);
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                pendente.put(buf, 0, n).flip();
+                // bytes de um caractere cortado no fim do bloco ficam para o próximo
+                CoderResult r = dec.decode(pendente, CharBuffer.allocate(pendente.remaining()), false);
+                if (r.isError()) r.throwException();
+                pendente.compact();
+            }
+            pendente.flip();
+            CoderResult r = dec.decode(pendente, CharBuffer.allocate(8), true);
+            if (r.isError()) r.throwException();
+        } catch (CharacterCodingException e) {
+            return Charset.forName("windows-1252");
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /** Lê registros CSV com aspas (campos com separador, aspas dobradas e quebra de linha). */
+    private static final class LeitorCsv {
+        private final BufferedReader in;
+        private char separador = ';';
+        private long linha;
+        private String espiada;
+
+        LeitorCsv(BufferedReader in) {
+            this.in = in;
+        }
+
+        String espiarLinha() throws IOException {
+            if (espiada == null) espiada = in.readLine();
+            return espiada;
+        }
+
+        private String lerLinha() throws IOException {
+            String s = espiada != null ? espiada : in.readLine();
+            espiada = null;
+            if (s != null) linha++;
+            return s;
+        }
+
+        Registro proximo() throws IOException {
+            String s = lerLinha();
+            if (s == null) return null;
+            long inicio = linha;
+
+            List<String> campos = new ArrayList<>();
+            StringBuilder atual = new StringBuilder();
+            boolean entreAspas = false;
+            while (true) {
+                for (int i = 0; i < s.length(); i++) {
+                    char c = s.charAt(i);
+                    if (entreAspas) {
+                        if (c == '"' && i + 1 < s.length() && s.charAt(i + 1) == '"') { atual.append('"'); i++; }
+                        else if (c == '"') entreAspas = false;
+                        else atual.append(c);
+                    } else if (c == '"') {
+                        entreAspas = true;
+                    } else if (c == separador) {
+                        campos.add(atual.toString());
+                        atual.setLength(0);
+                    } else {
+                        atual.append(c);
+                    }
+                }
+                if (!entreAspas) break;
+                s = lerLinha();                        // campo entre aspas continua na próxima linha
+                if (s == null) break;
+                atual.append('\n');
+            }
+            campos.add(atual.toString());
+            return new Registro(inicio, campos);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package service;
+
+import config.Configuracao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice em memória dos horários ocupados, uma {@link ArvoreIntervalos} por dentista.
+ *
+ * - É aquecido a partir do banco para uma janela móvel (agora .. agora + N dias).
+ * - É mantido coerente pelas escritas do {@link AgendamentoService} (criar/atualizar/excluir).
+ * - Como outras estações também escrevem no banco, o índice é reaquecido após o TTL e
+ *   serve apenas como pré-verificação rápida: a verificação SQL dentro da transação
+ *   de escrita continua sendo a autoritativa.
+ *
+ * Compartilhado por todas as telas via {@link #compartilhado()}.
+ */
+public class IndiceAgenda {
+
+    /** Intervalo ocupado [inicio, fim) em epoch millis. */
+    public record Intervalo(int idAgendamento, int idDentista, long inicio, long fim) {}
+
+    private static final IndiceAgenda COMPARTILHADO = new IndiceAgenda(
+            Configuracao.get().getInt("agenda.indice.diasJanela", 180),
+            Configuracao.get().getLong("agenda.indice.ttlMinutos", 15)
+    );
+
+    private final long janelaMs;
+    private final long ttlMs;
+
+    private final Map<Integer, ArvoreIntervalos> porDentista = new HashMap<>();
+    private final Map<Integer, Intervalo> porId = new HashMap<>();
+
+    private boolean aquecido;
+    private long aquecidoEm;
+    private long janelaInicio;
+    private long janelaFim;
+
+    public IndiceAgenda(int diasJanela, long ttlMinutos) {
+        this.janelaMs = diasJanela * 24L * 60 * 60_000L;
+        this.ttlMs = ttlMinutos * 60_000L;
+    }
+
+    public static IndiceAgenda compartilhado() {
+        return COMPARTILHADO;
+    }
+
+    // ============================================================
+    // ========================= CARGA ============================
+    // ============================================================
+
+    /** true se nunca foi carregado ou se o TTL expirou. */
+    public synchronized boolean precisaAquecer(long agora) {
+        return !aquecido || agora - aquecidoEm > ttlMs;
+    }
+
+    /** Início/fim da janela a ser carregada se o aquecimento ocorrer agora. */
+    public long[] janelaPara(long agora) {
+        return new long[]{agora, agora + janelaMs};
+    }
+
+    /**
+     * Substitui todo o conteúdo do índice.
+     * @param intervalos ocupações que tocam a janela (inclusive as que começam antes dela)
+     */
+    public synchronized void carregar(List<Intervalo> intervalos, long inicio, long fim, long agora) {
+        porDentista.clear();
+        porId.clear();
+        for (Intervalo i : intervalos) adicionar(i);
+        janelaInicio = inicio;
+        janelaFim = fim;
+        aquecidoEm = agora;
+        aquecido = true;
+    }
+
+    /** Força recarga na próxima consulta. */
+    public synchronized void invalidar() {
+        aquecido = false;
+    }
+
+    // ============================================================
+    // ======================== CONSULTA ==========================
+    // ============================================================
+
+    /** true se [inicio, fim) está inteiramente dentro da janela carregada. */
+    public synchronized boolean cobre(long inicio, long fim) {
+        return aquecido && inicio >= janelaInicio && fim <= janelaFim;
+    }
+
+    /**
+     * Id de um agendamento do dentista que sobrepõe [inicio, fim), ou null.
+     * Só é significativo quando {@link #cobre(long, long)} é true.
+     */
+    public synchronized Integer buscarConflito(int idDentista, long inicio, long fim, Integer ignorarId) {
+        ArvoreIntervalos arvore = porDentista.get(idDentista);
+        if (arvore == null) return null;
+        int id = arvore.buscarSobreposicao(inicio, fim, ignorarId == null ? -1 : ignorarId);
+        return id < 0 ? null : id;
+    }
+
+    /**
+     * Ocupações do dentista que sobrepõem [inicio, fim), ordenadas pelo início, como {inicio, fim}.
+     * Só é significativo quando {@link #cobre(long, long)} é true.
+     */
+    public synchronized List<long[]> ocupados(int idDentista, long inicio, long fim) {
+        List<long[]> lista = new ArrayList<>();
+        ArvoreIntervalos arvore = porDentista.get(idDentista);
+        if (arvore != null) arvore.coletar(inicio, fim, lista);
+        return lista;
+    }
+
+    // ============================================================
+    // ======================= MANUTENÇÃO =========================
+    // ============================================================
+
+    /** Insere ou move um agendamento (após escrita bem-sucedida no banco). */
+    public synchronized void registrar(Intervalo i) {
+        if (!aquecido) return;
+        removerInterno(i.idAgendamento());
+        if (i.fim() > janelaInicio && i.inicio() < janelaFim) adicionar(i);
+    }
+
+    /** Remove um agendamento (após exclusão no banco). */
+    public synchronized void remover(int idAgendamento) {
+        removerInterno(idAgendamento);
+    }
+
+    private void adicionar(Intervalo i) {
+        porDentista.computeIfAbsent(i.idDentista(), k -> new ArvoreIntervalos())
+                .inserir(i.idAgendamento(), i.inicio(), i.fim());
+        porId.put(i.idAgendamento(), i);
+    }
+
+    private void removerInterno(int idAgendamento) {
+        Intervalo antigo = porId.remove(idAgendamento);
+        if (antigo == null) return;
+        ArvoreIntervalos arvore = porDentista.get(antigo.idDentista());
+        if (arvore != null) {
+            arvore.remover(antigo.idAgendamento(), antigo.inicio());
+            if (arvore.tamanho() == 0) porDentista.remove(antigo.idDentista());
+        }
+    }
+}
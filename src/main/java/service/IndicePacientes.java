@@ -0,0 +1,472 @@
+package service;
+
+import model.Pessoa;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Índice em memória para localizar pacientes por nome, CPF ou telefone enquanto o usuário digita.
+ *
+ * - Nomes normalizados (minúsculos, sem acento); cada termo da busca com 3+ letras é resolvido
+ *   pela interseção das listas de trigramas, termos de 1-2 letras por prefixo de palavra
+ *   (busca binária num vetor ordenado de palavras).
+ * - CPF e telefone indexados só pelos dígitos, também por trigramas ("123" acha 123.456.789-00).
+ * - Construído a partir da lista de pacientes do {@link CacheReferencia}; reconstruído apenas
+ *   quando essa lista muda (a estrutura é imutável e trocada de uma vez, sem travar as buscas).
+ * - Depois da primeira construção, recarga e reconstrução rodam em segundo plano
+ *   ({@link #atualizarEmSegundoPlano}): a digitação segue na estrutura anterior até a troca.
+ *
+ * Compartilhado por todas as telas via {@link #compartilhado()}.
+ */
+public class IndicePacientes {
+
+    private static final IndicePacientes COMPARTILHADO = new IndicePacientes();
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+
+    private volatile Estrutura estrutura = new Estrutura(List.of());
+    /** Última lista recebida em {@link #sincronizar}; pode ser outra instância com o mesmo conteúdo. */
+    private volatile List<Pessoa> vista = List.of();
+    private volatile boolean construido;
+
+    /** Uma atualização em segundo plano por vez; pedidos durante ela são ignorados. */
+    private final AtomicBoolean atualizando = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "saco-indice-pacientes");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Lista atual de pacientes (ex.: do {@link CacheReferencia}, indo ao banco se expirou). */
+    @FunctionalInterface
+    public interface Fonte {
+        List<Pessoa> listar() throws SQLException;
+    }
+
+    public static IndicePacientes compartilhado() {
+        return COMPARTILHADO;
+    }
+
+    /**
+     * Reconstrói o índice se o conteúdo de {@code pacientes} mudou desde a última construção.
+     * A recarga periódica do cache devolve outra lista, quase sempre igual: nesse caso a
+     * comparação basta e a estrutura é mantida.
+     */
+    public void sincronizar(List<Pessoa> pacientes) {
+        if (vista == pacientes) return;
+        synchronized (this) {
+            if (vista == pacientes) return;
+            if (!pacientes.equals(estrutura.origem)) estrutura = new Estrutura(pacientes);
+            vista = pacientes;
+            construido = true;
+        }
+    }
+
+    /** true se o índice já foi construído a partir de exatamente esta lista. */
+    public boolean atualizadoCom(List<Pessoa> pacientes) {
+        return pacientes != null && vista == pacientes;
+    }
+
+    /** Já houve alguma construção (até lá as buscas não teriam o que devolver). */
+    public boolean isConstruido() {
+        return construido;
+    }
+
+    /**
+     * Lê {@code fonte} e {@link #sincronizar sincroniza} fora da thread chamadora; as buscas
+     * continuam na estrutura atual até a nova ficar pronta. Falhas são só registradas (a
+     * próxima busca tenta de novo).
+     */
+    public void atualizarEmSegundoPlano(Fonte fonte) {
+        if (!atualizando.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            try {
+                sincronizar(fonte.listar());
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("⚠ Falha ao atualizar o índice de pacientes: " + e.getMessage());
+            } finally {
+                atualizando.set(false);
+            }
+        });
+    }
+
+    public int tamanho() {
+        return estrutura.pessoas.length;
+    }
+
+    /** Paciente pelo ID, ou null. */
+    public Pessoa porId(int idPessoa) {
+        Integer i = estrutura.posicaoPorId.get(idPessoa);
+        return i == null ? null : estrutura.pessoas[i];
+    }
+
+    /**
+     * Até {@code k} pacientes que casam com {@code consulta}, do mais para o menos relevante:
+     * nome começando pela consulta; depois todos os termos como início de palavra; depois
+     * termos no meio do nome; empates em ordem alfabética. Consulta só com dígitos (3+)
+     * procura em CPF e telefone. Consulta vazia devolve os primeiros em ordem alfabética.
+     */
+    public List<Pessoa> buscar(String consulta, int k) {
+        Estrutura e = estrutura;
+        if (k <= 0) return List.of();
+        String q = normalizar(consulta);
+        if (q.isEmpty()) return e.primeiros(k);
+
+        if (!q.chars().anyMatch(Character::isLetter)) {
+            String digitos = soDigitos(q);
+            return digitos.length() < 3 ? List.of() : e.buscarDigitos(digitos, k);
+        }
+        return e.buscarNome(q, k);
+    }
+
+    /** Minúsculas, sem acentos e com espaços simples. */
+    public static String normalizar(String s) {
+        if (s == null) return "";
+        if (!ehAscii(s)) {
+            s = ACENTOS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean espaco = false;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                espaco = sb.length() > 0;
+            } else {
+                if (espaco) sb.append(' ');
+                sb.append(Character.toLowerCase(ch));
+                espaco = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean ehAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0x7F) return false;
+        }
+        return true;
+    }
+
+    /** Só os dígitos de {@code s} (CPF e telefone chegam formatados). */
+    private static String soDigitos(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch >= '0' && ch <= '9') sb.append(ch);
+        }
+        return sb.toString();
+    }
+
+    // ============================================================
+    // ======================= ESTRUTURA ==========================
+    // ============================================================
+
+    private record Palavra(String texto, int dono) {}
+
+    /** Índice imutável construído de uma vez a partir de uma lista de pacientes. */
+    private static final class Estrutura {
+        final List<Pessoa> origem;
+        final Pessoa[] pessoas;
+        final String[] nomes;
+        final String[] digitos;
+        final Map<Integer, Integer> posicaoPorId = new HashMap<>();
+        final Trigramas trigramasNome;
+        final Trigramas trigramasDigitos;
+        /** Palavras de todos os nomes em ordem, com o paciente de cada uma. */
+        final String[] palavras;
+        final int[] donoPalavra;
+
+        Estrutura(List<Pessoa> origem) {
+            this.origem = origem;
+            int n = origem.size();
+            // posição = ordem alfabética do nome normalizado: listas de posições crescentes já
+            // saem em ordem alfabética e o prefixo do nome inteiro é uma faixa contígua
+            String[] normalizados = new String[n];
+            Integer[] ordem = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                normalizados[i] = normalizar(origem.get(i).getNome());
+                ordem[i] = i;
+            }
+            Arrays.sort(ordem, Comparator.comparing(i -> normalizados[i]));
+            pessoas = new Pessoa[n];
+            nomes = new String[n];
+            digitos = new String[n];
+            for (int i = 0; i < n; i++) {
+                pessoas[i] = origem.get(ordem[i]);
+                nomes[i] = normalizados[ordem[i]];
+            }
+
+            ListaLong triNome = new ListaLong();
+            ListaLong triDig = new ListaLong();
+            List<Palavra> todas = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                Pessoa p = pessoas[i];
+                posicaoPorId.put(p.getId_pessoa(), i);
+                String cpf = soDigitos(p.getCpf());
+                String tel = soDigitos(p.getTelefone());
+                digitos[i] = cpf + " " + tel;
+
+                indexarTrigramas(triNome, nomes[i], i);
+                indexarTrigramas(triDig, cpf, i);
+                indexarTrigramas(triDig, tel, i);
+                for (String w : nomes[i].split(" ")) {
+                    if (!w.isEmpty()) todas.add(new Palavra(w, i));
+                }
+            }
+            trigramasNome = new Trigramas(triNome);
+            trigramasDigitos = new Trigramas(triDig);
+
+            todas.sort(Comparator.comparing(Palavra::texto));
+            palavras = new String[todas.size()];
+            donoPalavra = new int[todas.size()];
+            for (int j = 0; j < todas.size(); j++) {
+                palavras[j] = todas.get(j).texto();
+                donoPalavra[j] = todas.get(j).dono();
+            }
+        }
+
+        List<Pessoa> primeiros(int k) {
+            return List.of(Arrays.copyOf(pessoas, Math.min(k, pessoas.length)));
+        }
+
+        List<Pessoa> buscarDigitos(String d, int k) {
+            Classificacao c = new Classificacao(k, 2);
+            for (int i : porTrigramas(trigramasDigitos, d)) {
+                if (!digitos[i].contains(d)) continue;
+                c.oferecer(i, digitos[i].startsWith(d) || digitos[i].contains(" " + d) ? 0 : 1);
+                if (c.completoAte(0)) break;
+            }
+            return c.resultado(pessoas);
+        }
+
+        List<Pessoa> buscarNome(String q, int k) {
+            // nomes que começam pela consulta: faixa contígua, já são os melhores
+            Classificacao c = new Classificacao(k, 3);
+            for (int i = inicioDaFaixa(nomes, q); i < nomes.length && nomes[i].startsWith(q); i++) {
+                c.oferecer(i, 0);
+                if (c.completoAte(0)) return c.resultado(pessoas);
+            }
+
+            // candidatos pela interseção dos termos de 3+ letras, do menor conjunto para o maior;
+            // termos curtos só entram na verificação, a não ser que não haja outro
+            String[] termos = q.split(" ");
+            List<int[]> conjuntos = new ArrayList<>(termos.length);
+            String menorCurto = null;
+            for (String t : termos) {
+                if (t.length() >= 3) {
+                    int[] conjunto = porTrigramas(trigramasNome, t);
+                    if (conjunto.length == 0) return c.resultado(pessoas);
+                    conjuntos.add(conjunto);
+                } else if (menorCurto == null || t.length() > menorCurto.length()) {
+                    menorCurto = t;
+                }
+            }
+            if (conjuntos.isEmpty()) conjuntos.add(porPrefixoDePalavra(menorCurto));
+            conjuntos.sort(Comparator.comparingInt(conjunto -> conjunto.length));
+            int[] candidatos = conjuntos.get(0);
+            for (int j = 1; j < conjuntos.size() && candidatos.length > 0; j++) {
+                candidatos = intersectar(candidatos, conjuntos.get(j));
+            }
+
+            for (int i : candidatos) {
+                String nome = nomes[i];
+                if (nome.startsWith(q)) continue; // já classificado acima
+                int rank;
+                if (todosInicioDePalavra(nome, termos)) rank = 1;
+                else if (todosContidos(nome, termos)) rank = 2;
+                else continue; // trigramas presentes fora de ordem: falso positivo
+                c.oferecer(i, rank);
+                if (c.completoAte(1)) break; // daqui em diante só faixas 1 e 2, já completas
+            }
+            return c.resultado(pessoas);
+        }
+
+        /** Pacientes cujo nome tem alguma palavra começando por {@code prefixo}, em ordem crescente. */
+        private int[] porPrefixoDePalavra(String prefixo) {
+            int de = inicioDaFaixa(palavras, prefixo);
+            ListaInt r = new ListaInt();
+            for (int j = de; j < palavras.length && palavras[j].startsWith(prefixo); j++) r.adicionar(donoPalavra[j]);
+            int[] ids = r.paraVetor();
+            Arrays.sort(ids);
+            return distintos(ids);
+        }
+
+        private static int[] porTrigramas(Trigramas indice, String termo) {
+            int[] resultado = null;
+            for (int j = 0; j + 3 <= termo.length(); j++) {
+                int[] lista = indice.get(trigrama(termo, j));
+                if (lista == null) return new int[0];
+                resultado = resultado == null ? lista : intersectar(resultado, lista);
+                if (resultado.length == 0) break;
+            }
+            return resultado == null ? new int[0] : resultado;
+        }
+
+        /** Acumula pares (trigrama, posição) num único vetor; agrupados depois em {@link Trigramas}. */
+        private static void indexarTrigramas(ListaLong pares, String texto, int posicao) {
+            for (int j = 0; j + 3 <= texto.length(); j++) {
+                pares.adicionar((long) trigrama(texto, j) << 32 | posicao);
+            }
+        }
+
+        private static boolean todosInicioDePalavra(String nome, String[] termos) {
+            for (String t : termos) {
+                if (!nome.startsWith(t) && !nome.contains(" " + t)) return false;
+            }
+            return true;
+        }
+
+        /** Termos de 3+ letras em qualquer ponto do nome; os de 1-2 letras só como início de palavra. */
+        private static boolean todosContidos(String nome, String[] termos) {
+            for (String t : termos) {
+                boolean ok = t.length() >= 3 ? nome.contains(t) : nome.startsWith(t) || nome.contains(" " + t);
+                if (!ok) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Trigrama empacotado num int (10 bits por caractere). Caracteres fora dessa faixa colidem,
+     * o que só gera falso candidato, descartado na verificação do texto.
+     */
+    private static int trigrama(String s, int j) {
+        return (s.charAt(j) & 0x3FF) << 20 | (s.charAt(j + 1) & 0x3FF) << 10 | (s.charAt(j + 2) & 0x3FF);
+    }
+
+    /**
+     * Listas de posições por trigrama, em vetores ordenados (busca binária na chave).
+     * Construído ordenando os pares (trigrama, posição): sem um mapa com milhares de listas
+     * crescendo durante a construção.
+     */
+    private static final class Trigramas {
+        private final int[] chaves;
+        private final int[][] listas;
+
+        Trigramas(ListaLong pares) {
+            long[] v = pares.paraVetor();
+            Arrays.sort(v);
+            ListaInt chavesTmp = new ListaInt();
+            List<int[]> listasTmp = new ArrayList<>();
+            int i = 0;
+            while (i < v.length) {
+                int chave = (int) (v[i] >>> 32);
+                ListaInt posicoes = new ListaInt();
+                for (; i < v.length && (int) (v[i] >>> 32) == chave; i++) posicoes.adicionar((int) v[i]);
+                chavesTmp.adicionar(chave);
+                listasTmp.add(posicoes.paraVetor());
+            }
+            chaves = chavesTmp.paraVetor();
+            listas = listasTmp.toArray(new int[0][]);
+        }
+
+        int[] get(int trigrama) {
+            int i = Arrays.binarySearch(chaves, trigrama);
+            return i < 0 ? null : listas[i];
+        }
+    }
+
+    /** Interseção de dois vetores crescentes sem repetição. */
+    private static int[] intersectar(int[] a, int[] b) {
+        int[] r = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { r[n++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(r, n);
+    }
+
+    private static int[] distintos(int[] ordenado) {
+        int n = 0;
+        for (int i = 0; i < ordenado.length; i++) {
+            if (n == 0 || ordenado[n - 1] != ordenado[i]) ordenado[n++] = ordenado[i];
+        }
+        return Arrays.copyOf(ordenado, n);
+    }
+
+    /** Vetor de int que cresce sob demanda; ignora repetição consecutiva (posições chegam em ordem). */
+    private static final class ListaInt {
+        private int[] v = new int[4];
+        private int n;
+
+        void adicionar(int x) {
+            if (n > 0 && v[n - 1] == x) return;
+            if (n == v.length) v = Arrays.copyOf(v, n * 2);
+            v[n++] = x;
+        }
+
+        int[] paraVetor() {
+            return Arrays.copyOf(v, n);
+        }
+    }
+
+    private static final class ListaLong {
+        private long[] v = new long[1024];
+        private int n;
+
+        void adicionar(long x) {
+            if (n == v.length) v = Arrays.copyOf(v, n * 2);
+            v[n++] = x;
+        }
+
+        long[] paraVetor() {
+            return Arrays.copyOf(v, n);
+        }
+    }
+
+    /** Primeira posição de {@code ordenado} que não é menor que {@code prefixo}. */
+    private static int inicioDaFaixa(String[] ordenado, String prefixo) {
+        int i = Arrays.binarySearch(ordenado, prefixo);
+        if (i < 0) return -i - 1;
+        while (i > 0 && ordenado[i - 1].equals(prefixo)) i--;
+        return i;
+    }
+
+    /**
+     * Separa os candidatos por faixa de relevância (0 = melhor), até k por faixa.
+     * Os candidatos chegam em ordem alfabética, então dentro da faixa o primeiro a chegar
+     * vence e a varredura pode parar assim que as faixas melhores completam k resultados.
+     */
+    private static final class Classificacao {
+        private final int k;
+        private final ListaInt[] faixas;
+
+        Classificacao(int k, int quantidadeFaixas) {
+            this.k = k;
+            this.faixas = new ListaInt[quantidadeFaixas];
+            for (int f = 0; f < quantidadeFaixas; f++) faixas[f] = new ListaInt();
+        }
+
+        void oferecer(int posicao, int faixa) {
+            if (faixas[faixa].n < k) faixas[faixa].adicionar(posicao);
+        }
+
+        /** true se as faixas 0..{@code faixa} já somam k: candidato seguinte dessas faixas ou piores não entra. */
+        boolean completoAte(int faixa) {
+            int acumulado = 0;
+            for (int f = 0; f <= faixa; f++) acumulado += faixas[f].n;
+            return acumulado >= k;
+        }
+
+        List<Pessoa> resultado(Pessoa[] pessoas) {
+            List<Pessoa> r = new ArrayList<>(k);
+            for (ListaInt f : faixas) {
+                for (int j = 0; j < f.n && r.size() < k; j++) r.add(pessoas[f.v[j]]);
+            }
+            return r;
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package service;
 
+import dao.ConflitoVersaoException;
 import dao.MaterialDAO;
 import model.Material;
+import model.MovimentacaoEstoque;
+import model.TipoMovimentacao;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class MaterialService {
 
     private final MaterialDAO dao;
+    private final CacheReferencia cache = CacheReferencia.compartilhado();
 
     public MaterialService() {
         this.dao = new MaterialDAO();
@@ -28,8 +33,35 @@ public class MaterialService {
         }
     }
 
+    /**
+     * Catálogo de materiais para combos e listas de seleção (lista imutável vinda do
+     * {@link CacheReferencia}); a tela de estoque usa {@link #listar()}, sempre do banco.
+     */
+    public List<Material> listarCatalogo() throws ServiceException {
+        try {
+            return cache.obter(CacheReferencia.MATERIAIS, dao::listar);
+        } catch (SQLException e) {
+            throw wrap("Erro ao listar materiais", e);
+        }
+    }
+
+    public Material buscarPorId(int materialId) throws ServiceException {
+        try {
+            Material m = dao.buscarPorId(materialId);
+            if (m == null) throw new ServiceException("Material não encontrado (ID=" + materialId + ").");
+            return m;
+        } catch (SQLException e) {
+            throw wrap("Erro ao buscar material (ID=" + materialId + ")", e);
+        }
+    }
+
     // === Criação ===
     public long criar(String nome, Integer quantidade) throws ServiceException {
+        return criar(nome, quantidade, 0);
+    }
+
+    /** @param pontoReposicao quantidade a partir da qual o material entra no alerta de reposição (0 = sem alerta) */
+    public long criar(String nome, Integer quantidade, Integer pontoReposicao) throws ServiceException {
         // validações
         if (nome == null || nome.isBlank()) {
             throw new ServiceException("Nome do material é obrigatório.");
@@ -38,19 +70,26 @@ public class MaterialService {
         if (qtd < 0) {
             throw new ServiceException("Quantidade inicial não pode ser negativa.");
         }
+        int ponto = (pontoReposicao == null ? 0 : pontoReposicao);
+        if (ponto < 0) {
+            throw new ServiceException("Ponto de reposição não pode ser negativo.");
+        }
 
         Material m = new Material();
         m.setNOME(nome.trim());
         m.setQUANTIDADE(qtd);
+        m.setPONTO_REPOSICAO(ponto);
 
         try {
-            return dao.inserirMaterial(m);
+            long id = dao.inserirMaterial(m);
+            cache.invalidar(CacheReferencia.MATERIAIS);
+            return id;
         } catch (SQLException e) {
             throw wrap("Erro ao criar material", e);
         }
     }
 
-    // === Atualização total (nome e quantidade) ===
+    // === Atualização total (nome, quantidade e ponto de reposição) ===
     public void atualizar(Material m) throws ServiceException {
         if (m == null) throw new ServiceException("Material não pode ser nulo.");
         if (m.getID() == null) throw new ServiceException("ID do material é obrigatório.");
@@ -58,9 +97,15 @@ public class MaterialService {
             throw new ServiceException("Nome do material é obrigatório.");
         if (m.getQUANTIDADE() == null || m.getQUANTIDADE() < 0)
             throw new ServiceException("Quantidade não pode ser negativa.");
+        if (m.getPONTO_REPOSICAO() != null && m.getPONTO_REPOSICAO() < 0)
+            throw new ServiceException("Ponto de reposição não pode ser negativo.");
 
         try {
             dao.atualizarMaterial(m);
+            cache.invalidar(CacheReferencia.MATERIAIS);
+            cache.invalidarFichas(); // nome aparece na ficha dos tratamentos
+        } catch (ConflitoVersaoException e) {
+            throw new ServiceException(e.getMessage(), e);
         } catch (SQLException e) {
             throw wrap("Erro ao atualizar material (ID=" + m.getID() + ")", e);
         }
@@ -71,6 +116,8 @@ public class MaterialService {
         if (materialId <= 0) throw new ServiceException("ID inválido para exclusão.");
         try {
             dao.excluirMaterial(materialId);
+            cache.invalidar(CacheReferencia.MATERIAIS);
+            cache.invalidarFichas();
         } catch (SQLException e) {
             throw wrap("Erro ao excluir material (ID=" + materialId + ")", e);
         }
@@ -78,26 +125,56 @@ public class MaterialService {
 
     // === Regras de estoque ===
 
-    /** Ajusta a quantidade somando delta (pode ser negativo). Retorna a nova quantidade. */
+    /**
+     * Ajusta a quantidade somando delta (pode ser negativo) num único UPDATE condicionado
+     * a não deixar o estoque negativo. Retorna a nova quantidade.
+     */
     public int ajustarQuantidade(int materialId, int delta) throws ServiceException {
         if (materialId <= 0) throw new ServiceException("ID inválido.");
         try {
-            // Carrega atual
-            List<Material> todos = dao.listar(); // simples; ideal ter um dao.buscarPorId(...)
-            Material atual = todos.stream()
-                    .filter(m -> m.getID() != null && m.getID() == materialId)
-                    .findFirst()
-                    .orElseThrow(() -> new ServiceException("Material não encontrado (ID=" + materialId + ")."));
-
-            int nova = (atual.getQUANTIDADE() == null ? 0 : atual.getQUANTIDADE()) + delta;
-            if (nova < 0) throw new ServiceException("Resultado deixaria o estoque negativo.");
-
-            atual.setQUANTIDADE(nova);
-            dao.atualizarMaterial(atual);
+            int nova = dao.ajustarQuantidade(materialId, delta);
+            if (nova >= 0) {
+                cache.invalidar(CacheReferencia.MATERIAIS);
+                return nova;
+            }
+
+            // Caminho raro: descobre o motivo só quando o ajuste foi recusado
+            if (dao.buscarPorId(materialId) == null)
+                throw new ServiceException("Material não encontrado (ID=" + materialId + ").");
+            throw new ServiceException("Resultado deixaria o estoque negativo.");
+        } catch (SQLException e) {
+            throw wrap("Erro ao ajustar quantidade (ID=" + materialId + ", delta=" + delta + ")", e);
+        }
+    }
+
+    /** Entrada de material (compra/recebimento), registrada no livro como ENTRADA. Retorna a nova quantidade. */
+    public int registrarEntrada(int materialId, int quantidade, String observacao) throws ServiceException {
+        if (materialId <= 0) throw new ServiceException("ID inválido.");
+        if (quantidade <= 0) throw new ServiceException("Quantidade de entrada deve ser maior que zero.");
+        try {
+            int nova = dao.ajustarQuantidade(MovimentacaoEstoque.de(materialId, TipoMovimentacao.ENTRADA, quantidade, observacao));
+            if (nova < 0) throw new ServiceException("Material não encontrado (ID=" + materialId + ").");
+            cache.invalidar(CacheReferencia.MATERIAIS);
             return nova;
+        } catch (SQLException e) {
+            throw wrap("Erro ao registrar entrada (ID=" + materialId + ")", e);
+        }
+    }
 
+    /**
+     * Aplica vários ajustes (ID do material -> delta) numa única ida ao banco, tudo ou nada.
+     * @throws ServiceException com os IDs recusados se algum não existir ou ficar negativo
+     */
+    public void ajustarQuantidades(Map<Integer, Integer> deltas) throws ServiceException {
+        if (deltas == null || deltas.isEmpty()) return;
+        try {
+            List<Integer> recusados = dao.ajustarQuantidades(deltas);
+            if (!recusados.isEmpty())
+                throw new ServiceException("Ajuste não aplicado: material inexistente ou estoque insuficiente (IDs "
+                        + recusados + ").");
+            cache.invalidar(CacheReferencia.MATERIAIS);
         } catch (SQLException e) {
-            throw wrap("Erro ao ajustar quantidade (ID=" + materialId + ", delta=" + delta + ")", e);
+            throw wrap("Erro ao ajustar quantidades", e);
         }
     }
 
@@ -107,16 +184,9 @@ public class MaterialService {
         if (novaQuantidade < 0) throw new ServiceException("Quantidade não pode ser negativa.");
 
         try {
-            // idem: ideal ter dao.buscarPorId(...)
-            List<Material> todos = dao.listar();
-            Material atual = todos.stream()
-                    .filter(m -> m.getID() != null && m.getID() == materialId)
-                    .findFirst()
-                    .orElseThrow(() -> new ServiceException("Material não encontrado (ID=" + materialId + ")."));
-
-            atual.setQUANTIDADE(novaQuantidade);
-            dao.atualizarMaterial(atual);
-
+            if (!dao.definirQuantidade(materialId, novaQuantidade))
+                throw new ServiceException("Material não encontrado (ID=" + materialId + ").");
+            cache.invalidar(CacheReferencia.MATERIAIS);
         } catch (SQLException e) {
             throw wrap("Erro ao definir quantidade (ID=" + materialId + ")", e);
         }
@@ -0,0 +1,220 @@
+package service;
+
+import config.Configuracao;
+import dao.AnamneseDao;
+import javafx.scene.image.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Miniaturas e decodificação das imagens de odontograma fora da thread da UI.
+ *
+ * - A miniatura (lado maior = {@code imagens.miniatura.ladoMaximo}) é gerada em segundo plano
+ *   logo ao salvar uma imagem nova, a partir dos bytes já em memória.
+ * - Dois níveis de cache, ambos pelo hash do conteúdo (o conteúdo de um hash nunca muda, então
+ *   não há invalidação): em memória, as miniaturas já decodificadas, em LRU limitada por bytes
+ *   ({@code imagens.miniatura.cacheMemoriaMB}); em disco, o PNG da miniatura
+ *   ({@code imagens.miniatura.diretorio}, local de cada estação).
+ * - Sem miniatura em nenhum nível, ela é gerada lendo a imagem do repositório de blobs.
+ * - A imagem completa só é decodificada quando pedida ({@link #imagemCompleta}), também em
+ *   segundo plano, e não fica em cache.
+ *
+ * Compartilhado por todas as telas via {@link #compartilhado()}.
+ */
+public class MiniaturasOdontograma {
+
+    private static volatile MiniaturasOdontograma compartilhado;
+
+    private final AnamneseDao dao;
+    private final Path diretorio;
+    private final int ladoMaximo;
+    private final long bytesMemoria;
+
+    /** hash -> miniatura decodificada, na ordem de acesso. */
+    private final LinkedHashMap<String, Image> memoria = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytesEmMemoria;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "saco-miniaturas");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public MiniaturasOdontograma(AnamneseDao dao, Path diretorio, int ladoMaximo, long bytesMemoria) {
+        this.dao = dao;
+        this.diretorio = diretorio;
+        this.ladoMaximo = Math.max(16, ladoMaximo);
+        this.bytesMemoria = Math.max(0, bytesMemoria);
+    }
+
+    /** Instância sobre a configuração {@code imagens.miniatura.*}, criada no primeiro uso. */
+    public static MiniaturasOdontograma compartilhado() {
+        MiniaturasOdontograma m = compartilhado;
+        if (m == null) {
+            synchronized (MiniaturasOdontograma.class) {
+                if (compartilhado == null) {
+                    Configuracao cfg = Configuracao.get();
+                    String dir = cfg.get("imagens.miniatura.diretorio", "");
+                    compartilhado = new MiniaturasOdontograma(new AnamneseDao(),
+                            dir.isBlank() ? Path.of(System.getProperty("user.home"), ".saco", "miniaturas") : Path.of(dir),
+                            cfg.getInt("imagens.miniatura.ladoMaximo", 520),
+                            cfg.getLong("imagens.miniatura.cacheMemoriaMB", 32) * 1024 * 1024);
+                }
+                m = compartilhado;
+            }
+        }
+        return m;
+    }
+
+    /** Miniatura já decodificada em memória, ou null (não consulta disco nem banco). */
+    public synchronized Image emMemoria(String hash) {
+        return hash == null ? null : memoria.get(hash);
+    }
+
+    /**
+     * Miniatura de {@code hash}: imediata se estiver em memória; senão lida do disco ou gerada
+     * a partir do repositório de blobs, em segundo plano. Falhas vêm como {@link SQLException}
+     * ou {@link IOException} na causa da {@link CompletionException}.
+     */
+    public CompletableFuture<Image> miniatura(String hash) {
+        Image img = emMemoria(hash);
+        if (img != null) return CompletableFuture.completedFuture(img);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Image m = emMemoria(hash);
+                if (m != null) return m;
+                Path arquivo = arquivo(hash);
+                if (Files.exists(arquivo)) {
+                    try (InputStream in = Files.newInputStream(arquivo)) {
+                        return guardar(hash, new Image(in));
+                    }
+                }
+                return gerar(hash, dao.lerBlob(hash, InputStream::readAllBytes));
+            } catch (IOException | SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /** Gera a miniatura de uma imagem recém-salva em segundo plano (erros são só registrados). */
+    public void gerarEmSegundoPlano(String hash, byte[] imagem) {
+        if (hash == null || imagem == null || emMemoria(hash) != null) return;
+        executor.execute(() -> {
+            try {
+                if (!Files.exists(arquivo(hash))) gerar(hash, imagem);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("⚠ Falha ao gerar miniatura " + hash + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /** Decodifica a imagem completa de {@code hash} em segundo plano. */
+    public CompletableFuture<Image> imagemCompleta(String hash) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return dao.lerBlob(hash, Image::new);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    // ============================================================
+    // ========================= INTERNOS =========================
+    // ============================================================
+
+    /**
+     * Reduz com Java2D e grava o PNG em disco (temporário + rename). Formatos que o ImageIO não
+     * lê (ex.: JPEG CMYK) são reduzidos pelo próprio JavaFX, sem cópia em disco.
+     */
+    private Image gerar(String hash, byte[] imagem) throws IOException {
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(imagem));
+        if (original == null) {
+            return guardar(hash, new Image(new ByteArrayInputStream(imagem), ladoMaximo, ladoMaximo, true, true));
+        }
+
+        double escala = Math.min(1.0, (double) ladoMaximo / Math.max(original.getWidth(), original.getHeight()));
+        int w = Math.max(1, (int) Math.round(original.getWidth() * escala));
+        int h = Math.max(1, (int) Math.round(original.getHeight() * escala));
+        BufferedImage reduzida = new BufferedImage(w, h, original.getColorModel().hasAlpha()
+                ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = reduzida.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(original, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(reduzida, "png", png);
+        byte[] bytes = png.toByteArray();
+        gravarEmDisco(hash, bytes);
+        return guardar(hash, new Image(new ByteArrayInputStream(bytes)));
+    }
+
+    private void gravarEmDisco(String hash, byte[] png) throws IOException {
+        Path destino = arquivo(hash);
+        Files.createDirectories(diretorio);
+        Path tmp = Files.createTempFile(diretorio, hash.substring(0, 8), ".tmp");
+        try {
+            Files.write(tmp, png);
+            try {
+                Files.move(tmp, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Guarda na LRU descartando as usadas há mais tempo até caber no limite de bytes. */
+    private synchronized Image guardar(String hash, Image img) {
+        if (img.isError()) return img;
+        long tamanho = bytes(img);
+        if (tamanho > bytesMemoria) return img;
+
+        Image anterior = memoria.put(hash, img);
+        if (anterior != null) bytesEmMemoria -= bytes(anterior);
+        bytesEmMemoria += tamanho;
+
+        Iterator<Map.Entry<String, Image>> it = memoria.entrySet().iterator();
+        while (bytesEmMemoria > bytesMemoria && it.hasNext()) {
+            Map.Entry<String, Image> e = it.next();
+            if (e.getKey().equals(hash)) continue;
+            bytesEmMemoria -= bytes(e.getValue());
+            it.remove();
+        }
+        return img;
+    }
+
+    /** Memória ocupada pela imagem decodificada (4 bytes por pixel). */
+    private static long bytes(Image img) {
+        return (long) img.getWidth() * (long) img.getHeight() * 4;
+    }
+
+    private Path arquivo(String hash) {
+        return diretorio.resolve(hash + "-" + ladoMaximo + ".png");
+    }
+}
@@ -0,0 +1,44 @@
+package service;
+
+import dao.OdontogramaDao;
+import model.Odontograma;
+import model.PendenciaOdontograma;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas clínicas sobre o odontograma estruturado de todos os pacientes
+ * (ex.: "pacientes com tratamento pendente no dente 36"). A edição acompanha a anamnese
+ * ({@code Anamnese.dentes}, gravado por {@link AnamneseService#salvarOuAtualizar}).
+ */
+public class OdontogramaService {
+    private final OdontogramaDao dao = new OdontogramaDao();
+
+    public Odontograma buscar(long idPaciente) throws SQLException {
+        return dao.buscar(idPaciente);
+    }
+
+    /** Pacientes com pendência no dente {@code fdi}, por nome. */
+    public List<PendenciaOdontograma> pendenciasNoDente(int fdi) throws SQLException {
+        if (!Odontograma.denteValido(fdi)) throw new SQLException("Dente inválido (numeração FDI): " + fdi);
+        return dao.pendenciasNoDente(fdi);
+    }
+
+    /** Pacientes com pendência por dente (FDI -> quantidade), para o relatório geral. */
+    public Map<Integer, Integer> contarPendentesPorDente() throws SQLException {
+        return dao.contarPendentesPorDente();
+    }
+
+    /**
+     * Percorre os odontogramas com pendência em algum dos dentes {@code fdi} (nenhum = todos os
+     * pacientes), para relatórios que olham estados ou faces específicos.
+     */
+    public void varrer(OdontogramaDao.Visitante visitante, int... fdi) throws SQLException {
+        for (int d : fdi) {
+            if (!Odontograma.denteValido(d)) throw new SQLException("Dente inválido (numeração FDI): " + d);
+        }
+        dao.varrer(fdi, visitante);
+    }
+}
@@ -0,0 +1,190 @@
+package service;
+
+import config.Configuracao;
+import model.StatusAgendamento;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Consumo de material previsto pela agenda, mantido em memória por material e por dia.
+ *
+ * - Cada agendamento pendente de conclusão (PENDENTE/CONFIRMADO) reserva a ficha de materiais
+ *   do seu tratamento (TB_CONSUMO_MATERIAL) no dia em que está marcado.
+ * - Agendamentos atrasados (antes de hoje e ainda não concluídos) também reservam: o material
+ *   continua a ser baixado quando forem concluídos. Contam no primeiro dia da janela.
+ * - É aquecido a partir do banco para uma janela (atrasados + hoje .. hoje + N dias) e depois mantido
+ *   incrementalmente pelas escritas do {@link AgendamentoService}: criar/mover/cancelar/concluir
+ *   um agendamento só desfaz e refaz a reserva dele, sem reler a agenda.
+ * - Mudança nas fichas de materiais ({@link TratamentoService}) invalida tudo; outras estações
+ *   são absorvidas pelo reaquecimento após o TTL.
+ * - A carga lê o banco fora do lock: uma escrita registrada durante a leitura
+ *   ({@link #registrar}, {@link #remover}, {@link #invalidar}) incrementa a geração e a carga
+ *   iniciada antes dela é descartada, como no {@link CacheReferencia}.
+ *
+ * Compartilhado por todas as telas via {@link #compartilhado()}.
+ */
+public class PrevisaoEstoque {
+
+    /** Agendamento que ainda vai consumir a ficha do tratamento no dia indicado. */
+    public record Reserva(int idAgendamento, int idTratamento, LocalDate dia) {}
+
+    private static final PrevisaoEstoque COMPARTILHADO = new PrevisaoEstoque(
+            Configuracao.get().getInt("estoque.previsao.diasJanela", 120),
+            Configuracao.get().getLong("estoque.previsao.ttlMinutos", 15)
+    );
+
+    private final int diasJanela;
+    private final long ttlMs;
+
+    /** ID_TRATAMENTO -> (ID_MATERIAL -> quantidade). */
+    private Map<Integer, Map<Integer, Integer>> fichas = Map.of();
+    private final Map<Integer, Reserva> reservas = new HashMap<>();
+    /** ID_MATERIAL -> (dia -> quantidade reservada). */
+    private final Map<Integer, TreeMap<LocalDate, Integer>> consumoPorMaterial = new HashMap<>();
+
+    private boolean aquecido;
+    private long aquecidoEm;
+    /** Incrementada a cada escrita registrada: carga iniciada antes dela não é aplicada. */
+    private long geracao;
+    private LocalDate janelaInicio;
+    private LocalDate janelaFim;
+
+    public PrevisaoEstoque(int diasJanela, long ttlMinutos) {
+        this.diasJanela = diasJanela;
+        this.ttlMs = ttlMinutos * 60_000L;
+    }
+
+    public static PrevisaoEstoque compartilhado() {
+        return COMPARTILHADO;
+    }
+
+    // ============================================================
+    // ========================= CARGA ============================
+    // ============================================================
+
+    /** true se nunca foi carregado ou se o TTL expirou. */
+    public synchronized boolean precisaAquecer(long agora) {
+        return !aquecido || agora - aquecidoEm > ttlMs;
+    }
+
+    /**
+     * Primeiro dia e dia seguinte ao último da janela a ser carregada a partir de {@code hoje}.
+     * Agendamentos pendentes antes do primeiro dia também são carregados e contam nele.
+     */
+    public LocalDate[] janelaPara(LocalDate hoje) {
+        return new LocalDate[]{hoje, hoje.plusDays(diasJanela)};
+    }
+
+    public int getDiasJanela() {
+        return diasJanela;
+    }
+
+    /** Geração atual; lida antes de consultar o banco e devolvida a {@link #carregar}. */
+    public synchronized long getGeracao() {
+        return geracao;
+    }
+
+    /**
+     * Substitui todo o conteúdo: reservas até {@code fim} (as anteriores a {@code inicio}, atrasadas,
+     * passam para {@code inicio}) e fichas de materiais do catálogo,
+     * lidas a partir da geração {@code geracaoInicio}. Retorna false (e não altera nada) se houve
+     * escrita desde então: a leitura pode não conter o que ela registrou.
+     */
+    public synchronized boolean carregar(List<Reserva> lista, Map<Integer, Map<Integer, Integer>> fichasCatalogo,
+                                         LocalDate inicio, LocalDate fim, long agora, long geracaoInicio) {
+        if (geracao != geracaoInicio) return false;
+        fichas = fichasCatalogo;
+        reservas.clear();
+        consumoPorMaterial.clear();
+        janelaInicio = inicio;
+        janelaFim = fim;
+        for (Reserva r : lista) {
+            adicionar(r.dia().isBefore(inicio) ? new Reserva(r.idAgendamento(), r.idTratamento(), inicio) : r);
+        }
+        aquecidoEm = agora;
+        aquecido = true;
+        return true;
+    }
+
+    /** Força recarga na próxima consulta. */
+    public synchronized void invalidar() {
+        geracao++;
+        aquecido = false;
+    }
+
+    // ============================================================
+    // ======================== CONSULTA ==========================
+    // ============================================================
+
+    /** true se os agendamentos até {@code ate} (inclusive) estão todos carregados. */
+    public synchronized boolean cobre(LocalDate ate) {
+        return aquecido && ate.isBefore(janelaFim);
+    }
+
+    /**
+     * Consumo reservado por material, dia a dia, até {@code ate} (inclusive), em cópia.
+     * Só é significativo quando {@link #cobre(LocalDate)} é true.
+     */
+    public synchronized Map<Integer, SortedMap<LocalDate, Integer>> consumoAte(LocalDate ate) {
+        Map<Integer, SortedMap<LocalDate, Integer>> copia = new HashMap<>();
+        consumoPorMaterial.forEach((idMaterial, porDia) -> {
+            SortedMap<LocalDate, Integer> ateDia = porDia.headMap(ate, true);
+            if (!ateDia.isEmpty()) copia.put(idMaterial, new TreeMap<>(ateDia));
+        });
+        return copia;
+    }
+
+    // ============================================================
+    // ======================= MANUTENÇÃO =========================
+    // ============================================================
+
+    /**
+     * Refaz a reserva do agendamento após escrita bem-sucedida no banco: se o status ainda
+     * leva à conclusão, reserva a ficha do tratamento no dia marcado; senão, só desfaz.
+     */
+    public synchronized void registrar(int idAgendamento, int idTratamento, Date dataHora, StatusAgendamento status) {
+        geracao++;
+        if (!aquecido) return;
+        removerInterno(idAgendamento);
+        if (!StatusAgendamento.CONCLUIDO.predecessores().contains(status)) return;
+
+        LocalDate dia = dataHora.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        if (dia.isBefore(janelaFim)) {
+            // atrasado: ainda vai ser baixado, conta no primeiro dia da janela
+            adicionar(new Reserva(idAgendamento, idTratamento, dia.isBefore(janelaInicio) ? janelaInicio : dia));
+        }
+    }
+
+    /** Desfaz a reserva (agendamento excluído, cancelado ou concluído). */
+    public synchronized void remover(int idAgendamento) {
+        geracao++;
+        removerInterno(idAgendamento);
+    }
+
+    private void adicionar(Reserva r) {
+        reservas.put(r.idAgendamento(), r);
+        aplicar(r, +1);
+    }
+
+    private void removerInterno(int idAgendamento) {
+        Reserva antiga = reservas.remove(idAgendamento);
+        if (antiga != null) aplicar(antiga, -1);
+    }
+
+    private void aplicar(Reserva r, int sinal) {
+        Map<Integer, Integer> ficha = fichas.get(r.idTratamento());
+        if (ficha == null) return;
+        ficha.forEach((idMaterial, qtd) -> {
+            TreeMap<LocalDate, Integer> porDia = consumoPorMaterial.computeIfAbsent(idMaterial, k -> new TreeMap<>());
+            porDia.merge(r.dia(), sinal * qtd, (a, b) -> a + b == 0 ? null : a + b);
+            if (porDia.isEmpty()) consumoPorMaterial.remove(idMaterial);
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package service;
 
+import dao.AgendamentoDAO;
 import dao.TratamentoDao;
 import model.ConsumoMaterial;
 import model.Material;
@@ -18,6 +19,10 @@ import java.util.List;
 public class TratamentoService {
 
     private final TratamentoDao dao = new TratamentoDao();
+    private final CatalogoDuracoes catalogoDuracoes = CatalogoDuracoes.compartilhado();
+    /** Reservas de material da agenda dependem das fichas: invalidada a cada mudança de consumo. */
+    private final PrevisaoEstoque previsaoEstoque = PrevisaoEstoque.compartilhado();
+    private final CacheReferencia cache = CacheReferencia.compartilhado();
 
     // ============================================================
     // ===================== EXCEÇÃO DE SERVIÇO ===================
@@ -35,23 +40,29 @@ public class TratamentoService {
         return (s == null) ? "" : s.trim();
     }
 
+    private static void validarDuracao(int duracaoMinutos) throws ServiceException {
+        if (duracaoMinutos <= 0 || duracaoMinutos > AgendamentoDAO.DURACAO_MAXIMA_MIN)
+            throw new ServiceException("Duração deve estar entre 1 e " + AgendamentoDAO.DURACAO_MAXIMA_MIN + " minutos.");
+    }
+
     // ============================================================
     // =========================== LISTAR =========================
     // ============================================================
 
-    /** Retorna todos os tratamentos cadastrados. */
+    /** Retorna todos os tratamentos cadastrados (lista imutável vinda do {@link CacheReferencia}). */
     public List<Tratamento> listar() throws ServiceException {
         try {
-            return dao.listar();
+            return cache.obter(CacheReferencia.TRATAMENTOS, dao::listar);
         } catch (SQLException e) {
             throw wrap("Erro ao listar tratamentos", e);
         }
     }
 
-    /** Lista materiais (com quantidade consumida) vinculados a um tratamento. */
+    /** Lista materiais (com quantidade consumida) vinculados a um tratamento (cacheado por tratamento). */
     public List<Material> listarMateriaisPorTratamento(int idTratamento) throws ServiceException {
         try {
-            return dao.listarMateriaisPorTratamento(idTratamento);
+            return cache.obter(CacheReferencia.materiaisDoTratamento(idTratamento),
+                    () -> dao.listarMateriaisPorTratamento(idTratamento));
         } catch (SQLException e) {
             throw wrap("Erro ao listar materiais do tratamento", e);
         }
@@ -73,12 +84,24 @@ public class TratamentoService {
      * @param consumos     Lista de ConsumoMaterial (idMaterial + quantidade). Pode ser vazia.
      */
     public long criar(String nome, String descricao, List<ConsumoMaterial> consumos) throws ServiceException {
+        return criar(nome, descricao, TratamentoDao.DURACAO_PADRAO_MINUTOS, consumos);
+    }
+
+    /**
+     * Cria tratamento com duração e consumos.
+     * @param duracaoMinutos Tempo que o atendimento ocupa na agenda (1 .. 1440)
+     */
+    public long criar(String nome, String descricao, int duracaoMinutos, List<ConsumoMaterial> consumos)
+            throws ServiceException {
         String nomeOk = safeTrim(nome);
         String descOk = safeTrim(descricao);
         if (nomeOk.isBlank()) throw new ServiceException("Nome do tratamento é obrigatório.");
+        validarDuracao(duracaoMinutos);
 
         try {
-            long id = dao.salvarTratamento(nomeOk, descOk);
+            long id = dao.salvarTratamento(nomeOk, descOk, duracaoMinutos);
+            catalogoDuracoes.invalidar();
+            cache.invalidar(CacheReferencia.TRATAMENTOS);
 
             if (consumos != null && !consumos.isEmpty()) {
                 // Validação leve das quantidades
@@ -90,6 +113,7 @@ public class TratamentoService {
                         throw new ServiceException("Quantidade deve ser maior que zero.");
                 }
                 dao.salvarConsumoMaterial(consumos, (int) id);
+                previsaoEstoque.invalidar();
             }
 
             return id;
@@ -116,14 +140,30 @@ public class TratamentoService {
      */
     public void atualizar(int idTratamento, String nome, String descricao, List<ConsumoMaterial> novosConsumos)
             throws ServiceException {
+        atualizar(idTratamento, nome, descricao, null, novosConsumos);
+    }
+
+    /**
+     * Atualiza dados, duração e, opcionalmente, os consumos de materiais.
+     * @param duracaoMinutos   Nova duração (null = mantém a atual)
+     */
+    public void atualizar(int idTratamento, String nome, String descricao, Integer duracaoMinutos,
+                          List<ConsumoMaterial> novosConsumos) throws ServiceException {
 
         if (idTratamento <= 0) throw new ServiceException("ID do tratamento inválido.");
         String nomeOk = safeTrim(nome);
         String descOk = safeTrim(descricao);
         if (nomeOk.isBlank()) throw new ServiceException("Nome do tratamento é obrigatório.");
+        if (duracaoMinutos != null) validarDuracao(duracaoMinutos);
 
         try {
-            dao.atualizarTratamento(idTratamento, nomeOk, descOk);
+            if (duracaoMinutos != null) {
+                dao.atualizarTratamento(idTratamento, nomeOk, descOk, duracaoMinutos);
+                catalogoDuracoes.invalidar();
+            } else {
+                dao.atualizarTratamento(idTratamento, nomeOk, descOk);
+            }
+            cache.invalidar(CacheReferencia.TRATAMENTOS);
 
             if (novosConsumos != null) {
                 // validação leve
@@ -134,7 +174,10 @@ public class TratamentoService {
                     if (c.getQuantidade() == null || c.getQuantidade() <= 0)
                         throw new ServiceException("Quantidade deve ser maior que zero.");
                 }
-                dao.atualizarConsumoMaterial(idTratamento, novosConsumos);
+                if (dao.atualizarConsumoMaterial(idTratamento, novosConsumos) > 0) {
+                    previsaoEstoque.invalidar();
+                    cache.invalidarFicha(idTratamento);
+                }
             }
         } catch (SQLException e) {
             throw wrap("Erro ao atualizar tratamento", e);
@@ -150,6 +193,9 @@ public class TratamentoService {
         if (idTratamento <= 0) throw new ServiceException("ID do tratamento inválido.");
         try {
             dao.excluirTratamento(idTratamento);
+            catalogoDuracoes.invalidar();
+            previsaoEstoque.invalidar();
+            cache.invalidar(CacheReferencia.TRATAMENTOS, CacheReferencia.materiaisDoTratamento(idTratamento));
         } catch (SQLException e) {
             throw wrap("Erro ao excluir tratamento", e);
         }
@@ -161,6 +207,8 @@ public class TratamentoService {
         if (idMaterial <= 0)   throw new ServiceException("ID do material inválido.");
         try {
             dao.excluirConsumoMaterial(idTratamento, idMaterial);
+            previsaoEstoque.invalidar();
+            cache.invalidarFicha(idTratamento);
         } catch (SQLException e) {
             throw wrap("Erro ao remover material do tratamento", e);
         }
@@ -181,6 +229,8 @@ public class TratamentoService {
 
         try {
             dao.upsertConsumoMaterial(idTratamento, idMaterial, quantidade);
+            previsaoEstoque.invalidar();
+            cache.invalidarFicha(idTratamento);
         } catch (SQLException e) {
             throw wrap("Erro ao salvar consumo do material", e);
         }
@@ -196,8 +246,11 @@ public class TratamentoService {
         if (nomeOk.isBlank()) throw new ServiceException("Nome do tratamento é obrigatório.");
         try {
             long id = dao.salvarTratamento(nomeOk, safeTrim(descricao));
+            catalogoDuracoes.invalidar();
+            cache.invalidar(CacheReferencia.TRATAMENTOS);
             if (idsMateriais != null && !idsMateriais.isEmpty()) {
                 dao.salvarConsumoMaterial(idsMateriais, (int) id, Math.max(1, quantidadePadrao));
+                previsaoEstoque.invalidar();
             }
             return id;
         } catch (SQLException e) {
@@ -0,0 +1,78 @@
+package dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeltaBinarioTest {
+
+    private static byte[] aleatorio(int tamanho, long semente) {
+        byte[] b = new byte[tamanho];
+        new Random(semente).nextBytes(b);
+        return b;
+    }
+
+    private static void idaEVolta(byte[] base, byte[] alvo) throws IOException {
+        assertArrayEquals(alvo, DeltaBinario.aplicar(base, DeltaBinario.calcular(base, alvo)));
+    }
+
+    @Test
+    void vazios() throws IOException {
+        idaEVolta(new byte[0], new byte[0]);
+        idaEVolta(new byte[0], aleatorio(100, 1));
+        idaEVolta(aleatorio(100, 1), new byte[0]);
+    }
+
+    @Test
+    void menoresQueUmBloco() throws IOException {
+        idaEVolta(aleatorio(DeltaBinario.BLOCO - 1, 2), aleatorio(DeltaBinario.BLOCO - 1, 3));
+    }
+
+    @Test
+    void identicosSoCopiam() throws IOException {
+        byte[] base = aleatorio(64 * 1024, 4);
+        idaEVolta(base, base.clone());
+        assertTrue(DeltaBinario.calcular(base, base.clone()).length < 100);
+    }
+
+    @Test
+    void acrescimoNoFim() throws IOException {
+        byte[] base = aleatorio(10_000, 5);
+        byte[] alvo = Arrays.copyOf(base, base.length + 777);
+        System.arraycopy(aleatorio(777, 6), 0, alvo, base.length, 777);
+        idaEVolta(base, alvo);
+        assertTrue(DeltaBinario.calcular(base, alvo).length < 1000);
+    }
+
+    @Test
+    void deslocadoPorInsercaoNoInicioENoMeio() throws IOException {
+        byte[] base = aleatorio(10_000, 7);
+        byte[] alvo = new byte[base.length + 13 + 5];
+        System.arraycopy(aleatorio(13, 8), 0, alvo, 0, 13);
+        System.arraycopy(base, 0, alvo, 13, 4_000);
+        System.arraycopy(aleatorio(5, 9), 0, alvo, 13 + 4_000, 5);
+        System.arraycopy(base, 4_000, alvo, 13 + 4_005, base.length - 4_000);
+        idaEVolta(base, alvo);
+        assertTrue(DeltaBinario.calcular(base, alvo).length < 500);
+    }
+
+    @Test
+    void trechoRemovido() throws IOException {
+        byte[] base = aleatorio(10_000, 10);
+        byte[] alvo = new byte[base.length - 1_000];
+        System.arraycopy(base, 0, alvo, 0, 3_000);
+        System.arraycopy(base, 4_000, alvo, 3_000, base.length - 4_000);
+        idaEVolta(base, alvo);
+    }
+
+    @Test
+    void diferentesDemaisPassamDoLimite() {
+        assertNull(DeltaBinario.calcular(aleatorio(10_000, 11), aleatorio(10_000, 12), 1_000));
+    }
+}
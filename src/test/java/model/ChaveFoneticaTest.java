@@ -0,0 +1,40 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChaveFoneticaTest {
+
+    @Test
+    void cedilhaIgualAGrafiaSemAcento() {
+        assertEquals("KUNSIKAU", ChaveFonetica.deNome("Conceição"));
+        assertEquals("KUNSIKAU", ChaveFonetica.deNome("Conceicao"));
+        assertEquals(ChaveFonetica.deNome("Goncalves"), ChaveFonetica.deNome("Gonçalves"));
+        assertEquals(ChaveFonetica.deNome("Assuncao"), ChaveFonetica.deNome("Assunção"));
+    }
+
+    @Test
+    void zFinalComoS() {
+        assertEquals("LUIS", ChaveFonetica.deNome("Luiz"));
+        assertEquals("LUIS", ChaveFonetica.deNome("Luis"));
+    }
+
+    @Test
+    void hMudo() {
+        assertEquals("TIAGU", ChaveFonetica.deNome("Thiago"));
+        assertEquals("TIAGU", ChaveFonetica.deNome("Tiago"));
+    }
+
+    @Test
+    void primeiroEUltimoNomeSemParticulas() {
+        assertEquals(ChaveFonetica.deNome("Maria Conceicao Sousa"), ChaveFonetica.deNome("Maria da Conceição Souza"));
+        assertEquals("MARIA SUSA", ChaveFonetica.deNome("Maria da Conceição Souza"));
+    }
+
+    @Test
+    void semLetras() {
+        assertEquals("", ChaveFonetica.deNome(null));
+        assertEquals("", ChaveFonetica.deNome(" - "));
+    }
+}
@@ -0,0 +1,72 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OdontogramaTest {
+
+    @Test
+    void estadoDeCadaDenteSobreviveAoRegistroCompactado() {
+        for (EstadoDente estado : EstadoDente.values()) {
+            Odontograma o = new Odontograma();
+            for (int fdi : Odontograma.dentes()) o.setEstado(fdi, estado);
+
+            Odontograma lido = new Odontograma(1, o.getEstados());
+            for (int fdi : Odontograma.dentes()) {
+                assertEquals(estado, lido.getEstado(fdi), "dente " + fdi);
+                for (FaceDente face : FaceDente.values()) assertEquals(EstadoFace.HIGIDA, lido.getFace(fdi, face));
+            }
+        }
+    }
+
+    @Test
+    void estadoDeCadaFaceSobreviveAoRegistroCompactado() {
+        for (EstadoFace estado : EstadoFace.values()) {
+            for (FaceDente face : FaceDente.values()) {
+                Odontograma o = new Odontograma();
+                for (int fdi : Odontograma.dentes()) o.setFace(fdi, face, estado);
+
+                Odontograma lido = new Odontograma(1, o.getEstados());
+                for (int fdi : Odontograma.dentes()) {
+                    assertEquals(EstadoDente.HIGIDO, lido.getEstado(fdi), "dente " + fdi);
+                    for (FaceDente outra : FaceDente.values()) {
+                        assertEquals(outra == face ? estado : EstadoFace.HIGIDA, lido.getFace(fdi, outra),
+                                "dente " + fdi + " face " + outra);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void vizinhosNoMesmoByteNaoSeMisturam() {
+        EstadoDente[] dentes = EstadoDente.values();
+        EstadoFace[] faces = EstadoFace.values();
+        int[] fdi = Odontograma.dentes();
+
+        Odontograma o = new Odontograma();
+        for (int i = 0; i < fdi.length; i++) {
+            o.setEstado(fdi[i], dentes[i % dentes.length]);
+            for (FaceDente face : FaceDente.values()) o.setFace(fdi[i], face, faces[(i + face.ordinal()) % faces.length]);
+        }
+
+        Odontograma lido = new Odontograma(1, o.getEstados());
+        for (int i = 0; i < fdi.length; i++) {
+            assertEquals(dentes[i % dentes.length], lido.getEstado(fdi[i]));
+            for (FaceDente face : FaceDente.values()) {
+                assertEquals(faces[(i + face.ordinal()) % faces.length], lido.getFace(fdi[i], face));
+            }
+        }
+        assertEquals(o.mascaraPendentes(), lido.mascaraPendentes());
+        assertArrayEquals(o.dentesPendentes(), Odontograma.dentesDaMascara(lido.mascaraPendentes()));
+    }
+
+    @Test
+    void registroAntigoMenorCompletaComHigido() {
+        Odontograma o = new Odontograma(1, new byte[3]);
+        assertEquals(Odontograma.TAMANHO, o.getEstados().length);
+        assertEquals(EstadoDente.HIGIDO, o.getEstado(85));
+    }
+}
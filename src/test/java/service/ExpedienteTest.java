@@ -0,0 +1,93 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpedienteTest {
+
+    private static final long MIN = 60_000L;
+    private static final Expediente EXPEDIENTE = Expediente.de("1,2,3,4,5", "08:00-12:00,13:00-18:00", 15, ZoneOffset.UTC);
+
+    /** Segunda-feira, 19/10/2026, às hh:mm (UTC). */
+    private static long segunda(int hora, int minuto) {
+        return LocalDateTime.of(2026, 10, 19, hora, minuto).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static List<long[]> livres(List<long[]> ocupados, long de, long ate, int minutos) {
+        return EXPEDIENTE.horariosLivres(ocupados, de, ate, minutos * MIN, 100);
+    }
+
+    @Test
+    void diaLivreVaiDoInicioAoFimDeCadaPeriodo() {
+        List<long[]> l = livres(List.of(), segunda(0, 0), segunda(23, 59), 30);
+
+        assertEquals(15 + 19, l.size());
+        assertEquals(segunda(8, 0), l.get(0)[0]);
+        assertEquals(segunda(11, 30), l.get(14)[0]);
+        assertEquals(segunda(12, 0), l.get(14)[1]);
+        assertEquals(segunda(13, 0), l.get(15)[0]);
+        assertEquals(segunda(18, 0), l.get(l.size() - 1)[1]);
+    }
+
+    @Test
+    void horarioQueUltrapassariaOPeriodoNaoEOferecido() {
+        List<long[]> l = livres(List.of(), segunda(11, 0), segunda(12, 30), 45);
+
+        assertEquals(2, l.size());
+        assertEquals(segunda(11, 0), l.get(0)[0]);
+        assertEquals(segunda(11, 15), l.get(1)[0]);
+    }
+
+    @Test
+    void ocupacoesEncostadasNaoBloqueiam() {
+        List<long[]> ocupados = List.of(
+                new long[]{segunda(8, 0), segunda(8, 30)},
+                new long[]{segunda(9, 0), segunda(9, 30)});
+        List<long[]> l = livres(ocupados, segunda(8, 0), segunda(10, 0), 30);
+
+        assertEquals(segunda(8, 30), l.get(0)[0]);   // começa quando a anterior termina
+        assertEquals(segunda(9, 0), l.get(0)[1]);    // termina quando a seguinte começa
+        assertEquals(segunda(9, 30), l.get(1)[0]);
+        assertEquals(2, l.size());
+    }
+
+    @Test
+    void ocupacaoQueAtravessaOIntervaloVoltaNaGradeDaTarde() {
+        List<long[]> ocupados = List.of(new long[]{segunda(11, 0), segunda(13, 20)});
+        List<long[]> l = livres(ocupados, segunda(10, 30), segunda(14, 0), 30);
+
+        assertEquals(segunda(10, 30), l.get(0)[0]);
+        assertEquals(segunda(13, 30), l.get(1)[0]);
+        assertEquals(2, l.size());
+    }
+
+    @Test
+    void limitesDaBuscaNoMeioDoPeriodo() {
+        List<long[]> l = livres(List.of(), segunda(8, 7), segunda(9, 0), 30);
+
+        assertEquals(2, l.size());
+        assertEquals(segunda(8, 15), l.get(0)[0]);   // alinhado à grade do período
+        assertEquals(segunda(9, 0), l.get(1)[1]);    // termina exatamente no limite
+    }
+
+    @Test
+    void diasForaDoExpedienteSaoPulados() {
+        long sabado = segunda(0, 0) - 2 * 24 * 60 * MIN;
+        List<long[]> l = livres(List.of(), sabado, segunda(8, 30), 30);
+
+        assertEquals(1, l.size());
+        assertEquals(segunda(8, 0), l.get(0)[0]);
+    }
+
+    @Test
+    void diaTodoOcupadoNaoTemHorario() {
+        List<long[]> ocupados = List.of(new long[]{segunda(7, 0), segunda(19, 0)});
+        assertTrue(livres(ocupados, segunda(0, 0), segunda(23, 59), 15).isEmpty());
+    }
+}
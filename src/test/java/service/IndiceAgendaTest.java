@@ -0,0 +1,134 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceAgendaTest {
+
+    private static final long MIN = 60_000L;
+
+    private static IndiceAgenda aquecido(IndiceAgenda.Intervalo... intervalos) {
+        IndiceAgenda indice = new IndiceAgenda(1, 15);
+        indice.carregar(List.of(intervalos), 0, 24 * 60 * MIN, 0);
+        return indice;
+    }
+
+    @Test
+    void intervalosQueSeEncostamNaoConflitam() {
+        IndiceAgenda indice = aquecido(new IndiceAgenda.Intervalo(1, 7, 60 * MIN, 90 * MIN));
+
+        assertNull(indice.buscarConflito(7, 30 * MIN, 60 * MIN, null));   // termina quando o outro começa
+        assertNull(indice.buscarConflito(7, 90 * MIN, 120 * MIN, null));  // começa quando o outro termina
+        assertEquals(1, indice.buscarConflito(7, 89 * MIN, 120 * MIN, null));
+        assertEquals(1, indice.buscarConflito(7, 30 * MIN, 61 * MIN, null));
+        assertTrue(indice.ocupados(7, 90 * MIN, 120 * MIN).isEmpty());
+    }
+
+    @Test
+    void conflitoSoComOMesmoDentistaEIgnorandoOProprio() {
+        IndiceAgenda indice = aquecido(new IndiceAgenda.Intervalo(1, 7, 60 * MIN, 90 * MIN));
+
+        assertNull(indice.buscarConflito(8, 60 * MIN, 90 * MIN, null));
+        assertNull(indice.buscarConflito(7, 70 * MIN, 80 * MIN, 1));
+    }
+
+    @Test
+    void removerEMoverAtualizamAsBuscas() {
+        IndiceAgenda indice = aquecido(
+                new IndiceAgenda.Intervalo(1, 7, 60 * MIN, 90 * MIN),
+                new IndiceAgenda.Intervalo(2, 7, 120 * MIN, 150 * MIN));
+
+        indice.remover(1);
+        assertNull(indice.buscarConflito(7, 60 * MIN, 90 * MIN, null));
+        assertEquals(2, indice.buscarConflito(7, 60 * MIN, 130 * MIN, null));
+
+        indice.registrar(new IndiceAgenda.Intervalo(2, 7, 200 * MIN, 230 * MIN));
+        assertNull(indice.buscarConflito(7, 120 * MIN, 150 * MIN, null));
+        assertEquals(2, indice.buscarConflito(7, 210 * MIN, 220 * MIN, null));
+
+        indice.remover(2);
+        assertTrue(indice.ocupados(7, 0, 24 * 60 * MIN).isEmpty());
+    }
+
+    @Test
+    void mesmoInicioComIdsDiferentes() {
+        ArvoreIntervalos arvore = new ArvoreIntervalos();
+        arvore.inserir(1, 100, 200);
+        arvore.inserir(2, 100, 150);
+
+        assertTrue(arvore.remover(2, 100));
+        assertFalse(arvore.remover(2, 100));
+        assertEquals(1, arvore.buscarSobreposicao(160, 170, -1));
+        assertEquals(1, arvore.tamanho());
+    }
+
+    @Test
+    void insercaoEmOrdemNaoDegeneraAArvore() {
+        // sem rebalanceamento, 200 mil inserções em ordem virariam uma lista e estourariam a pilha
+        ArvoreIntervalos arvore = new ArvoreIntervalos();
+        int n = 200_000;
+        for (int i = 0; i < n; i++) arvore.inserir(i, i * 10L, i * 10L + 10);
+        assertEquals(n, arvore.tamanho());
+        assertEquals(n - 1, arvore.buscarSobreposicao(n * 10L - 1, n * 10L, -1));
+
+        for (int i = 0; i < n; i += 2) assertTrue(arvore.remover(i, i * 10L));
+        assertEquals(n / 2, arvore.tamanho());
+        assertEquals(-1, arvore.buscarSobreposicao(0, 10, -1));
+        assertEquals(1, arvore.buscarSobreposicao(0, 11, -1));
+    }
+
+    @Test
+    void buscasIguaisAVarreduraAposInsercoesERemocoesAleatorias() {
+        Random aleatorio = new Random(42);
+        ArvoreIntervalos arvore = new ArvoreIntervalos();
+        List<long[]> todos = new ArrayList<>();   // {id, inicio, fim}
+        for (int id = 0; id < 2_000; id++) {
+            long inicio = aleatorio.nextInt(100_000);
+            long fim = inicio + 1 + aleatorio.nextInt(500);
+            arvore.inserir(id, inicio, fim);
+            todos.add(new long[]{id, inicio, fim});
+        }
+        for (int k = 0; k < 1_000; k++) {
+            long[] r = todos.remove(aleatorio.nextInt(todos.size()));
+            assertTrue(arvore.remover((int) r[0], r[1]));
+        }
+        assertEquals(todos.size(), arvore.tamanho());
+
+        for (int q = 0; q < 1_000; q++) {
+            long inicio = aleatorio.nextInt(100_000);
+            long fim = inicio + 1 + aleatorio.nextInt(300);
+
+            List<long[]> esperado = new ArrayList<>();
+            for (long[] t : todos) {
+                if (t[1] < fim && t[2] > inicio) esperado.add(new long[]{t[1], t[2]});
+            }
+            esperado.sort((a, b) -> Long.compare(a[0], b[0]));
+
+            List<long[]> obtido = new ArrayList<>();
+            arvore.coletar(inicio, fim, obtido);
+            assertEquals(esperado.size(), obtido.size());
+            for (int i = 0; i < esperado.size(); i++) assertEquals(esperado.get(i)[0], obtido.get(i)[0]);
+            assertEquals(esperado.isEmpty(), arvore.buscarSobreposicao(inicio, fim, -1) < 0);
+        }
+    }
+
+    @Test
+    void janelaCobertaEForaDela() {
+        IndiceAgenda indice = aquecido();
+        assertTrue(indice.cobre(0, 24 * 60 * MIN));
+        assertFalse(indice.cobre(-1, 10));
+        assertFalse(indice.cobre(10, 24 * 60 * MIN + 1));
+
+        // fora da janela não é guardado
+        indice.registrar(new IndiceAgenda.Intervalo(9, 7, 25 * 60 * MIN, 26 * 60 * MIN));
+        assertTrue(indice.ocupados(7, 0, 30 * 60 * MIN).isEmpty());
+    }
+}